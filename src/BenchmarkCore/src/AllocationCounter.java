@@ -0,0 +1,98 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Counts the bytes, that the current thread allocates on the heap.
+ *
+ * Used to verify, that the hot loops of the benchmarks do not allocate any memory per message
+ * (see '--check-alloc'), since allocations cause garbage collections, which show up as latency outliers.
+ *
+ * Reading the counter may allocate a few bytes itself on some JVMs. This overhead is measured by start()
+ * and subtracted by stop(), so that a loop, which does not allocate, is counted with 0 bytes.
+ *
+ * @author Fabian Ruhland, HHU
+ * @date 2018
+ */
+class AllocationCounter {
+
+    /**
+     * The JVM's thread bean, if it supports counting the allocated bytes per thread (null otherwise).
+     */
+    private static final com.sun.management.ThreadMXBean threadBean = getThreadBean();
+
+    /**
+     * The amount of bytes, that a single reading of the counter allocates.
+     */
+    private long overhead = 0;
+
+    /**
+     * The counter's value at the time, at which start() has been called.
+     */
+    private long startBytes = 0;
+
+    /**
+     * Check whether the JVM supports counting the allocated bytes per thread.
+     */
+    static boolean isSupported() {
+        return threadBean != null;
+    }
+
+    /**
+     * Start counting the bytes, that the current thread allocates.
+     */
+    void start() {
+        if(threadBean == null) {
+            return;
+        }
+
+        long first = getAllocatedBytes();
+
+        startBytes = getAllocatedBytes();
+        overhead = startBytes - first;
+    }
+
+    /**
+     * Stop counting.
+     *
+     * Must be called by the same thread, that has called start().
+     *
+     * @return The amount of bytes, that the current thread has allocated since start() (always 0, if unsupported)
+     */
+    long stop() {
+        if(threadBean == null) {
+            return 0;
+        }
+
+        return Math.max(0, getAllocatedBytes() - startBytes - overhead);
+    }
+
+    /**
+     * Read the counter of the current thread.
+     */
+    private static long getAllocatedBytes() {
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Get the JVM's thread bean and enable its allocation counter.
+     *
+     * @return The thread bean, or null, if the JVM does not support counting the allocated bytes per thread
+     */
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        if(!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+
+        if(!allocationBean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+        return allocationBean;
+    }
+}
@@ -0,0 +1,336 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Contains the configuration variables, that both benchmark programs share, and parses their options.
+ *
+ * JSocketBench and JVerbsBench only parse the options of their own transports and benchmarks and hand all other
+ * options to parseOption(), so that a shared option has the same name, default and meaning in both programs.
+ *
+ * @author Fabian Ruhland, HHU
+ * @date 2018
+ */
+abstract class BenchmarkProgram {
+
+    /**
+     * The connection mode (server or client).
+     */
+    MODE mode = null;
+
+    /**
+     * Whether the server and the client run on separate threads inside this process ('--mode loopback').
+     */
+    boolean loopback = false;
+
+    /**
+     * The remote host's hostname (only relevant in client mode).
+     */
+    String remoteHostname = null;
+
+    /**
+     * The address to bind the local socket to.
+     */
+    String bindAddress = null;
+
+    /**
+     * The buffer size to be used for the messages that are sent/received.
+     */
+    int bufSize = 1024;
+
+    /**
+     * The amount of messages to send/receive.
+     */
+    long messageCount = 1000000;
+
+    /**
+     * The duration of a duration-based run in seconds (0 = send/receive messageCount messages instead).
+     */
+    long duration = 0;
+
+    /**
+     * The interval in milliseconds, in which the progress of a run is sampled (0 = no interval reporting).
+     */
+    long reportInterval = 0;
+
+    /**
+     * The amount of messages per connection, that are transferred before each measured run (0 = no warmup).
+     */
+    long warmupCount = 0;
+
+    /**
+     * The duration of the warmup phase in seconds (overrides warmupCount, 0 = use warmupCount).
+     */
+    long warmupDuration = 0;
+
+    /**
+     * The message sizes of a message size sweep (null = only run with bufSize).
+     */
+    int[] messageSizes = null;
+
+    /**
+     * The amount of repetitions per message size of a message size sweep.
+     */
+    int repetitions = 1;
+
+    /**
+     * The TCP-port to be used for the connection.
+     *
+     * If more than one connection is used, the connections use consecutive ports, starting at this port.
+     */
+    int port = 8888;
+
+    /**
+     * The maximum amount of outstanding requests per connection in the pingpong benchmark.
+     */
+    int window = 1;
+
+    /**
+     * The amount of requests per second and connection in the pingpong benchmark (0 = as fast as possible).
+     */
+    long rate = 0;
+
+    /**
+     * Every n-th message of the throughput benchmarks is timed separately, to get a distribution of send latencies
+     * (0 = never).
+     */
+    long sampleInterval = 100;
+
+    /**
+     * The file, to which the full latency distribution is exported (null = no export).
+     */
+    String histogramPath = null;
+
+    /**
+     * The performance counter mode.
+     */
+    PERF_COUNTER_MODE perfCounterMode = PERF_COUNTER_MODE.OFF;
+
+    /**
+     * What happens to received payloads (discard or mmap).
+     */
+    SINK_MODE sinkMode = SINK_MODE.DISCARD;
+
+    /**
+     * The path of the file, into which received payloads are stored (only relevant for the mmap sink).
+     *
+     * If more than one connection is used, the connection's index is appended to the path.
+     * If no path is given, temporary files are used.
+     */
+    String sinkPath = null;
+
+    /**
+     * The size of the memory mapped file per connection in bytes (only relevant for the mmap sink).
+     */
+    long sinkSize = 1024 * 1024 * 1024;
+
+    /**
+     * The amount of bytes, after which a memory mapped file is forced to the storage device (0 = never).
+     */
+    long syncInterval = 0;
+
+    /**
+     * Possible connections modes (server or client).
+     */
+    enum MODE {
+        SERVER, /**< Run as server **/
+        CLIENT  /**< Run as client */
+    }
+
+    /**
+     * Possible receive sinks (discard or mmap).
+     */
+    enum SINK_MODE {
+        DISCARD,    /**< Receive all payloads into the same buffer */
+        MMAP        /**< Store all payloads in a memory mapped file */
+    }
+
+    /**
+     * Possible perf counter modes (off, compat or mad).
+     */
+    enum PERF_COUNTER_MODE {
+        OFF,    /**< Do not measure raw statistics */
+        COMPAT, /**< Use the filesystem to measure raw statistics */
+        MAD     /**< Use the ibmad-library to measure raw statistics */
+    }
+
+    /**
+     * Parse an option, that both benchmark programs share, and set the configuration variable accordingly.
+     *
+     * @param option The option's name (e.g. '-s' or '--size')
+     * @param value The option's value
+     *
+     * @return Whether the option is a shared option (false, if the value has not been consumed)
+     */
+    boolean parseOption(String option, String value) {
+        switch (option) {
+            case "-m":
+            case "--mode":
+                switch (value) {
+                    case "server":
+                        this.mode = MODE.SERVER;
+                        break;
+                    case "client":
+                        this.mode = MODE.CLIENT;
+                        break;
+                    case "loopback":
+                        // This instance is the server, the clients are created by runLoopback()
+                        this.mode = MODE.SERVER;
+                        this.loopback = true;
+                        break;
+                    default:
+                        Log.ERROR_AND_EXIT("MAIN","Invalid mode '%s'!", value);
+                }
+                break;
+            case "-r":
+            case "--remote":
+                this.remoteHostname = value;
+                break;
+            case "-a":
+            case "--address":
+                this.bindAddress = value;
+                break;
+            case "-s":
+            case "--size":
+                this.bufSize = Integer.parseUnsignedInt(value);
+                break;
+            case "-sz":
+            case "--sizes":
+                this.messageSizes = BenchmarkReport.parseSizes(value);
+                break;
+            case "-rp":
+            case "--repetitions":
+                this.repetitions = Integer.parseUnsignedInt(value);
+                break;
+            case "-c":
+            case "--count":
+                this.messageCount = Long.parseUnsignedLong(value);
+                break;
+            case "-d":
+            case "--duration":
+                this.duration = Long.parseUnsignedLong(value);
+                break;
+            case "-ri":
+            case "--report-interval":
+                this.reportInterval = Long.parseUnsignedLong(value);
+                break;
+            case "-wc":
+            case "--warmup-count":
+                this.warmupCount = Long.parseUnsignedLong(value);
+                break;
+            case "-wd":
+            case "--warmup-duration":
+                this.warmupDuration = Long.parseUnsignedLong(value);
+                break;
+            case "-p":
+            case "--port":
+                this.port = Integer.parseUnsignedInt(value);
+                break;
+            case "-w":
+            case "--window":
+                this.window = Integer.parseUnsignedInt(value);
+                break;
+            case "-ra":
+            case "--rate":
+                this.rate = Long.parseUnsignedLong(value);
+                break;
+            case "-sa":
+            case "--sample-interval":
+                this.sampleInterval = Long.parseUnsignedLong(value);
+                break;
+            case "-hf":
+            case "--histogram-file":
+                this.histogramPath = value;
+                break;
+            case "-sk":
+            case "--sink":
+                switch (value) {
+                    case "discard":
+                        this.sinkMode = SINK_MODE.DISCARD;
+                        break;
+                    case "mmap":
+                        this.sinkMode = SINK_MODE.MMAP;
+                        break;
+                    default:
+                        Log.ERROR_AND_EXIT("MAIN","Invalid sink '%s'!", value);
+                }
+                break;
+            case "-sf":
+            case "--sink-file":
+                this.sinkPath = value;
+                break;
+            case "-ss":
+            case "--sink-size":
+                this.sinkSize = Long.parseUnsignedLong(value);
+                break;
+            case "-si":
+            case "--sync-interval":
+                this.syncInterval = Long.parseUnsignedLong(value);
+                break;
+            case "-rs":
+            case "--raw-statistics":
+                switch (value) {
+                    case "off":
+                        this.perfCounterMode = PERF_COUNTER_MODE.OFF;
+                        break;
+                    case "compat":
+                        this.perfCounterMode = PERF_COUNTER_MODE.COMPAT;
+                        break;
+                    case "mad":
+                        this.perfCounterMode = PERF_COUNTER_MODE.MAD;
+                        break;
+                    default:
+                        Log.ERROR_AND_EXIT("MAIN","Invalid perf counter mode '%s'!", value);
+                }
+                break;
+            case "-v":
+            case "--verbosity":
+                Log.VERBOSITY = Integer.parseUnsignedInt(value);
+                break;
+            default:
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Create the arguments of a loopback client from the arguments of the loopback server.
+     *
+     * The mode is replaced and the client connects to the given hostname. All other options are kept,
+     * so that both roles agree on the options, that must be set on both sides.
+     *
+     * @param args The arguments of the loopback server
+     * @param hostname The hostname, to which the client connects
+     * @param removeClients Whether to remove the amount of clients (each client is a separate instance)
+     *
+     * @return The client's arguments
+     */
+    static String[] createLoopbackClientArgs(String[] args, String hostname, boolean removeClients) {
+        List<String> clientArgs = new ArrayList<>();
+
+        for(int i = 0; i < args.length - 1; i += 2) {
+            switch (args[i]) {
+                case "-m":
+                case "--mode":
+                case "-r":
+                case "--remote":
+                    break;
+                case "-cl":
+                case "--clients":
+                    if(!removeClients) {
+                        clientArgs.add(args[i]);
+                        clientArgs.add(args[i + 1]);
+                    }
+                    break;
+                default:
+                    clientArgs.add(args[i]);
+                    clientArgs.add(args[i + 1]);
+            }
+        }
+
+        clientArgs.addAll(Arrays.asList("--mode", "client", "--remote", hostname));
+
+        return clientArgs.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,625 @@
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Contains the parsing and printing, that both benchmark programs share.
+ *
+ * A message size sweep is parsed from the same list format, and its rows are printed in the same columns,
+ * so that the results of JSocketBench and JVerbsBench can be compared directly. The rates, throughputs, latencies
+ * and the fairness between connections are calculated by the same methods, and the results of a run, the warmup
+ * phase and the JIT compilation during the measured run are reported the same way as well.
+ *
+ * @author Fabian Ruhland, HHU
+ * @date 2018
+ */
+class BenchmarkReport {
+
+    /**
+     * Parse a comma separated list of message sizes.
+     *
+     * Each size may end with 'K' or 'M' (binary prefixes), e.g. '1,2,4,1K,64K,1M'.
+     *
+     * @param list The list to be parsed
+     *
+     * @return The message sizes in bytes
+     */
+    static int[] parseSizes(String list) {
+        String[] values = list.split(",");
+        int[] sizes = new int[values.length];
+
+        for(int i = 0; i < values.length; i++) {
+            String value = values[i].trim().toUpperCase();
+            int factor = 1;
+
+            if(value.endsWith("K")) {
+                factor = 1024;
+            } else if(value.endsWith("M")) {
+                factor = 1024 * 1024;
+            }
+
+            if(factor > 1) {
+                value = value.substring(0, value.length() - 1);
+            }
+
+            sizes[i] = Math.multiplyExact(Integer.parseUnsignedInt(value), factor);
+        }
+
+        return sizes;
+    }
+
+    /**
+     * Print the header of a message size sweep (only for formatted results).
+     *
+     * @param repetitions The amount of repetitions per message size
+     * @param pingPong Whether the pingpong benchmark is executed
+     */
+    static void printSweepHeader(int repetitions, boolean pingPong) {
+        if(Log.VERBOSITY == 0) {
+            return;
+        }
+
+        System.out.printf("Message size sweep (median of %d repetition(s)):\n", repetitions);
+
+        if(pingPong) {
+            System.out.printf("  %10s %12s %12s %12s %12s\n", "Size [B]", "kReq/s", "Avg [us]", "p50 [us]",
+                    "p99 [us]");
+        } else {
+            System.out.printf("  %10s %14s %14s %12s %12s %12s\n", "Size [B]", "Send kPkts/s", "Recv kPkts/s",
+                    "Send MB/s", "Recv MB/s", "Lat. [us]");
+        }
+    }
+
+    /**
+     * Get the results of the last run of a message size sweep.
+     *
+     * @param benchmarks The benchmarks, that have been executed in the last run
+     * @param messageSize The message size of the last run
+     * @param pingPong Whether the pingpong benchmark has been executed
+     *
+     * @return The request rate, the average, median and 99th percentile latency for the pingpong benchmark,
+     *         or the send and receive packet rates, the send and receive throughput and the average send latency
+     */
+    static double[] getSweepResults(TransportBenchmarks benchmarks, int messageSize, boolean pingPong) {
+        long sendTime = benchmarks.getSendTime();
+        long recvTime = benchmarks.getRecvTime();
+        long sentMessages = benchmarks.getSentMessages();
+        long recvMessages = benchmarks.getRecvMessages();
+
+        if(pingPong) {
+            LatencyHistogram latencyHistogram = benchmarks.getCumulatedLatencyHistogram();
+
+            return new double[] {
+                    getRate(sentMessages, sendTime),
+                    latencyHistogram.getMean() / (double) 1000,
+                    latencyHistogram.getValueAtPercentile(50) / (double) 1000,
+                    latencyHistogram.getValueAtPercentile(99) / (double) 1000
+            };
+        }
+
+        return new double[] {
+                getRate(sentMessages, sendTime),
+                getRate(recvMessages, recvTime),
+                getThroughputMb(sentMessages * messageSize, sendTime),
+                getThroughputMb(recvMessages * messageSize, recvTime),
+                getAverageLatency(sendTime, sentMessages)
+        };
+    }
+
+    /**
+     * Print the median of all repetitions of a message size as one row.
+     *
+     * The raw output contains one comma separated line per message size, starting with the size.
+     *
+     * @param size The message size
+     * @param results The results of all repetitions (see getSweepResults())
+     * @param pingPong Whether the pingpong benchmark has been executed
+     */
+    static void printSweepRow(int size, double[][] results, boolean pingPong) {
+        double[] medians = new double[results[0].length];
+
+        for(int i = 0; i < medians.length; i++) {
+            double[] values = new double[results.length];
+
+            for(int j = 0; j < results.length; j++) {
+                values[j] = results[j][i];
+            }
+
+            Arrays.sort(values);
+
+            medians[i] = values.length % 2 == 1 ? values[values.length / 2] :
+                    (values[values.length / 2 - 1] + values[values.length / 2]) / 2;
+        }
+
+        if(Log.VERBOSITY > 0) {
+            System.out.printf("  %10d", size);
+
+            for(int i = 0; i < medians.length; i++) {
+                System.out.printf(!pingPong && i < 2 ? " %14.2f" : " %12.2f", medians[i]);
+            }
+        } else {
+            System.out.printf("%d", size);
+
+            for(double median : medians) {
+                System.out.printf(",%f", median);
+            }
+        }
+
+        System.out.println();
+    }
+
+    /**
+     * Print the results of the pingpong benchmark.
+     *
+     * @param sendTime The time in nanoseconds, from the first request to the last answer
+     * @param requests The amount of requests, that have been sent
+     * @param latencyHistogram The latencies of all requests
+     * @param window The maximum amount of outstanding requests per connection
+     * @param rate The amount of requests per second and connection (0 = as fast as possible)
+     */
+    static void printPingPongResults(long sendTime, long requests, LatencyHistogram latencyHistogram, int window,
+                                     long rate) {
+        double requestRate = getRate(requests, sendTime);
+        double avgLatency = getAverageLatency(latencyHistogram.getSum(), requests);
+
+        if(Log.VERBOSITY > 0) {
+            System.out.print("Results:\n");
+            System.out.printf("  Total time: %.2f s\n", sendTime / ((double) 1000000000));
+            System.out.printf("  Window: %d outstanding request(s) per connection\n", window);
+
+            if(rate > 0) {
+                System.out.printf("  Target request rate: %.2f kReq/s per connection " +
+                        "(latency measured from the intended send time)\n", rate / (double) 1000);
+            }
+            System.out.printf("  Average request rate: %.2f kReq/s\n", requestRate);
+            System.out.printf("  Average request response latency: %.2f us\n", avgLatency);
+        } else {
+            System.out.printf("%f\n", sendTime / ((double) 1000000000));
+            System.out.printf("%f\n", avgLatency);
+            System.out.printf("%f\n", requestRate);
+        }
+    }
+
+    /**
+     * Print the results of a throughput benchmark (unidirectional or bidirectional).
+     *
+     * If raw statistics are measured, the data, that has actually been transferred by the InfiniBand device,
+     * and the protocol overhead are printed as well.
+     *
+     * @param sendTime The time in nanoseconds, that has been spent sending
+     * @param recvTime The time in nanoseconds, that has been spent receiving (0, if nothing has been received)
+     * @param sentMessages The amount of messages, that have been sent
+     * @param recvMessages The amount of messages, that have been received
+     * @param sentBytes The amount of payload bytes, that have been sent
+     * @param recvBytes The amount of payload bytes, that have been received
+     * @param sizeDistribution The description of the payload size distribution (null = fixed-size messages)
+     * @param perfCounter The performance counter, which has measured the run (null = no raw statistics)
+     */
+    static void printThroughputResults(long sendTime, long recvTime, long sentMessages, long recvMessages,
+                                       long sentBytes, long recvBytes, String sizeDistribution,
+                                       IbPerfCounter perfCounter) {
+        double sendPktsRate = getRate(sentMessages, sendTime);
+        double recvPktsRate = getRate(recvMessages, recvTime);
+
+        double sendAvgThroughputMib = getThroughputMib(sentBytes, sendTime);
+        double sendAvgThroughputMb = getThroughputMb(sentBytes, sendTime);
+        double recvAvgThroughputMib = getThroughputMib(recvBytes, recvTime);
+        double recvAvgThroughputMb = getThroughputMb(recvBytes, recvTime);
+
+        double sendAvgLatency = getAverageLatency(sendTime, sentMessages);
+
+        if(Log.VERBOSITY > 0) {
+            System.out.print("Results:\n");
+            System.out.printf("  Total time: %.2f s\n", sendTime / ((double) 1000000000));
+            System.out.printf("  Total data: %.2f MiB (%.2f MB)\n",
+                    sentBytes / ((double) 1024) / ((double) 1024),
+                    sentBytes / ((double) 1000) / ((double) 1000));
+
+            if(sizeDistribution != null) {
+                System.out.printf("  Size distribution: %s (average sent/received payload: %.2f/%.2f bytes)\n",
+                        sizeDistribution, sentMessages == 0 ? 0 : sentBytes / (double) sentMessages,
+                        recvMessages == 0 ? 0 : recvBytes / (double) recvMessages);
+            }
+            System.out.printf("  Average sent packet per second:     %.2f kPkts/s\n", sendPktsRate);
+            System.out.printf("  Average recv packet per second:     %.2f kPkts/s\n", recvPktsRate);
+            System.out.printf("  Average combined packet per second: %.2f kPkts/s\n", sendPktsRate + recvPktsRate);
+            System.out.printf("  Average send throughput:     %.2f MiB/s (%.2f MB/s)\n",
+                    sendAvgThroughputMib, sendAvgThroughputMb);
+            System.out.printf("  Average recv throughput:     %.2f MiB/s (%.2f MB/s)\n",
+                    recvAvgThroughputMib, recvAvgThroughputMb);
+            System.out.printf("  Average combined throughput: %.2f MiB/s (%.2f MB/s)\n",
+                    sendAvgThroughputMib + recvAvgThroughputMib, sendAvgThroughputMb + recvAvgThroughputMb);
+            System.out.printf("  Average send latency: %.2f us\n", sendAvgLatency);
+        } else {
+            System.out.printf("%f\n", sendTime / ((double) 1000000000));
+            System.out.printf("%f\n", sentBytes / ((double) 1024) / ((double) 1024));
+            System.out.printf("%f\n", sendPktsRate);
+            System.out.printf("%f\n", recvPktsRate);
+            System.out.printf("%f\n", sendPktsRate + recvPktsRate);
+            System.out.printf("%f\n", sendAvgThroughputMb);
+            System.out.printf("%f\n", recvAvgThroughputMb);
+            System.out.printf("%f\n", sendAvgThroughputMb + recvAvgThroughputMb);
+            System.out.printf("%f\n", sendAvgLatency);
+        }
+
+        if(perfCounter != null) {
+            printRawStatistics(sendTime, recvTime, sentBytes, perfCounter);
+        }
+    }
+
+    /**
+     * Print the data, that has actually been transferred by the InfiniBand device, and the protocol overhead.
+     *
+     * @param sendTime The time in nanoseconds, that has been spent sending
+     * @param recvTime The time in nanoseconds, that has been spent receiving (0, if nothing has been received)
+     * @param sentBytes The amount of payload bytes, that have been sent
+     * @param perfCounter The performance counter, which has measured the run
+     */
+    private static void printRawStatistics(long sendTime, long recvTime, long sentBytes, IbPerfCounter perfCounter) {
+        // Even if we only send data, a few bytes will also be received, because of the RC-protocol,
+        // so if recvTime is 0, we just set it to sendTime,
+        // so that the raw receive throughput can be calculated correctly.
+        if (recvTime == 0) {
+            recvTime = sendTime;
+        } else if (sendTime == 0) {
+            recvTime = 0;
+        }
+
+        double sendAvgRawThroughputMib = getThroughputMib(perfCounter.getXmitDataBytes(), sendTime);
+        double sendAvgRawThroughputMb = getThroughputMb(perfCounter.getXmitDataBytes(), sendTime);
+        double recvAvgRawThroughputMib = getThroughputMib(perfCounter.getRcvDataBytes(), recvTime);
+        double recvAvgRawThroughputMb = getThroughputMb(perfCounter.getRcvDataBytes(), recvTime);
+
+        double sendOverhead = 0;
+        double recvOverhead = 0;
+
+        if(sentBytes < perfCounter.getXmitDataBytes()) {
+            sendOverhead = perfCounter.getXmitDataBytes() - sentBytes;
+        }
+
+        if(sentBytes < perfCounter.getRcvDataBytes()) {
+            recvOverhead = perfCounter.getRcvDataBytes() - sentBytes;
+        }
+
+        double sendOverheadPercentage = sendOverhead / (double) sentBytes;
+        double recvOverheadPercentage = recvOverhead / (double) sentBytes;
+
+        if(Log.VERBOSITY > 0) {
+            System.out.print("\nRaw statistics:\n");
+            System.out.printf("  Total packets sent: %d\n", perfCounter.getXmitPkts());
+            System.out.printf("  Total packets received %d\n", perfCounter.getRcvPkts());
+            System.out.printf("  Total data sent: %.2f MiB (%.2f MB)\n", perfCounter.getXmitDataBytes() /
+                            ((double) 1024) / ((double) 1024),
+                    perfCounter.getXmitDataBytes() / ((double) 1000) / ((double) 1000));
+            System.out.printf("  Total data received: %.2f MiB (%.2f MB)\n", perfCounter.getRcvDataBytes() /
+                            ((double) 1024) / ((double) 1024),
+                    perfCounter.getRcvDataBytes() / ((double) 1000) / ((double) 1000));
+            System.out.printf("  Send overhead: %.2f MiB (%.2f MB), %.2f%%\n", sendOverhead /
+                            ((double) 1024) / ((double) 1024),
+                    sendOverhead / ((double) 1000) / ((double) 1000), sendOverheadPercentage * 100);
+            System.out.printf("  Receive overhead: %.2f MiB (%.2f MB), %.2f%%\n", recvOverhead /
+                            ((double) 1024) / ((double) 1024),
+                    recvOverhead / ((double) 1000) / ((double) 1000), recvOverheadPercentage * 100);
+            System.out.printf("  Total sent data: %.2f MiB (%.2f MB)\n",
+                    perfCounter.getXmitDataBytes() / ((double) 1024) / ((double) 1024),
+                    perfCounter.getXmitDataBytes() / ((double) 1000) / ((double) 1000));
+            System.out.printf("  Total received data: %.2f MiB (%.2f MB)\n",
+                    perfCounter.getXmitDataBytes() / ((double) 1024) / ((double) 1024),
+                    perfCounter.getXmitDataBytes() / ((double) 1000) / ((double) 1000));
+            System.out.printf("  Average send throughput:     %.2f MiB/s (%.2f MB/s)\n",
+                    sendAvgRawThroughputMib, sendAvgRawThroughputMb);
+            System.out.printf("  Average recv throughput:     %.2f MiB/s (%.2f MB/s)\n",
+                    recvAvgRawThroughputMib, recvAvgRawThroughputMb);
+            System.out.printf("  Average combined throughput: %.2f MiB/s (%.2f MB/s)\n",
+                    sendAvgRawThroughputMib + recvAvgRawThroughputMib,
+                    sendAvgRawThroughputMb + recvAvgRawThroughputMb);
+        } else {
+            System.out.printf("%d\n", perfCounter.getXmitPkts());
+            System.out.printf("%d\n", perfCounter.getXmitPkts());
+            System.out.printf("%f\n", perfCounter.getXmitDataBytes() / ((double) 1024) / ((double) 1024));
+            System.out.printf("%f\n", perfCounter.getRcvDataBytes() / ((double) 1024) / ((double) 1024));
+            System.out.printf("%f\n", sendOverhead / ((double) 1024) / ((double) 1024) );
+            System.out.printf("%f\n", sendOverheadPercentage * 100);
+            System.out.printf("%f\n", recvOverhead / ((double) 1024) / ((double) 1024) );
+            System.out.printf("%f\n", recvOverheadPercentage * 100);
+            System.out.printf("%f\n", sendAvgRawThroughputMb);
+            System.out.printf("%f\n", recvAvgRawThroughputMb);
+            System.out.printf("%f\n", sendAvgRawThroughputMb + recvAvgRawThroughputMb);
+        }
+    }
+
+    /**
+     * Print the aggregated results of the fanin benchmark, which are measured by the receiving server.
+     *
+     * @param recvTime The time in nanoseconds from the first client's start to the last client's end
+     * @param recvMessages The amount of messages, that have been received from all clients
+     * @param recvBytes The amount of payload bytes, that have been received from all clients
+     * @param clients The amount of clients
+     * @param sizeDistribution The description of the payload size distribution (null = fixed-size messages)
+     */
+    static void printFanInResults(long recvTime, long recvMessages, long recvBytes, int clients,
+                                  String sizeDistribution) {
+        double pktsRate = getRate(recvMessages, recvTime);
+        double avgThroughputMib = getThroughputMib(recvBytes, recvTime);
+        double avgThroughputMb = getThroughputMb(recvBytes, recvTime);
+
+        if(Log.VERBOSITY > 0) {
+            System.out.print("Results:\n");
+            System.out.printf("  Clients: %d\n", clients);
+            System.out.printf("  Total time: %.2f s\n", recvTime / ((double) 1000000000));
+            System.out.printf("  Total data: %.2f MiB (%.2f MB)\n",
+                    recvBytes / ((double) 1024) / ((double) 1024),
+                    recvBytes / ((double) 1000) / ((double) 1000));
+
+            if(sizeDistribution != null) {
+                System.out.printf("  Size distribution: %s (average received payload: %.2f bytes)\n",
+                        sizeDistribution, recvMessages == 0 ? 0 : recvBytes / (double) recvMessages);
+            }
+
+            System.out.printf("  Aggregated recv packet per second: %.2f kPkts/s\n", pktsRate);
+            System.out.printf("  Aggregated recv throughput: %.2f MiB/s (%.2f MB/s)\n", avgThroughputMib,
+                    avgThroughputMb);
+        } else {
+            System.out.printf("%f\n", recvTime / ((double) 1000000000));
+            System.out.printf("%f\n", recvBytes / ((double) 1024) / ((double) 1024));
+            System.out.printf("%f\n", pktsRate);
+            System.out.printf("%f\n", avgThroughputMb);
+        }
+    }
+
+    /**
+     * Print the results of each single connection and the fairness between the connections.
+     *
+     * For throughput benchmarks, the send and receive throughput of each connection is printed.
+     * For the pingpong benchmark, the average and the 99th percentile latency of each connection are printed.
+     *
+     * The fairness is given by the minimum and the maximum throughput (or request rate for the pingpong benchmark)
+     * and Jain's fairness index (see getFairness()).
+     *
+     * @param benchmarks The benchmarks, that have been executed on the connections
+     * @param kind What a connection is called in the header ('connection' or 'client')
+     * @param names The name of each connection
+     * @param sentBytes The amount of payload bytes, that each connection has sent (ignored for pingpong)
+     * @param recvBytes The amount of payload bytes, that each connection has received (ignored for pingpong)
+     * @param pingPong Whether the pingpong benchmark has been executed
+     */
+    static void printConnectionResults(TransportBenchmarks benchmarks, String kind, String[] names, long[] sentBytes,
+                                       long[] recvBytes, boolean pingPong) {
+        double[] shares = new double[names.length];
+
+        if(Log.VERBOSITY > 0) {
+            System.out.printf("\nPer-%s results:\n", kind);
+        }
+
+        for(int i = 0; i < names.length; i++) {
+            long sendTime = benchmarks.getSendTime(i);
+            long recvTime = benchmarks.getRecvTime(i);
+
+            if(pingPong) {
+                LatencyHistogram histogram = benchmarks.getLatencyHistogram(i);
+
+                double avgLatency = histogram.getMean() / (double) 1000;
+                double p99Latency = histogram.getValueAtPercentile(99) / (double) 1000;
+
+                shares[i] = getRate(benchmarks.getSentMessages(i), sendTime);
+
+                if(Log.VERBOSITY > 0) {
+                    System.out.printf("  %s: Average request response latency: %.2f us (p99: %.2f us)\n", names[i],
+                            avgLatency, p99Latency);
+                } else {
+                    System.out.printf("%f\n", avgLatency);
+                    System.out.printf("%f\n", p99Latency);
+                }
+            } else {
+                double sendThroughputMb = getThroughputMb(sentBytes[i], sendTime);
+                double recvThroughputMb = getThroughputMb(recvBytes[i], recvTime);
+
+                shares[i] = sendThroughputMb + recvThroughputMb;
+
+                if(Log.VERBOSITY > 0) {
+                    System.out.printf("  %s: send %.2f MB/s, recv %.2f MB/s\n", names[i], sendThroughputMb,
+                            recvThroughputMb);
+                } else {
+                    System.out.printf("%f\n", sendThroughputMb);
+                    System.out.printf("%f\n", recvThroughputMb);
+                }
+            }
+        }
+
+        double min = Arrays.stream(shares).min().getAsDouble();
+        double max = Arrays.stream(shares).max().getAsDouble();
+        double fairness = getFairness(shares);
+
+        if(Log.VERBOSITY > 0) {
+            String unit = pingPong ? "kReq/s" : "MB/s";
+
+            System.out.printf("  Fairness: min %.2f %s, max %.2f %s, Jain's index %.4f\n", min, unit, max, unit,
+                    fairness);
+        } else {
+            System.out.printf("%f\n", min);
+            System.out.printf("%f\n", max);
+            System.out.printf("%f\n", fairness);
+        }
+    }
+
+    /**
+     * Print the amount of messages per second and the throughput of each sampled interval.
+     *
+     * @param progressSampler The sampler, that has sampled the run
+     * @param reportInterval The interval in milliseconds, in which the run has been sampled
+     * @param messageSize The size of a single message in bytes (ignored, if the sampler has sampled the bytes)
+     * @param printSend Whether to print the send rate
+     * @param printRecv Whether to print the receive rate
+     * @param pingPong Whether the pingpong benchmark has been executed (the send rate is a request rate)
+     */
+    static void printIntervalResults(ProgressSampler progressSampler, long reportInterval, long messageSize,
+                                     boolean printSend, boolean printRecv, boolean pingPong) {
+        if(Log.VERBOSITY > 0) {
+            System.out.printf("\nInterval results (every %d ms):\n", reportInterval);
+        }
+
+        for(int i = 0; i < progressSampler.getSampleCount(); i++) {
+            long duration = progressSampler.getSampleDuration(i);
+            double seconds = duration / ((double) 1000000000);
+            double end = progressSampler.getSampleTime(i) / ((double) 1000000000);
+
+            double sendRate = getRate(progressSampler.getSentMessages(i), duration);
+            double recvRate = getRate(progressSampler.getRecvMessages(i), duration);
+
+            // Messages of varying sizes are counted with the bytes, that have actually been transferred
+            long sentBytes = progressSampler.hasByteCounters() ? progressSampler.getSentBytes(i) :
+                    progressSampler.getSentMessages(i) * messageSize;
+            long recvBytes = progressSampler.hasByteCounters() ? progressSampler.getRecvBytes(i) :
+                    progressSampler.getRecvMessages(i) * messageSize;
+
+            double sendThroughputMb = getThroughputMb(sentBytes, duration);
+            double recvThroughputMb = getThroughputMb(recvBytes, duration);
+
+            if(Log.VERBOSITY > 0) {
+                System.out.printf("  %7.2f - %7.2f s:", end - seconds, end);
+
+                if(printSend) {
+                    System.out.printf(" %s%.2f %s (%.2f MB/s)", printRecv ? "send " : "", sendRate,
+                            pingPong ? "kReq/s" : "kPkts/s", sendThroughputMb);
+                }
+
+                if(printSend && printRecv) {
+                    System.out.print(",");
+                }
+
+                if(printRecv) {
+                    System.out.printf(" recv %.2f kPkts/s (%.2f MB/s)", recvRate, recvThroughputMb);
+                }
+
+                System.out.println();
+            } else {
+                if(printSend) {
+                    System.out.printf("%f\n", sendRate);
+                    System.out.printf("%f\n", sendThroughputMb);
+                }
+
+                if(printRecv) {
+                    System.out.printf("%f\n", recvRate);
+                    System.out.printf("%f\n", recvThroughputMb);
+                }
+            }
+        }
+    }
+
+    /**
+     * Log the start of a warmup phase.
+     *
+     * @param warmupCount The amount of messages per connection, that are transferred during the warmup phase
+     * @param warmupDuration The duration of the warmup phase in seconds (overrides warmupCount, if not 0)
+     */
+    static void logWarmupStart(long warmupCount, long warmupDuration) {
+        if(warmupDuration > 0) {
+            Log.INFO("MAIN", "Warming up for %d second(s)...", warmupDuration);
+        } else {
+            Log.INFO("MAIN", "Warming up with %d message(s) per connection...", warmupCount);
+        }
+    }
+
+    /**
+     * Log the end of a warmup phase, after both hosts have synchronized.
+     */
+    static void logWarmupEnd() {
+        Log.INFO("MAIN", "Finished warming up!");
+    }
+
+    /**
+     * Get the total time in milliseconds, that the JIT compiler has spent so far.
+     *
+     * @return The compilation time, or -1, if the JVM does not support compilation time monitoring
+     */
+    static long getCompilationTime() {
+        CompilationMXBean compilationBean = ManagementFactory.getCompilationMXBean();
+
+        if(compilationBean == null || !compilationBean.isCompilationTimeMonitoringSupported()) {
+            return -1;
+        }
+
+        return compilationBean.getTotalCompilationTime();
+    }
+
+    /**
+     * Print the time, that the JIT compiler has spent during the measured run.
+     *
+     * Any compilation during the measured run means, that the results partly contain the interpreter and
+     * less optimized code, so that the warmup phase should be extended.
+     *
+     * @param compilationTime The compilation time in milliseconds during the measured run
+     */
+    static void printCompilationResults(long compilationTime) {
+        if(Log.VERBOSITY > 0) {
+            System.out.printf("\nJIT compilation during the measured run: %d ms%s\n", compilationTime,
+                    compilationTime > 0 ? " (consider a longer warmup phase)" : "");
+        } else {
+            System.out.printf("%d\n", compilationTime);
+        }
+    }
+
+    /**
+     * Get the rate, at which messages (or requests) have been transferred.
+     *
+     * @param count The amount of messages
+     * @param time The time in nanoseconds, that the messages took
+     *
+     * @return The rate in thousand messages per second (0, if no time has been measured)
+     */
+    static double getRate(long count, long time) {
+        return time <= 0 ? 0 : count / (time / ((double) 1000000000)) / ((double) 1000);
+    }
+
+    /**
+     * Get the throughput in MiB/s (binary prefix).
+     *
+     * @param bytes The amount of bytes, that have been transferred
+     * @param time The time in nanoseconds, that the transfer took
+     *
+     * @return The throughput (0, if no time has been measured)
+     */
+    static double getThroughputMib(long bytes, long time) {
+        return time <= 0 ? 0 : bytes / (time / ((double) 1000000000)) / ((double) 1024) / ((double) 1024);
+    }
+
+    /**
+     * Get the throughput in MB/s (decimal prefix).
+     *
+     * @param bytes The amount of bytes, that have been transferred
+     * @param time The time in nanoseconds, that the transfer took
+     *
+     * @return The throughput (0, if no time has been measured)
+     */
+    static double getThroughputMb(long bytes, long time) {
+        return time <= 0 ? 0 : bytes / (time / ((double) 1000000000)) / ((double) 1000) / ((double) 1000);
+    }
+
+    /**
+     * Get the average latency of a message (or request).
+     *
+     * @param time The sum of all latencies (or the total time) in nanoseconds
+     * @param count The amount of messages
+     *
+     * @return The average latency in microseconds (0, if no message has been measured)
+     */
+    static double getAverageLatency(long time, long count) {
+        return count <= 0 ? 0 : time / (double) count / (double) 1000;
+    }
+
+    /**
+     * Get Jain's fairness index of the shares, that a set of connections has achieved.
+     *
+     * The index is 1, if all connections achieved the same share, and 1/n, if a single connection got all of it.
+     *
+     * @param shares The throughput (or request rate) of each connection
+     *
+     * @return The fairness index (0, if no connection achieved anything)
+     */
+    static double getFairness(double[] shares) {
+        double sum = Arrays.stream(shares).sum();
+        double sumOfSquares = Arrays.stream(shares).map(share -> share * share).sum();
+
+        return sumOfSquares == 0 ? 0 : sum * sum / (shares.length * sumOfSquares);
+    }
+}
@@ -1,3 +1,9 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+
 /**
  * Uses JNI-calls to read the performance counters of an infiniband device either via the mad library, or by using the filesystem.
  *
@@ -6,6 +12,11 @@
  */
 class IbPerfCounter {
 
+    /**
+     * The path of the native library inside the .jar-file.
+     */
+    private static final String NATIVE_LIBRARY_PATH = "/libIbPerfCounter.so";
+
     /**
      * Constructor.
      */
@@ -54,4 +65,23 @@ class IbPerfCounter {
      * Get the amount of received packets.
      */
     public native long getRcvPkts();
+
+    /**
+     * Load the native library, that is contained inside the .jar-file.
+     *
+     * Based on https://stackoverflow.com/a/49500154
+     */
+    static void loadNativeLibrary() throws IOException {
+        File tmpDir = Files.createTempDirectory("IbPerfCounter-native").toFile();
+        tmpDir.deleteOnExit();
+
+        File nativeLibTmpFile = new File(tmpDir, NATIVE_LIBRARY_PATH);
+        nativeLibTmpFile.deleteOnExit();
+
+        URL url = IbPerfCounter.class.getResource(NATIVE_LIBRARY_PATH);
+        InputStream in = url.openStream();
+
+        Files.copy(in, nativeLibTmpFile.toPath());
+        System.load(nativeLibTmpFile.getAbsolutePath());
+    }
 }
@@ -0,0 +1,284 @@
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Log-linear histogram of latencies in nanoseconds.
+ *
+ * Values below SUB_BUCKET_COUNT are counted exactly. Larger values are counted in buckets, whose width doubles
+ * with every power of two, while each power of two is divided into SUB_BUCKET_COUNT / 2 linear sub-buckets.
+ * This limits the relative error of every reported value to 2 / SUB_BUCKET_COUNT, while covering the whole
+ * range of long values with a few thousand counters.
+ *
+ * All counters are allocated by the constructor, so that record() never allocates memory.
+ * A histogram must only be recorded to by a single thread at a time.
+ *
+ * @author Fabian Ruhland, HHU
+ * @date 2018
+ */
+class LatencyHistogram {
+
+    /**
+     * The amount of bits, that are used to determine the sub-bucket inside a power of two.
+     */
+    private static final int SUB_BUCKET_BITS = 7;
+
+    /**
+     * The amount of exactly counted values (and twice the amount of sub-buckets per power of two).
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The amount of sub-buckets per power of two.
+     */
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+
+    /**
+     * The amount of counters, that are needed to cover all positive long values.
+     */
+    private static final int COUNTER_COUNT = SUB_BUCKET_COUNT + (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT;
+
+    /**
+     * The percentiles, that are reported by print().
+     */
+    private static final double[] REPORTED_PERCENTILES = { 50, 90, 99, 99.9, 99.99 };
+
+    /**
+     * The names of the reported percentiles.
+     */
+    private static final String[] REPORTED_PERCENTILE_NAMES = { "p50", "p90", "p99", "p99.9", "p99.99" };
+
+    /**
+     * The counters.
+     */
+    private final long[] counts = new long[COUNTER_COUNT];
+
+    /**
+     * The amount of recorded values.
+     */
+    private long totalCount = 0;
+
+    /**
+     * The sum of all recorded values.
+     */
+    private long sum = 0;
+
+    /**
+     * The smallest recorded value.
+     */
+    private long min = Long.MAX_VALUE;
+
+    /**
+     * The largest recorded value.
+     */
+    private long max = 0;
+
+    /**
+     * Record a single value.
+     *
+     * @param value The value in nanoseconds (negative values are recorded as 0)
+     */
+    void record(long value) {
+        if(value < 0) {
+            value = 0;
+        }
+
+        counts[getIndex(value)]++;
+        totalCount++;
+        sum += value;
+
+        if(value < min) {
+            min = value;
+        }
+
+        if(value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Add all values of another histogram to this histogram.
+     *
+     * @param other The histogram to be added
+     */
+    void add(LatencyHistogram other) {
+        for(int i = 0; i < COUNTER_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+
+        totalCount += other.totalCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Remove all recorded values.
+     */
+    void reset() {
+        for(int i = 0; i < COUNTER_COUNT; i++) {
+            counts[i] = 0;
+        }
+
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * Get the amount of recorded values.
+     */
+    long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * Get the sum of all recorded values in nanoseconds.
+     */
+    long getSum() {
+        return sum;
+    }
+
+    /**
+     * Get the smallest recorded value in nanoseconds (0, if no value has been recorded).
+     */
+    long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    /**
+     * Get the largest recorded value in nanoseconds.
+     */
+    long getMax() {
+        return max;
+    }
+
+    /**
+     * Get the average of all recorded values in nanoseconds.
+     */
+    double getMean() {
+        return totalCount == 0 ? 0 : sum / (double) totalCount;
+    }
+
+    /**
+     * Get the value, that is larger than or equal to the given percentage of all recorded values.
+     *
+     * The returned value is the upper bound of the bucket, that contains the percentile,
+     * but never larger than the largest recorded value.
+     *
+     * @param percentile The percentile (0 - 100)
+     *
+     * @return The value in nanoseconds (0, if no value has been recorded)
+     */
+    long getValueAtPercentile(double percentile) {
+        if(totalCount == 0) {
+            return 0;
+        }
+
+        long threshold = (long) Math.ceil(totalCount * Math.min(percentile, 100) / 100);
+        long cumulated = 0;
+
+        if(threshold < 1) {
+            threshold = 1;
+        }
+
+        for(int i = 0; i < COUNTER_COUNT; i++) {
+            cumulated += counts[i];
+
+            if(cumulated >= threshold) {
+                return Math.min(getUpperBound(i), max);
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Print the reported percentiles and the maximum.
+     *
+     * @param title The title of the distribution (only printed, if the verbosity is greater than 0)
+     * @param raw Whether to print one raw value per line (in microseconds), instead of formatted results
+     */
+    void print(String title, boolean raw) {
+        if(raw) {
+            for(double percentile : REPORTED_PERCENTILES) {
+                System.out.printf("%f\n", getValueAtPercentile(percentile) / (double) 1000);
+            }
+
+            System.out.printf("%f\n", max / (double) 1000);
+
+            return;
+        }
+
+        System.out.printf("\n%s (%d samples):\n", title, totalCount);
+
+        for(int i = 0; i < REPORTED_PERCENTILES.length; i++) {
+            System.out.printf("  %-8s%.3f us\n", REPORTED_PERCENTILE_NAMES[i] + ":",
+                    getValueAtPercentile(REPORTED_PERCENTILES[i]) / (double) 1000);
+        }
+
+        System.out.printf("  %-8s%.3f us\n", "max:", max / (double) 1000);
+    }
+
+    /**
+     * Export the full distribution.
+     *
+     * Every non-empty bucket is written as one line, containing the bucket's upper bound in nanoseconds,
+     * the amount of values in the bucket and the percentage of values, that are smaller than or equal
+     * to the upper bound.
+     *
+     * @param stream The stream to write to
+     * @param title Written as a comment in front of the distribution
+     */
+    void export(PrintStream stream, String title) throws IOException {
+        long cumulated = 0;
+
+        stream.printf("# %s\n", title);
+        stream.print("# upper_bound_ns,count,percentile\n");
+
+        for(int i = 0; i < COUNTER_COUNT; i++) {
+            if(counts[i] == 0) {
+                continue;
+            }
+
+            cumulated += counts[i];
+
+            stream.printf("%d,%d,%f\n", Math.min(getUpperBound(i), max), counts[i],
+                    cumulated / (double) totalCount * 100);
+        }
+
+        stream.println();
+
+        if(stream.checkError()) {
+            throw new IOException("Unable to write the distribution!");
+        }
+    }
+
+    /**
+     * Get the index of the counter, that counts a given value.
+     */
+    private static int getIndex(long value) {
+        if(value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_HALF_COUNT;
+
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + subBucket;
+    }
+
+    /**
+     * Get the largest value, that is counted by a given counter.
+     */
+    private static long getUpperBound(int index) {
+        if(index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,225 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+
+/**
+ * Receive sink, that stores incoming payloads in a memory mapped file.
+ *
+ * The payloads are written one after another into a MappedByteBuffer. When the end of the mapping is reached,
+ * the sink wraps around and continues at the beginning of the file. Optionally, the written pages are forced
+ * to the storage device every time a configurable amount of bytes has been written, so that the costs of
+ * page faults and writeback are included in the measured receive times.
+ *
+ * @author Fabian Ruhland, HHU
+ * @date 2018
+ */
+class MappedSink {
+
+    /**
+     * The mapped file.
+     */
+    private final FileChannel file;
+
+    /**
+     * The mapping, into which the payloads are written.
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * The amount of bytes, after which the mapping is forced to the storage device (0 = never).
+     */
+    private final long syncInterval;
+
+    /**
+     * The amount of bytes, that have been written since the last force() call.
+     */
+    private long unsyncedBytes = 0;
+
+    /**
+     * The total amount of bytes, that have been written into the mapping.
+     */
+    private long writtenBytes = 0;
+
+    /**
+     * The amount of times, the sink has wrapped around to the beginning of the file.
+     */
+    private long wraps = 0;
+
+    /**
+     * The amount of force() calls.
+     */
+    private long syncCount = 0;
+
+    /**
+     * The total time in nanoseconds, that has been spent in force().
+     */
+    private long syncTime = 0;
+
+    /**
+     * The longest time in nanoseconds, that has been spent in a single force() call.
+     */
+    private long maxSyncTime = 0;
+
+    /**
+     * Create a sink.
+     *
+     * The file is created (or extended) to the given size and mapped into memory.
+     *
+     * @param path The file's path (if null, a temporary file is created, which is deleted, when the program exits)
+     * @param size The size of the mapping in bytes
+     * @param syncInterval The amount of bytes, after which the mapping is forced to the storage device (0 = never)
+     *
+     * @throws IOException If the file can not be created or mapped
+     */
+    MappedSink(String path, long size, long syncInterval) throws IOException {
+        File target;
+
+        if(path == null) {
+            target = Files.createTempFile("benchmark-sink-", ".dat").toFile();
+            target.deleteOnExit();
+        } else {
+            target = new File(path);
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(target, "rw");
+
+        if(raf.length() < size) {
+            raf.setLength(size);
+        }
+
+        this.file = raf.getChannel();
+        this.buffer = file.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        this.syncInterval = syncInterval;
+
+        Log.INFO("SINK", "Mapped %d bytes of file '%s'.", size, target.getPath());
+    }
+
+    /**
+     * Get the part of the mapping, that receives the next payload.
+     *
+     * The returned buffer's position and limit enclose exactly length bytes. If the payload does not fit
+     * between the current position and the end of the mapping, the sink wraps around to the beginning.
+     * After the buffer has been filled, commit() needs to be called.
+     *
+     * @param length The payload's size in bytes
+     *
+     * @return The mapping
+     */
+    ByteBuffer reserve(int length) {
+        int position = buffer.position();
+
+        if(buffer.capacity() - position < length) {
+            position = 0;
+            wraps++;
+        }
+
+        buffer.limit(position + length);
+        buffer.position(position);
+
+        return buffer;
+    }
+
+    /**
+     * Mark a reserved payload as written.
+     *
+     * If the sync interval has been reached, the mapping is forced to the storage device.
+     *
+     * @param length The payload's size in bytes
+     */
+    void commit(int length) {
+        writtenBytes += length;
+        unsyncedBytes += length;
+
+        if(syncInterval > 0 && unsyncedBytes >= syncInterval) {
+            long startTime = System.nanoTime();
+
+            buffer.force();
+
+            long time = System.nanoTime() - startTime;
+
+            syncCount++;
+            syncTime += time;
+
+            if(time > maxSyncTime) {
+                maxSyncTime = time;
+            }
+
+            unsyncedBytes = 0;
+        }
+    }
+
+    /**
+     * Copy a payload into the mapping.
+     *
+     * @param src The payload (from its position up to its limit)
+     */
+    void write(ByteBuffer src) {
+        int length = src.remaining();
+
+        reserve(length).put(src);
+        commit(length);
+    }
+
+    /**
+     * Reset all statistics.
+     */
+    void resetStatistics() {
+        writtenBytes = 0;
+        wraps = 0;
+        syncCount = 0;
+        syncTime = 0;
+        maxSyncTime = 0;
+    }
+
+    /**
+     * Close the mapped file.
+     *
+     * The mapping itself stays valid, until it is garbage collected.
+     */
+    void close() {
+        try {
+            file.close();
+        } catch (IOException e) {
+            Log.WARN("SINK", "Unable to close mapped file! Error: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Get the total amount of bytes, that have been written into the mapping.
+     */
+    long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    /**
+     * Get the amount of times, the sink has wrapped around to the beginning of the file.
+     */
+    long getWraps() {
+        return wraps;
+    }
+
+    /**
+     * Get the amount of force() calls.
+     */
+    long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * Get the total time in nanoseconds, that has been spent in force().
+     */
+    long getSyncTime() {
+        return syncTime;
+    }
+
+    /**
+     * Get the longest time in nanoseconds, that has been spent in a single force() call.
+     */
+    long getMaxSyncTime() {
+        return maxSyncTime;
+    }
+}
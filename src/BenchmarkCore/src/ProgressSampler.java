@@ -0,0 +1,273 @@
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Periodically reads the progress counters of a running benchmark.
+ *
+ * The sampler runs in its own thread, which wakes up once per interval and sums up the counters of all connections.
+ * The benchmark threads only need to update their counters with lazySet(), so that sampling does not slow them down.
+ * For each interval, the amount of sent and received messages is stored, so that ramp-up, steady state and
+ * periodic dips become visible, which are hidden by the average over the whole run.
+ * If the messages do not all have the same size, the sampler can also read byte counters, so that the throughput
+ * of an interval is based on the bytes, that have actually been transferred.
+ *
+ * @author Fabian Ruhland, HHU
+ * @date 2018
+ */
+class ProgressSampler implements Runnable {
+
+    /**
+     * The counters of the sent messages (one per connection).
+     */
+    private final AtomicLong[] sentCounters;
+
+    /**
+     * The counters of the received messages (one per connection).
+     */
+    private final AtomicLong[] recvCounters;
+
+    /**
+     * The counters of the sent bytes (one per connection, null = messages of a fixed size).
+     */
+    private final AtomicLong[] sentByteCounters;
+
+    /**
+     * The counters of the received bytes (one per connection, null = messages of a fixed size).
+     */
+    private final AtomicLong[] recvByteCounters;
+
+    /**
+     * The interval in nanoseconds.
+     */
+    private final long interval;
+
+    /**
+     * The thread, that takes the samples.
+     */
+    private final Thread thread;
+
+    /**
+     * Whether the sampler is running.
+     */
+    private volatile boolean running = false;
+
+    /**
+     * The time in nanoseconds, at which the sampler has been started.
+     */
+    private long startTime = 0;
+
+    /**
+     * The time in nanoseconds, at which the last sample has been taken.
+     */
+    private long lastTime = 0;
+
+    /**
+     * The amount of sent messages at the last sample.
+     */
+    private long lastSent = 0;
+
+    /**
+     * The amount of received messages at the last sample.
+     */
+    private long lastRecv = 0;
+
+    /**
+     * The amount of sent bytes at the last sample.
+     */
+    private long lastSentBytes = 0;
+
+    /**
+     * The amount of received bytes at the last sample.
+     */
+    private long lastRecvBytes = 0;
+
+    /**
+     * The samples (end of the interval relative to the start time, length of the interval,
+     * sent messages, received messages, sent bytes and received bytes during the interval).
+     */
+    private final ArrayList<long[]> samples = new ArrayList<>();
+
+    /**
+     * Create a sampler.
+     *
+     * @param sentCounters The counters of the sent messages (one per connection)
+     * @param recvCounters The counters of the received messages (one per connection)
+     * @param interval The interval in milliseconds
+     */
+    ProgressSampler(AtomicLong[] sentCounters, AtomicLong[] recvCounters, long interval) {
+        this(sentCounters, recvCounters, null, null, interval);
+    }
+
+    /**
+     * Create a sampler, that also samples the transferred bytes.
+     *
+     * @param sentCounters The counters of the sent messages (one per connection)
+     * @param recvCounters The counters of the received messages (one per connection)
+     * @param sentByteCounters The counters of the sent bytes (one per connection, null = fixed message size)
+     * @param recvByteCounters The counters of the received bytes (one per connection, null = fixed message size)
+     * @param interval The interval in milliseconds
+     */
+    ProgressSampler(AtomicLong[] sentCounters, AtomicLong[] recvCounters, AtomicLong[] sentByteCounters,
+                    AtomicLong[] recvByteCounters, long interval) {
+        this.sentCounters = sentCounters;
+        this.recvCounters = recvCounters;
+        this.sentByteCounters = sentByteCounters;
+        this.recvByteCounters = recvByteCounters;
+        this.interval = interval * 1000000;
+        this.thread = new Thread(this, "Progress sampler");
+
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Start taking samples.
+     *
+     * The byte counters may already contain the bytes of earlier runs, so that only their progress is sampled.
+     */
+    void start() {
+        startTime = System.nanoTime();
+        lastTime = startTime;
+        lastSentBytes = sentByteCounters == null ? 0 : sum(sentByteCounters);
+        lastRecvBytes = recvByteCounters == null ? 0 : sum(recvByteCounters);
+        running = true;
+
+        thread.start();
+    }
+
+    /**
+     * Stop taking samples and take a final sample of the remaining (shorter) interval.
+     */
+    void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Log.WARN("SAMPLER", "Interrupted while waiting for the sampler thread! Error: %s", e.getMessage());
+        }
+
+        if(System.nanoTime() > lastTime) {
+            takeSample();
+        }
+    }
+
+    @Override
+    public void run() {
+        long nextTime = startTime + interval;
+
+        while(running) {
+            long remaining = nextTime - System.nanoTime();
+
+            if(remaining > 0) {
+                LockSupport.parkNanos(remaining);
+                continue;
+            }
+
+            takeSample();
+            nextTime += interval;
+        }
+    }
+
+    /**
+     * Read the counters and store the progress since the last sample.
+     */
+    private void takeSample() {
+        long time = System.nanoTime();
+        long sent = sum(sentCounters);
+        long recv = sum(recvCounters);
+        long sentBytes = sentByteCounters == null ? 0 : sum(sentByteCounters);
+        long recvBytes = recvByteCounters == null ? 0 : sum(recvByteCounters);
+
+        samples.add(new long[] { time - startTime, time - lastTime, sent - lastSent, recv - lastRecv,
+                sentBytes - lastSentBytes, recvBytes - lastRecvBytes });
+
+        lastTime = time;
+        lastSent = sent;
+        lastRecv = recv;
+        lastSentBytes = sentBytes;
+        lastRecvBytes = recvBytes;
+    }
+
+    /**
+     * Calculate the sum of the given counters.
+     */
+    static long sum(AtomicLong[] counters) {
+        long sum = 0;
+
+        for(AtomicLong counter : counters) {
+            sum += counter.get();
+        }
+
+        return sum;
+    }
+
+    /**
+     * Get the amount of samples.
+     */
+    int getSampleCount() {
+        return samples.size();
+    }
+
+    /**
+     * Get the time in nanoseconds, at which a sample has been taken, relative to the start of the sampler.
+     *
+     * @param sample The sample's index
+     */
+    long getSampleTime(int sample) {
+        return samples.get(sample)[0];
+    }
+
+    /**
+     * Get the length of a sample's interval in nanoseconds.
+     *
+     * @param sample The sample's index
+     */
+    long getSampleDuration(int sample) {
+        return samples.get(sample)[1];
+    }
+
+    /**
+     * Get the amount of messages, that have been sent during a sample's interval.
+     *
+     * @param sample The sample's index
+     */
+    long getSentMessages(int sample) {
+        return samples.get(sample)[2];
+    }
+
+    /**
+     * Get the amount of messages, that have been received during a sample's interval.
+     *
+     * @param sample The sample's index
+     */
+    long getRecvMessages(int sample) {
+        return samples.get(sample)[3];
+    }
+
+    /**
+     * Check, whether the sampler reads byte counters (otherwise, all messages have the same size).
+     */
+    boolean hasByteCounters() {
+        return sentByteCounters != null && recvByteCounters != null;
+    }
+
+    /**
+     * Get the amount of bytes, that have been sent during a sample's interval (only if hasByteCounters()).
+     *
+     * @param sample The sample's index
+     */
+    long getSentBytes(int sample) {
+        return samples.get(sample)[4];
+    }
+
+    /**
+     * Get the amount of bytes, that have been received during a sample's interval (only if hasByteCounters()).
+     *
+     * @param sample The sample's index
+     */
+    long getRecvBytes(int sample) {
+        return samples.get(sample)[5];
+    }
+}
@@ -0,0 +1,73 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed timeline, on which the requests of an open-loop pingpong benchmark are scheduled.
+ *
+ * The n-th request is due at the start time plus n times the interval, regardless of when the previous requests
+ * have been answered. If a request can only be sent late (because the sender was blocked, or the window or the send
+ * queue was full), its latency is still measured from its intended send time. Otherwise, exactly the requests,
+ * that would have experienced the highest latencies, would not be measured (coordinated omission).
+ *
+ * @author Fabian Ruhland, HHU
+ * @date 2018
+ */
+class RequestSchedule {
+
+    /**
+     * If the next request is due in less than this amount of nanoseconds, the waiting thread spins
+     * instead of parking, as parking is too imprecise for short intervals.
+     */
+    private static final long SPIN_THRESHOLD = 100000;
+
+    /**
+     * The time in nanoseconds between two requests.
+     */
+    private final double interval;
+
+    /**
+     * The time in nanoseconds, at which the first request is due.
+     */
+    private long startTime = 0;
+
+    /**
+     * Create a schedule.
+     *
+     * @param rate The amount of requests per second
+     */
+    RequestSchedule(long rate) {
+        this.interval = 1000000000 / (double) rate;
+    }
+
+    /**
+     * Start the timeline.
+     *
+     * @param startTime The time in nanoseconds, at which the first request is due
+     */
+    void start(long startTime) {
+        this.startTime = startTime;
+    }
+
+    /**
+     * Get the time in nanoseconds, at which a request should be sent.
+     *
+     * @param request The request's index
+     */
+    long getIntendedTime(long request) {
+        return startTime + (long) (request * interval);
+    }
+
+    /**
+     * Block the calling thread, until the given time has been reached.
+     *
+     * @param time The time in nanoseconds
+     */
+    static void waitUntil(long time) {
+        long remaining;
+
+        while((remaining = time - System.nanoTime()) > 0) {
+            if(remaining > SPIN_THRESHOLD) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD);
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * The outstanding requests of a pingpong initiator.
+ *
+ * Keeps up to 'window' requests outstanding and decides, when the next request may be sent: In a closed loop,
+ * a request may be sent as soon as the window has room. In an open loop, requests are sent on the fixed timeline
+ * of a RequestSchedule instead, and their latency is measured from their intended send time (see RequestSchedule).
+ * When an answer arrives, the latency of the oldest outstanding request is recorded, since a transport delivers
+ * the answers in the same order, in which the requests have been sent.
+ *
+ * @author Fabian Ruhland, HHU
+ * @date 2018
+ */
+class RequestWindow {
+
+    /**
+     * The send times of the outstanding requests in nanoseconds (indexed by the request's number modulo the window).
+     */
+    private final long[] sendTimes;
+
+    /**
+     * The timeline of an open-loop run (null for a closed loop).
+     */
+    private final RequestSchedule schedule;
+
+    /**
+     * The histogram, into which the latency of each request is recorded in nanoseconds.
+     */
+    private final LatencyHistogram histogram;
+
+    /**
+     * The amount of requests, that have been sent so far.
+     */
+    private long sent = 0;
+
+    /**
+     * The amount of requests, that have been answered so far.
+     */
+    private long answered = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param window The maximum amount of outstanding requests
+     * @param rate The amount of requests per second (0 = as fast as the window allows)
+     * @param histogram The histogram, into which the latency of each request is recorded
+     */
+    RequestWindow(int window, long rate, LatencyHistogram histogram) {
+        this.sendTimes = new long[window];
+        this.schedule = rate > 0 ? new RequestSchedule(rate) : null;
+        this.histogram = histogram;
+    }
+
+    /**
+     * Start the timeline of an open-loop run (has no effect in a closed loop).
+     *
+     * @param time The time in nanoseconds, at which the first request is due
+     */
+    void start(long time) {
+        if(schedule != null) {
+            schedule.start(time);
+        }
+    }
+
+    /**
+     * Check whether another request may be outstanding.
+     */
+    boolean hasRoom() {
+        return sent - answered < sendTimes.length;
+    }
+
+    /**
+     * Get the time, from which on the latency of the next request is measured.
+     *
+     * @param now The current time in nanoseconds
+     *
+     * @return The intended send time in an open loop, or the current time in a closed loop
+     */
+    long getNextSendTime(long now) {
+        return schedule == null ? now : schedule.getIntendedTime(sent);
+    }
+
+    /**
+     * Remember the send time of a request, that is sent now.
+     *
+     * @param sendTime The time, from which on the request's latency is measured (see getNextSendTime())
+     */
+    void onSend(long sendTime) {
+        sendTimes[(int) (sent % sendTimes.length)] = sendTime;
+        sent++;
+    }
+
+    /**
+     * Record the latencies of the oldest outstanding requests, whose answers have arrived.
+     *
+     * @param count The amount of answers
+     * @param now The time in nanoseconds, at which the answers have arrived
+     */
+    void onAnswers(int count, long now) {
+        for(int i = 0; i < count; i++) {
+            histogram.record(now - sendTimes[(int) (answered % sendTimes.length)]);
+            answered++;
+        }
+    }
+
+    /**
+     * Get the amount of requests, that have been sent so far.
+     */
+    long getSent() {
+        return sent;
+    }
+
+    /**
+     * Get the amount of requests, that have been answered so far.
+     */
+    long getAnswered() {
+        return answered;
+    }
+
+    /**
+     * Get the amount of outstanding requests.
+     */
+    long getOutstanding() {
+        return sent - answered;
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * Transport, over which the benchmarks exchange messages with a remote host.
+ *
+ * Messages are sent and received in batches, whose completions are polled afterwards. This maps directly to work
+ * requests and completion queues of InfiniBand verbs. Transports, that can not post work asynchronously, emulate
+ * this: A blocking socket writes a batch of sends inside sendMessages() and reports its completions on the next
+ * poll, while posted receives are only credits, of which each poll of the receive completions consumes one
+ * by reading the next message.
+ *
+ * Besides the messages, the sender announces the start and the end of each run, so that the receiver knows,
+ * when to start measuring and how many messages it has to wait for in a duration-based run.
+ *
+ * The transports are plugged in by the benchmark programs (see the Connection classes of JSocketBench
+ * and JVerbsBench), and driven by TransportBenchmarks, so that both programs measure with the same code.
+ *
+ * @author Fabian Ruhland, HHU
+ * @date 2018
+ */
+abstract class Transport {
+
+    /**
+     * Connect to a remote server.
+     *
+     * @param bindAddress The address to bind the local socket to (may be null, or empty string)
+     * @param hostname The server's hostname
+     * @param port The TCP-port
+     */
+    abstract void connectToServer(String bindAddress, String hostname, int port);
+
+    /**
+     * Connect to a remote client.
+     *
+     * @param bindAddress The address to bind the local socket to (may be null, or empty string)
+     * @param port The TCP-port to listen on
+     */
+    abstract void connectToClient(String bindAddress, int port);
+
+    /**
+     * Disconnect from the remote host and free all resources.
+     */
+    abstract void close();
+
+    /**
+     * Post a batch of messages to be sent to the remote host.
+     *
+     * @param msgCount The amount of messages (at most the queue size)
+     *
+     * @throws Exception If the transport fails
+     */
+    abstract void sendMessages(long msgCount) throws Exception;
+
+    /**
+     * Post a batch of receives for messages from the remote host.
+     *
+     * @param msgCount The amount of messages (at most the queue size)
+     *
+     * @throws Exception If the transport fails, or the remote host closed the connection
+     */
+    abstract void recvMessages(long msgCount) throws Exception;
+
+    /**
+     * Set the size of the messages, that are sent and received from now on.
+     *
+     * @param messageSize The message size in bytes (at most the buffer size, that the transport has been created with)
+     */
+    abstract void setMessageSize(int messageSize);
+
+    /**
+     * Poll the completions of posted sends.
+     *
+     * @return The amount of completed sends
+     *
+     * @throws Exception If the transport fails
+     */
+    abstract int pollSendCompletions() throws Exception;
+
+    /**
+     * Poll the completions of posted receives.
+     *
+     * May block until the next message arrives, if the transport can not receive asynchronously.
+     * A poll returns nothing, once the remote host has announced the end of its run (see pollAnnouncedEnd()).
+     *
+     * @return The amount of completed receives
+     *
+     * @throws Exception If the transport fails, or the remote host closed the connection
+     */
+    abstract int pollRecvCompletions() throws Exception;
+
+    /**
+     * Get the maximum amount of sends or receives, that may be posted without polling their completions.
+     */
+    abstract int getQueueSize();
+
+    /**
+     * Get the amount of receives, that have been posted, but whose completions have not been polled yet.
+     *
+     * Receives may be left over from a previous run (e.g. the warmup phase), as a duration-based run does not know
+     * in advance, how many messages will arrive.
+     */
+    abstract long getPostedReceives();
+
+    /**
+     * Make sure, that the completion of the next posted batch of sends can be polled.
+     *
+     * Must be called before the last post of a run, if the transport does not generate a completion for every send
+     * (see hasUnsignaledSends()).
+     */
+    void signalNextPost() {
+    }
+
+    /**
+     * Check whether sends have been posted, for which no completion will be generated yet.
+     *
+     * Their completions are only reported together with the next batch, whose completion is generated,
+     * so a run must post another batch, before it may stop.
+     */
+    boolean hasUnsignaledSends() {
+        return false;
+    }
+
+    /**
+     * Tell the remote host, that the sender is about to start, so that its receiver starts measuring.
+     *
+     * @throws Exception If the transport fails
+     */
+    void announceStart() throws Exception {
+    }
+
+    /**
+     * Wait for the remote host's sender to start (see announceStart()).
+     *
+     * @throws Exception If the transport fails, or the remote host closed the connection
+     */
+    void awaitStart() throws Exception {
+    }
+
+    /**
+     * Tell the remote host, that this host's run is over and how many messages (or operations) it has sent.
+     *
+     * Must be called at the end of every run of a sender, after all sends have completed.
+     *
+     * @param count The amount of messages, that have been sent in this run
+     *
+     * @throws Exception If the transport fails
+     */
+    abstract void announceEnd(long count) throws Exception;
+
+    /**
+     * Check whether the remote host has announced the end of its run (see announceEnd()).
+     *
+     * Must only be called, after a poll of the receive completions has returned nothing while receives were posted,
+     * or after all messages of a count-based run have been received. Does not block, unless the announcement
+     * is already known to be on its way.
+     *
+     * @param received The amount of messages, that have been received in this run
+     *
+     * @return The amount of messages, that the remote host has announced, or -1, if nothing has been announced yet
+     *         (transports, that receive in order, return 'received', once they have reached the announcement)
+     *
+     * @throws Exception If the transport fails, or the remote host closed the connection
+     */
+    abstract long pollAnnouncedEnd(long received) throws Exception;
+}
@@ -0,0 +1,912 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contains the benchmarks, that exchange messages over a Transport.
+ *
+ * The drivers only post batches of sends and receives and poll their completions, so that every transport
+ * is measured by the same loops. Every benchmark function is executed by a single thread, which drives one or more
+ * connections. The throughput benchmarks drive their connections in turns, the pingpong benchmark drives them
+ * one after another, so that the time measured for each connection only consists of its own round trips.
+ * The start and end time of each connection is stored separately, so that per-connection and aggregated
+ * results can be calculated afterwards.
+ *
+ * @author Fabian Ruhland, HHU
+ * @date 2018
+ */
+class TransportBenchmarks {
+
+    /**
+     * Stores the time in nanoseconds, at which a send benchmark has started on each connection.
+     */
+    final long[] sendStartTimes;
+
+    /**
+     * Stores the time in nanoseconds, at which a send benchmark has finished on each connection.
+     */
+    final long[] sendEndTimes;
+
+    /**
+     * Stores the time in nanoseconds, at which a receive benchmark has started on each connection.
+     */
+    final long[] recvStartTimes;
+
+    /**
+     * Stores the time in nanoseconds, at which a receive benchmark has finished on each connection.
+     */
+    final long[] recvEndTimes;
+
+    /**
+     * Stores the latencies in nanoseconds, that have been measured on each connection
+     * (request latencies for the pingpong benchmark and sampled send completion latencies for the send benchmark).
+     */
+    final LatencyHistogram[] latencyHistograms;
+
+    /**
+     * Stores the amount of messages, that have been sent on each connection
+     * (or the amount of answered requests for the pingpong benchmark).
+     *
+     * The counters are updated after every poll, so that they can be read by another thread during the run.
+     */
+    final AtomicLong[] sentMessages;
+
+    /**
+     * Stores the amount of messages, that have been received on each connection.
+     *
+     * The counters are updated after every poll, so that they can be read by another thread during the run.
+     */
+    final AtomicLong[] recvMessages;
+
+    /**
+     * The amount of sends or receives, that the throughput benchmarks post at once, as soon as enough queue slots
+     * are free.
+     */
+    private final int postBatch;
+
+    /**
+     * Every n-th send of the send benchmark is timed from posting it until polling its completion (0 = never).
+     */
+    private final long sampleInterval;
+
+    /**
+     * The duration of a duration-based run in nanoseconds (0 = the amount of messages is fixed).
+     */
+    private final long duration;
+
+    /**
+     * Stores the amount of sends, that are still to be posted on each connection.
+     */
+    private final long[] remainingSends;
+
+    /**
+     * Stores the amount of receives, that are still to be posted on each connection.
+     */
+    private final long[] remainingRecvs;
+
+    /**
+     * Stores the amount of sends, that have been posted on each connection, but whose completions have not been
+     * polled yet.
+     */
+    private final int[] pendingSends;
+
+    /**
+     * Stores the amount of receives, that have been posted on each connection, but whose completions have not been
+     * polled yet.
+     */
+    private final int[] pendingRecvs;
+
+    /**
+     * Stores the amount of messages, that each receiver waits for (-1, as long as the sender has not announced it).
+     */
+    private final long[] expected;
+
+    /**
+     * Stores the amount of sends, that have been posted on each connection.
+     */
+    private final long[] postedSends;
+
+    /**
+     * Stores the amount of send completions, that have been polled on each connection.
+     */
+    private final long[] completedSends;
+
+    /**
+     * Stores the amount of receive completions, that have been polled on each connection.
+     */
+    private final long[] completedRecvs;
+
+    /**
+     * Stores the index of the next send, that is timed on each connection.
+     */
+    private final long[] nextSampledSend;
+
+    /**
+     * Stores the time in nanoseconds, at which the currently timed send of each connection has been posted.
+     */
+    private final long[] samplePostTimes;
+
+    /**
+     * Stores whether a timed send is currently outstanding on each connection.
+     */
+    private final boolean[] sampling;
+
+    /**
+     * The amount of bytes, that the benchmark threads have allocated during the measured part of their loops.
+     */
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param connectionCount The total amount of connections, that are used by the benchmark
+     * @param postBatch The amount of sends or receives, that the throughput benchmarks post at once
+     * @param sampleInterval Every n-th send of the send benchmark is timed separately (0 = never)
+     * @param duration The duration of a duration-based run in nanoseconds (0 = the amount of messages is fixed)
+     */
+    TransportBenchmarks(int connectionCount, int postBatch, long sampleInterval, long duration) {
+        sendStartTimes = new long[connectionCount];
+        sendEndTimes = new long[connectionCount];
+        recvStartTimes = new long[connectionCount];
+        recvEndTimes = new long[connectionCount];
+        latencyHistograms = new LatencyHistogram[connectionCount];
+        sentMessages = new AtomicLong[connectionCount];
+        recvMessages = new AtomicLong[connectionCount];
+        remainingSends = new long[connectionCount];
+        remainingRecvs = new long[connectionCount];
+        pendingSends = new int[connectionCount];
+        pendingRecvs = new int[connectionCount];
+        expected = new long[connectionCount];
+        postedSends = new long[connectionCount];
+        completedSends = new long[connectionCount];
+        completedRecvs = new long[connectionCount];
+        nextSampledSend = new long[connectionCount];
+        samplePostTimes = new long[connectionCount];
+        sampling = new boolean[connectionCount];
+        this.postBatch = postBatch;
+        this.sampleInterval = sampleInterval;
+        this.duration = duration;
+
+        for(int i = 0; i < connectionCount; i++) {
+            latencyHistograms[i] = new LatencyHistogram();
+            sentMessages[i] = new AtomicLong();
+            recvMessages[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Start the send benchmark.
+     *
+     * Sends are posted in batches of postBatch, as soon as enough queue slots are free, and the completions are
+     * polled once per batch. In a duration-based run, no more messages are posted after the duration has passed.
+     * When all completions of a connection have been polled, the amount of sent messages is announced to the
+     * receiver. The measured times in nanoseconds are stored in sendStartTimes and sendEndTimes.
+     * Every sampleInterval-th send is timed from posting its batch until polling its completion
+     * and recorded in latencyHistograms.
+     *
+     * @param transports All connections
+     * @param ids The indices of the connections, that are driven by the calling thread
+     * @param msgCount The amount of messages to send per connection (ignored in a duration-based run)
+     */
+    void sendBenchmark(Transport[] transports, int[] ids, long msgCount) {
+        AllocationCounter allocationCounter = new AllocationCounter();
+        long deadline = 0;
+        int active = ids.length;
+
+        if(duration > 0) {
+            Log.INFO("SEND THREAD", "Starting send thread! Sending messages for %d ms on %d connection(s).",
+                    duration / 1000000, ids.length);
+        } else {
+            Log.INFO("SEND THREAD", "Starting send thread! Sending %d messages on %d connection(s).",
+                    msgCount, ids.length);
+        }
+
+        try {
+            for(int id : ids) {
+                remainingSends[id] = duration > 0 ? Long.MAX_VALUE : msgCount;
+                transports[id].announceStart();
+            }
+
+            allocationCounter.start();
+            long startTime = System.nanoTime();
+
+            if(duration > 0) {
+                deadline = startTime + duration;
+            }
+
+            for(int id : ids) {
+                sendStartTimes[id] = startTime;
+            }
+
+            while(active > 0) {
+                if(deadline != 0 && System.nanoTime() >= deadline) {
+                    for(int id : ids) {
+                        // Post a last batch, so that the completions of the unsignaled sends can be polled
+                        remainingSends[id] = transports[id].hasUnsignaledSends() ? postBatch : 0;
+                    }
+
+                    deadline = 0;
+                }
+
+                for(int id : ids) {
+                    if(sendEndTimes[id] != 0) {
+                        continue;
+                    }
+
+                    Transport transport = transports[id];
+
+                    postSends(transport, id);
+
+                    if(remainingSends[id] == 0 && pendingSends[id] == 0) {
+                        sendEndTimes[id] = System.nanoTime();
+                        active--;
+
+                        // The announcement is not part of the measured loop
+                        allocatedBytes.addAndGet(allocationCounter.stop());
+                        transport.announceEnd(completedSends[id]);
+                        allocationCounter.start();
+                    }
+                }
+            }
+
+            allocatedBytes.addAndGet(allocationCounter.stop());
+        } catch(Exception e) {
+            Log.ERROR_AND_EXIT("SEND THREAD", "An error occurred, while sending a message!" +
+                    " Error: '%s'", e.getMessage());
+        }
+
+        Log.INFO("SEND THREAD", "Finished sending!");
+
+        Log.INFO("SEND THREAD", "Terminating thread...");
+    }
+
+    /**
+     * Post the next batch of sends on a connection, if enough queue slots are free, and poll its send completions
+     * a single time.
+     *
+     * It is not recommended to poll the completion queue empty, as this mostly costs too much time,
+     * which would better be spent posting new sends.
+     *
+     * @param transport The connection
+     * @param id The connection's index
+     */
+    private void postSends(Transport transport, int id) throws Exception {
+        // Get the amount of free places in the queue
+        int batchSize = transport.getQueueSize() - pendingSends[id];
+
+        // Post in batches, so that the costs of a post are shared by several sends
+        if(remainingSends[id] > 0 && batchSize >= postBatch) {
+            if(batchSize >= remainingSends[id]) {
+                batchSize = (int) remainingSends[id];
+
+                // The last send must generate a completion, so that all completions can be polled
+                transport.signalNextPost();
+
+                onSendPost(id, batchSize);
+                transport.sendMessages(batchSize);
+            } else {
+                int i = batchSize;
+
+                while(i >= postBatch) {
+                    onSendPost(id, postBatch);
+                    transport.sendMessages(postBatch);
+                    i -= postBatch;
+                }
+
+                batchSize -= i;
+            }
+
+            pendingSends[id] += batchSize;
+            remainingSends[id] -= batchSize;
+        }
+
+        pendingSends[id] -= onSendCompletions(id, transport.pollSendCompletions());
+    }
+
+    /**
+     * Start the receive benchmark.
+     *
+     * Receives are posted in batches of postBatch, as soon as enough queue slots are free, and the completions
+     * are polled once per batch. In a duration-based run, receives are posted, until the sender has announced
+     * the amount of sent messages. The receives, that are still posted afterwards, are reused by the next run.
+     * The measured times in nanoseconds are stored in recvStartTimes and recvEndTimes.
+     *
+     * @param transports All connections
+     * @param ids The indices of the connections, that are driven by the calling thread
+     * @param msgCount The amount of messages to receive per connection (ignored in a duration-based run)
+     */
+    void recvBenchmark(Transport[] transports, int[] ids, long msgCount) {
+        AllocationCounter allocationCounter = new AllocationCounter();
+        int active = ids.length;
+
+        if(duration > 0) {
+            Log.INFO("RECV THREAD", "Starting receive thread! Receiving on %d connection(s), until the sender " +
+                    "stops.", ids.length);
+        } else {
+            Log.INFO("RECV THREAD", "Starting receive thread! Receiving %d messages on %d connection(s).",
+                    msgCount, ids.length);
+        }
+
+        try {
+            for(int id : ids) {
+                Transport transport = transports[id];
+
+                // Fill the receive queue, so that the first messages find a posted receive (receives, that are
+                // left over from a previous run, are reused)
+                pendingRecvs[id] = (int) transport.getPostedReceives();
+                expected[id] = duration > 0 ? -1 : msgCount;
+                remainingRecvs[id] = Math.max(0, (duration > 0 ? Long.MAX_VALUE : msgCount) - pendingRecvs[id]);
+
+                int initialRecvs = (int) Math.min(transport.getQueueSize() - pendingRecvs[id], remainingRecvs[id]);
+
+                transport.recvMessages(initialRecvs);
+                pendingRecvs[id] += initialRecvs;
+                remainingRecvs[id] -= initialRecvs;
+            }
+
+            // Wait for the start signal of the senders
+            for(int id : ids) {
+                transports[id].awaitStart();
+            }
+
+            allocationCounter.start();
+            long startTime = System.nanoTime();
+
+            for(int id : ids) {
+                recvStartTimes[id] = startTime;
+            }
+
+            while(active > 0) {
+                for(int id : ids) {
+                    if(recvEndTimes[id] != 0) {
+                        continue;
+                    }
+
+                    postRecvs(transports[id], id);
+
+                    if(expected[id] >= 0 && completedRecvs[id] >= expected[id]) {
+                        recvEndTimes[id] = System.nanoTime();
+                        active--;
+                    }
+                }
+            }
+
+            allocatedBytes.addAndGet(allocationCounter.stop());
+
+            // In a count-based run, the announcement of the sender has not been needed, but must still be consumed
+            if(duration == 0) {
+                for(int id : ids) {
+                    while(transports[id].pollAnnouncedEnd(completedRecvs[id]) < 0) {
+                        Thread.yield();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.ERROR_AND_EXIT("RECV THREAD", "An error occured, while receiving a message!" +
+                    " Error: '%s'", e.getMessage());
+        }
+
+        Log.INFO("RECV THREAD", "Finished receiving!");
+
+        Log.INFO("RECV THREAD", "Terminating thread...");
+    }
+
+    /**
+     * Post the next batch of receives on a connection, if enough queue slots are free, and poll its receive
+     * completions a single time.
+     *
+     * If nothing has been received in a duration-based run, the transport is checked for the sender's announcement.
+     *
+     * @param transport The connection
+     * @param id The connection's index
+     */
+    private void postRecvs(Transport transport, int id) throws Exception {
+        // Get the amount of free places in the queue
+        int batchSize = transport.getQueueSize() - pendingRecvs[id];
+
+        // Post in batches, so that the costs of a post are shared by several receives
+        if(remainingRecvs[id] > 0 && batchSize >= postBatch) {
+            if(batchSize > remainingRecvs[id]) {
+                batchSize = (int) remainingRecvs[id];
+
+                transport.recvMessages(batchSize);
+            } else {
+                int i = batchSize;
+
+                while(i >= postBatch) {
+                    transport.recvMessages(postBatch);
+                    i -= postBatch;
+                }
+
+                batchSize -= i;
+            }
+
+            pendingRecvs[id] += batchSize;
+            remainingRecvs[id] -= batchSize;
+        }
+
+        int polled = onRecvCompletions(id, transport.pollRecvCompletions());
+
+        pendingRecvs[id] -= polled;
+
+        if(polled == 0 && expected[id] < 0 && pendingRecvs[id] > 0) {
+            expected[id] = transport.pollAnnouncedEnd(completedRecvs[id]);
+
+            if(expected[id] >= 0) {
+                remainingRecvs[id] = 0;
+            }
+        }
+    }
+
+    /**
+     * Start the receive benchmark of a one-sided transport (e.g. rdma writes).
+     *
+     * One-sided operations do not produce any completions on the remote host, so this only waits for the
+     * announcement of the sender. The measured time is therefore the sender's time plus the latency of the
+     * announcement. The amount of announced operations is stored in recvMessages.
+     *
+     * @param transports All connections
+     * @param ids The indices of the connections, that are driven by the calling thread
+     */
+    void oneSidedRecvBenchmark(Transport[] transports, int[] ids) {
+        Log.INFO("RECV THREAD", "Starting receive thread! Waiting for the sender on %d connection(s).", ids.length);
+
+        try {
+            for(int id : ids) {
+                transports[id].awaitStart();
+            }
+
+            long startTime = System.nanoTime();
+
+            for(int id : ids) {
+                long announced;
+
+                while((announced = transports[id].pollAnnouncedEnd(0)) < 0) {
+                    Thread.yield();
+                }
+
+                recvStartTimes[id] = startTime;
+                recvEndTimes[id] = System.nanoTime();
+                recvMessages[id].set(announced);
+            }
+        } catch (Exception e) {
+            Log.ERROR_AND_EXIT("RECV THREAD", "An error occurred, while waiting for the sender! Error: '%s'",
+                    e.getMessage());
+        }
+
+        Log.INFO("RECV THREAD", "Finished receiving!");
+
+        Log.INFO("RECV THREAD", "Terminating thread...");
+    }
+
+    /**
+     * Start the pingpong benchmark as server.
+     *
+     * The server keeps up to 'window' requests outstanding per connection and sends a new request, whenever
+     * an answer arrives. A receive is posted for every outstanding request before the request is sent.
+     *
+     * If a rate is given, the requests are sent on a fixed timeline instead (open loop). A request is not posted
+     * before it is due, and its latency is measured from its intended send time, even if it is posted late,
+     * because the window or the send queue was full. While no request is outstanding, the server waits for the
+     * next one to become due, instead of polling for answers, which a blocking transport would wait for forever.
+     *
+     * In a duration-based run, each connection is driven for the whole duration. After all outstanding requests
+     * have been answered, their amount is announced to the client. The measured times in nanoseconds are stored
+     * in sendStartTimes and sendEndTimes and the latency of each request (time between posting a request and polling
+     * the completion of its answer) is recorded in latencyHistograms.
+     *
+     * @param transports All connections
+     * @param ids The indices of the connections, that are driven by the calling thread
+     * @param msgCount The amount of round trips per connection (ignored in a duration-based run)
+     * @param window The maximum amount of outstanding requests per connection (at most the queue size)
+     * @param rate The amount of requests per second and connection (0 = as fast as possible)
+     */
+    void pingPongBenchmarkServer(Transport[] transports, int[] ids, long msgCount, int window, long rate) {
+        AllocationCounter allocationCounter = new AllocationCounter();
+        RequestWindow[] requestWindows = new RequestWindow[ids.length];
+
+        Log.INFO("SERVER THREAD", "Starting pingpong server thread! Keeping up to %d request(s) outstanding " +
+                "on %d connection(s).", window, ids.length);
+
+        for(int i = 0; i < ids.length; i++) {
+            requestWindows[i] = new RequestWindow(window, rate, latencyHistograms[ids[i]]);
+        }
+
+        try {
+            for(int i = 0; i < ids.length; i++) {
+                int id = ids[i];
+                Transport transport = transports[id];
+                RequestWindow requests = requestWindows[i];
+
+                long count = duration > 0 ? Long.MAX_VALUE : msgCount;
+                long deadline = 0;
+
+                int queueSize = transport.getQueueSize();
+                int pendingSendComps = 0;
+
+                // Receives, that are left over from a previous run, are reused
+                long leftoverRecvs = transport.getPostedReceives();
+                long postedRecvs = Math.max(Math.min(window, count), leftoverRecvs);
+
+                transport.recvMessages(postedRecvs - leftoverRecvs);
+
+                allocationCounter.start();
+                sendStartTimes[id] = System.nanoTime();
+
+                if(duration > 0) {
+                    deadline = sendStartTimes[id] + duration;
+                }
+
+                requests.start(sendStartTimes[id]);
+
+                while(requests.getAnswered() < count) {
+                    // Stop sending new requests and wait for the outstanding answers
+                    if(deadline != 0 && count == Long.MAX_VALUE && System.nanoTime() >= deadline) {
+                        count = requests.getSent();
+                    }
+
+                    // Fill the window
+                    while(requests.getSent() < count && requests.hasRoom() && pendingSendComps < queueSize) {
+                        long now = System.nanoTime();
+                        long sendTime = requests.getNextSendTime(now);
+
+                        if(sendTime > now) {
+                            break;
+                        }
+
+                        requests.onSend(sendTime);
+
+                        transport.sendMessages(1);
+
+                        pendingSendComps++;
+                    }
+
+                    pendingSendComps -= transport.pollSendCompletions();
+
+                    if(requests.getOutstanding() == 0) {
+                        if(requests.getSent() < count) {
+                            RequestSchedule.waitUntil(requests.getNextSendTime(System.nanoTime()));
+                        }
+
+                        continue;
+                    }
+
+                    int polled = transport.pollRecvCompletions();
+
+                    if(polled == 0) {
+                        continue;
+                    }
+
+                    requests.onAnswers(polled, System.nanoTime());
+
+                    sentMessages[id].lazySet(requests.getAnswered());
+
+                    // Replace the consumed receives, before more requests are sent
+                    long toPost = Math.max(0, Math.min(polled, count - postedRecvs));
+
+                    transport.recvMessages(toPost);
+                    postedRecvs += toPost;
+                }
+
+                sendEndTimes[id] = System.nanoTime();
+
+                while(pendingSendComps > 0) {
+                    pendingSendComps -= transport.pollSendCompletions();
+                }
+
+                allocatedBytes.addAndGet(allocationCounter.stop());
+
+                transport.announceEnd(requests.getSent());
+            }
+        } catch(Exception e) {
+            Log.ERROR_AND_EXIT("SERVER THREAD", "An error occurred, while sending or receiving a message!" +
+                    " Error: '%s'", e.getMessage());
+        }
+
+        Log.INFO("SERVER THREAD", "Finished pingpong test!");
+
+        Log.INFO("SERVER THREAD", "Terminating thread...");
+    }
+
+    /**
+     * Start the pingpong benchmark as client.
+     *
+     * The client answers every request, as soon as its completion has been polled.
+     * A receive is posted for every request, that the server may have outstanding.
+     *
+     * In a duration-based run, requests are answered until the server has announced the amount of sent requests.
+     * The measured times in nanoseconds are stored in sendStartTimes and sendEndTimes.
+     *
+     * @param transports All connections
+     * @param ids The indices of the connections, that are driven by the calling thread
+     * @param msgCount The amount of round trips per connection (ignored in a duration-based run)
+     * @param window The maximum amount of outstanding requests (must match the server's window)
+     */
+    void pingPongBenchmarkClient(Transport[] transports, int[] ids, long msgCount, int window) {
+        AllocationCounter allocationCounter = new AllocationCounter();
+
+        Log.INFO("CLIENT THREAD", "Starting pingpong client thread on %d connection(s)!", ids.length);
+
+        try {
+            for(int id : ids) {
+                Transport transport = transports[id];
+
+                long count = duration > 0 ? Long.MAX_VALUE : msgCount;
+                long answered = 0;
+
+                int queueSize = transport.getQueueSize();
+                int pendingSendComps = 0;
+
+                // Receives, that are left over from a previous run, are reused
+                long leftoverRecvs = transport.getPostedReceives();
+                long postedRecvs = Math.max(Math.min(window, count), leftoverRecvs);
+
+                transport.recvMessages(postedRecvs - leftoverRecvs);
+
+                allocationCounter.start();
+                sendStartTimes[id] = System.nanoTime();
+
+                while(answered < count) {
+                    int polled = transport.pollRecvCompletions();
+
+                    if(polled == 0) {
+                        pendingSendComps -= transport.pollSendCompletions();
+
+                        if(duration > 0 && count == Long.MAX_VALUE) {
+                            long announced = transport.pollAnnouncedEnd(answered);
+
+                            if(announced >= 0) {
+                                count = announced;
+                            }
+                        }
+
+                        continue;
+                    }
+
+                    // Replace the consumed receives, before the answers allow the server to send more requests
+                    long toPost = Math.max(0, Math.min(polled, count - postedRecvs));
+
+                    transport.recvMessages(toPost);
+                    postedRecvs += toPost;
+
+                    while(pendingSendComps + polled > queueSize) {
+                        pendingSendComps -= transport.pollSendCompletions();
+                    }
+
+                    transport.sendMessages(polled);
+
+                    pendingSendComps += polled;
+                    answered += polled;
+
+                    sentMessages[id].lazySet(answered);
+                }
+
+                while(pendingSendComps > 0) {
+                    pendingSendComps -= transport.pollSendCompletions();
+                }
+
+                sendEndTimes[id] = System.nanoTime();
+                allocatedBytes.addAndGet(allocationCounter.stop());
+
+                // In a count-based run, the announcement of the server has not been needed, but must still be consumed
+                if(duration == 0) {
+                    while(transport.pollAnnouncedEnd(answered) < 0) {
+                        Thread.yield();
+                    }
+                }
+            }
+        } catch(Exception e) {
+            Log.ERROR_AND_EXIT("CLIENT THREAD", "An error occurred, while sending or receiving a message!" +
+                    " Error: '%s'", e.getMessage());
+        }
+
+        Log.INFO("CLIENT THREAD", "Finished pingpong test!");
+
+        Log.INFO("CLIENT THREAD", "Terminating thread...");
+    }
+
+    /**
+     * Start timing a send, if it is posted by the next call of the send benchmark.
+     *
+     * Only one timed send is outstanding per connection at a time. Must be called before the sends are posted.
+     *
+     * @param id The connection's index
+     * @param count The amount of sends, that are about to be posted
+     */
+    private void onSendPost(int id, int count) {
+        if(sampleInterval > 0 && !sampling[id] && nextSampledSend[id] < postedSends[id] + count) {
+            sampling[id] = true;
+            samplePostTimes[id] = System.nanoTime();
+        }
+
+        postedSends[id] += count;
+    }
+
+    /**
+     * Record the latency of the timed send, if its completion is among the polled ones.
+     *
+     * The send completions of a connection are polled in the same order, in which the sends have been posted.
+     *
+     * @param id The connection's index
+     * @param count The amount of polled send completions
+     *
+     * @return The amount of polled send completions
+     */
+    private int onSendCompletions(int id, int count) {
+        if(count == 0) {
+            return 0;
+        }
+
+        completedSends[id] += count;
+        sentMessages[id].lazySet(completedSends[id]);
+
+        if(sampling[id] && completedSends[id] > nextSampledSend[id]) {
+            latencyHistograms[id].record(System.nanoTime() - samplePostTimes[id]);
+
+            sampling[id] = false;
+            nextSampledSend[id] = Math.max(nextSampledSend[id] + sampleInterval, postedSends[id]);
+        }
+
+        return count;
+    }
+
+    /**
+     * Count the polled receive completions.
+     *
+     * @param id The connection's index
+     * @param count The amount of polled receive completions
+     *
+     * @return The amount of polled receive completions
+     */
+    private int onRecvCompletions(int id, int count) {
+        if(count == 0) {
+            return 0;
+        }
+
+        completedRecvs[id] += count;
+        recvMessages[id].lazySet(completedRecvs[id]);
+
+        return count;
+    }
+
+    /**
+     * Get the aggregated time, that has been measured by the send benchmarks.
+     *
+     * This is the time between the earliest start and the latest end over all connections.
+     */
+    long getSendTime() {
+        return getAggregatedTime(sendStartTimes, sendEndTimes);
+    }
+
+    /**
+     * Get the aggregated time, that has been measured by the receive benchmarks.
+     *
+     * This is the time between the earliest start and the latest end over all connections.
+     */
+    long getRecvTime() {
+        return getAggregatedTime(recvStartTimes, recvEndTimes);
+    }
+
+    /**
+     * Get the time, that has been measured by a send benchmark on a single connection.
+     *
+     * @param connection The connection's index
+     */
+    long getSendTime(int connection) {
+        return sendEndTimes[connection] - sendStartTimes[connection];
+    }
+
+    /**
+     * Get the time, that has been measured by a receive benchmark on a single connection.
+     *
+     * @param connection The connection's index
+     */
+    long getRecvTime(int connection) {
+        return recvEndTimes[connection] - recvStartTimes[connection];
+    }
+
+    /**
+     * Get the progress counters of the sent messages (or answered requests), one per connection.
+     */
+    AtomicLong[] getSentMessageCounters() {
+        return sentMessages;
+    }
+
+    /**
+     * Get the progress counters of the received messages, one per connection.
+     */
+    AtomicLong[] getRecvMessageCounters() {
+        return recvMessages;
+    }
+
+    /**
+     * Get the amount of messages, that have been sent (or requests, that have been answered) on all connections.
+     */
+    long getSentMessages() {
+        return ProgressSampler.sum(sentMessages);
+    }
+
+    /**
+     * Get the amount of messages, that have been received on all connections.
+     */
+    long getRecvMessages() {
+        return ProgressSampler.sum(recvMessages);
+    }
+
+    /**
+     * Get the amount of messages, that have been sent (or requests, that have been answered) on a single connection.
+     *
+     * @param connection The connection's index
+     */
+    long getSentMessages(int connection) {
+        return sentMessages[connection].get();
+    }
+
+    /**
+     * Get the amount of messages, that have been received on a single connection.
+     *
+     * @param connection The connection's index
+     */
+    long getRecvMessages(int connection) {
+        return recvMessages[connection].get();
+    }
+
+    /**
+     * Get the latencies, that have been measured on a single connection.
+     *
+     * @param connection The connection's index
+     */
+    LatencyHistogram getLatencyHistogram(int connection) {
+        return latencyHistograms[connection];
+    }
+
+    /**
+     * Get the latencies, that have been measured on all connections, merged into a single histogram.
+     */
+    LatencyHistogram getCumulatedLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for(LatencyHistogram connectionHistogram : latencyHistograms) {
+            histogram.add(connectionHistogram);
+        }
+
+        return histogram;
+    }
+
+    /**
+     * Get the amount of connections, that the benchmarks have been created for.
+     */
+    int getConnectionCount() {
+        return sentMessages.length;
+    }
+
+    /**
+     * Get the amount of bytes, that the benchmark threads have allocated during the measured part of their loops
+     * (always 0, if the JVM does not support counting allocations, see AllocationCounter).
+     */
+    long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    /**
+     * Calculate the time between the earliest start time and the latest end time.
+     *
+     * @param startTimes The start times
+     * @param endTimes The end times
+     *
+     * @return The aggregated time in nanoseconds (0, if no time has been measured)
+     */
+    private static long getAggregatedTime(long[] startTimes, long[] endTimes) {
+        long start = Long.MAX_VALUE;
+        long end = Long.MIN_VALUE;
+
+        for(int i = 0; i < startTimes.length; i++) {
+            if(endTimes[i] == 0) {
+                continue;
+            }
+
+            start = Math.min(start, startTimes[i]);
+            end = Math.max(end, endTimes[i]);
+        }
+
+        return end < start ? 0 : end - start;
+    }
+}
@@ -0,0 +1,198 @@
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verifies, that the measured loops of TransportBenchmarks do not allocate any memory per message.
+ *
+ * The benchmarks are driven over MockTransport, which completes every post on the next poll without allocating,
+ * so that all allocations, that are counted, are caused by the prepared post and poll path itself.
+ * Each benchmark is run once as a warmup, so that class loading and the first compilations are not counted.
+ *
+ * @author Fabian Ruhland, HHU
+ * @date 2018
+ */
+public class TransportBenchmarksAllocationTest {
+
+    /**
+     * The amount of messages per run.
+     */
+    private static final long MESSAGE_COUNT = 200000;
+
+    /**
+     * The queue size of the mock transport.
+     */
+    private static final int QUEUE_SIZE = 64;
+
+    /**
+     * The amount of sends or receives, that are posted at once.
+     */
+    private static final int POST_BATCH = 8;
+
+    /**
+     * Every n-th send is timed, so that the latency histogram is part of the measured path.
+     */
+    private static final long SAMPLE_INTERVAL = 100;
+
+    @BeforeClass
+    public static void checkSupport() {
+        Assume.assumeTrue("The JVM does not count the allocated bytes per thread", AllocationCounter.isSupported());
+    }
+
+    @Test
+    public void sendBenchmarkDoesNotAllocate() {
+        runSendBenchmark();
+
+        assertEquals("Bytes allocated by the send loop", 0, runSendBenchmark());
+    }
+
+    @Test
+    public void recvBenchmarkDoesNotAllocate() {
+        runRecvBenchmark();
+
+        assertEquals("Bytes allocated by the receive loop", 0, runRecvBenchmark());
+    }
+
+    /**
+     * Run the send benchmark on a single mock transport.
+     *
+     * @return The amount of bytes, that have been allocated during the measured loop
+     */
+    private static long runSendBenchmark() {
+        TransportBenchmarks benchmarks = new TransportBenchmarks(1, POST_BATCH, SAMPLE_INTERVAL, 0);
+        MockTransport transport = new MockTransport(QUEUE_SIZE);
+
+        benchmarks.sendBenchmark(new Transport[] { transport }, new int[] { 0 }, MESSAGE_COUNT);
+
+        assertEquals("Sent messages", MESSAGE_COUNT, benchmarks.getSentMessages());
+        assertEquals("Announced messages", MESSAGE_COUNT, transport.getAnnouncedCount());
+
+        return benchmarks.getAllocatedBytes();
+    }
+
+    /**
+     * Run the receive benchmark on a single mock transport.
+     *
+     * @return The amount of bytes, that have been allocated during the measured loop
+     */
+    private static long runRecvBenchmark() {
+        TransportBenchmarks benchmarks = new TransportBenchmarks(1, POST_BATCH, SAMPLE_INTERVAL, 0);
+        MockTransport transport = new MockTransport(QUEUE_SIZE);
+
+        benchmarks.recvBenchmark(new Transport[] { transport }, new int[] { 0 }, MESSAGE_COUNT);
+
+        assertEquals("Received messages", MESSAGE_COUNT, benchmarks.getRecvMessages());
+
+        return benchmarks.getAllocatedBytes();
+    }
+
+    /**
+     * Transport, that completes all posted sends and receives on the next poll.
+     *
+     * It only counts the posts, so that it does not allocate anything itself.
+     */
+    private static class MockTransport extends Transport {
+
+        /**
+         * The maximum amount of outstanding sends or receives.
+         */
+        private final int queueSize;
+
+        /**
+         * The amount of sends, that have been posted, but not polled yet.
+         */
+        private long postedSends = 0;
+
+        /**
+         * The amount of receives, that have been posted, but not polled yet.
+         */
+        private long postedRecvs = 0;
+
+        /**
+         * The amount of messages, that the last run has announced (-1 = nothing announced yet).
+         */
+        private long announcedCount = -1;
+
+        /**
+         * Constructor.
+         *
+         * @param queueSize The maximum amount of outstanding sends or receives
+         */
+        MockTransport(int queueSize) {
+            this.queueSize = queueSize;
+        }
+
+        @Override
+        void connectToServer(String bindAddress, String hostname, int port) {
+        }
+
+        @Override
+        void connectToClient(String bindAddress, int port) {
+        }
+
+        @Override
+        void close() {
+        }
+
+        @Override
+        void sendMessages(long msgCount) {
+            postedSends += msgCount;
+        }
+
+        @Override
+        void recvMessages(long msgCount) {
+            postedRecvs += msgCount;
+        }
+
+        @Override
+        void setMessageSize(int messageSize) {
+        }
+
+        @Override
+        int pollSendCompletions() {
+            int completions = (int) postedSends;
+
+            postedSends = 0;
+
+            return completions;
+        }
+
+        @Override
+        int pollRecvCompletions() {
+            int completions = (int) postedRecvs;
+
+            postedRecvs = 0;
+
+            return completions;
+        }
+
+        @Override
+        int getQueueSize() {
+            return queueSize;
+        }
+
+        @Override
+        long getPostedReceives() {
+            return postedRecvs;
+        }
+
+        @Override
+        void announceEnd(long count) {
+            announcedCount = count;
+        }
+
+        @Override
+        long pollAnnouncedEnd(long received) {
+            return received;
+        }
+
+        /**
+         * Get the amount of messages, that the last run has announced.
+         */
+        long getAnnouncedCount() {
+            return announcedCount;
+        }
+    }
+}
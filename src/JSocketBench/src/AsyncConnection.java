@@ -0,0 +1,510 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TCP-connection to a remote host, that uses an asynchronous socket channel (NIO.2).
+ *
+ * All reads and writes are issued asynchronously and completed by CompletionHandler callbacks, which are executed
+ * by the threads of an AsynchronousChannelGroup. The calling thread only waits, until all requested messages
+ * have been transferred.
+ *
+ * A channel only allows one pending write and one pending read at a time. To keep several messages outstanding
+ * per connection, each operation is a gathering write (or scattering read) over up to 'outstanding' message
+ * buffers. The next operation is issued by the completion handler of the previous one.
+ *
+ * Reads are issued ahead: A scattering read completes as soon as at least one message has arrived completely
+ * and no message has arrived partially. The buffered messages are handed out one by one by the following reads,
+ * so that a message with the end marker never causes the subsequent messages to be lost.
+ *
+ * @author Fabian Ruhland, HHU
+ * @date 2018
+ */
+class AsyncConnection extends Connection {
+
+    /**
+     * The send buffers (one per outstanding message).
+     */
+    private final ByteBuffer[] sendBufs;
+
+    /**
+     * The receive buffers (one per outstanding message).
+     */
+    private final ByteBuffer[] recvBufs;
+
+    /**
+     * The channel group, whose threads execute the completion handlers.
+     */
+    private final AsynchronousChannelGroup group;
+
+    /**
+     * The asynchronous socket channel, that is used to exchange data with the remote host.
+     */
+    private AsynchronousSocketChannel channel;
+
+    /**
+     * Issues and completes all writes.
+     */
+    private final Transfer sender;
+
+    /**
+     * Issues and completes all reads.
+     */
+    private final Transfer receiver;
+
+    /**
+     * The size of the messages, that are sent and received (at most the buffer size).
+     */
+    private int messageSize;
+
+    /**
+     * The index of the next receive buffer, that holds a message, that has been read ahead.
+     */
+    private int nextRecvBuf = 0;
+
+    /**
+     * The amount of receive buffers, that have been filled by the last scattering read.
+     */
+    private int filledRecvBufs = 0;
+
+    /**
+     * The receive buffer, that holds the message, which has been read last.
+     */
+    private ByteBuffer lastRecvBuf;
+
+    /**
+     * Issues the reads and writes of a single direction and collects their statistics.
+     *
+     * Every message buffer of the current batch is part of the same gathering write (or scattering read).
+     * If the operation does not complete all buffers, the remaining buffers are issued again.
+     */
+    private final class Transfer implements CompletionHandler<Long, Void> {
+
+        /**
+         * The message buffers.
+         */
+        private final ByteBuffer[] buffers;
+
+        /**
+         * Whether this transfer writes or reads.
+         */
+        private final boolean write;
+
+        /**
+         * The amount of messages, that still need to be transferred.
+         */
+        private long remaining;
+
+        /**
+         * The index of the first buffer of the current batch, that has not been transferred completely.
+         */
+        private int offset;
+
+        /**
+         * The amount of buffers in the current batch.
+         */
+        private int length;
+
+        /**
+         * Called, when all requested messages have been transferred.
+         */
+        private Runnable onComplete;
+
+        /**
+         * Counted down, when the transfer has failed.
+         */
+        private volatile CountDownLatch latch;
+
+        /**
+         * The error, that caused the transfer to fail (null, if no error occurred).
+         */
+        private volatile Throwable error;
+
+        /**
+         * The time in nanoseconds, at which the current operation has been issued.
+         */
+        private long operationStartTime;
+
+        /**
+         * The amount of completed operations.
+         */
+        private long operations;
+
+        /**
+         * The amount of operations, that did not complete all buffers of their batch.
+         */
+        private long partialOperations;
+
+        /**
+         * The total time in nanoseconds between issuing an operation and the execution of its completion handler.
+         */
+        private long operationTime;
+
+        /**
+         * The longest time in nanoseconds between issuing an operation and the execution of its completion handler.
+         */
+        private long maxOperationTime;
+
+        Transfer(ByteBuffer[] buffers, boolean write) {
+            this.buffers = buffers;
+            this.write = write;
+        }
+
+        /**
+         * Start transferring messages.
+         *
+         * A read transfers only a single batch, which may hold less messages than requested (see readMessages()).
+         *
+         * @param messages The amount of messages to be transferred (must be at least 1)
+         * @param onComplete Called by a completion handler, when all messages have been transferred
+         */
+        void start(long messages, Runnable onComplete) {
+            this.remaining = messages;
+            this.onComplete = onComplete;
+
+            nextBatch();
+        }
+
+        /**
+         * Issue an operation for the next batch of up to 'outstanding' messages.
+         */
+        private void nextBatch() {
+            offset = 0;
+            length = (int) Math.min(buffers.length, remaining);
+
+            for(int i = 0; i < length; i++) {
+                buffers[i].clear();
+                buffers[i].limit(messageSize);
+            }
+
+            issue();
+        }
+
+        /**
+         * Issue a gathering write or scattering read over all buffers of the current batch,
+         * that have not been transferred completely yet.
+         */
+        private void issue() {
+            operationStartTime = System.nanoTime();
+
+            if(write) {
+                channel.write(buffers, offset, length - offset, 0, TimeUnit.MILLISECONDS, null, this);
+            } else {
+                channel.read(buffers, offset, length - offset, 0, TimeUnit.MILLISECONDS, null, this);
+            }
+        }
+
+        @Override
+        public void completed(Long bytes, Void attachment) {
+            long time = System.nanoTime() - operationStartTime;
+
+            operations++;
+            operationTime += time;
+
+            if(time > maxOperationTime) {
+                maxOperationTime = time;
+            }
+
+            if(bytes < 0) {
+                failed(new EOFException("Connection has been closed by the remote host!"), null);
+                return;
+            }
+
+            while(offset < length && !buffers[offset].hasRemaining()) {
+                offset++;
+            }
+
+            if(offset < length && (write || offset == 0 || buffers[offset].position() > 0)) {
+                partialOperations++;
+                issue();
+                return;
+            }
+
+            // A read ends the batch early with the last complete message, if the next one has not started arriving
+            length = offset;
+            remaining -= length;
+
+            if(remaining > 0 && write) {
+                nextBatch();
+            } else {
+                onComplete.run();
+            }
+        }
+
+        @Override
+        public void failed(Throwable exc, Void attachment) {
+            error = exc;
+            latch.countDown();
+        }
+
+        /**
+         * Reset all statistics.
+         */
+        void resetStatistics() {
+            operations = 0;
+            partialOperations = 0;
+            operationTime = 0;
+            maxOperationTime = 0;
+        }
+    }
+
+    /**
+     * Create a connection.
+     *
+     * @param bufSize The size to be used for the send and receive buffers
+     * @param outstanding The amount of messages, that are outstanding per direction
+     * @param group The channel group, whose threads execute the completion handlers
+     */
+    AsyncConnection(int bufSize, int outstanding, AsynchronousChannelGroup group) {
+        Log.INFO("CONNECTION", "Creating connection...");
+
+        this.sendBufs = new ByteBuffer[outstanding];
+        this.recvBufs = new ByteBuffer[outstanding];
+
+        for(int i = 0; i < outstanding; i++) {
+            sendBufs[i] = ByteBuffer.allocateDirect(bufSize);
+            recvBufs[i] = ByteBuffer.allocateDirect(bufSize);
+        }
+
+        this.group = group;
+        this.sender = new Transfer(sendBufs, true);
+        this.receiver = new Transfer(recvBufs, false);
+        this.messageSize = bufSize;
+
+        Log.INFO("CONNECTION", "Finished creating connection!");
+    }
+
+    @Override
+    void connectToServer(String bindAddress, String hostname, int port) {
+        Log.INFO("CONNECTION", "Connecting to server '%s'...", hostname);
+
+        for(int attempt = 1; channel == null; attempt++) {
+            try {
+                channel = AsynchronousSocketChannel.open(group);
+
+                if(bindAddress == null || bindAddress.isEmpty()) {
+                    channel.bind(new InetSocketAddress(getLocalPort(port)));
+                } else {
+                    channel.bind(new InetSocketAddress(bindAddress, getLocalPort(port)));
+                }
+
+                channel.connect(new InetSocketAddress(hostname, port)).get();
+            } catch (ExecutionException e) {
+                if(!(e.getCause() instanceof ConnectException)) {
+                    Log.ERROR_AND_EXIT("CONNECTION", "Unable to connect to server '%s'! Error: %s",
+                            hostname, e.getCause().getMessage());
+                }
+
+                closeChannel();
+                waitForConnectRetry(attempt, hostname, (ConnectException) e.getCause());
+            } catch (IOException | InterruptedException e) {
+                Log.ERROR_AND_EXIT("CONNECTION", "Unable to open asynchronous socket channel! Error: %s",
+                        e.getMessage());
+            }
+        }
+
+        Log.INFO("CONNECTION", "Successfully established a TCP-connection to server '%s'!", hostname);
+    }
+
+    @Override
+    Closeable listen(String bindAddress, int port) {
+        AsynchronousServerSocketChannel serverChannel = null;
+
+        Log.INFO("CONNECTION", "Connecting to a client...");
+
+        try {
+            serverChannel = AsynchronousServerSocketChannel.open(group);
+
+            if(bindAddress == null || bindAddress.isEmpty()) {
+                serverChannel.bind(new InetSocketAddress(port));
+            } else {
+                serverChannel.bind(new InetSocketAddress(bindAddress, port));
+            }
+        } catch (IOException e) {
+            Log.ERROR_AND_EXIT("CONNECTION", "Unable to open asynchronous server socket channel! Error: %s",
+                    e.getMessage());
+        }
+
+        return serverChannel;
+    }
+
+    @Override
+    void acceptClient(Closeable listener) {
+        Log.INFO("CONNECTION", "Waiting for an incoming connection...");
+
+        // Only a single accept may be pending on an asynchronous server socket channel,
+        // so connections, that share a listener, accept their clients one after another
+        synchronized(listener) {
+            try {
+                channel = ((AsynchronousServerSocketChannel) listener).accept().get();
+            } catch (Exception e) {
+                Log.ERROR_AND_EXIT("CONNECTION", "Error while accepting an incoming connection! Error: %s",
+                        e.getMessage());
+            }
+        }
+
+        Log.INFO("CONNECTION", "Successfully established a TCP-connection to a client!");
+    }
+
+    @Override
+    void close() {
+        Log.INFO("CONNECTION", "Closing connection...");
+
+        try {
+            channel.close();
+        } catch (Exception e) {
+            Log.WARN("CONNECTION", "Unable to close asynchronous socket channel! Errors: %s", e.getMessage());
+        }
+
+        Log.INFO("CONNECTION", "Successfully closed connection!");
+    }
+
+    /**
+     * Close the channel after a failed connection attempt.
+     */
+    private void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Log.WARN("CONNECTION", "Unable to close asynchronous socket channel! Error: %s", e.getMessage());
+        }
+
+        channel = null;
+    }
+
+    @Override
+    void writeMessages(long msgCount) throws IOException {
+        transfer(sender, msgCount);
+    }
+
+    /**
+     * Hand out the messages, that have been read ahead, and issue a scattering read over all receive buffers,
+     * whenever none are left.
+     */
+    @Override
+    void readMessages(long msgCount) throws IOException {
+        for(long i = 0; i < msgCount; i++) {
+            if(nextRecvBuf == filledRecvBufs) {
+                transfer(receiver, recvBufs.length);
+
+                nextRecvBuf = 0;
+                filledRecvBufs = receiver.length;
+            }
+
+            lastRecvBuf = recvBufs[nextRecvBuf++];
+
+            if(sink != null) {
+                lastRecvBuf.flip();
+                sink.write(lastRecvBuf);
+            }
+        }
+    }
+
+    @Override
+    void setMessageSize(int messageSize) {
+        this.messageSize = messageSize;
+    }
+
+    @Override
+    void setEndMarker(boolean end) {
+        for(ByteBuffer buffer : sendBufs) {
+            buffer.put(0, (byte) (end ? 1 : 0));
+        }
+    }
+
+    @Override
+    boolean hasEndMarker() {
+        return lastRecvBuf.get(0) == 1;
+    }
+
+    /**
+     * Transfer a specified amount of messages in one direction and wait, until all of them have been completed.
+     *
+     * @param transfer The transfer, that is used (sender or receiver)
+     * @param msgCount The amount of messages to be transferred
+     *
+     * @throws IOException If the underlying socket fails or the remote host closed the connection
+     */
+    private void transfer(Transfer transfer, long msgCount) throws IOException {
+        if(msgCount <= 0) {
+            return;
+        }
+
+        CountDownLatch latch = new CountDownLatch(1);
+
+        transfer.latch = latch;
+        transfer.start(msgCount, latch::countDown);
+
+        await(latch, transfer);
+    }
+
+    /**
+     * Wait for a latch to be counted down and check the given transfers for errors.
+     */
+    private static void await(CountDownLatch latch, Transfer... transfers) throws IOException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while waiting for asynchronous operations!");
+        }
+
+        for(Transfer transfer : transfers) {
+            Throwable error = transfer.error;
+
+            if(error != null) {
+                transfer.error = null;
+
+                throw error instanceof IOException ? (IOException) error : new IOException(error);
+            }
+        }
+    }
+
+    /**
+     * Reset the statistics of both directions.
+     */
+    void resetStatistics() {
+        sender.resetStatistics();
+        receiver.resetStatistics();
+    }
+
+    /**
+     * Get the amount of completed operations (both directions).
+     */
+    long getOperations() {
+        return sender.operations + receiver.operations;
+    }
+
+    /**
+     * Get the amount of operations, that did not complete all buffers of their batch (both directions).
+     */
+    long getPartialOperations() {
+        return sender.partialOperations + receiver.partialOperations;
+    }
+
+    /**
+     * Get the total time in nanoseconds between issuing an operation and the execution
+     * of its completion handler (both directions).
+     */
+    long getOperationTime() {
+        return sender.operationTime + receiver.operationTime;
+    }
+
+    /**
+     * Get the longest time in nanoseconds between issuing an operation and the execution
+     * of its completion handler (both directions).
+     */
+    long getMaxOperationTime() {
+        return Math.max(sender.maxOperationTime, receiver.maxOperationTime);
+    }
+}
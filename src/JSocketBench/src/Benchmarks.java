@@ -1,152 +1,184 @@
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
 
 /**
- * Contains the benchmark functions.
+ * Contains the benchmarks, that only exist for sockets.
+ *
+ * The message benchmarks (unidirectional, bidirectional and pingpong) are inherited from TransportBenchmarks,
+ * while the file and selector benchmarks drive the socket channels of NioConnection directly.
+ * Their results are stored in the same fields, so that they are printed the same way.
  *
  * @author Fabian Ruhland, HHU
  * @date 2018
  */
-public class Benchmarks {
+class Benchmarks extends TransportBenchmarks {
 
     /**
-     * Stores the time in nanosecons, that has been measured by a send benchmark.
+     * The event loops, that have been used by the selector benchmark (one per thread).
      */
-    private long sendTime = 0;
+    private final SelectorLoop[] selectorLoops;
 
     /**
-     * Stores the time in nanosecons, that has been measured by a receive benchmark.
+     * Constructor.
+     *
+     * @param connectionCount The total amount of connections, that are used by the benchmark
+     * @param threadCount The amount of threads per direction, that are used by the benchmark
+     * @param postBatch The amount of messages, that the message benchmarks post at once (at most the queue size
+     *                  of the connections)
+     * @param sampleInterval Every n-th message of the send benchmark is timed separately (0 = never)
+     * @param duration The duration of a duration-based run in nanoseconds (0 for a count-based run)
      */
-    private long recvTime = 0;
+    Benchmarks(int connectionCount, int threadCount, int postBatch, long sampleInterval, long duration) {
+        super(connectionCount, postBatch, sampleInterval, duration);
+
+        selectorLoops = new SelectorLoop[threadCount];
+    }
 
     /**
-     * Start the send benchmark.
+     * Start the file send benchmark.
      *
-     * The measured time in nanoseconds is stored in sendTime.
+     * The file is sent over all given connections, one after another.
+     * The measured times in nanoseconds are stored in sendStartTimes and sendEndTimes.
+     * The file counts as a single message in sentMessages.
+     *
+     * @param connections All connections (must be instances of NioConnection)
+     * @param ids The indices of the connections, that are driven by the calling thread
+     * @param file The file to be sent
+     * @param length The amount of bytes to send
+     * @param zeroCopy Whether to use FileChannel.transferTo(), or to copy the data through a user-space buffer
      */
-    void sendBenchmark(Connection connection, long messageCount) {
-        long startTime = 0, endTime = 0;
-
-        Log.INFO("SEND THREAD", "Starting send thread! Sending %d messages.", messageCount);
+    void fileSendBenchmark(Connection[] connections, int[] ids, FileChannel file, long length, boolean zeroCopy) {
+        Log.INFO("SEND THREAD", "Starting send thread! Sending %d bytes on %d connection(s) using %s.",
+                length, ids.length, zeroCopy ? "transferTo()" : "read()/write()");
 
         try {
-            startTime = System.nanoTime();
+            for(int id : ids) {
+                sendStartTimes[id] = System.nanoTime();
 
-            connection.sendMessages(messageCount);
+                ((NioConnection) connections[id]).sendFile(file, length, zeroCopy);
 
-            endTime = System.nanoTime();
+                sendEndTimes[id] = System.nanoTime();
+                sentMessages[id].set(1);
+            }
         } catch (IOException e) {
-            Log.ERROR_AND_EXIT("SEND THREAD", "An error occurred, while sending a message!" +
+            Log.ERROR_AND_EXIT("SEND THREAD", "An error occurred, while sending the file!" +
                     " Error: '%s'", e.getMessage());
         }
 
         Log.INFO("SEND THREAD", "Finished sending!");
 
-        sendTime = endTime - startTime;
-
         Log.INFO("SEND THREAD", "Terminating thread...");
     }
 
     /**
-     * Start the receive benchmark.
+     * Start the file receive benchmark.
      *
-     * The measured time in nanoseconds is stored in recvTime.
+     * A file is received on all given connections, one after another.
+     * The measured times in nanoseconds are stored in recvStartTimes and recvEndTimes.
+     * The file counts as a single message in recvMessages.
+     *
+     * @param connections All connections (must be instances of NioConnection)
+     * @param ids The indices of the connections, that are driven by the calling thread
      */
-    void recvBenchmark(Connection connection, long messageCount) {
-        long startTime = 0, endTime = 0;
-
-        Log.INFO("RECV THREAD", "Starting receive thread! Receiving %d messages.", messageCount);
+    void fileRecvBenchmark(Connection[] connections, int[] ids) {
+        Log.INFO("RECV THREAD", "Starting receive thread! Receiving a file on %d connection(s).", ids.length);
 
         try {
-            startTime = System.nanoTime();
+            for(int id : ids) {
+                recvStartTimes[id] = System.nanoTime();
 
-            connection.recvMessages(messageCount);
+                long length = ((NioConnection) connections[id]).recvFile();
 
-            endTime = System.nanoTime();
+                recvEndTimes[id] = System.nanoTime();
+                recvMessages[id].set(1);
+
+                Log.INFO("RECV THREAD", "Received %d bytes on connection %d.", length, id);
+            }
         } catch (IOException e) {
-            Log.ERROR_AND_EXIT("RECV THREAD", "An error occured, while receiving a message!" +
+            Log.ERROR_AND_EXIT("RECV THREAD", "An error occurred, while receiving the file!" +
                     " Error: '%s'", e.getMessage());
         }
 
-        Log.INFO("RECV THREAD", "Finished sending!");
-
-        recvTime = endTime - startTime;
+        Log.INFO("RECV THREAD", "Finished receiving!");
 
         Log.INFO("RECV THREAD", "Terminating thread...");
     }
 
     /**
-     * Start the pingpong benchmark as server.
+     * Start the selector benchmark.
+     *
+     * All given connections are switched to non-blocking mode and driven by a single event loop.
+     * The loop sends and receives independently, or acts as pingpong initiator/responder.
+     * The measured times in nanoseconds are stored in sendStartTimes/sendEndTimes (for the pingpong benchmark and
+     * for sending) and recvStartTimes/recvEndTimes (for receiving). The request latencies of the pingpong benchmark
+     * are recorded in latencyHistograms.
      *
-     * The measured time in nanoseconds is stored in sendTime.
+     * @param connections All connections (must be instances of NioConnection)
+     * @param ids The indices of the connections, that are driven by the calling thread
+     * @param thread The index of the calling thread
+     * @param bufSize The message size
+     * @param sendCount The amount of messages to send per connection
+     * @param recvCount The amount of messages to receive per connection
+     * @param role The role in a pingpong benchmark (NONE, if no pingpong benchmark is executed)
+     * @param window The maximum amount of outstanding requests per connection (only relevant for the initiator)
+     * @param rate The amount of requests per second and connection (only relevant for the initiator,
+     *             0 = as fast as possible)
      */
-    void pingPongBenchmarkServer(Connection connection, long messageCount) {
-        long startTime = 0, endTime = 0;
+    void selectorBenchmark(Connection[] connections, int[] ids, int thread, int bufSize, long sendCount,
+                           long recvCount, SelectorLoop.PINGPONG_ROLE role, int window, long rate) {
+        SelectorLoop loop = null;
 
-        Log.INFO("SERVER THREAD", "Starting pingpong thread! Doing %d iterations.", messageCount);
+        Log.INFO("LOOP THREAD", "Starting event loop! Sending %d and receiving %d messages on %d connection(s).",
+                sendCount, recvCount, ids.length);
 
         try {
-            startTime = System.nanoTime();
+            SocketChannel[] channels = new SocketChannel[ids.length];
+            LatencyHistogram[] histograms = new LatencyHistogram[ids.length];
 
-            for (int i = 0; i < messageCount; i++) {
-                connection.sendMessages(1);
-                connection.recvMessages(1);
+            for(int i = 0; i < ids.length; i++) {
+                channels[i] = ((NioConnection) connections[ids[i]]).getChannel();
+                histograms[i] = latencyHistograms[ids[i]];
             }
 
-            endTime = System.nanoTime();
-        } catch(Exception e) {
-            Log.ERROR_AND_EXIT("SERVER THREAD", "An error occurred, while sending or receiving a message!"
-                    + "Error: '%s'", e.getMessage());
+            loop = new SelectorLoop(channels, bufSize, sendCount, recvCount, role, window, rate, histograms);
+            loop.run();
+        } catch (IOException e) {
+            Log.ERROR_AND_EXIT("LOOP THREAD", "An error occurred in the event loop! Error: '%s'", e.getMessage());
         }
 
-        Log.INFO("SERVER THREAD","Finished pingpong benchmark!", messageCount);
-
-        sendTime = endTime - startTime;
+        Log.INFO("LOOP THREAD", "Finished event loop!");
 
-        Log.INFO("SERVER THREAD", "Terminating thread...", messageCount);
-    }
-
-    /**
-     * Start the pingpong benchmark as client.
-     *
-     * The measured time in nanoseconds is stored in sendTime.
-     */
-    void pingPongBenchmarkClient(Connection connection, long messageCount) {
-        long startTime = 0, endTime = 0;
-
-        Log.INFO("CLIENT THREAD", "Starting pingpong thread! Doing %d iterations.", messageCount);
-
-        try {
-            startTime = System.nanoTime();
+        for(int i = 0; i < ids.length; i++) {
+            if(role != SelectorLoop.PINGPONG_ROLE.NONE) {
+                sentMessages[ids[i]].set(sendCount);
+                sendStartTimes[ids[i]] = loop.getStartTime();
+                sendEndTimes[ids[i]] = Math.max(loop.getSendEndTime(i), loop.getRecvEndTime(i));
+                continue;
+            }
 
-            for (int i = 0; i < messageCount; i++) {
-                connection.recvMessages(1);
-                connection.sendMessages(1);
+            if(sendCount > 0) {
+                sentMessages[ids[i]].set(sendCount);
+                sendStartTimes[ids[i]] = loop.getStartTime();
+                sendEndTimes[ids[i]] = loop.getSendEndTime(i);
             }
 
-            endTime = System.nanoTime();
-        } catch(Exception e) {
-            Log.ERROR_AND_EXIT("CLIENT THREAD", "An error occurred, while sending or receiving a message!"
-                    + "Error: '%s'", e.getMessage());
+            if(recvCount > 0) {
+                recvMessages[ids[i]].set(recvCount);
+                recvStartTimes[ids[i]] = loop.getStartTime();
+                recvEndTimes[ids[i]] = loop.getRecvEndTime(i);
+            }
         }
 
-        Log.INFO("CLIENT THREAD","Finished pingpong benchmark!", messageCount);
+        selectorLoops[thread] = loop;
 
-        sendTime = endTime - startTime;
-
-        Log.INFO("CLIENT THREAD", "Terminating thread...", messageCount);
-    }
-
-    /**
-     * Get the time, that has been measured by a send benchmark.
-     */
-    long getSendTime() {
-        return sendTime;
+        Log.INFO("LOOP THREAD", "Terminating thread...");
     }
 
     /**
-     * Get the time, that has been measured by a receive benchmark.
+     * Get the event loops, that have been used by the selector benchmark (one per thread).
      */
-    long getRecvTime() {
-        return recvTime;
+    SelectorLoop[] getSelectorLoops() {
+        return selectorLoops;
     }
 }
@@ -0,0 +1,240 @@
+import java.io.Closeable;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark of the connection setup.
+ *
+ * Each client thread opens a connection, exchanges a single message with the server and closes the connection
+ * again, until it has opened the given amount of connections (or the duration has passed). The phases are timed
+ * on the client, since the client goes through the whole setup path, that every short-lived connection pays for.
+ *
+ * The client marks the message of its last connection with the end marker. Each server thread serves connections,
+ * until it has received a marked message, so both hosts must use the same amount of threads.
+ *
+ * @author Fabian Ruhland, HHU
+ * @date 2018
+ */
+class ConnectBenchmark {
+
+    /**
+     * The phases of a connection's life, that are timed separately.
+     */
+    enum PHASE {
+        CREATE,     /**< Allocate the connection's buffers */
+        CONNECT,    /**< Connect to the server */
+        EXCHANGE,   /**< Send the first message and receive the server's answer */
+        CLOSE       /**< Close the connection */
+    }
+
+    /**
+     * Creates the connections.
+     */
+    private final Supplier<Connection> factory;
+
+    /**
+     * The duration of a duration-based run in nanoseconds (0 = the amount of connections is fixed).
+     */
+    private final long duration;
+
+    /**
+     * The summed up time in nanoseconds of each phase, one array per thread.
+     */
+    private final long[][] phaseTimes;
+
+    /**
+     * The amount of connections, that have been opened (or served) by each thread.
+     */
+    private final long[] connectionCounts;
+
+    /**
+     * The setup time (all phases except closing) of every connection, one histogram per thread.
+     */
+    private final LatencyHistogram[] setupHistograms;
+
+    /**
+     * The time in nanoseconds, at which each thread has started.
+     */
+    private final long[] startTimes;
+
+    /**
+     * The time in nanoseconds, at which each thread has finished.
+     */
+    private final long[] endTimes;
+
+    /**
+     * Constructor.
+     *
+     * @param factory Creates the connections
+     * @param threadCount The amount of threads, that open (or serve) connections in parallel
+     * @param duration The duration of a duration-based run in nanoseconds (0 = the amount of connections is fixed)
+     */
+    ConnectBenchmark(Supplier<Connection> factory, int threadCount, long duration) {
+        this.factory = factory;
+        this.duration = duration;
+        this.phaseTimes = new long[threadCount][PHASE.values().length];
+        this.connectionCounts = new long[threadCount];
+        this.setupHistograms = new LatencyHistogram[threadCount];
+        this.startTimes = new long[threadCount];
+        this.endTimes = new long[threadCount];
+
+        for(int i = 0; i < threadCount; i++) {
+            this.setupHistograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Open, use and close connections to the server one after another.
+     *
+     * @param thread The thread's index
+     * @param bindAddress The address to bind the sockets to (may be null, or empty string)
+     * @param hostname The server's hostname
+     * @param port The server's port
+     * @param count The amount of connections to open (ignored in a duration-based run)
+     */
+    void runClient(int thread, String bindAddress, String hostname, int port, long count) {
+        long[] times = phaseTimes[thread];
+        LatencyHistogram histogram = setupHistograms[thread];
+
+        Log.INFO("CONNECT THREAD", "Starting connect thread!");
+
+        startTimes[thread] = System.nanoTime();
+
+        long deadline = duration > 0 ? startTimes[thread] + duration : 0;
+
+        try {
+            for(long i = 0; deadline != 0 || i < count; i++) {
+                long createTime = System.nanoTime();
+                boolean last = deadline != 0 ? createTime >= deadline : i == count - 1;
+
+                Connection connection = factory.get();
+                connection.setEphemeralPort(true);
+                connection.setEndMarker(last);
+
+                long connectTime = System.nanoTime();
+                connection.connectToServer(bindAddress, hostname, port);
+
+                long exchangeTime = System.nanoTime();
+                connection.writeMessages(1);
+                connection.readMessages(1);
+
+                long closeTime = System.nanoTime();
+                connection.close();
+
+                long endTime = System.nanoTime();
+
+                times[PHASE.CREATE.ordinal()] += connectTime - createTime;
+                times[PHASE.CONNECT.ordinal()] += exchangeTime - connectTime;
+                times[PHASE.EXCHANGE.ordinal()] += closeTime - exchangeTime;
+                times[PHASE.CLOSE.ordinal()] += endTime - closeTime;
+
+                histogram.record(closeTime - createTime);
+                connectionCounts[thread]++;
+
+                if(last) {
+                    break;
+                }
+            }
+        } catch(Exception e) {
+            Log.ERROR_AND_EXIT("CONNECT THREAD", "An error occurred, while exchanging a message! Error: '%s'",
+                    e.getMessage());
+        }
+
+        endTimes[thread] = System.nanoTime();
+
+        Log.INFO("CONNECT THREAD", "Finished opening %d connection(s)!", connectionCounts[thread]);
+    }
+
+    /**
+     * Accept and serve connections, until a client has sent the message of its last connection.
+     *
+     * @param thread The thread's index
+     * @param listener The listener, that is shared by all server threads
+     */
+    void runServer(int thread, Closeable listener) {
+        Log.INFO("ACCEPT THREAD", "Starting accept thread!");
+
+        startTimes[thread] = System.nanoTime();
+
+        try {
+            while(true) {
+                Connection connection = factory.get();
+                connection.acceptClient(listener);
+
+                connection.readMessages(1);
+                connection.writeMessages(1);
+
+                boolean last = connection.hasEndMarker();
+
+                connection.close();
+                connectionCounts[thread]++;
+
+                if(last) {
+                    break;
+                }
+            }
+        } catch(Exception e) {
+            Log.ERROR_AND_EXIT("ACCEPT THREAD", "An error occurred, while exchanging a message! Error: '%s'",
+                    e.getMessage());
+        }
+
+        endTimes[thread] = System.nanoTime();
+
+        Log.INFO("ACCEPT THREAD", "Finished serving %d connection(s)!", connectionCounts[thread]);
+    }
+
+    /**
+     * Get the time between the earliest start and the latest end over all threads.
+     */
+    long getTime() {
+        long start = Long.MAX_VALUE;
+        long end = Long.MIN_VALUE;
+
+        for(int i = 0; i < startTimes.length; i++) {
+            start = Math.min(start, startTimes[i]);
+            end = Math.max(end, endTimes[i]);
+        }
+
+        return end - start;
+    }
+
+    /**
+     * Get the amount of connections, that have been opened (or served) by all threads.
+     */
+    long getConnectionCount() {
+        long count = 0;
+
+        for(long connectionCount : connectionCounts) {
+            count += connectionCount;
+        }
+
+        return count;
+    }
+
+    /**
+     * Get the time in nanoseconds, that all threads have spent in a phase.
+     *
+     * @param phase The phase
+     */
+    long getPhaseTime(PHASE phase) {
+        long time = 0;
+
+        for(long[] times : phaseTimes) {
+            time += times[phase.ordinal()];
+        }
+
+        return time;
+    }
+
+    /**
+     * Get the setup times of all connections.
+     */
+    LatencyHistogram getCumulatedSetupHistogram() {
+        LatencyHistogram cumulated = new LatencyHistogram();
+
+        for(LatencyHistogram histogram : setupHistograms) {
+            cumulated.add(histogram);
+        }
+
+        return cumulated;
+    }
+}
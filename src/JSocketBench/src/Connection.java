@@ -1,89 +1,93 @@
-import java.io.*;
-import java.net.*;
-import java.util.Objects;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * TCP-connection to a remote host.
+ * Connection to a remote host.
  *
  * This class allows connecting to either a server or a client and send messages to the remote host.
+ * The actual transport is implemented by the subclasses (see StreamConnection, NioConnection, AsyncConnection,
+ * UnixConnection and ShmConnection), which write and read messages synchronously. This class maps them
+ * to the posts and polls of a Transport: Posted sends are written right away and reported by the next poll,
+ * while posted receives are only counted and each poll reads a single message.
+ *
+ * The end of a run is announced in-band by a message, that carries the end marker, so that it arrives
+ * after all messages of the run.
  *
  * @author Fabian Ruhland, HHU
  * @date 2018
  */
-class Connection {
+abstract class Connection extends Transport {
 
     /**
-     * The send buffer.
+     * The maximum amount of attempts to connect to a server, that does not listen on its port yet.
      */
-    private byte[] sendBuf;
+    private static final int CONNECT_ATTEMPTS = 50;
 
     /**
-     * The receive buffer.
+     * The time in milliseconds to wait between two attempts to connect to a server.
      */
-    private byte[] recvBuf;
+    private static final int CONNECT_RETRY_DELAY = 100;
 
     /**
-     * The TCP-socket, that is used to exchange data with the remote host.
+     * The size of the length header, that precedes each framed message.
      */
-    private Socket socket;
+    static final int FRAME_HEADER_SIZE = Integer.BYTES;
 
     /**
-     * The socket's output stream.
+     * The maximum amount of messages, that are posted at once (e.g. before a thread switches to its next connection).
      */
-    private DataOutputStream outputStream;
+    static final int QUEUE_SIZE = 16;
 
     /**
-     * The socket's input stream.
+     * The sink, into which received payloads are stored (null, if received payloads are discarded).
      */
-    private DataInputStream inputStream;
+    MappedSink sink = null;
 
     /**
-     * Create a connection.
-     *
-     * @param bufSize The size to be used for sendBuf and recvBuf
+     * The payload sizes of the framed messages, which are sent one after another
+     * (null, if fixed-size messages without a length header are sent).
      */
-    Connection(int bufSize) {
-        Log.INFO("CONNECTION", "Creating connection...");
-
-        sendBuf = new byte[bufSize];
-        recvBuf = new byte[bufSize];
+    int[] frameSizes = null;
 
-        Log.INFO("CONNECTION", "Finished creating connection!");
-    }
+    /**
+     * The index of the next size in frameSizes.
+     */
+    private int nextFrame = 0;
 
     /**
-     * Connect to a remote server.
+     * The amount of payload bytes, that have been sent in framed messages.
      *
-     * @param bindAddress The address to bind the socket to (may be null, or empty string)
-     * @param hostname The server's hostname
-     * @param port The TCP-port
+     * Only the connection's benchmark thread writes the counter (using lazySet()), so that the progress sampler
+     * can read it while the run is going on.
      */
-    void connectToServer(String bindAddress, String hostname, int port) {
-        Log.INFO("CONNECTION", "Connecting to server '%s'...", hostname);
+    private final AtomicLong sentFrameBytes = new AtomicLong(0);
 
-        try {
-            socket = new Socket();
+    /**
+     * The amount of payload bytes, that have been received in framed messages (see sentFrameBytes).
+     */
+    private final AtomicLong recvFrameBytes = new AtomicLong(0);
 
-            if(bindAddress == null || bindAddress.isEmpty()) {
-                socket.bind(new InetSocketAddress(port));
-            } else {
-                socket.bind(new InetSocketAddress(bindAddress, port));
-            }
+    /**
+     * Whether a client binds its socket to an ephemeral port, instead of the server's port.
+     */
+    private boolean ephemeralPort = false;
 
-            socket.connect(new InetSocketAddress(hostname, port));
-        } catch (IOException e) {
-            Log.ERROR_AND_EXIT("CONNECTION", "Unable to open socket! Error: %s", e.getMessage());
-        }
+    /**
+     * The amount of messages, that have been written, but not been reported by pollSendCompletions() yet.
+     */
+    private int unpolledSends = 0;
 
-        try {
-            inputStream = new DataInputStream(socket.getInputStream());
-            outputStream = new DataOutputStream(socket.getOutputStream());
-        } catch (IOException e) {
-            Log.ERROR_AND_EXIT("CONNECTION", "Unable to open data streams! Error: %s", e.getMessage());
-        }
+    /**
+     * The amount of receives, that have been posted, but whose messages have not been read yet.
+     */
+    private long postedRecvs = 0;
 
-        Log.INFO("CONNECTION", "Successfully established a TCP-connection to server '%s'!", hostname);
-    }
+    /**
+     * Whether the message with the end marker has been read, but not been consumed by pollAnnouncedEnd() yet.
+     */
+    private boolean endAnnounced = false;
 
     /**
      * Connect to a remote client.
@@ -91,89 +95,348 @@ class Connection {
      * @param bindAddress The address to bind the socket to (may be null, or empty string)
      * @param port The TCP-port to listen on
      */
+    @Override
     void connectToClient(String bindAddress, int port) {
-        ServerSocket serverSocket = null;
+        Closeable listener = listen(bindAddress, port);
 
-        Log.INFO("CONNECTION", "Connecting to a client...");
+        acceptClient(listener);
 
         try {
-            serverSocket = new ServerSocket();
-
-            if(bindAddress == null || bindAddress.isEmpty()) {
-                serverSocket.bind(new InetSocketAddress(port));
-            } else {
-                serverSocket.bind(new InetSocketAddress(bindAddress, port));
-            }
+            listener.close();
         } catch (IOException e) {
-            Log.ERROR_AND_EXIT("CONNECTION", "Unable to open socket! Error: %s", e.getMessage());
+            Log.WARN("CONNECTION", "Unable to close listener! Error: %s", e.getMessage());
         }
+    }
 
+    /**
+     * Start listening for remote clients.
+     *
+     * A listener can be shared by several connections of the same type, so that a server can accept
+     * many clients on the same port (see acceptClient()).
+     *
+     * @param bindAddress The address to bind the listener to (may be null, or empty string)
+     * @param port The TCP-port to listen on
+     *
+     * @return The listener
+     */
+    abstract Closeable listen(String bindAddress, int port);
 
+    /**
+     * Accept the next remote client, that connects to a listener.
+     *
+     * @param listener A listener, that has been created by listen()
+     */
+    abstract void acceptClient(Closeable listener);
 
-        Log.INFO("CONNECTION", "Waiting for an incoming connection...");
+    /**
+     * Write a specified amount of messages to the remote host and wait, until all of them have been written.
+     *
+     * @param msgCount The amount of messages to be written
+     *
+     * @throws IOException If the underlying socket fails
+     */
+    abstract void writeMessages(long msgCount) throws IOException;
 
-        try {
-            socket = Objects.requireNonNull(serverSocket).accept();
-        } catch (Exception e) {
-            Log.ERROR_AND_EXIT("CONNECTION", "Error while accepting an incoming connection! Error: %s",
-                    e.getMessage());
+    /**
+     * Read a specified amount of messages from the remote host and wait, until all of them have arrived.
+     *
+     * @param msgCount The amount of messages to be read
+     *
+     * @throws IOException If the underlying socket fails or the remote host closed the connection
+     */
+    abstract void readMessages(long msgCount) throws IOException;
+
+    /**
+     * Set the size of the messages, that are sent and received from now on.
+     *
+     * The buffers are only allocated once with the size, that has been given to the constructor,
+     * so that a message size sweep can reuse them for all smaller sizes.
+     *
+     * @param messageSize The message size in bytes (at most the buffer size)
+     */
+    @Override
+    abstract void setMessageSize(int messageSize);
+
+    /**
+     * Mark all messages, that are written from now on, as the end of a run (see announceEnd()).
+     *
+     * The marker is stored in the first byte of each message, so that the remote host knows when to stop receiving.
+     *
+     * @param end Whether to set or clear the marker
+     */
+    abstract void setEndMarker(boolean end);
+
+    /**
+     * Check whether the message, that has been read last, carries the end marker.
+     */
+    abstract boolean hasEndMarker();
+
+    /**
+     * Write a batch of messages to the remote host.
+     *
+     * The messages have been written, when this function returns, and are reported by the next poll.
+     *
+     * @param msgCount The amount of messages to be sent
+     *
+     * @throws IOException If the underlying socket fails
+     */
+    @Override
+    void sendMessages(long msgCount) throws IOException {
+        writeMessages(msgCount);
+
+        unpolledSends += msgCount;
+    }
+
+    /**
+     * Post a batch of receives.
+     *
+     * Nothing is read yet, the messages are read one by one by pollRecvCompletions().
+     *
+     * @param msgCount The amount of messages to be received
+     */
+    @Override
+    void recvMessages(long msgCount) {
+        postedRecvs += msgCount;
+    }
+
+    @Override
+    int pollSendCompletions() {
+        int completed = unpolledSends;
+
+        unpolledSends = 0;
+
+        return completed;
+    }
+
+    /**
+     * Read the next message, if a receive has been posted for it.
+     *
+     * Blocks, until the message has arrived. The message with the end marker does not consume a receive
+     * and is not counted (see announceEnd()).
+     *
+     * @return 1, if a message has been read, or 0, if no receive is posted or the end has been announced
+     *
+     * @throws IOException If the underlying socket fails or the remote host closed the connection
+     */
+    @Override
+    int pollRecvCompletions() throws IOException {
+        if(postedRecvs == 0 || endAnnounced) {
+            return 0;
         }
 
-        try {
-            inputStream = new DataInputStream(socket.getInputStream());
-            outputStream = new DataOutputStream(socket.getOutputStream());
-        } catch (IOException e) {
-            Log.ERROR_AND_EXIT("CONNECTION", "Unable to open data streams! Error: %s", e.getMessage());
+        if(readMessage()) {
+            endAnnounced = true;
+
+            return 0;
         }
 
-        Log.INFO("CONNECTION", "Successfully established a TCP-connection to a client!");
+        postedRecvs--;
+
+        return 1;
+    }
+
+    @Override
+    int getQueueSize() {
+        return QUEUE_SIZE;
+    }
+
+    @Override
+    long getPostedReceives() {
+        return postedRecvs;
     }
 
     /**
-     * Disconnect from the remote host.
+     * Write a single message with the end marker, which follows all messages of the run on the same stream.
+     *
+     * The remote host does not need the amount of messages, as it arrives after all of them.
+     *
+     * @param count The amount of messages, that have been sent in this run
+     *
+     * @throws IOException If the underlying socket fails
      */
-    void close() {
-        Log.INFO("CONNECTION", "Closing connection...");
+    @Override
+    void announceEnd(long count) throws IOException {
+        long frameBytes = sentFrameBytes.get();
 
-        try {
-            Thread.sleep(1000);
+        setEndMarker(true);
+        writeMessages(1);
+        setEndMarker(false);
+
+        // The announcement does not carry any payload of the run
+        sentFrameBytes.lazySet(frameBytes);
+    }
 
-            outputStream.close();
-            inputStream.close();
-            socket.close();
-        } catch (Exception e) {
-            Log.WARN("CONNECTION", "Unable to close socket! Errors: %s", e.getMessage());
+    /**
+     * Consume the message with the end marker.
+     *
+     * If a poll has not read it yet, it is read now (blocking), as it must be the next message on the stream.
+     *
+     * @param received The amount of messages, that have been received in this run
+     *
+     * @return The amount of received messages, as the end marker always follows the last message
+     *
+     * @throws IOException If the underlying socket fails, the remote host closed the connection,
+     *                     or the next message does not carry the end marker
+     */
+    @Override
+    long pollAnnouncedEnd(long received) throws IOException {
+        if(!endAnnounced && !readMessage()) {
+            throw new IOException("Received a message after the last message of the remote host's run!");
         }
 
-        Log.INFO("CONNECTION", "Successfully closed connection!");
+        endAnnounced = false;
+
+        return received;
     }
 
     /**
-     * Send a specified amount of messages to the remote host.
+     * Read a single message.
      *
-     * @param msgCount The amount of messages to be sent
+     * @return Whether the message carries the end marker (its payload is not counted in that case)
+     */
+    private boolean readMessage() throws IOException {
+        long frameBytes = recvFrameBytes.get();
+
+        readMessages(1);
+
+        if(hasEndMarker()) {
+            recvFrameBytes.lazySet(frameBytes);
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Send and receive length-prefixed messages of variable size, instead of fixed-size messages.
+     *
+     * Each message is preceded by a header of FRAME_HEADER_SIZE bytes, that contains the size of its payload.
+     * The sender takes the sizes from the given sequence (starting over at its end), while the receiver reads
+     * them from the headers. Both hosts must either use framed or fixed-size messages.
      *
-     * @throws IOException DataOutputStream.write() may throw an IOException
+     * @param frameSizes The precomputed payload sizes (at least 1 and at most the buffer size)
      */
-    void sendMessages(long msgCount) throws IOException {
-        for(int i = 0; i < msgCount; i++) {
-            outputStream.write(sendBuf);
+    void setFrameSizes(int[] frameSizes) {
+        this.frameSizes = frameSizes;
+        this.nextFrame = 0;
+    }
+
+    /**
+     * Get the payload size of the next framed message to be sent.
+     */
+    int nextFrameSize() {
+        int size = frameSizes[nextFrame];
+
+        if(++nextFrame == frameSizes.length) {
+            nextFrame = 0;
         }
 
-        outputStream.flush();
-        socket.getOutputStream().flush();
+        return size;
+    }
+
+    /**
+     * Get the amount of payload bytes, that have been sent in framed messages.
+     */
+    long getSentFrameBytes() {
+        return sentFrameBytes.get();
     }
 
     /**
-     * Receive a specified amount of messages from the remote host.
+     * Get the amount of payload bytes, that have been received in framed messages.
+     */
+    long getRecvFrameBytes() {
+        return recvFrameBytes.get();
+    }
+
+    /**
+     * Get the counter of the payload bytes, that have been sent in framed messages (e.g. for a ProgressSampler).
+     */
+    AtomicLong getSentFrameByteCounter() {
+        return sentFrameBytes;
+    }
+
+    /**
+     * Get the counter of the payload bytes, that have been received in framed messages
+     * (e.g. for a ProgressSampler).
+     */
+    AtomicLong getRecvFrameByteCounter() {
+        return recvFrameBytes;
+    }
+
+    /**
+     * Count the payload of a framed message, that has been sent.
      *
-     * @param msgCount The amount of messages to be sent
+     * @param size The message's payload size in bytes
+     */
+    void addSentFrameBytes(int size) {
+        sentFrameBytes.lazySet(sentFrameBytes.get() + size);
+    }
+
+    /**
+     * Count the payload of a framed message, that has been received.
+     *
+     * @param size The message's payload size in bytes
+     */
+    void addRecvFrameBytes(int size) {
+        recvFrameBytes.lazySet(recvFrameBytes.get() + size);
+    }
+
+    /**
+     * Bind the client's socket to an ephemeral port, instead of the server's port.
+     *
+     * By default, a client uses the server's port as its local port. This does not work, if a host opens
+     * many connections to the same port in a short time, since a closed connection occupies its port for a while.
+     *
+     * @param ephemeralPort Whether to let the operating system choose the local port
+     */
+    void setEphemeralPort(boolean ephemeralPort) {
+        this.ephemeralPort = ephemeralPort;
+    }
+
+    /**
+     * Get the local port, to which a client binds its socket.
+     *
+     * @param port The server's port
      *
-     * @throws IOException DataOutputStream.write() may throw an IOException
+     * @return The server's port, or 0, if an ephemeral port is used
      */
-    void recvMessages(long msgCount) throws IOException {
-        for(int i = 0; i < msgCount; i++) {
-            inputStream.readFully(recvBuf);
+    int getLocalPort(int port) {
+        return ephemeralPort ? 0 : port;
+    }
+
+    /**
+     * Store all received payloads in a memory mapped file, instead of overwriting the receive buffer.
+     *
+     * @param sink The sink, into which received payloads are stored (null, to discard received payloads)
+     */
+    void setSink(MappedSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Handle a refused connection attempt.
+     *
+     * If the maximum amount of attempts has not been reached yet, this function waits for CONNECT_RETRY_DELAY
+     * milliseconds, so that the caller can try to connect again. Otherwise, the program is terminated.
+     *
+     * @param attempt The amount of attempts, that have already been made
+     * @param hostname The server's hostname
+     * @param e The exception, that caused the connection attempt to fail
+     */
+    static void waitForConnectRetry(int attempt, String hostname, ConnectException e) {
+        if(attempt >= CONNECT_ATTEMPTS) {
+            Log.ERROR_AND_EXIT("CONNECTION", "Unable to connect to server '%s' after %d attempts! Error: %s",
+                    hostname, attempt, e.getMessage());
+        }
+
+        Log.WARN("CONNECTION", "Server '%s' refused the connection, retrying...", hostname);
+
+        try {
+            Thread.sleep(CONNECT_RETRY_DELAY);
+        } catch (InterruptedException ie) {
+            Log.ERROR_AND_EXIT("CONNECTION", "Interrupted while waiting for server '%s'! Error: %s",
+                    hostname, ie.getMessage());
         }
     }
 }
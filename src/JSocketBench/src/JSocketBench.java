@@ -1,6 +1,11 @@
 import java.io.*;
-import java.net.URL;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The main class.
@@ -10,42 +15,88 @@ import java.nio.file.Files;
  * @author Fabian Ruhland, HHU
  * @date 2018
  */
-public class JSocketBench {
+public class JSocketBench extends BenchmarkProgram {
 
     /**
-     * The connection mode (server or client).
+     * The benchmark to be executed (unidirectional, bidirectional, pingpong or filestream).
      */
-    private MODE mode = null;
+    private BENCHMARK benchmark = BENCHMARK.UNIDIRECTIONAL;
 
     /**
-     * The remote host's hostname (only relevant in client mode).
+     * The socket I/O implementation to be used (stream, nio, selector or async).
      */
-    private String remoteHostname = null;
+    private IO_MODE ioMode = IO_MODE.STREAM;
 
     /**
-     * The address to bind the local socket to.
+     * Samples the progress of the current pass (null, if no interval reporting is done).
      */
-    private String bindAddress = null;
+    private ProgressSampler progressSampler = null;
 
     /**
-     * The benchmark to be executed (unidirectional, bidirectional or pingpong).
+     * The time in milliseconds, that the JIT compiler has spent during the measured run of the current pass
+     * (-1, if the JVM does not support compilation time monitoring).
      */
-    private BENCHMARK benchmark = BENCHMARK.UNIDIRECTIONAL;
+    private long measuredCompilationTime = -1;
+
+    /**
+     * The distribution of the payload sizes of framed messages (null = fixed-size messages with bufSize).
+     */
+    private SizeDistribution sizeDistribution = null;
+
+    /**
+     * The amount of payload bytes, that have been sent in framed messages during the measured run.
+     */
+    private long measuredSentBytes = 0;
+
+    /**
+     * The amount of payload bytes, that have been received in framed messages during the measured run.
+     */
+    private long measuredRecvBytes = 0;
+
+    /**
+     * The amount of payload bytes per connection, that have been sent in framed messages during the measured run.
+     */
+    private long[] measuredSentConnectionBytes = null;
+
+    /**
+     * The amount of payload bytes per connection, that have been received in framed messages during the measured run.
+     */
+    private long[] measuredRecvConnectionBytes = null;
+
+    /**
+     * The amount of parallel connections.
+     */
+    private int connectionCount = 1;
+
+    /**
+     * The amount of clients, that the server accepts on a single TCP-port (0 = one client per connection and port).
+     */
+    private int clientCount = 0;
+
+    /**
+     * The amount of threads per direction, that drive the connections.
+     */
+    private int threadCount = 1;
+
+    /**
+     * The amount of threads in the channel group, that executes the completion handlers (only relevant for async).
+     */
+    private int asyncThreadCount = Runtime.getRuntime().availableProcessors();
 
     /**
-     * The buffer size to be used for the messages that are sent/received.
+     * The amount of outstanding messages per connection and direction (only relevant for async).
      */
-    private int bufSize = 1024;
+    private int outstanding = 1;
 
     /**
-     * The amount of messages to send/receive.
+     * Whether the latency distribution of a previous pass has already been exported to histogramPath.
      */
-    private long messageCount = 1000000;
+    private boolean histogramExported = false;
 
     /**
-     * The TCP-port to be used for the connection.
+     * The channel group, that executes the completion handlers (only used for async).
      */
-    private int port = 8888;
+    private AsynchronousChannelGroup channelGroup = null;
 
     /**
      * Infiniband performance counters.
@@ -53,44 +104,92 @@ public class JSocketBench {
     private IbPerfCounter perfCounter = null;
 
     /**
-     * The performance counter mode.
+     * The connections.
      */
-    private PERF_COUNTER_MODE perfCounterMode = PERF_COUNTER_MODE.OFF;
+    private Connection[] connections = null;
 
     /**
-     * The connection.
+     * The type of threads, that run the benchmark (platform, virtual or both).
      */
-    private Connection connection = null;
+    private THREAD_TYPE threadType = THREAD_TYPE.PLATFORM;
 
     /**
-     * Contains all benchmarks.
+     * Creates virtual threads (only used, if the thread type is 'virtual' or 'both').
      */
-    private Benchmarks benchmarks = null;
+    private ThreadFactory virtualThreadFactory = null;
+
+    /**
+     * The path of the file, that is streamed by the filestream benchmark (only relevant in server mode).
+     *
+     * If no path is given, a sparse temporary file of size fileSize is generated.
+     */
+    private String filePath = null;
 
     /**
-     * Possible connections modes (server or client).
+     * The size of the generated file in bytes (only relevant in server mode, if no file path is given).
      */
-    private enum MODE {
-        SERVER, /**< Run as server **/
-        CLIENT  /**< Run as client */
-    }
+    private long fileSize = 1024 * 1024 * 1024;
+
+    /**
+     * The file, that is streamed by the filestream benchmark.
+     */
+    private FileChannel file = null;
+
+    /**
+     * The way the file is sent by the filestream benchmark (transfer, copy or both).
+     */
+    private FILE_IO_MODE fileIoMode = FILE_IO_MODE.BOTH;
+
+    /**
+     * The sinks of all connections (null, if received payloads are discarded).
+     */
+    private MappedSink[] sinks = null;
+
+    /**
+     * Contains all benchmarks.
+     */
+    private Benchmarks benchmarks = null;
 
     /**
-     * Possible benchmarks (unidirectional, bidirectional or pingpong).
+     * Possible benchmarks (unidirectional, bidirectional, pingpong, filestream, fanin or connect).
      */
     private enum BENCHMARK {
         UNIDIRECTIONAL, /**< Run a unidirectional benchmark with one sender and one receiver */
         BIDIRECTIONAL,  /**< Run a bidirectional benchmark, where both hosts send and receive simaltaneously */
-        PINGPONG        /**< Run a pingpong benchmark */
+        PINGPONG,       /**< Run a pingpong benchmark */
+        FILESTREAM,     /**< Run a unidirectional benchmark, where the server streams a file to the client */
+        FANIN,          /**< Run a unidirectional benchmark, where the clients send and the server receives */
+        CONNECT         /**< Open and close connections in a loop and measure the connection setup */
+    }
+
+    /**
+     * Possible socket I/O implementations (stream, nio, selector or async).
+     */
+    private enum IO_MODE {
+        STREAM,     /**< Use blocking socket streams with heap buffers */
+        NIO,        /**< Use a blocking socket channel with direct buffers */
+        SELECTOR,   /**< Use non-blocking socket channels, that are driven by selector event loops */
+        ASYNC,      /**< Use asynchronous socket channels with completion handlers */
+        UNIX,       /**< Use a blocking Unix domain socket channel with direct buffers (host-local) */
+        SHM         /**< Use ring buffers in a shared memory mapped file (host-local) */
+    }
+
+    /**
+     * Possible thread types (platform, virtual or both).
+     */
+    private enum THREAD_TYPE {
+        PLATFORM,   /**< Run the benchmark with '--threads' platform threads per direction */
+        VIRTUAL,    /**< Run the benchmark with one virtual thread per connection and direction */
+        BOTH        /**< Run the benchmark with platform threads first and then with virtual threads */
     }
 
     /**
-     * Possible perf counter modes (off, compat or mad).
+     * Possible ways to send a file (transfer, copy or both).
      */
-    private enum PERF_COUNTER_MODE {
-        OFF,    /**< Do not measure raw statistics */
-        COMPAT, /**< Use the filesystem to measure raw statistics */
-        MAD     /**< Use the ibmad-library to measure raw statistics */
+    private enum FILE_IO_MODE {
+        TRANSFER,   /**< Send the file via FileChannel.transferTo() (sendfile) */
+        COPY,       /**< Read the file into a user-space buffer and write the buffer to the socket */
+        BOTH        /**< Run with transferTo() first and then with read()/write() on the same connections */
     }
 
     /**
@@ -101,6 +200,8 @@ public class JSocketBench {
      * @param args The arguments.
      */
     private JSocketBench(String[] args) {
+        boolean threadCountSet = false;
+
         for(int i = 0; i < args.length; i++) {
             if (i == args.length - 1) {
                 printUsage();
@@ -108,29 +209,6 @@ public class JSocketBench {
             }
 
             switch (args[i]) {
-                case "-m":
-                case "--mode":
-                    String mode = args[++i];
-
-                    switch (mode) {
-                        case "server":
-                            this.mode = MODE.SERVER;
-                            break;
-                        case "client":
-                            this.mode = MODE.CLIENT;
-                            break;
-                        default:
-                            Log.ERROR_AND_EXIT("MAIN","Invalid mode '%s'!", mode);
-                    }
-                    break;
-                case "-r":
-                case "--remote":
-                    this.remoteHostname = args[++i];
-                    break;
-                case "-a":
-                case "--address":
-                    this.bindAddress = args[++i];
-                    break;
                 case "-b":
                 case "--benchmark":
                     String benchmark = args[++i];
@@ -145,44 +223,119 @@ public class JSocketBench {
                         case "pingpong":
                             this.benchmark = BENCHMARK.PINGPONG;
                             break;
+                        case "filestream":
+                            this.benchmark = BENCHMARK.FILESTREAM;
+                            break;
+                        case "fanin":
+                            this.benchmark = BENCHMARK.FANIN;
+                            break;
+                        case "connect":
+                            this.benchmark = BENCHMARK.CONNECT;
+                            break;
                         default:
                             Log.ERROR_AND_EXIT("MAIN","Invalid benchmark '%s'!", benchmark);
                     }
                     break;
-                case "-s":
-                case "--size":
-                    this.bufSize = Integer.parseUnsignedInt(args[++i]);
+                case "-io":
+                case "--io":
+                    String ioMode = args[++i];
+
+                    switch (ioMode) {
+                        case "stream":
+                            this.ioMode = IO_MODE.STREAM;
+                            break;
+                        case "nio":
+                            this.ioMode = IO_MODE.NIO;
+                            break;
+                        case "selector":
+                            this.ioMode = IO_MODE.SELECTOR;
+                            break;
+                        case "async":
+                            this.ioMode = IO_MODE.ASYNC;
+                            break;
+                        case "unix":
+                            this.ioMode = IO_MODE.UNIX;
+                            break;
+                        case "shm":
+                            this.ioMode = IO_MODE.SHM;
+                            break;
+                        default:
+                            Log.ERROR_AND_EXIT("MAIN","Invalid I/O mode '%s'!", ioMode);
+                    }
+                    break;
+                case "-sd":
+                case "--size-distribution":
+                    this.sizeDistribution = SizeDistribution.parse(args[++i]);
                     break;
-                case "-c":
-                case "--count":
-                    this.messageCount = Long.parseUnsignedLong(args[++i]);
+                case "-n":
+                case "--connections":
+                    this.connectionCount = Integer.parseUnsignedInt(args[++i]);
                     break;
-                case "-p":
-                case "--port":
-                    this.port = Integer.parseUnsignedInt(args[++i]);
+                case "-cl":
+                case "--clients":
+                    this.clientCount = Integer.parseUnsignedInt(args[++i]);
                     break;
-                case "-rs":
-                case "--raw-statistics":
-                    String perfCounterMode = args[++i];
+                case "-th":
+                case "--threads":
+                    this.threadCount = Integer.parseUnsignedInt(args[++i]);
+                    threadCountSet = true;
+                    break;
+                case "-at":
+                case "--async-threads":
+                    this.asyncThreadCount = Integer.parseUnsignedInt(args[++i]);
+                    break;
+                case "-o":
+                case "--outstanding":
+                    this.outstanding = Integer.parseUnsignedInt(args[++i]);
+                    break;
+                case "-tt":
+                case "--thread-type":
+                    String threadType = args[++i];
 
-                    switch (perfCounterMode) {
-                        case "off":
-                            this.perfCounterMode = PERF_COUNTER_MODE.OFF;
+                    switch (threadType) {
+                        case "platform":
+                            this.threadType = THREAD_TYPE.PLATFORM;
                             break;
-                        case "compat":
-                            this.perfCounterMode = PERF_COUNTER_MODE.COMPAT;
+                        case "virtual":
+                            this.threadType = THREAD_TYPE.VIRTUAL;
                             break;
-                        case "mad":
-                            this.perfCounterMode = PERF_COUNTER_MODE.MAD;
+                        case "both":
+                            this.threadType = THREAD_TYPE.BOTH;
                             break;
                         default:
-                            Log.ERROR_AND_EXIT("MAIN","Invalid perf counter mode '%s'!", perfCounterMode);
+                            Log.ERROR_AND_EXIT("MAIN","Invalid thread type '%s'!", threadType);
                     }
                     break;
-                case "-v":
-                case "--verbosity":
-                    Log.VERBOSITY = Integer.parseUnsignedInt(args[++i]);
+                case "-f":
+                case "--file":
+                    this.filePath = args[++i];
+                    break;
+                case "-fs":
+                case "--file-size":
+                    this.fileSize = Long.parseUnsignedLong(args[++i]);
+                    break;
+                case "-fio":
+                case "--file-io":
+                    String fileIoMode = args[++i];
+
+                    switch (fileIoMode) {
+                        case "transfer":
+                            this.fileIoMode = FILE_IO_MODE.TRANSFER;
+                            break;
+                        case "copy":
+                            this.fileIoMode = FILE_IO_MODE.COPY;
+                            break;
+                        case "both":
+                            this.fileIoMode = FILE_IO_MODE.BOTH;
+                            break;
+                        default:
+                            Log.ERROR_AND_EXIT("MAIN","Invalid file I/O mode '%s'!", fileIoMode);
+                    }
                     break;
+                default:
+                    if(parseOption(args[i], args[i + 1])) {
+                        i++;
+                    }
             }
         }
 
@@ -190,346 +343,1441 @@ public class JSocketBench {
             this.perfCounterMode = PERF_COUNTER_MODE.OFF;
         }
 
-        this.benchmarks = new Benchmarks();
-    }
+        if(this.benchmark == BENCHMARK.FANIN && this.perfCounterMode != PERF_COUNTER_MODE.OFF) {
+            Log.ERROR_AND_EXIT("MAIN", "Raw statistics are not supported by the fanin benchmark!");
+        }
 
-    /**
-     * Execute the specified benchmark in a separate thread (or two, when bidirectional is chosen).
-     */
-    private void run() {
-        Thread sendThread;
-        Thread recvThread;
+        if(this.clientCount > 0) {
+            if(this.mode == MODE.CLIENT || this.ioMode == IO_MODE.SHM) {
+                Log.ERROR_AND_EXIT("MAIN", "Multiple clients can only be accepted by a server, " +
+                        "that does not use shared memory!");
+            }
 
-        if(mode == null || (mode == MODE.CLIENT && remoteHostname == null)) {
-            printUsage();
-            Log.ERROR_AND_EXIT("MAIN", "Missing required parameters!");
+            if(this.connectionCount != 1) {
+                Log.ERROR_AND_EXIT("MAIN", "The amount of clients and the amount of connections can not both be set!");
+            }
+
+            // Each accepted client gets its own connection, which is driven by its own thread by default
+            this.connectionCount = this.clientCount;
+
+            if(!threadCountSet) {
+                this.threadCount = this.clientCount;
+            }
         }
 
-        connection = new Connection(bufSize);
+        if(this.connectionCount == 0 || this.threadCount == 0) {
+            Log.ERROR_AND_EXIT("MAIN", "The amount of connections and threads must be at least 1!");
+        }
 
-        if(mode == MODE.SERVER) {
-            connection.connectToClient(bindAddress, port);
-        } else {
-            connection.connectToServer(bindAddress, remoteHostname, port);
+        if(this.window == 0) {
+            Log.ERROR_AND_EXIT("MAIN", "The window must be at least 1!");
         }
 
-        if(perfCounterMode == PERF_COUNTER_MODE.COMPAT) {
-            perfCounter = new IbPerfCounter(true);
-            perfCounter.resetCounters();
-        } else if(perfCounterMode == PERF_COUNTER_MODE.MAD) {
-            perfCounter = new IbPerfCounter(false);
-            perfCounter.resetCounters();
+        if(this.rate > 0 && this.benchmark != BENCHMARK.PINGPONG) {
+            Log.ERROR_AND_EXIT("MAIN", "A request rate can only be set for the pingpong benchmark!");
         }
 
-        if(mode == MODE.SERVER && benchmark == BENCHMARK.UNIDIRECTIONAL) {
-            sendThread = new Thread(() -> { benchmarks.sendBenchmark(connection, messageCount); } );
-            sendThread.start();
+        if(this.asyncThreadCount == 0 || this.outstanding == 0) {
+            Log.ERROR_AND_EXIT("MAIN", "The amount of async threads and outstanding messages must be at least 1!");
+        }
 
-            try {
-                sendThread.join();
-            } catch (InterruptedException e) {
-                Log.ERROR_AND_EXIT("MAIN", "A thread has been interrupted unexpectedly! Error: %s",
-                        e.getMessage());
+        if(this.benchmark == BENCHMARK.CONNECT) {
+            if(this.ioMode == IO_MODE.SHM || this.threadType == THREAD_TYPE.BOTH || this.connectionCount != 1) {
+                Log.ERROR_AND_EXIT("MAIN", "The connect benchmark does not support shared memory, " +
+                        "running with both thread types or multiple connections (use '--threads' instead)!");
             }
-        } else if(mode == MODE.CLIENT && benchmark == BENCHMARK.UNIDIRECTIONAL) {
-            recvThread = new Thread(() -> { benchmarks.recvBenchmark(connection, messageCount); } );
-            recvThread.start();
 
-            try {
-                recvThread.join();
-            } catch (InterruptedException e) {
-                Log.ERROR_AND_EXIT("MAIN", "A thread has been interrupted unexpectedly! Error: %s",
-                        e.getMessage());
+            if(this.messageSizes != null || this.sizeDistribution != null || this.warmupCount > 0 ||
+                    this.warmupDuration > 0 || this.reportInterval > 0 || this.sinkMode != SINK_MODE.DISCARD ||
+                    this.perfCounterMode != PERF_COUNTER_MODE.OFF) {
+                Log.ERROR_AND_EXIT("MAIN", "The connect benchmark can not be combined with message sizes sweeps, " +
+                        "framed messages, a warmup phase, interval reporting, a sink or raw statistics!");
             }
-        } else if(benchmark == BENCHMARK.BIDIRECTIONAL) {
-            sendThread = new Thread(() -> { benchmarks.sendBenchmark(connection, messageCount); } );
-            recvThread = new Thread(() -> { benchmarks.recvBenchmark(connection, messageCount); } );
 
-            sendThread.start();
-            recvThread.start();
+            if(this.bufSize == 0) {
+                Log.ERROR_AND_EXIT("MAIN", "The connect benchmark requires a message size of at least 1 byte!");
+            }
+        } else if(this.threadCount > this.connectionCount) {
+            Log.WARN("MAIN", "Using only %d thread(s), as there are only %d connection(s)!",
+                    this.connectionCount, this.connectionCount);
+
+            this.threadCount = this.connectionCount;
+        }
 
-            try {
-                sendThread.join();
-                recvThread.join();
-            } catch (InterruptedException e) {
-                Log.ERROR_AND_EXIT("MAIN", "A thread has been interrupted unexpectedly! Error: %s",
-                        e.getMessage());
+        if(this.ioMode == IO_MODE.SELECTOR && this.threadType != THREAD_TYPE.PLATFORM) {
+            Log.ERROR_AND_EXIT("MAIN", "The selector event loops can only be run on platform threads!");
+        }
+
+        if(this.benchmark == BENCHMARK.FILESTREAM && this.ioMode != IO_MODE.NIO && this.ioMode != IO_MODE.UNIX) {
+            Log.ERROR_AND_EXIT("MAIN", "The filestream benchmark requires socket channels ('--io nio' or " +
+                    "'--io unix')!");
+        }
+
+        if(this.duration > 0 || this.reportInterval > 0) {
+            if(this.ioMode == IO_MODE.SELECTOR || this.benchmark == BENCHMARK.FILESTREAM) {
+                Log.ERROR_AND_EXIT("MAIN", "Duration-based runs and interval reporting are not supported " +
+                        "by the selector event loops and the filestream benchmark!");
             }
-        } else if(benchmark == BENCHMARK.PINGPONG) {
-            if(mode == MODE.SERVER) {
-                sendThread = new Thread(() -> { benchmarks.pingPongBenchmarkServer(connection, messageCount); } );
-            } else {
-                sendThread = new Thread(() -> { benchmarks.pingPongBenchmarkClient(connection, messageCount); } );
+
+            if(this.duration > 0 && this.bufSize == 0) {
+                Log.ERROR_AND_EXIT("MAIN", "Duration-based runs require a message size of at least 1 byte!");
             }
+        }
 
-            sendThread.start();
+        if(this.messageSizes != null) {
+            if(this.benchmark == BENCHMARK.FILESTREAM || this.benchmark == BENCHMARK.FANIN ||
+                    this.reportInterval > 0 || this.histogramPath != null) {
+                Log.ERROR_AND_EXIT("MAIN", "A message size sweep can not be combined with the filestream " +
+                        "and fanin benchmarks, interval reporting or a histogram file!");
+            }
 
-            try {
-                sendThread.join();
-            } catch (InterruptedException e) {
-                Log.ERROR_AND_EXIT("MAIN", "A thread has been interrupted unexpectedly! Error: %s",
-                        e.getMessage());
+            if(this.repetitions == 0) {
+                Log.ERROR_AND_EXIT("MAIN", "The amount of repetitions must be at least 1!");
             }
+
+            // All buffers are allocated with the largest size and reused for the smaller ones
+            this.bufSize = Arrays.stream(this.messageSizes).max().getAsInt();
         }
 
-        if(perfCounterMode != PERF_COUNTER_MODE.OFF) {
-            perfCounter.refreshCounters();
+        if(this.sizeDistribution != null) {
+            if(this.ioMode == IO_MODE.SELECTOR || this.ioMode == IO_MODE.ASYNC) {
+                Log.ERROR_AND_EXIT("MAIN", "Framed messages are not supported by the 'selector' and 'async' " +
+                        "I/O modes!");
+            }
+
+            if(this.benchmark == BENCHMARK.FILESTREAM || this.messageSizes != null) {
+                Log.ERROR_AND_EXIT("MAIN", "Framed messages can not be combined with the filestream benchmark " +
+                        "or a message size sweep!");
+            }
+
+            // The buffers must be able to hold the largest payload
+            this.bufSize = this.sizeDistribution.getMaxSize();
         }
 
-        connection.close();
+        if(this.warmupCount > 0 || this.warmupDuration > 0) {
+            if(this.ioMode == IO_MODE.SELECTOR || this.benchmark == BENCHMARK.FILESTREAM) {
+                Log.ERROR_AND_EXIT("MAIN", "The warmup phase is not supported by the selector event loops " +
+                        "and the filestream benchmark!");
+            }
 
-        if(mode == MODE.SERVER) {
-            printResults();
-        } else {
-            System.out.println("See results on server!");
+            if(this.bufSize == 0) {
+                Log.ERROR_AND_EXIT("MAIN", "The warmup phase requires a message size of at least 1 byte!");
+            }
         }
 
-        benchmarks = new Benchmarks();
-    }
+        if(this.sinkMode == SINK_MODE.MMAP) {
+            if(this.ioMode == IO_MODE.SELECTOR) {
+                Log.ERROR_AND_EXIT("MAIN", "The mmap sink is not supported by the selector event loops!");
+            }
 
-    /**
-     * Print the help message.
-     */
-    private static void printUsage() {
-        System.out.print("Usage: java -jar JSocketBench.jar [OPTION...]\n" +
-                "Available options:\n" +
-                "-m, --mode\n" +
-                "    Set the operating mode (server/client). This is a required option!\n" +
-                "-r, --remote\n" +
-                "    Set the remote hostname. This is a required option when the program is running as a client!\n" +
-                "-a, --address\n" +
-                "    Set the address to bind the local socket to.\n" +
-                "-b, --benchmark\n" +
-                "    Set the benchmark to be executed. Available benchmarks are: " +
-                "'unidirectional', 'bidirectional' and 'pingpong' (Default: 'unidirectional').\n" +
-                "-s, --size\n" +
-                "    Set the message size in bytes (Default: 1024).\n" +
-                "-c, --count\n" +
-                "    Set the amount of messages to be sent (Default: 1000000).\n" +
-                "-p, --port\n" +
-                "    Set the TCP-port to be used for the connection (Default: 8888).\n" +
-                "-rs, --raw-statistics\n" +
-                "    Show infiniband perfomance counters\n" +
-                "        'mad'    = Use libibmad to get performance counters (requires root-privileges!)\n" +
-                "        'compat' = Use filesystem to get performance counters\n" +
-                "        'off'    = Don't show performance counters (Default).\n" +
-                "-v, --verbosity\n" +
-                "    Set the verbosity level: 0 = Fatal errors and raw results,\n" +
-                "                             1 = Fatal errors formatted results,\n" +
-                "                             2 = All errors and formatted results,\n" +
-                "                             3 = All errors/warnings and formatted results,\n" +
-                "                             4 = All log messages and formatted results (Default).\n");
+            if(this.sinkSize < this.bufSize || this.sinkSize > Integer.MAX_VALUE) {
+                Log.ERROR_AND_EXIT("MAIN", "The sink size must be between the message size and %d bytes!",
+                        Integer.MAX_VALUE);
+            }
+        }
+
+        if(this.threadType != THREAD_TYPE.PLATFORM) {
+            this.virtualThreadFactory = createVirtualThreadFactory();
+        }
     }
 
     /**
-     * Print the benchmark results.
+     * Establish the connections and execute the specified benchmark in separate threads.
+     *
+     * Depending on the thread type, the benchmark is executed with platform threads, virtual threads,
+     * or both one after another on the same connections.
      */
-    private void printResults() {
-        long sendTime = benchmarks.getSendTime();
-        long recvTime = benchmarks.getRecvTime();
+    private void run() {
+        boolean hostLocal = ioMode == IO_MODE.UNIX || ioMode == IO_MODE.SHM;
 
-        if(benchmark == BENCHMARK.PINGPONG) {
-            long avgLatency = sendTime / messageCount;
+        if(mode == null || (mode == MODE.CLIENT && remoteHostname == null && !hostLocal)) {
+            printUsage();
+            Log.ERROR_AND_EXIT("MAIN", "Missing required parameters!");
+        }
 
-            if(Log.VERBOSITY > 0) {
-                System.out.print("Results:\n");
-                System.out.printf("  Total time: %.2f s\n", sendTime / ((double) 1000000000));
-                System.out.printf("  Average request response latency: %.2f us\n", avgLatency /
-                        (double) 1000);
-            } else {
-                System.out.printf("%f\n", sendTime / ((double) 1000000000));
-                System.out.printf("%f\n", avgLatency / (double) 1000);
-            }
-        } else {
-            long totalData = messageCount * bufSize;
-
-            double sendPktsRate = (messageCount / (sendTime / ((double) 1000000000)) / ((double) 1000));
-
-            double recvPktsRate = recvTime == 0 ? 0 : (messageCount / (recvTime / ((double) 1000000000)) /
-                    ((double) 1000));
-
-            double sendAvgThroughputMib = totalData /
-                    (sendTime / ((double) 1000000000)) / ((double) 1024) / ((double) 1024);
-
-            double sendAvgThroughputMb = totalData /
-                    (sendTime / ((double) 1000000000)) / ((double) 1000) / ((double) 1000);
-
-            double recvAvgThroughputMib = recvTime == 0 ? 0 : totalData /
-                    (recvTime / ((double) 1000000000)) / ((double) 1024) / ((double) 1024);
-
-            double recvAvgThroughputMb = recvTime == 0 ? 0 : totalData /
-                    (recvTime / ((double) 1000000000)) / ((double) 1000) / ((double) 1000);
-
-            double sendAvgLatency = sendTime / (double) messageCount / (double) 1000;
-
-            // Even if we only send data, a few bytes will also be received, because of the RC-protocol,
-            // so if recvTime is 0, we just set it to sendTime,
-            // so that the raw receive throughput can be calculated correctly.
-            if (recvTime == 0) {
-                recvTime = sendTime;
-            } else if (sendTime == 0) {
-                recvTime = 0;
-            }
-
-            double sendAvgRawThroughputMib = perfCounterMode == PERF_COUNTER_MODE.OFF ? 0 :
-                    perfCounter.getXmitDataBytes() / (sendTime / ((double) 1000000000)) /
-                            ((double) 1024) / ((double) 1024);
-
-            double sendAvgRawThroughputMb = perfCounterMode == PERF_COUNTER_MODE.OFF ? 0 :
-                    perfCounter.getXmitDataBytes() / (sendTime / ((double) 1000000000)) /
-                            ((double) 1000) / ((double) 1000);
-
-            double recvAvgRawThroughputMib = perfCounterMode == PERF_COUNTER_MODE.OFF ? 0 :
-                    perfCounter.getRcvDataBytes() /(recvTime / ((double) 1000000000)) /
-                            ((double) 1024) / ((double) 1024);
-
-            double recvAvgRawThroughputMb = perfCounterMode == PERF_COUNTER_MODE.OFF ? 0 :
-                    perfCounter.getRcvDataBytes() / (recvTime / ((double) 1000000000)) /
-                            ((double) 1000) / ((double) 1000);
-
-            double sendOverhead = 0;
-            double recvOverhead = 0;
-
-            if(perfCounterMode != PERF_COUNTER_MODE.OFF && totalData < perfCounter.getXmitDataBytes()) {
-                sendOverhead = perfCounter.getXmitDataBytes() - totalData;
-            }
-
-            if(perfCounterMode != PERF_COUNTER_MODE.OFF && totalData < perfCounter.getRcvDataBytes()) {
-                recvOverhead = perfCounter.getRcvDataBytes() - totalData;
-            }
-
-            double sendOverheadPercentage = sendOverhead / (double) totalData;
-            double recvOverheadPercentage = recvOverhead / (double) totalData;
-
-            if (Log.VERBOSITY > 0) {
-                System.out.print("Results:\n");
-                System.out.printf("  Total time: %.2f s\n", sendTime / ((double) 1000000000));
-                System.out.printf("  Total data: %.2f MiB (%.2f MB)\n",
-                        totalData / ((double) 1024) / ((double) 1024),
-                        totalData / ((double) 1000) / ((double) 1000));
-                System.out.printf("  Average sent packet per second: %.2f kPkts/s\n",
-                        sendPktsRate);
-                System.out.printf("  Average recv packet per second: %.2f kPkts/s\n",
-                        recvPktsRate);
-                System.out.printf("  Average combined packet per second: %.2f kPkts/s\n",
-                        recvPktsRate);
-                System.out.printf("  Average send throughput:     %.2f MiB/s (%.2f MB/s)\n",
-                        sendAvgThroughputMib, sendAvgThroughputMb);
-                System.out.printf("  Average recv throughput:     %.2f MiB/s (%.2f MB/s)\n",
-                        recvAvgThroughputMib, recvAvgThroughputMb);
-                System.out.printf("  Average combined throughput: %.2f MiB/s (%.2f MB/s)\n",
-                        sendAvgThroughputMib + recvAvgThroughputMib, sendAvgThroughputMb + recvAvgThroughputMb);
-                System.out.printf("  Average send latency: %.2f us\n", sendAvgLatency);
-
-                if(perfCounterMode != PERF_COUNTER_MODE.OFF) {
-                    System.out.print("\nRaw statistics:\n");
-                    System.out.printf("  Total packets sent: %d\n", perfCounter.getXmitPkts());
-                    System.out.printf("  Total packets received %d\n", perfCounter.getRcvPkts());
-                    System.out.printf("  Total data sent: %.2f MiB (%.2f MB)\n", perfCounter.getXmitDataBytes() /
-                                    ((double) 1024) / ((double) 1024),
-                            perfCounter.getXmitDataBytes() / ((double) 1000) / ((double) 1000));
-                    System.out.printf("  Total data received: %.2f MiB (%.2f MB)\n", perfCounter.getRcvDataBytes() /
-                                    ((double) 1024) / ((double) 1024),
-                            perfCounter.getRcvDataBytes() / ((double) 1000) / ((double) 1000));
-                    System.out.printf("  Send overhead: %.2f MiB (%.2f MB), %.2f%%\n", sendOverhead /
-                                    ((double) 1024) / ((double) 1024),
-                            sendOverhead / ((double) 1000) / ((double) 1000), sendOverheadPercentage * 100);
-                    System.out.printf("  Receive overhead: %.2f MiB (%.2f MB), %.2f%%\n", recvOverhead /
-                                    ((double) 1024) / ((double) 1024),
-                            recvOverhead / ((double) 1000) / ((double) 1000), recvOverheadPercentage * 100);
-                    System.out.printf("  Total sent data: %.2f MiB (%.2f MB)\n",
-                            perfCounter.getXmitDataBytes() / ((double) 1024) / ((double) 1024),
-                            perfCounter.getXmitDataBytes() / ((double) 1000) / ((double) 1000));
-                    System.out.printf("  Total received data: %.2f MiB (%.2f MB)\n",
-                            perfCounter.getXmitDataBytes() / ((double) 1024) / ((double) 1024),
-                            perfCounter.getXmitDataBytes() / ((double) 1000) / ((double) 1000));
-                    System.out.printf("  Average send throughput:     %.2f MiB/s (%.2f MB/s)\n",
-                            sendAvgRawThroughputMib, sendAvgRawThroughputMb);
-                    System.out.printf("  Average recv throughput:     %.2f MiB/s (%.2f MB/s)\n",
-                            recvAvgRawThroughputMib, recvAvgRawThroughputMb);
-                    System.out.printf("  Average combined throughput: %.2f MiB/s (%.2f MB/s)\n",
-                            sendAvgRawThroughputMib + recvAvgRawThroughputMib,
-                            sendAvgRawThroughputMb + recvAvgRawThroughputMb);
+        if(benchmark == BENCHMARK.CONNECT) {
+            runConnectBenchmark();
+            return;
+        }
+
+        connections = new Connection[connectionCount];
+
+        createChannelGroup();
+
+        Closeable listener = null;
+
+        for(int i = 0; i < connectionCount; i++) {
+            connections[i] = createConnection();
+
+            if(mode == MODE.SERVER && clientCount > 0) {
+                // All clients connect to the same port, so the first connection's listener is shared
+                if(listener == null) {
+                    listener = connections[i].listen(bindAddress, port);
                 }
+
+                connections[i].acceptClient(listener);
+            } else if(mode == MODE.SERVER) {
+                connections[i].connectToClient(bindAddress, port + i);
             } else {
-                System.out.printf("%f\n", sendTime / ((double) 1000000000));
-                System.out.printf("%f\n", totalData / ((double) 1024) / ((double) 1024));
-                System.out.printf("%f\n", sendPktsRate);
-                System.out.printf("%f\n", recvPktsRate);
-                System.out.printf("%f\n", sendPktsRate + recvPktsRate);
-                System.out.printf("%f\n", sendAvgThroughputMb);
-                System.out.printf("%f\n", recvAvgThroughputMb);
-                System.out.printf("%f\n", sendAvgThroughputMb + recvAvgThroughputMb);
-                System.out.printf("%f\n", sendAvgLatency);
-
-                if(perfCounterMode != PERF_COUNTER_MODE.OFF) {
-                    System.out.printf("%d\n", perfCounter.getXmitPkts());
-                    System.out.printf("%d\n", perfCounter.getXmitPkts());
-                    System.out.printf("%f\n", perfCounter.getXmitDataBytes() / ((double) 1024) / ((double) 1024));
-                    System.out.printf("%f\n", perfCounter.getRcvDataBytes() / ((double) 1024) / ((double) 1024));
-                    System.out.printf("%f\n", sendOverhead / ((double) 1024) / ((double) 1024) );
-                    System.out.printf("%f\n", sendOverheadPercentage * 100);
-                    System.out.printf("%f\n", recvOverhead / ((double) 1024) / ((double) 1024) );
-                    System.out.printf("%f\n", recvOverheadPercentage * 100);
-                    System.out.printf("%f\n", sendAvgRawThroughputMb);
-                    System.out.printf("%f\n", recvAvgRawThroughputMb);
-                    System.out.printf("%f\n", sendAvgRawThroughputMb + recvAvgRawThroughputMb);
-                }
+                connections[i].connectToServer(bindAddress, remoteHostname, port + i);
+            }
+
+            if(sizeDistribution != null) {
+                connections[i].setFrameSizes(sizeDistribution.getSequence());
             }
         }
-    }
 
-    /**
-     * Load a native library, that is contained inside the .jar-file.
-     *
-     * Based on https://stackoverflow.com/a/49500154
-     *
-     * @param path The library's path inside tje .jar-file
-     */
-    private static void loadNativeLibraryFromJar(String path) throws IOException {
-        File tmpDir = Files.createTempDirectory("JSocketBench-native").toFile();
-        tmpDir.deleteOnExit();
+        if(listener != null) {
+            try {
+                listener.close();
+            } catch (IOException e) {
+                Log.WARN("MAIN", "Unable to close listener! Error: %s", e.getMessage());
+            }
+        }
 
-        File nativeLibTmpFile = new File(tmpDir, path);
-        nativeLibTmpFile.deleteOnExit();
+        if(perfCounterMode == PERF_COUNTER_MODE.COMPAT) {
+            perfCounter = new IbPerfCounter(true);
+        } else if(perfCounterMode == PERF_COUNTER_MODE.MAD) {
+            perfCounter = new IbPerfCounter(false);
+        }
 
-        URL url = JSocketBench.class.getResource(path);
-        InputStream in = url.openStream();
+        if(benchmark == BENCHMARK.FILESTREAM && mode == MODE.SERVER) {
+            openFile();
+        }
 
-        Files.copy(in, nativeLibTmpFile.toPath());
-        System.load(nativeLibTmpFile.getAbsolutePath());
-    }
+        if(sinkMode == SINK_MODE.MMAP) {
+            createSinks();
+        }
 
-    /**
-     * The main-method.
-     */
-    public static void main(String[] args) {
-        JSocketBench bench = new JSocketBench(args);
+        if(threadType != THREAD_TYPE.VIRTUAL) {
+            runPasses(Thread::new, threadCount, "Platform threads");
+        }
+
+        if(threadType != THREAD_TYPE.PLATFORM) {
+            runPasses(virtualThreadFactory, connectionCount, "Virtual threads");
+        }
 
+        // Give the remote host some time to receive the last messages, before the sockets are closed
         try {
-            Process process = Runtime.getRuntime().exec("id -u");
-            String output = new BufferedReader(new InputStreamReader(process.getInputStream())).readLine();
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Log.WARN("MAIN", "Interrupted while waiting for the remote host! Error: %s", e.getMessage());
+        }
 
-            int uid = Integer.parseInt(output);
+        for(Connection connection : connections) {
+            connection.close();
+        }
 
-            if(uid != 0) {
-                Log.WARN("MAIN", "Not running with root privileges. " +
-                        "If any errors occur, try restarting as root!");
+        if(channelGroup != null) {
+            channelGroup.shutdown();
+        }
+
+        if(sinks != null) {
+            for(MappedSink sink : sinks) {
+                sink.close();
             }
-        } catch (Exception e) {
-            Log.WARN("MAIN", "Unable to determine user id! Error: %s", e.getMessage());
         }
 
-        if(bench.perfCounterMode != PERF_COUNTER_MODE.OFF) {
+        if(file != null) {
             try {
-                loadNativeLibraryFromJar("/libIbPerfCounter.so");
-                Log.INFO("MAIN", "Successfully loaded native library 'libIbPerfCounter.so'");
-            } catch (Exception e) {
-                Log.ERROR_AND_EXIT("MAIN", "Unable to load native library 'libIbPerfCounter.so'! Error: %s",
-                        e.getMessage());
+                file.close();
+            } catch (IOException e) {
+                Log.WARN("MAIN", "Unable to close file! Error: %s", e.getMessage());
             }
         }
 
-        bench.run();
+        if(mode == MODE.CLIENT && !loopback) {
+            System.out.println("See results on server!");
+        }
+    }
+
+    /**
+     * Run the server and its clients on separate threads inside this process.
+     *
+     * Each client is a separate instance, that is created from the same arguments as a client, which connects
+     * to the bind address (or 127.0.0.1). This way, both roles go through the same code paths as in two processes,
+     * while the clients simply retry until the server listens, so that no start order needs to be kept.
+     *
+     * @param args The arguments, that this instance has been created from
+     */
+    private void runLoopback(String[] args) {
+        String hostname = bindAddress == null || bindAddress.isEmpty() ? "127.0.0.1" : bindAddress;
+        Thread[] threads = new Thread[Math.max(clientCount, 1) + 1];
+
+        // Only one side stores the received payloads and prints the sink statistics: the server, if it receives
+        // any, or otherwise the clients (each in a file of its own, like the server's connections)
+        boolean serverStores = benchmark != BENCHMARK.UNIDIRECTIONAL && benchmark != BENCHMARK.FILESTREAM;
+
+        if(!serverStores) {
+            sinkMode = SINK_MODE.DISCARD;
+        }
+
+        threads[0] = new Thread(this::run);
+
+        for(int i = 1; i < threads.length; i++) {
+            JSocketBench client = new JSocketBench(createLoopbackClientArgs(args, hostname, true));
+
+            client.loopback = true;
+
+            if(serverStores) {
+                client.sinkMode = SINK_MODE.DISCARD;
+            } else if(sinkPath != null && clientCount > 1) {
+                client.sinkPath = sinkPath + "." + (i - 1);
+            }
+
+            threads[i] = new Thread(client::run);
+        }
+
+        startAndJoin(threads);
+    }
+
+    /**
+     * Create the channel group, which is shared by all asynchronous socket channels (only with '--io async').
+     */
+    private void createChannelGroup() {
+        if(ioMode == IO_MODE.ASYNC) {
+            try {
+                channelGroup = AsynchronousChannelGroup.withFixedThreadPool(asyncThreadCount,
+                        Executors.defaultThreadFactory());
+            } catch (IOException e) {
+                Log.ERROR_AND_EXIT("MAIN", "Unable to create asynchronous channel group! Error: %s", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Create an unconnected connection, that uses the chosen socket I/O implementation.
+     */
+    private Connection createConnection() {
+        Connection connection;
+
+        if(ioMode == IO_MODE.NIO || ioMode == IO_MODE.SELECTOR) {
+            connection = new NioConnection(bufSize);
+        } else if(ioMode == IO_MODE.ASYNC) {
+            connection = new AsyncConnection(bufSize, outstanding, channelGroup);
+        } else if(ioMode == IO_MODE.UNIX) {
+            connection = new UnixConnection(bufSize);
+        } else if(ioMode == IO_MODE.SHM) {
+            connection = new ShmConnection(bufSize);
+        } else {
+            connection = new StreamConnection(bufSize);
+        }
+
+        // A loopback client can not bind the port, on which its server listens
+        connection.setEphemeralPort(loopback);
+
+        return connection;
+    }
+
+    /**
+     * Execute the connect benchmark with one thread per parallel connection.
+     *
+     * Unlike the other benchmarks, the results are printed by the client, since only the client
+     * goes through all phases of the connection setup.
+     */
+    private void runConnectBenchmark() {
+        ThreadFactory threadFactory = threadType == THREAD_TYPE.VIRTUAL ? virtualThreadFactory : Thread::new;
+        Thread[] threads = new Thread[threadCount];
+        Closeable listener = null;
+
+        createChannelGroup();
+
+        ConnectBenchmark connectBenchmark = new ConnectBenchmark(this::createConnection, threadCount,
+                duration * 1000000000);
+
+        if(mode == MODE.SERVER) {
+            listener = createConnection().listen(bindAddress, port);
+        }
+
+        Log.INFO("MAIN", "Running connect benchmark with %d thread(s)...", threadCount);
+
+        for(int i = 0; i < threadCount; i++) {
+            int thread = i;
+            Closeable finalListener = listener;
+
+            if(mode == MODE.SERVER) {
+                threads[i] = threadFactory.newThread(() -> connectBenchmark.runServer(thread, finalListener));
+            } else {
+                threads[i] = threadFactory.newThread(() ->
+                        connectBenchmark.runClient(thread, bindAddress, remoteHostname, port, messageCount));
+            }
+        }
+
+        long compilationTime = BenchmarkReport.getCompilationTime();
+
+        startAndJoin(threads);
+
+        measuredCompilationTime = compilationTime < 0 ? -1 :
+                BenchmarkReport.getCompilationTime() - compilationTime;
+
+        if(listener != null) {
+            try {
+                listener.close();
+            } catch (IOException e) {
+                Log.WARN("MAIN", "Unable to close listener! Error: %s", e.getMessage());
+            }
+        }
+
+        if(channelGroup != null) {
+            channelGroup.shutdown();
+        }
+
+        if(mode == MODE.CLIENT) {
+            printConnectResults(connectBenchmark);
+
+            if(measuredCompilationTime >= 0) {
+                BenchmarkReport.printCompilationResults(measuredCompilationTime);
+            }
+        } else if(!loopback) {
+            System.out.printf("Served %d connection(s), see results on client!\n",
+                    connectBenchmark.getConnectionCount());
+        }
+    }
+
+    /**
+     * Execute the specified benchmark with a given thread type.
+     *
+     * The filestream benchmark is executed once per chosen file I/O mode, all other benchmarks are executed once.
+     *
+     * @param threadFactory The factory, that is used to create the benchmark threads
+     * @param passThreadCount The amount of threads per direction
+     * @param name The name of the thread type
+     */
+    private void runPasses(ThreadFactory threadFactory, int passThreadCount, String name) {
+        if(messageSizes != null) {
+            runSweep(threadFactory, passThreadCount, name);
+            return;
+        }
+
+        if(benchmark != BENCHMARK.FILESTREAM) {
+            runPass(threadFactory, passThreadCount, name, false);
+            return;
+        }
+
+        if(fileIoMode != FILE_IO_MODE.COPY) {
+            runPass(threadFactory, passThreadCount, name + ", transferTo()", true);
+        }
+
+        if(fileIoMode != FILE_IO_MODE.TRANSFER) {
+            runPass(threadFactory, passThreadCount, name + ", read()/write()", false);
+        }
+    }
+
+    /**
+     * Execute the specified benchmark once on all connections and print the results (only in server mode).
+     *
+     * Each of the given amount of threads drives every n-th connection.
+     * When bidirectional is chosen, there are as many send threads as receive threads.
+     *
+     * @param threadFactory The factory, that is used to create the benchmark threads
+     * @param passThreadCount The amount of threads per direction
+     * @param name The name of the pass (printed as a header, when the benchmark is executed more than once)
+     * @param zeroCopy Whether to send the file via FileChannel.transferTo() (only relevant for filestream)
+     */
+    private void runPass(ThreadFactory threadFactory, int passThreadCount, String name, boolean zeroCopy) {
+        Thread[] sendThreads = new Thread[passThreadCount];
+        Thread[] recvThreads = new Thread[passThreadCount];
+
+        if(warmupCount > 0 || warmupDuration > 0) {
+            runWarmup(threadFactory, passThreadCount);
+        }
+
+        Log.INFO("MAIN", "Running benchmark with %d thread(s) per direction (%s)...",
+                passThreadCount, name.toLowerCase());
+
+        benchmarks = new Benchmarks(connectionCount, passThreadCount, connections[0].getQueueSize(), sampleInterval,
+                duration * 1000000000);
+
+        if(reportInterval > 0 && mode == MODE.SERVER) {
+            if(sizeDistribution == null) {
+                progressSampler = new ProgressSampler(benchmarks.getSentMessageCounters(),
+                        benchmarks.getRecvMessageCounters(), reportInterval);
+            } else {
+                progressSampler = new ProgressSampler(benchmarks.getSentMessageCounters(),
+                        benchmarks.getRecvMessageCounters(), getSentFrameByteCounters(), getRecvFrameByteCounters(),
+                        reportInterval);
+            }
+        }
+
+        if(perfCounterMode != PERF_COUNTER_MODE.OFF) {
+            perfCounter.resetCounters();
+        }
+
+        if(sinks != null) {
+            for(MappedSink sink : sinks) {
+                sink.resetStatistics();
+            }
+        }
+
+        if(ioMode == IO_MODE.ASYNC) {
+            for(Connection connection : connections) {
+                ((AsyncConnection) connection).resetStatistics();
+            }
+        }
+
+        createThreads(threadFactory, messageCount, zeroCopy, sendThreads, recvThreads);
+
+        if(progressSampler != null) {
+            progressSampler.start();
+        }
+
+        long compilationTime = BenchmarkReport.getCompilationTime();
+        long[] sentBytes = getSentFrameBytes();
+        long[] recvBytes = getRecvFrameBytes();
+
+        startAndJoin(sendThreads, recvThreads);
+
+        measuredCompilationTime = compilationTime < 0 ? -1 :
+                BenchmarkReport.getCompilationTime() - compilationTime;
+        measuredSentConnectionBytes = getSentFrameBytes();
+        measuredRecvConnectionBytes = getRecvFrameBytes();
+        measuredSentBytes = 0;
+        measuredRecvBytes = 0;
+
+        for(int i = 0; i < connectionCount; i++) {
+            measuredSentConnectionBytes[i] -= sentBytes[i];
+            measuredRecvConnectionBytes[i] -= recvBytes[i];
+            measuredSentBytes += measuredSentConnectionBytes[i];
+            measuredRecvBytes += measuredRecvConnectionBytes[i];
+        }
+
+        if(progressSampler != null) {
+            progressSampler.stop();
+        }
+
+        if(perfCounterMode != PERF_COUNTER_MODE.OFF) {
+            perfCounter.refreshCounters();
+        }
+
+        // The client only prints the statistics of its own sinks (a message size sweep prints its own results).
+        // In loopback mode, the server and a client may print at the same time, so each block is printed at once.
+        synchronized(System.out) {
+            if(messageSizes == null && (mode == MODE.SERVER || sinks != null)) {
+                boolean multiplePasses = threadType == THREAD_TYPE.BOTH ||
+                        (benchmark == BENCHMARK.FILESTREAM && fileIoMode == FILE_IO_MODE.BOTH);
+
+                if(multiplePasses && Log.VERBOSITY > 0) {
+                    System.out.printf("%s (%d per direction):\n", name, passThreadCount);
+                }
+
+                if(mode == MODE.SERVER && benchmark == BENCHMARK.FILESTREAM) {
+                    printFileResults();
+                } else if(mode == MODE.SERVER && benchmark == BENCHMARK.FANIN) {
+                    printFanInResults();
+                } else if(mode == MODE.SERVER) {
+                    printResults();
+
+                    if(histogramPath != null) {
+                        exportLatencyHistogram(name);
+                    }
+                }
+
+                if(mode == MODE.SERVER && measuredCompilationTime >= 0) {
+                    BenchmarkReport.printCompilationResults(measuredCompilationTime);
+                }
+
+                if(sinks != null) {
+                    printSinkResults();
+                }
+
+                if(multiplePasses && Log.VERBOSITY > 0) {
+                    System.out.println();
+                }
+            }
+        }
+    }
+
+    /**
+     * Execute the specified benchmark once per message size and repetition on the same connections.
+     *
+     * The connections' buffers have been allocated with the largest size and only the used part of them changes.
+     * Before each run, both hosts synchronize, so that a run does not overlap with the remote host's previous run.
+     * The server prints one row per message size, which contains the median of all repetitions.
+     *
+     * @param threadFactory The factory, that is used to create the benchmark threads
+     * @param passThreadCount The amount of threads per direction
+     * @param name The name of the thread type
+     */
+    private void runSweep(ThreadFactory threadFactory, int passThreadCount, String name) {
+        boolean multiplePasses = threadType == THREAD_TYPE.BOTH;
+
+        if(mode == MODE.SERVER && Log.VERBOSITY > 0) {
+            if(multiplePasses) {
+                System.out.printf("%s (%d per direction):\n", name, passThreadCount);
+            }
+
+            BenchmarkReport.printSweepHeader(repetitions, benchmark == BENCHMARK.PINGPONG);
+        }
+
+        for(int size : messageSizes) {
+            double[][] results = new double[repetitions][];
+
+            Log.INFO("MAIN", "Running benchmark with a message size of %d byte(s)...", size);
+
+            bufSize = size;
+
+            for(Connection connection : connections) {
+                connection.setMessageSize(size);
+            }
+
+            for(int i = 0; i < repetitions; i++) {
+                synchronize();
+                runPass(threadFactory, passThreadCount, name, false);
+
+                results[i] = BenchmarkReport.getSweepResults(benchmarks, size,
+                        benchmark == BENCHMARK.PINGPONG);
+            }
+
+            if(mode == MODE.SERVER) {
+                BenchmarkReport.printSweepRow(size, results, benchmark == BENCHMARK.PINGPONG);
+            }
+        }
+
+        if(mode == MODE.SERVER && multiplePasses && Log.VERBOSITY > 0) {
+            System.out.println();
+        }
+    }
+
+    /**
+     * Run the specified benchmark on all connections without measuring it, so that the JIT compiler can compile
+     * the benchmark's code path, before the measured run starts.
+     *
+     * Afterwards, both hosts wait for each other via synchronize(), so that the measured run
+     * does not overlap with the remote host's warmup phase.
+     *
+     * @param threadFactory The factory, that is used to create the benchmark threads
+     * @param passThreadCount The amount of threads per direction
+     */
+    private void runWarmup(ThreadFactory threadFactory, int passThreadCount) {
+        Thread[] sendThreads = new Thread[passThreadCount];
+        Thread[] recvThreads = new Thread[passThreadCount];
+
+        BenchmarkReport.logWarmupStart(warmupCount, warmupDuration);
+
+        benchmarks = new Benchmarks(connectionCount, passThreadCount, connections[0].getQueueSize(), sampleInterval,
+                warmupDuration * 1000000000);
+
+        createThreads(threadFactory, warmupCount, false, sendThreads, recvThreads);
+        startAndJoin(sendThreads, recvThreads);
+
+        synchronize();
+
+        BenchmarkReport.logWarmupEnd();
+    }
+
+    /**
+     * Wait, until the remote host has finished its current run on all connections.
+     *
+     * The client sends a single message on each connection and the server answers it,
+     * after it has received the message.
+     */
+    private void synchronize() {
+        try {
+            for(Connection connection : connections) {
+                if(mode == MODE.SERVER) {
+                    connection.readMessages(1);
+                    connection.writeMessages(1);
+                } else {
+                    connection.writeMessages(1);
+                    connection.readMessages(1);
+                }
+            }
+        } catch (IOException e) {
+            Log.ERROR_AND_EXIT("MAIN", "Unable to synchronize with the remote host! Error: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Create the threads, that execute the specified benchmark with the current benchmarks-object.
+     *
+     * Each thread drives every n-th connection, where n is the length of the given arrays.
+     * Threads, that are not needed on this host, are left null.
+     *
+     * @param threadFactory The factory, that is used to create the benchmark threads
+     * @param count The amount of messages per connection (ignored in a duration-based run)
+     * @param zeroCopy Whether to send the file via FileChannel.transferTo() (only relevant for filestream)
+     * @param sendThreads The array, that is filled with the send threads
+     * @param recvThreads The array, that is filled with the receive threads
+     */
+    private void createThreads(ThreadFactory threadFactory, long count, boolean zeroCopy, Thread[] sendThreads,
+                               Thread[] recvThreads) {
+        for(int i = 0; i < sendThreads.length; i++) {
+            int[] ids = getConnectionIds(i, sendThreads.length);
+
+            if(ioMode == IO_MODE.SELECTOR) {
+                sendThreads[i] = createSelectorThread(threadFactory, ids, i);
+            } else if(benchmark == BENCHMARK.FILESTREAM) {
+                if(mode == MODE.SERVER) {
+                    sendThreads[i] = threadFactory.newThread(() ->
+                            benchmarks.fileSendBenchmark(connections, ids, file, fileSize, zeroCopy));
+                } else {
+                    recvThreads[i] = threadFactory.newThread(() ->
+                            benchmarks.fileRecvBenchmark(connections, ids));
+                }
+            } else if(mode == MODE.SERVER && benchmark == BENCHMARK.UNIDIRECTIONAL) {
+                sendThreads[i] = threadFactory.newThread(() ->
+                        benchmarks.sendBenchmark(connections, ids, count));
+            } else if(mode == MODE.CLIENT && benchmark == BENCHMARK.UNIDIRECTIONAL) {
+                recvThreads[i] = threadFactory.newThread(() ->
+                        benchmarks.recvBenchmark(connections, ids, count));
+            } else if(mode == MODE.SERVER && benchmark == BENCHMARK.FANIN) {
+                recvThreads[i] = threadFactory.newThread(() ->
+                        benchmarks.recvBenchmark(connections, ids, count));
+            } else if(mode == MODE.CLIENT && benchmark == BENCHMARK.FANIN) {
+                sendThreads[i] = threadFactory.newThread(() ->
+                        benchmarks.sendBenchmark(connections, ids, count));
+            } else if(benchmark == BENCHMARK.BIDIRECTIONAL) {
+                sendThreads[i] = threadFactory.newThread(() ->
+                        benchmarks.sendBenchmark(connections, ids, count));
+                recvThreads[i] = threadFactory.newThread(() ->
+                        benchmarks.recvBenchmark(connections, ids, count));
+            } else if(benchmark == BENCHMARK.PINGPONG) {
+                if(mode == MODE.SERVER) {
+                    sendThreads[i] = threadFactory.newThread(() ->
+                            benchmarks.pingPongBenchmarkServer(connections, ids, count, window, rate));
+                } else {
+                    sendThreads[i] = threadFactory.newThread(() ->
+                            benchmarks.pingPongBenchmarkClient(connections, ids, count, window));
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the amount of payload bytes per connection, that have been sent in framed messages so far.
+     */
+    private long[] getSentFrameBytes() {
+        long[] bytes = new long[connectionCount];
+
+        for(int i = 0; i < connectionCount; i++) {
+            bytes[i] = connections[i].getSentFrameBytes();
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Get the amount of payload bytes per connection, that have been received in framed messages so far.
+     */
+    private long[] getRecvFrameBytes() {
+        long[] bytes = new long[connectionCount];
+
+        for(int i = 0; i < connectionCount; i++) {
+            bytes[i] = connections[i].getRecvFrameBytes();
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Get the counters of the payload bytes, that are sent in framed messages (one per connection).
+     */
+    private AtomicLong[] getSentFrameByteCounters() {
+        AtomicLong[] counters = new AtomicLong[connectionCount];
+
+        for(int i = 0; i < connectionCount; i++) {
+            counters[i] = connections[i].getSentFrameByteCounter();
+        }
+
+        return counters;
+    }
+
+    /**
+     * Get the counters of the payload bytes, that are received in framed messages (one per connection).
+     */
+    private AtomicLong[] getRecvFrameByteCounters() {
+        AtomicLong[] counters = new AtomicLong[connectionCount];
+
+        for(int i = 0; i < connectionCount; i++) {
+            counters[i] = connections[i].getRecvFrameByteCounter();
+        }
+
+        return counters;
+    }
+
+    /**
+     * Export the full latency distribution of all connections to histogramPath.
+     *
+     * The file is overwritten by the first pass, all further passes are appended.
+     *
+     * @param name The name of the pass
+     */
+    private void exportLatencyHistogram(String name) {
+        String title = String.format("%s: %s", name, benchmark == BENCHMARK.PINGPONG ?
+                "Request latencies" : String.format("Send latencies, 1 of %d messages", sampleInterval));
+
+        try(PrintStream stream = new PrintStream(new FileOutputStream(histogramPath, histogramExported))) {
+            benchmarks.getCumulatedLatencyHistogram().export(stream, title);
+        } catch (IOException e) {
+            Log.ERROR("MAIN", "Unable to export latency distribution to '%s'! Error: %s", histogramPath,
+                    e.getMessage());
+        }
+
+        histogramExported = true;
+    }
+
+    /**
+     * Open the file, that is streamed by the filestream benchmark.
+     *
+     * If no file path has been given, a sparse temporary file of size fileSize is created,
+     * which is deleted, when the program exits.
+     */
+    private void openFile() {
+        try {
+            File source;
+
+            if(filePath == null) {
+                source = Files.createTempFile("JSocketBench-", ".dat").toFile();
+                source.deleteOnExit();
+
+                try(RandomAccessFile raf = new RandomAccessFile(source, "rw")) {
+                    raf.setLength(fileSize);
+                }
+
+                Log.INFO("MAIN", "Generated sparse file '%s' with a size of %d bytes.", source.getPath(), fileSize);
+            } else {
+                source = new File(filePath);
+            }
+
+            file = new RandomAccessFile(source, "r").getChannel();
+            fileSize = file.size();
+        } catch (IOException e) {
+            Log.ERROR_AND_EXIT("MAIN", "Unable to open file '%s'! Error: %s",
+                    filePath == null ? "<temporary file>" : filePath, e.getMessage());
+        }
+
+        if(fileSize == 0) {
+            Log.ERROR_AND_EXIT("MAIN", "The file to be streamed must not be empty!");
+        }
+    }
+
+    /**
+     * Create a memory mapped sink for each connection.
+     */
+    private void createSinks() {
+        sinks = new MappedSink[connectionCount];
+
+        for(int i = 0; i < connectionCount; i++) {
+            String path = sinkPath;
+
+            if(path != null && connectionCount > 1) {
+                path += "." + i;
+            }
+
+            try {
+                sinks[i] = new MappedSink(path, sinkSize, syncInterval);
+            } catch (IOException e) {
+                Log.ERROR_AND_EXIT("MAIN", "Unable to create mmap sink! Error: %s", e.getMessage());
+            }
+
+            connections[i].setSink(sinks[i]);
+        }
+    }
+
+    /**
+     * Create a thread factory, that creates virtual threads.
+     *
+     * Virtual threads are only available on Java 21 and newer. Since the project is compiled for Java 8,
+     * the factory is obtained via reflection (Thread.ofVirtual().factory()).
+     *
+     * @return The thread factory
+     */
+    private static ThreadFactory createVirtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            Log.ERROR_AND_EXIT("MAIN", "Virtual threads are not supported by this JVM (Java 21 or newer " +
+                    "is required)! Error: %s", e.toString());
+        }
+
+        return null;
+    }
+
+    /**
+     * Create a thread, that runs the selector benchmark as an event loop.
+     *
+     * The loop sends and/or receives, depending on the chosen benchmark and the operating mode.
+     *
+     * @param threadFactory The factory, that is used to create the thread
+     * @param ids The indices of the connections, that are driven by the thread
+     * @param thread The thread's index
+     *
+     * @return The thread
+     */
+    private Thread createSelectorThread(ThreadFactory threadFactory, int[] ids, int thread) {
+        long sendCount = 0;
+        long recvCount = 0;
+        SelectorLoop.PINGPONG_ROLE role = SelectorLoop.PINGPONG_ROLE.NONE;
+
+        if(benchmark == BENCHMARK.PINGPONG) {
+            sendCount = messageCount;
+            recvCount = messageCount;
+            role = mode == MODE.SERVER ? SelectorLoop.PINGPONG_ROLE.INITIATOR : SelectorLoop.PINGPONG_ROLE.RESPONDER;
+        } else if(benchmark == BENCHMARK.BIDIRECTIONAL) {
+            sendCount = messageCount;
+            recvCount = messageCount;
+        } else if((mode == MODE.SERVER) != (benchmark == BENCHMARK.FANIN)) {
+            sendCount = messageCount;
+        } else {
+            recvCount = messageCount;
+        }
+
+        long finalSendCount = sendCount;
+        long finalRecvCount = recvCount;
+        SelectorLoop.PINGPONG_ROLE finalRole = role;
+
+        return threadFactory.newThread(() -> benchmarks.selectorBenchmark(connections, ids, thread, bufSize, finalSendCount,
+                finalRecvCount, finalRole, window, rate));
+    }
+
+    /**
+     * Get the indices of the connections, that are driven by a given thread.
+     *
+     * @param thread The thread's index
+     * @param threads The total amount of threads
+     *
+     * @return The indices of all connections, that are driven by the thread
+     */
+    private int[] getConnectionIds(int thread, int threads) {
+        int[] ids = new int[(connectionCount - thread + threads - 1) / threads];
+
+        for(int i = 0; i < ids.length; i++) {
+            ids[i] = thread + i * threads;
+        }
+
+        return ids;
+    }
+
+    /**
+     * Start all given threads and wait for them to finish.
+     *
+     * @param threadArrays Arrays of threads (may contain null-entries, which are ignored)
+     */
+    private static void startAndJoin(Thread[]... threadArrays) {
+        for(Thread[] threads : threadArrays) {
+            for(Thread thread : threads) {
+                if(thread != null) {
+                    thread.start();
+                }
+            }
+        }
+
+        try {
+            for(Thread[] threads : threadArrays) {
+                for(Thread thread : threads) {
+                    if(thread != null) {
+                        thread.join();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Log.ERROR_AND_EXIT("MAIN", "A thread has been interrupted unexpectedly! Error: %s",
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Print the help message.
+     */
+    private static void printUsage() {
+        System.out.print("Usage: java -jar JSocketBench.jar [OPTION...]\n" +
+                "Available options:\n" +
+                "-m, --mode\n" +
+                "    Set the operating mode (server/client/loopback). 'loopback' runs the server and its " +
+                "client(s) on separate threads inside one process, which connect to the bind address " +
+                "(Default: 127.0.0.1), and prints the server's results. This is a required option!\n" +
+                "-r, --remote\n" +
+                "    Set the remote hostname. This is a required option when the program is running as a client " +
+                "(except for the host-local I/O modes 'unix' and 'shm')!\n" +
+                "-a, --address\n" +
+                "    Set the address to bind the local socket to.\n" +
+                "-b, --benchmark\n" +
+                "    Set the benchmark to be executed. Available benchmarks are: " +
+                "'unidirectional', 'bidirectional', 'pingpong', 'filestream' and 'fanin' (the clients send and " +
+                "the server receives, see '--clients') and 'connect' (open, use and close one connection after " +
+                "another with every thread and print the connection rate and the time per setup phase " +
+                "on the client) (Default: 'unidirectional').\n" +
+                "-io, --io\n" +
+                "    Set the socket I/O implementation. Available implementations are: " +
+                "'stream' (blocking streams with heap buffers), 'nio' (blocking socket channel with direct buffers), " +
+                "'selector' (non-blocking socket channels, driven by one selector event loop per thread), " +
+                "'async' (asynchronous socket channels with completion handlers), " +
+                "'unix' (blocking Unix domain socket channel with direct buffers, requires Java 16 or newer) " +
+                "and 'shm' (single-producer/single-consumer ring buffers in a shared file in /dev/shm). " +
+                "'unix' and 'shm' only work on a single host and use the port to name their files " +
+                "(Default: 'stream').\n" +
+                "-s, --size\n" +
+                "    Set the message size in bytes (Default: 1024).\n" +
+                "-sz, --sizes\n" +
+                "    Run the benchmark once per given message size on the same connections and print one row per " +
+                "size (comma separated, 'K' and 'M' suffixes are allowed, e.g. '1,2,4,1K,1M'). " +
+                "Must be set on both sides.\n" +
+                "-rp, --repetitions\n" +
+                "    Set the amount of repetitions per message size of '--sizes'. " +
+                "Each row contains the median of all repetitions (Default: 1).\n" +
+                "-sd, --size-distribution\n" +
+                "    Send length-prefixed messages, whose payload sizes follow the given distribution: " +
+                "'fixed:SIZE', 'uniform:MIN:MAX', 'bimodal:SMALL:LARGE:FRACTION' (share of large messages) or " +
+                "'file:PATH' (empirical histogram with one 'SIZE WEIGHT' pair per line). The sizes are precomputed " +
+                "with a fixed seed. Only supported by '--io stream' and '--io nio'. Must be set on both sides.\n" +
+                "-c, --count\n" +
+                "    Set the amount of messages to be sent per connection " +
+                "(or the amount of connections per thread for 'connect') (Default: 1000000).\n" +
+                "-d, --duration\n" +
+                "    Run each benchmark for the given amount of seconds, instead of sending a fixed amount of " +
+                "messages. Must be set on both sides (Default: 0 = use '--count').\n" +
+                "-ri, --report-interval\n" +
+                "    Sample the progress every given amount of milliseconds and print the messages per second " +
+                "and the throughput of each interval (Default: 0 = off).\n" +
+                "-wc, --warmup-count\n" +
+                "    Transfer the given amount of messages per connection before each measured run, so that the " +
+                "JIT compiler can compile the benchmark's code path. Must be set on both sides (Default: 0 = off).\n" +
+                "-wd, --warmup-duration\n" +
+                "    Warm up for the given amount of seconds before each measured run (overrides '--warmup-count'). " +
+                "Must be set on both sides (Default: 0 = off).\n" +
+                "-p, --port\n" +
+                "    Set the TCP-port to be used for the connection (Default: 8888).\n" +
+                "-n, --connections\n" +
+                "    Set the amount of parallel connections, which use consecutive TCP-ports (Default: 1).\n" +
+                "-cl, --clients\n" +
+                "    Accept the given amount of clients on a single TCP-port and run the benchmark with all of them " +
+                "in parallel (only for servers, each client uses one connection, which is driven by its own thread, " +
+                "unless '--threads' is set).\n" +
+                "-th, --threads\n" +
+                "    Set the amount of threads per direction, that drive the connections " +
+                "(or the amount of event loops with '--io selector', or the amount of connections, that are " +
+                "opened in parallel by 'connect', which must be set on both sides) (Default: 1).\n" +
+                "-w, --window\n" +
+                "    Set the maximum amount of outstanding requests per connection in the pingpong benchmark. " +
+                "The server sends a new request, whenever an answer arrives (Default: 1).\n" +
+                "-ra, --rate\n" +
+                "    Send the requests of the pingpong benchmark at a fixed rate per connection (requests/s), " +
+                "independent of the answers (open loop). Latencies are measured from the intended send time, " +
+                "so that delayed requests are not omitted (Default: 0 = as fast as the window allows).\n" +
+                "-sa, --sample-interval\n" +
+                "    Time every n-th message of the throughput benchmarks separately, to get a distribution of " +
+                "send latencies. The pingpong benchmark always records every request (Default: 100, 0 = never).\n" +
+                "-hf, --histogram-file\n" +
+                "    Export the full latency distribution of each run to the given file. Each line contains " +
+                "a bucket's upper bound in nanoseconds, its amount of samples and the cumulated percentile.\n" +
+                "-at, --async-threads\n" +
+                "    Set the amount of threads, that execute the completion handlers with '--io async' " +
+                "(Default: Amount of available processors).\n" +
+                "-o, --outstanding\n" +
+                "    Set the amount of outstanding messages per connection and direction with '--io async'. " +
+                "They are transferred by a single gathering write or scattering read (Default: 1).\n" +
+                "-tt, --thread-type\n" +
+                "    Set the type of threads, that run the benchmark:\n" +
+                "        'platform' = Use '--threads' platform threads per direction (Default).\n" +
+                "        'virtual'  = Use one virtual thread per connection and direction (requires Java 21+).\n" +
+                "        'both'     = Run with platform threads first and then with virtual threads " +
+                "on the same connections.\n" +
+                "-f, --file\n" +
+                "    Set the file, that is streamed by the server in the filestream benchmark " +
+                "(Default: A generated sparse file of '--file-size' bytes).\n" +
+                "-fs, --file-size\n" +
+                "    Set the size of the generated file in bytes (Default: 1073741824).\n" +
+                "-fio, --file-io\n" +
+                "    Set the way the file is sent in the filestream benchmark (requires '--io nio'):\n" +
+                "        'transfer' = Use FileChannel.transferTo() (sendfile).\n" +
+                "        'copy'     = Read the file into a user-space buffer of '--size' bytes " +
+                "and write the buffer to the socket.\n" +
+                "        'both'     = Run with 'transfer' first and then with 'copy' on the same connections (Default).\n" +
+                "-sk, --sink\n" +
+                "    Set what happens to received payloads:\n" +
+                "        'discard' = Receive all payloads into the same buffer (Default).\n" +
+                "        'mmap'    = Store all payloads in a memory mapped file per connection, " +
+                "which is reused from the beginning, when it is full.\n" +
+                "-sf, --sink-file\n" +
+                "    Set the file used by the mmap sink. With more than one connection, the connection's index " +
+                "is appended (Default: A temporary file).\n" +
+                "-ss, --sink-size\n" +
+                "    Set the size of the mmap sink per connection in bytes (Default: 1073741824).\n" +
+                "-si, --sync-interval\n" +
+                "    Force the mmap sink to the storage device every time the given amount of bytes has been " +
+                "written (Default: 0 = never).\n" +
+                "-rs, --raw-statistics\n" +
+                "    Show infiniband perfomance counters\n" +
+                "        'mad'    = Use libibmad to get performance counters (requires root-privileges!)\n" +
+                "        'compat' = Use filesystem to get performance counters\n" +
+                "        'off'    = Don't show performance counters (Default).\n" +
+                "-v, --verbosity\n" +
+                "    Set the verbosity level: 0 = Fatal errors and raw results,\n" +
+                "                             1 = Fatal errors formatted results,\n" +
+                "                             2 = All errors and formatted results,\n" +
+                "                             3 = All errors/warnings and formatted results,\n" +
+                "                             4 = All log messages and formatted results (Default).\n");
+    }
+
+    /**
+     * Print the benchmark results.
+     */
+    private void printResults() {
+        long sendTime = benchmarks.getSendTime();
+        long recvTime = benchmarks.getRecvTime();
+        long totalMessages = benchmarks.getSentMessages();
+        long totalRecvMessages = benchmarks.getRecvMessages();
+        LatencyHistogram latencyHistogram = benchmarks.getCumulatedLatencyHistogram();
+
+        if(benchmark == BENCHMARK.PINGPONG) {
+            BenchmarkReport.printPingPongResults(sendTime, totalMessages, latencyHistogram, window, rate);
+
+            if(sizeDistribution != null) {
+                if(Log.VERBOSITY > 0) {
+                    System.out.printf("  Size distribution: %s (average request size: %.2f bytes)\n",
+                            sizeDistribution.getDescription(), measuredSentBytes / (double) totalMessages);
+                    System.out.printf("  Average request throughput: %.2f MiB/s (%.2f MB/s)\n",
+                            BenchmarkReport.getThroughputMib(measuredSentBytes, sendTime),
+                            BenchmarkReport.getThroughputMb(measuredSentBytes, sendTime));
+                } else {
+                    System.out.printf("%f\n", measuredSentBytes / (double) totalMessages);
+                    System.out.printf("%f\n", BenchmarkReport.getThroughputMb(measuredSentBytes, sendTime));
+                }
+            }
+        } else {
+            // Framed messages are counted with the sizes, that have actually been sent and received
+            long totalData = sizeDistribution == null ? totalMessages * bufSize : measuredSentBytes;
+            long totalRecvData = sizeDistribution == null ? totalRecvMessages * bufSize : measuredRecvBytes;
+
+            BenchmarkReport.printThroughputResults(sendTime, recvTime, totalMessages, totalRecvMessages, totalData,
+                    totalRecvData, sizeDistribution == null ? null : sizeDistribution.getDescription(),
+                    perfCounterMode == PERF_COUNTER_MODE.OFF ? null : perfCounter);
+        }
+
+        if(latencyHistogram.getCount() > 0) {
+            latencyHistogram.print(benchmark == BENCHMARK.PINGPONG ? "Request latency distribution" :
+                    String.format("Send latency distribution, 1 of %d messages", sampleInterval), Log.VERBOSITY == 0);
+        }
+
+        if(connectionCount > 1) {
+            printConnectionResults(bufSize);
+        }
+
+        if(ioMode == IO_MODE.SELECTOR) {
+            printSelectorResults();
+        }
+
+        if(ioMode == IO_MODE.ASYNC) {
+            printAsyncResults();
+        }
+
+        if(progressSampler != null) {
+            printIntervalResults();
+        }
+    }
+
+    /**
+     * Print the results of the fanin benchmark, which are measured by the receiving server.
+     *
+     * The aggregated time spans from the first client's start to the last client's end,
+     * so that the throughput is the total throughput of all clients.
+     */
+    private void printFanInResults() {
+        long recvTime = benchmarks.getRecvTime();
+        long totalMessages = benchmarks.getRecvMessages();
+
+        // Framed messages are counted with the sizes, that have actually been received
+        long totalData = sizeDistribution == null ? totalMessages * bufSize : measuredRecvBytes;
+
+        BenchmarkReport.printFanInResults(recvTime, totalMessages, totalData, connectionCount,
+                sizeDistribution == null ? null : sizeDistribution.getDescription());
+
+        if(connectionCount > 1) {
+            printConnectionResults(bufSize);
+        }
+
+        if(ioMode == IO_MODE.SELECTOR) {
+            printSelectorResults();
+        }
+
+        if(ioMode == IO_MODE.ASYNC) {
+            printAsyncResults();
+        }
+
+        if(progressSampler != null) {
+            printIntervalResults();
+        }
+    }
+
+    /**
+     * Print the results of the connect benchmark.
+     *
+     * The average time of each phase is given per connection, so that the phases add up to the average
+     * time of a connection's whole life.
+     *
+     * @param connectBenchmark The executed benchmark
+     */
+    private void printConnectResults(ConnectBenchmark connectBenchmark) {
+        long time = connectBenchmark.getTime();
+        long count = connectBenchmark.getConnectionCount();
+        LatencyHistogram setupHistogram = connectBenchmark.getCumulatedSetupHistogram();
+
+        double connectionRate = count / (time / ((double) 1000000000));
+        double avgSetupTime = setupHistogram.getMean() / (double) 1000;
+
+        if(Log.VERBOSITY > 0) {
+            System.out.print("Results:\n");
+            System.out.printf("  Total time: %.2f s\n", time / ((double) 1000000000));
+            System.out.printf("  Connections: %d (%d in parallel)\n", count, threadCount);
+            System.out.printf("  Connection rate: %.2f connections/s\n", connectionRate);
+            System.out.printf("  Average setup time (until the first answer): %.2f us\n", avgSetupTime);
+            System.out.print("  Average time per phase:\n");
+        } else {
+            System.out.printf("%f\n", time / ((double) 1000000000));
+            System.out.printf("%d\n", count);
+            System.out.printf("%f\n", connectionRate);
+            System.out.printf("%f\n", avgSetupTime);
+        }
+
+        for(ConnectBenchmark.PHASE phase : ConnectBenchmark.PHASE.values()) {
+            double phaseTime = connectBenchmark.getPhaseTime(phase) / (double) count / (double) 1000;
+
+            if(Log.VERBOSITY > 0) {
+                System.out.printf("    %-10s %10.2f us\n", phase.name().toLowerCase() + ":", phaseTime);
+            } else {
+                System.out.printf("%f\n", phaseTime);
+            }
+        }
+
+        setupHistogram.print("Setup time distribution", Log.VERBOSITY == 0);
+    }
+
+    /**
+     * Print the amount of messages per second and the throughput of each sampled interval.
+     */
+    private void printIntervalResults() {
+        boolean printSend = benchmark != BENCHMARK.FANIN;
+        boolean printRecv = benchmark == BENCHMARK.BIDIRECTIONAL || benchmark == BENCHMARK.FANIN;
+
+        BenchmarkReport.printIntervalResults(progressSampler, reportInterval, bufSize, printSend, printRecv,
+                benchmark == BENCHMARK.PINGPONG);
+    }
+
+    /**
+     * Print the statistics of the asynchronous socket channels.
+     */
+    private void printAsyncResults() {
+        long operations = 0;
+        long partialOperations = 0;
+        long operationTime = 0;
+        long maxOperationTime = 0;
+        long totalMessages = benchmarks.getSentMessages() + benchmarks.getRecvMessages();
+
+        // Each request and its answer are counted
+        if(benchmark == BENCHMARK.PINGPONG) {
+            totalMessages = benchmarks.getSentMessages() * 2;
+        }
+
+        for(Connection connection : connections) {
+            AsyncConnection asyncConnection = (AsyncConnection) connection;
+
+            operations += asyncConnection.getOperations();
+            partialOperations += asyncConnection.getPartialOperations();
+            operationTime += asyncConnection.getOperationTime();
+            maxOperationTime = Math.max(maxOperationTime, asyncConnection.getMaxOperationTime());
+        }
+
+        double messagesPerOperation = operations == 0 ? 0 : totalMessages / (double) operations;
+        double avgOperationTime = operations == 0 ? 0 : operationTime / (double) operations / (double) 1000;
+
+        if(Log.VERBOSITY > 0) {
+            System.out.print("\nAsynchronous channel statistics:\n");
+            System.out.printf("  Completion handler threads: %d\n", asyncThreadCount);
+            System.out.printf("  Outstanding messages per connection and direction: %d\n", outstanding);
+            System.out.printf("  Completed operations: %d (%d partial)\n", operations, partialOperations);
+            System.out.printf("  Average messages per operation: %.2f\n", messagesPerOperation);
+            System.out.printf("  Average operation completion time: %.2f us\n", avgOperationTime);
+            System.out.printf("  Maximum operation completion time: %.2f us\n", maxOperationTime / (double) 1000);
+        } else {
+            System.out.printf("%d\n", operations);
+            System.out.printf("%d\n", partialOperations);
+            System.out.printf("%f\n", messagesPerOperation);
+            System.out.printf("%f\n", avgOperationTime);
+            System.out.printf("%f\n", maxOperationTime / (double) 1000);
+        }
+    }
+
+    /**
+     * Print the results of the filestream benchmark.
+     */
+    private void printFileResults() {
+        long sendTime = benchmarks.getSendTime();
+        long totalData = fileSize * connectionCount;
+
+        double throughputMib = BenchmarkReport.getThroughputMib(totalData, sendTime);
+        double throughputMb = BenchmarkReport.getThroughputMb(totalData, sendTime);
+
+        double rawThroughputMb = perfCounterMode == PERF_COUNTER_MODE.OFF ? 0 :
+                BenchmarkReport.getThroughputMb(perfCounter.getXmitDataBytes(), sendTime);
+
+        if(Log.VERBOSITY > 0) {
+            System.out.print("Results:\n");
+            System.out.printf("  Total time: %.2f s\n", sendTime / ((double) 1000000000));
+            System.out.printf("  Total data: %.2f MiB (%.2f MB)\n",
+                    totalData / ((double) 1024) / ((double) 1024),
+                    totalData / ((double) 1000) / ((double) 1000));
+            System.out.printf("  Average send throughput: %.2f MiB/s (%.2f MB/s)\n", throughputMib, throughputMb);
+
+            if(perfCounterMode != PERF_COUNTER_MODE.OFF) {
+                System.out.printf("  Average raw send throughput: %.2f MB/s\n", rawThroughputMb);
+            }
+        } else {
+            System.out.printf("%f\n", sendTime / ((double) 1000000000));
+            System.out.printf("%f\n", totalData / ((double) 1024) / ((double) 1024));
+            System.out.printf("%f\n", throughputMb);
+
+            if(perfCounterMode != PERF_COUNTER_MODE.OFF) {
+                System.out.printf("%f\n", rawThroughputMb);
+            }
+        }
+
+        if(connectionCount > 1) {
+            printConnectionResults(fileSize);
+        }
+    }
+
+    /**
+     * Print the statistics of the mmap sinks.
+     */
+    private void printSinkResults() {
+        long writtenBytes = 0;
+        long wraps = 0;
+        long syncCount = 0;
+        long syncTime = 0;
+        long maxSyncTime = 0;
+
+        for(MappedSink sink : sinks) {
+            writtenBytes += sink.getWrittenBytes();
+            wraps += sink.getWraps();
+            syncCount += sink.getSyncCount();
+            syncTime += sink.getSyncTime();
+            maxSyncTime = Math.max(maxSyncTime, sink.getMaxSyncTime());
+        }
+
+        double avgSyncTime = syncCount == 0 ? 0 : syncTime / (double) syncCount / (double) 1000;
+
+        if(Log.VERBOSITY > 0) {
+            System.out.print("\nSink statistics:\n");
+            System.out.printf("  Stored data: %.2f MiB (%.2f MB)\n",
+                    writtenBytes / ((double) 1024) / ((double) 1024),
+                    writtenBytes / ((double) 1000) / ((double) 1000));
+            System.out.printf("  Wrap arounds: %d\n", wraps);
+            System.out.printf("  Syncs: %d (%.2f s in total)\n", syncCount, syncTime / ((double) 1000000000));
+            System.out.printf("  Average sync time: %.2f us\n", avgSyncTime);
+            System.out.printf("  Maximum sync time: %.2f us\n", maxSyncTime / (double) 1000);
+        } else {
+            System.out.printf("%f\n", writtenBytes / ((double) 1024) / ((double) 1024));
+            System.out.printf("%d\n", wraps);
+            System.out.printf("%d\n", syncCount);
+            System.out.printf("%f\n", syncTime / ((double) 1000000000));
+            System.out.printf("%f\n", avgSyncTime);
+            System.out.printf("%f\n", maxSyncTime / (double) 1000);
+        }
+    }
+
+    /**
+     * Print the statistics of the event loops, that have been used by the selector benchmark.
+     */
+    private void printSelectorResults() {
+        long selectCalls = 0;
+        long emptySelects = 0;
+        long readyKeys = 0;
+        long transferredBytes = 0;
+        long partialWrites = 0;
+        long interestChanges = 0;
+
+        for(SelectorLoop loop : benchmarks.getSelectorLoops()) {
+            selectCalls += loop.getSelectCalls();
+            emptySelects += loop.getEmptySelects();
+            readyKeys += loop.getReadyKeys();
+            transferredBytes += loop.getTransferredBytes();
+            partialWrites += loop.getPartialWrites();
+            interestChanges += loop.getInterestChanges();
+        }
+
+        double bytesPerSelect = selectCalls == 0 ? 0 : transferredBytes / (double) selectCalls;
+        double keysPerSelect = selectCalls == 0 ? 0 : readyKeys / (double) selectCalls;
+
+        if(Log.VERBOSITY > 0) {
+            System.out.print("\nEvent loop statistics:\n");
+            System.out.printf("  Event loops: %d\n", benchmarks.getSelectorLoops().length);
+            System.out.printf("  Total select() calls: %d (%d without ready keys)\n", selectCalls, emptySelects);
+            System.out.printf("  Average ready keys per select(): %.2f\n", keysPerSelect);
+            System.out.printf("  Average bytes per select(): %.2f\n", bytesPerSelect);
+            System.out.printf("  Partial writes: %d\n", partialWrites);
+            System.out.printf("  Interest set changes: %d\n", interestChanges);
+        } else {
+            System.out.printf("%d\n", selectCalls);
+            System.out.printf("%d\n", emptySelects);
+            System.out.printf("%f\n", keysPerSelect);
+            System.out.printf("%f\n", bytesPerSelect);
+            System.out.printf("%d\n", partialWrites);
+            System.out.printf("%d\n", interestChanges);
+        }
+    }
+
+    /**
+     * Print the results of each single connection and the fairness between the connections
+     * (see BenchmarkReport.printConnectionResults()).
+     *
+     * Framed messages are counted with the sizes, that have actually been sent and received by each connection.
+     *
+     * @param messageSize The size of a single message in bytes (or the file size for the filestream benchmark)
+     */
+    private void printConnectionResults(long messageSize) {
+        String[] names = new String[connectionCount];
+        long[] sentBytes = new long[connectionCount];
+        long[] recvBytes = new long[connectionCount];
+
+        for(int i = 0; i < connectionCount; i++) {
+            names[i] = clientCount > 0 ? String.format("Client %d", i) :
+                    String.format("Connection %d (port %d)", i, port + i);
+            sentBytes[i] = sizeDistribution == null ? benchmarks.getSentMessages(i) * messageSize :
+                    measuredSentConnectionBytes[i];
+            recvBytes[i] = sizeDistribution == null ? benchmarks.getRecvMessages(i) * messageSize :
+                    measuredRecvConnectionBytes[i];
+        }
+
+        BenchmarkReport.printConnectionResults(benchmarks, clientCount > 0 ? "client" : "connection", names,
+                sentBytes, recvBytes, benchmark == BENCHMARK.PINGPONG);
+    }
+
+    /**
+     * The main-method.
+     */
+    public static void main(String[] args) {
+        JSocketBench bench = new JSocketBench(args);
+
+        try {
+            Process process = Runtime.getRuntime().exec("id -u");
+            String output = new BufferedReader(new InputStreamReader(process.getInputStream())).readLine();
+
+            int uid = Integer.parseInt(output);
+
+            if(uid != 0) {
+                Log.WARN("MAIN", "Not running with root privileges. " +
+                        "If any errors occur, try restarting as root!");
+            }
+        } catch (Exception e) {
+            Log.WARN("MAIN", "Unable to determine user id! Error: %s", e.getMessage());
+        }
+
+        if(bench.perfCounterMode != PERF_COUNTER_MODE.OFF) {
+            try {
+                IbPerfCounter.loadNativeLibrary();
+                Log.INFO("MAIN", "Successfully loaded native library 'libIbPerfCounter.so'");
+            } catch (Exception e) {
+                Log.ERROR_AND_EXIT("MAIN", "Unable to load native library 'libIbPerfCounter.so'! Error: %s",
+                        e.getMessage());
+            }
+        }
+
+        if(bench.loopback) {
+            bench.runLoopback(args);
+        } else {
+            bench.run();
+        }
     }
 }
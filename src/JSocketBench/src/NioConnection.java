@@ -0,0 +1,356 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * TCP-connection to a remote host, that uses a blocking NIO socket channel.
+ *
+ * The messages are sent from and received into direct byte buffers, so that the JDK can hand them
+ * to the operating system without copying them into a temporary native buffer first.
+ *
+ * @author Fabian Ruhland, HHU
+ * @date 2018
+ */
+class NioConnection extends Connection {
+
+    /**
+     * The send buffer. The payload starts after FRAME_HEADER_SIZE bytes, so that the length header of a framed
+     * message can be written together with its payload.
+     */
+    private ByteBuffer sendBuf;
+
+    /**
+     * The receive buffer.
+     */
+    private ByteBuffer recvBuf;
+
+    /**
+     * The socket channel, that is used to exchange data with the remote host (set by the connect functions).
+     */
+    SocketChannel channel;
+
+    /**
+     * The buffer, into which the last message has been received (the receive buffer, or the sink's mapping).
+     */
+    private ByteBuffer lastRecvBuf;
+
+    /**
+     * The position of the last received message inside lastRecvBuf.
+     */
+    private int lastRecvOffset = 0;
+
+    /**
+     * The size of the messages, that are sent and received (at most the buffer size).
+     */
+    private int messageSize;
+
+    /**
+     * Buffer for the length header, that precedes a file.
+     */
+    private ByteBuffer fileHeaderBuf = ByteBuffer.allocateDirect(Long.BYTES);
+
+    /**
+     * Buffer for the length header of a framed message.
+     */
+    private ByteBuffer frameHeaderBuf = ByteBuffer.allocateDirect(FRAME_HEADER_SIZE);
+
+    /**
+     * Create a connection.
+     *
+     * @param bufSize The size to be used for sendBuf and recvBuf
+     */
+    NioConnection(int bufSize) {
+        Log.INFO("CONNECTION", "Creating connection...");
+
+        sendBuf = ByteBuffer.allocateDirect(FRAME_HEADER_SIZE + bufSize);
+        recvBuf = ByteBuffer.allocateDirect(bufSize);
+        lastRecvBuf = recvBuf;
+        messageSize = bufSize;
+
+        Log.INFO("CONNECTION", "Finished creating connection!");
+    }
+
+    @Override
+    void connectToServer(String bindAddress, String hostname, int port) {
+        Log.INFO("CONNECTION", "Connecting to server '%s'...", hostname);
+
+        for(int attempt = 1; channel == null; attempt++) {
+            try {
+                channel = SocketChannel.open();
+
+                if(bindAddress == null || bindAddress.isEmpty()) {
+                    channel.bind(new InetSocketAddress(getLocalPort(port)));
+                } else {
+                    channel.bind(new InetSocketAddress(bindAddress, getLocalPort(port)));
+                }
+
+                channel.connect(new InetSocketAddress(hostname, port));
+            } catch (ConnectException e) {
+                closeChannel();
+                waitForConnectRetry(attempt, hostname, e);
+            } catch (IOException e) {
+                Log.ERROR_AND_EXIT("CONNECTION", "Unable to open socket channel! Error: %s", e.getMessage());
+            }
+        }
+
+        Log.INFO("CONNECTION", "Successfully established a TCP-connection to server '%s'!", hostname);
+    }
+
+    @Override
+    Closeable listen(String bindAddress, int port) {
+        ServerSocketChannel serverChannel = null;
+
+        Log.INFO("CONNECTION", "Connecting to a client...");
+
+        try {
+            serverChannel = ServerSocketChannel.open();
+
+            if(bindAddress == null || bindAddress.isEmpty()) {
+                serverChannel.bind(new InetSocketAddress(port));
+            } else {
+                serverChannel.bind(new InetSocketAddress(bindAddress, port));
+            }
+        } catch (IOException e) {
+            Log.ERROR_AND_EXIT("CONNECTION", "Unable to open server socket channel! Error: %s", e.getMessage());
+        }
+
+        return serverChannel;
+    }
+
+    @Override
+    void acceptClient(Closeable listener) {
+        Log.INFO("CONNECTION", "Waiting for an incoming connection...");
+
+        try {
+            channel = ((ServerSocketChannel) listener).accept();
+        } catch (IOException e) {
+            Log.ERROR_AND_EXIT("CONNECTION", "Error while accepting an incoming connection! Error: %s",
+                    e.getMessage());
+        }
+
+        Log.INFO("CONNECTION", "Successfully established a TCP-connection to a client!");
+    }
+
+    @Override
+    void close() {
+        Log.INFO("CONNECTION", "Closing connection...");
+
+        try {
+            channel.close();
+        } catch (Exception e) {
+            Log.WARN("CONNECTION", "Unable to close socket channel! Errors: %s", e.getMessage());
+        }
+
+        Log.INFO("CONNECTION", "Successfully closed connection!");
+    }
+
+    /**
+     * Close the socket channel after a failed connection attempt.
+     */
+    void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Log.WARN("CONNECTION", "Unable to close socket channel! Error: %s", e.getMessage());
+        }
+
+        channel = null;
+    }
+
+    @Override
+    void writeMessages(long msgCount) throws IOException {
+        for(long i = 0; i < msgCount; i++) {
+            sendBuf.clear();
+
+            if(frameSizes != null) {
+                int size = nextFrameSize();
+
+                sendBuf.putInt(0, size);
+                sendBuf.limit(FRAME_HEADER_SIZE + size);
+                addSentFrameBytes(size);
+            } else {
+                sendBuf.position(FRAME_HEADER_SIZE);
+                sendBuf.limit(FRAME_HEADER_SIZE + messageSize);
+            }
+
+            while(sendBuf.hasRemaining()) {
+                channel.write(sendBuf);
+            }
+        }
+    }
+
+    @Override
+    void readMessages(long msgCount) throws IOException {
+        for(long i = 0; i < msgCount; i++) {
+            int size = messageSize;
+
+            if(frameSizes != null) {
+                frameHeaderBuf.clear();
+                readFully(frameHeaderBuf);
+
+                size = frameHeaderBuf.getInt(0);
+
+                if(size < 1 || size > recvBuf.capacity()) {
+                    throw new IOException("Received a frame with an invalid size of " + size + " bytes!");
+                }
+
+                addRecvFrameBytes(size);
+            }
+
+            if(sink != null) {
+                // Read directly into the mapped file
+                lastRecvBuf = sink.reserve(size);
+                lastRecvOffset = lastRecvBuf.position();
+
+                readFully(lastRecvBuf);
+                sink.commit(size);
+            } else {
+                recvBuf.clear();
+                recvBuf.limit(size);
+                readFully(recvBuf);
+            }
+        }
+    }
+
+    @Override
+    void setMessageSize(int messageSize) {
+        this.messageSize = messageSize;
+    }
+
+    @Override
+    void setEndMarker(boolean end) {
+        sendBuf.put(FRAME_HEADER_SIZE, (byte) (end ? 1 : 0));
+    }
+
+    @Override
+    boolean hasEndMarker() {
+        return lastRecvBuf.get(lastRecvOffset) == 1;
+    }
+
+    /**
+     * Read from the socket channel, until the given buffer is full.
+     *
+     * @param buffer The buffer to be filled (from its position up to its limit)
+     *
+     * @throws IOException If the underlying socket fails or the remote host closed the connection
+     */
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer) < 0) {
+                throw new EOFException("Connection has been closed by the remote host!");
+            }
+        }
+    }
+
+    /**
+     * Send the content of a file to the remote host.
+     *
+     * The file's length is sent first as an 8 byte header, so that the remote host knows how many bytes
+     * it needs to receive. The content is either sent via FileChannel.transferTo() (which uses sendfile() on Linux,
+     * so that the data does not need to be copied into user space), or read into the send buffer and written
+     * to the socket channel afterwards.
+     *
+     * @param file The file to be sent
+     * @param length The amount of bytes to send, starting at the beginning of the file
+     * @param zeroCopy Whether to use FileChannel.transferTo(), or to copy the data through the send buffer
+     *
+     * @throws IOException If the file can not be read, or the underlying socket fails
+     */
+    void sendFile(FileChannel file, long length, boolean zeroCopy) throws IOException {
+        fileHeaderBuf.clear();
+        fileHeaderBuf.putLong(length);
+        fileHeaderBuf.flip();
+
+        while(fileHeaderBuf.hasRemaining()) {
+            channel.write(fileHeaderBuf);
+        }
+
+        long position = 0;
+
+        while(position < length) {
+            if(zeroCopy) {
+                position += file.transferTo(position, length - position, channel);
+            } else {
+                sendBuf.clear();
+
+                if(sendBuf.remaining() > length - position) {
+                    sendBuf.limit((int) (length - position));
+                }
+
+                int read = file.read(sendBuf, position);
+
+                if(read < 0) {
+                    throw new EOFException("Reached the end of the file unexpectedly!");
+                }
+
+                sendBuf.flip();
+
+                while(sendBuf.hasRemaining()) {
+                    channel.write(sendBuf);
+                }
+
+                position += read;
+            }
+        }
+    }
+
+    /**
+     * Receive a file from the remote host.
+     *
+     * The file's content is received into the receive buffer and discarded, or stored in the sink, if one is set.
+     *
+     * @return The amount of received bytes
+     *
+     * @throws IOException If the underlying socket fails or the remote host closed the connection
+     */
+    long recvFile() throws IOException {
+        fileHeaderBuf.clear();
+
+        while(fileHeaderBuf.hasRemaining()) {
+            if(channel.read(fileHeaderBuf) < 0) {
+                throw new EOFException("Connection has been closed by the remote host!");
+            }
+        }
+
+        long length = fileHeaderBuf.getLong(0);
+        long received = 0;
+
+        while(received < length) {
+            int chunkSize = (int) Math.min(recvBuf.capacity(), length - received);
+
+            if(sink != null) {
+                readFully(sink.reserve(chunkSize));
+                sink.commit(chunkSize);
+
+                received += chunkSize;
+                continue;
+            }
+
+            recvBuf.clear();
+            recvBuf.limit(chunkSize);
+
+            int read = channel.read(recvBuf);
+
+            if(read < 0) {
+                throw new EOFException("Connection has been closed by the remote host!");
+            }
+
+            received += read;
+        }
+
+        return length;
+    }
+
+    /**
+     * Get the socket channel, that is used to exchange data with the remote host.
+     */
+    SocketChannel getChannel() {
+        return channel;
+    }
+}
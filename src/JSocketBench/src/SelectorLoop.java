@@ -0,0 +1,528 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+/**
+ * Reactor-style event loop, that drives several non-blocking socket channels from a single selector.
+ *
+ * Each channel has its own send and receive buffer. Messages are written as long as the channel accepts data
+ * and read as long as data is available. OP_WRITE is only registered, while a channel has data, that could not
+ * be written completely (or, in the unidirectional case, while there are messages left to send).
+ *
+ * If the initiator of a pingpong benchmark sends its requests on a fixed timeline (see RequestSchedule),
+ * the loop only blocks in select() until the next request is due, or polls with selectNow(), if the next request
+ * is due in less than a millisecond.
+ *
+ * Besides the measured times, the loop counts select() calls, ready keys, partial writes and changes of the
+ * interest set, so that the overhead of the event loop itself can be evaluated.
+ *
+ * @author Fabian Ruhland, HHU
+ * @date 2018
+ */
+class SelectorLoop {
+
+    /**
+     * The maximum amount of bytes, that is written to or read from a single channel per event,
+     * so that a busy channel can not starve the other channels of the loop.
+     * At least one message is always processed, even if it is larger.
+     */
+    private static final int MAX_BYTES_PER_EVENT = 64 * 1024;
+
+    /**
+     * Possible roles of the channels in a pingpong benchmark.
+     */
+    enum PINGPONG_ROLE {
+        NONE,       /**< No pingpong benchmark, messages are sent and received independently */
+        INITIATOR,  /**< Send messages (up to a window) and wait for their answers, before sending more */
+        RESPONDER   /**< Send a message, after a message has been received */
+    }
+
+    /**
+     * State of a single channel, that is attached to its selection key.
+     */
+    private static final class ChannelState {
+
+        /**
+         * The index of the channel inside the loop.
+         */
+        final int index;
+
+        /**
+         * The socket channel.
+         */
+        final SocketChannel channel;
+
+        /**
+         * The send buffer.
+         */
+        final ByteBuffer sendBuf;
+
+        /**
+         * The receive buffer.
+         */
+        final ByteBuffer recvBuf;
+
+        /**
+         * The amount of messages, that still need to be sent.
+         */
+        long toSend;
+
+        /**
+         * The amount of messages, that still need to be received.
+         */
+        long toRecv;
+
+        /**
+         * The current interest set of the channel's selection key.
+         */
+        int interestOps;
+
+        /**
+         * The channel's selection key.
+         */
+        SelectionKey key;
+
+        /**
+         * The times in nanoseconds, at which the outstanding requests have been started (only used by the initiator).
+         */
+        final long[] requestStartTimes;
+
+        /**
+         * The histogram, into which the request latencies are recorded in nanoseconds (only used by the initiator).
+         */
+        final LatencyHistogram histogram;
+
+        /**
+         * The timeline, on which the requests are sent (only used by the initiator, null = as fast as possible).
+         */
+        final RequestSchedule schedule;
+
+        ChannelState(int index, SocketChannel channel, int bufSize, long toSend, long toRecv, int window,
+                     LatencyHistogram histogram, RequestSchedule schedule) {
+            this.index = index;
+            this.channel = channel;
+            this.sendBuf = ByteBuffer.allocateDirect(bufSize);
+            this.recvBuf = ByteBuffer.allocateDirect(bufSize);
+            this.toSend = toSend;
+            this.toRecv = toRecv;
+            this.requestStartTimes = new long[window];
+            this.histogram = histogram;
+            this.schedule = schedule;
+        }
+    }
+
+    /**
+     * The selector.
+     */
+    private final Selector selector;
+
+    /**
+     * The state of all channels, that are driven by this loop.
+     */
+    private final ChannelState[] states;
+
+    /**
+     * The role of the channels in a pingpong benchmark.
+     */
+    private final PINGPONG_ROLE role;
+
+    /**
+     * The maximum amount of outstanding requests per channel (only relevant for the initiator).
+     */
+    private final int window;
+
+    /**
+     * Whether the requests are sent on a fixed timeline (only relevant for the initiator).
+     */
+    private boolean scheduled = false;
+
+    /**
+     * The amount of messages, that each channel sends.
+     */
+    private final long sendCount;
+
+    /**
+     * The amount of messages, that each channel receives.
+     */
+    private final long recvCount;
+
+    /**
+     * The amount of channels, that have not finished yet.
+     */
+    private int activeChannels;
+
+    /**
+     * The time in nanoseconds, at which the loop has been started.
+     */
+    private long startTime = 0;
+
+    /**
+     * The time in nanoseconds, at which each channel has sent its last message.
+     */
+    private final long[] sendEndTimes;
+
+    /**
+     * The time in nanoseconds, at which each channel has received its last message.
+     */
+    private final long[] recvEndTimes;
+
+    /**
+     * The amount of select() calls.
+     */
+    private long selectCalls = 0;
+
+    /**
+     * The amount of select() calls, that returned without any ready keys.
+     */
+    private long emptySelects = 0;
+
+    /**
+     * The total amount of ready keys over all select() calls.
+     */
+    private long readyKeys = 0;
+
+    /**
+     * The total amount of bytes, that have been written and read.
+     */
+    private long transferredBytes = 0;
+
+    /**
+     * The amount of write() calls, that could not write the whole remaining buffer.
+     */
+    private long partialWrites = 0;
+
+    /**
+     * The amount of changes of a selection key's interest set.
+     */
+    private long interestChanges = 0;
+
+    /**
+     * Create an event loop.
+     *
+     * The channels are switched to non-blocking mode and registered at a new selector.
+     *
+     * @param channels The channels to be driven by this loop
+     * @param bufSize The message size
+     * @param sendCount The amount of messages to send per channel
+     * @param recvCount The amount of messages to receive per channel
+     * @param role The role of the channels in a pingpong benchmark (NONE, if no pingpong benchmark is executed)
+     * @param window The maximum amount of outstanding requests per channel (only relevant for the initiator)
+     * @param rate The amount of requests per second and channel (only relevant for the initiator,
+     *             0 = as fast as possible)
+     * @param histograms The histograms, into which the request latencies of each channel are recorded
+     *                   (only relevant for the initiator)
+     */
+    SelectorLoop(SocketChannel[] channels, int bufSize, long sendCount, long recvCount, PINGPONG_ROLE role,
+                 int window, long rate, LatencyHistogram[] histograms) throws IOException {
+        this.selector = Selector.open();
+        this.states = new ChannelState[channels.length];
+        this.role = role;
+        this.window = window;
+        this.sendCount = sendCount;
+        this.recvCount = recvCount;
+        this.sendEndTimes = new long[channels.length];
+        this.recvEndTimes = new long[channels.length];
+
+        for(int i = 0; i < channels.length; i++) {
+            channels[i].configureBlocking(false);
+
+            RequestSchedule schedule = role == PINGPONG_ROLE.INITIATOR && rate > 0 ? new RequestSchedule(rate) : null;
+
+            states[i] = new ChannelState(i, channels[i], bufSize, sendCount, recvCount, window, histograms[i],
+                    schedule);
+            scheduled |= schedule != null;
+            states[i].key = channels[i].register(selector, 0, states[i]);
+        }
+    }
+
+    /**
+     * Run the loop, until all channels have sent and received all of their messages.
+     */
+    void run() throws IOException {
+        activeChannels = states.length;
+        startTime = System.nanoTime();
+
+        for(ChannelState state : states) {
+            if(state.schedule != null) {
+                state.schedule.start(startTime);
+            }
+
+            trySend(state);
+            updateInterest(state);
+        }
+
+        while(activeChannels > 0) {
+            int ready = scheduled ? selectUntil(sendDueRequests()) : selector.select();
+
+            selectCalls++;
+
+            if(ready == 0) {
+                emptySelects++;
+                continue;
+            }
+
+            readyKeys += ready;
+
+            Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+
+            while(iterator.hasNext()) {
+                SelectionKey key = iterator.next();
+                ChannelState state = (ChannelState) key.attachment();
+
+                iterator.remove();
+
+                if(key.isValid() && key.isReadable()) {
+                    receive(state);
+                }
+
+                if(key.isValid() && key.isWritable()) {
+                    trySend(state);
+                }
+
+                updateInterest(state);
+            }
+        }
+
+        selector.close();
+
+        for(ChannelState state : states) {
+            state.channel.configureBlocking(true);
+        }
+    }
+
+    /**
+     * Send the requests, that are due, on all channels.
+     *
+     * @return The time in nanoseconds, at which the next request of any channel is due
+     *         (Long.MAX_VALUE, if no channel may send another request yet)
+     */
+    private long sendDueRequests() throws IOException {
+        long nextTime = Long.MAX_VALUE;
+
+        for(ChannelState state : states) {
+            if(!state.key.isValid()) {
+                continue;
+            }
+
+            trySend(state);
+            updateInterest(state);
+
+            if(state.toSend > 0 && state.sendBuf.position() == 0 && state.toRecv - state.toSend < window) {
+                nextTime = Math.min(nextTime, state.schedule.getIntendedTime(sendCount - state.toSend));
+            }
+        }
+
+        return nextTime;
+    }
+
+    /**
+     * Wait for ready keys, but not longer than until the given time.
+     *
+     * @param time The time in nanoseconds, after which the call returns
+     *
+     * @return The amount of ready keys
+     */
+    private int selectUntil(long time) throws IOException {
+        if(time == Long.MAX_VALUE) {
+            return selector.select();
+        }
+
+        long timeout = (time - System.nanoTime()) / 1000000;
+
+        // select() treats a timeout of 0 as infinite, so short waits are done by polling
+        return timeout > 0 ? selector.select(timeout) : selector.selectNow();
+    }
+
+    /**
+     * Check, whether a channel is allowed to send its next message.
+     */
+    private boolean canSend(ChannelState state) {
+        if(state.toSend == 0) {
+            return false;
+        }
+
+        switch(role) {
+            case INITIATOR:
+                // Only 'window' requests may be outstanding, which must also be due, if there is a schedule
+                return state.toRecv - state.toSend < window && (state.schedule == null ||
+                        state.sendBuf.position() > 0 ||
+                        state.schedule.getIntendedTime(sendCount - state.toSend) <= System.nanoTime());
+            case RESPONDER:
+                // Only answer requests, that have already been received
+                return state.toSend > state.toRecv;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Write messages to a channel, until it does not accept any more data, no message may be sent,
+     * or MAX_BYTES_PER_EVENT bytes have been written.
+     */
+    private void trySend(ChannelState state) throws IOException {
+        long eventBytes = 0;
+
+        while(canSend(state) && eventBytes < MAX_BYTES_PER_EVENT) {
+            if(role == PINGPONG_ROLE.INITIATOR && state.sendBuf.position() == 0) {
+                // Measure from the intended send time, if the request is sent late
+                state.requestStartTimes[(int) ((sendCount - state.toSend) % window)] = state.schedule == null ?
+                        System.nanoTime() : state.schedule.getIntendedTime(sendCount - state.toSend);
+            }
+
+            int written = state.channel.write(state.sendBuf);
+
+            transferredBytes += written;
+            eventBytes += written;
+
+            if(state.sendBuf.hasRemaining()) {
+                partialWrites++;
+                return;
+            }
+
+            state.sendBuf.clear();
+
+            if(--state.toSend == 0) {
+                sendEndTimes[state.index] = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Read messages from a channel, until no more data is available, all messages have been received,
+     * or MAX_BYTES_PER_EVENT bytes have been read.
+     */
+    private void receive(ChannelState state) throws IOException {
+        long eventBytes = 0;
+
+        while(state.toRecv > 0 && eventBytes < MAX_BYTES_PER_EVENT) {
+            int read = state.channel.read(state.recvBuf);
+
+            if(read < 0) {
+                throw new EOFException("Connection has been closed by the remote host!");
+            } else if(read == 0) {
+                return;
+            }
+
+            transferredBytes += read;
+            eventBytes += read;
+
+            if(!state.recvBuf.hasRemaining()) {
+                state.recvBuf.clear();
+
+                if(role == PINGPONG_ROLE.INITIATOR) {
+                    state.histogram.record(System.nanoTime() -
+                            state.requestStartTimes[(int) ((recvCount - state.toRecv) % window)]);
+                }
+
+                if(--state.toRecv == 0) {
+                    recvEndTimes[state.index] = System.nanoTime();
+                }
+
+                if(role != PINGPONG_ROLE.NONE) {
+                    // Answer/send the next request immediately, instead of waiting for the next wakeup
+                    trySend(state);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adjust the interest set of a channel's selection key to its current state.
+     *
+     * The interest set is only changed, if it differs from the current one.
+     * If a channel has nothing left to do, it is removed from the active channels.
+     */
+    private void updateInterest(ChannelState state) {
+        int ops = 0;
+
+        if(state.toRecv > 0) {
+            ops |= SelectionKey.OP_READ;
+        }
+
+        if(state.sendBuf.position() > 0 || (role == PINGPONG_ROLE.NONE && state.toSend > 0)) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+
+        if(ops != state.interestOps) {
+            state.key.interestOps(ops);
+            state.interestOps = ops;
+            interestChanges++;
+        }
+
+        if(ops == 0 && state.toSend == 0 && state.key.isValid()) {
+            state.key.cancel();
+            activeChannels--;
+        }
+    }
+
+    /**
+     * Get the time in nanoseconds, at which the loop has been started.
+     */
+    long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Get the time in nanoseconds, at which a channel has sent its last message.
+     *
+     * @param index The channel's index inside the loop
+     */
+    long getSendEndTime(int index) {
+        return sendEndTimes[index];
+    }
+
+    /**
+     * Get the time in nanoseconds, at which a channel has received its last message.
+     *
+     * @param index The channel's index inside the loop
+     */
+    long getRecvEndTime(int index) {
+        return recvEndTimes[index];
+    }
+
+    /**
+     * Get the amount of select() calls.
+     */
+    long getSelectCalls() {
+        return selectCalls;
+    }
+
+    /**
+     * Get the amount of select() calls, that returned without any ready keys.
+     */
+    long getEmptySelects() {
+        return emptySelects;
+    }
+
+    /**
+     * Get the total amount of ready keys over all select() calls.
+     */
+    long getReadyKeys() {
+        return readyKeys;
+    }
+
+    /**
+     * Get the total amount of bytes, that have been written and read.
+     */
+    long getTransferredBytes() {
+        return transferredBytes;
+    }
+
+    /**
+     * Get the amount of write() calls, that could not write the whole remaining buffer.
+     */
+    long getPartialWrites() {
+        return partialWrites;
+    }
+
+    /**
+     * Get the amount of changes of the selection keys' interest sets.
+     */
+    long getInterestChanges() {
+        return interestChanges;
+    }
+}
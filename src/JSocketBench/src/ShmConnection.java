@@ -0,0 +1,562 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.net.ConnectException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Host-local connection, that exchanges messages via two single-producer/single-consumer ring buffers
+ * in a shared memory mapped file.
+ *
+ * The server creates the file in /dev/shm (named after the port) and the client maps it, so no system calls
+ * are needed to send or receive a message. This gives a lower bound for the latency and an upper bound for the
+ * throughput, which the network transports can be compared to.
+ *
+ * Each ring is used like a byte stream (the same messages are written as to a socket), so that the benchmarks
+ * and framed messages work unchanged. The producer only writes the head and the consumer only writes the tail
+ * of a ring, which are placed on separate cache lines. Since the project is compiled for Java 8, the required
+ * memory fences are issued via sun.misc.Unsafe, which is accessed via reflection.
+ *
+ * File layout (all offsets are multiples of CACHE_LINE_SIZE):
+ * <ul>
+ *     <li>Control block: magic number, ring capacity, client attached flag, server and client closed flags</li>
+ *     <li>Ring 0 (server to client): head, tail, data</li>
+ *     <li>Ring 1 (client to server): head, tail, data</li>
+ * </ul>
+ *
+ * @author Fabian Ruhland, HHU
+ * @date 2018
+ */
+class ShmConnection extends Connection {
+
+    /**
+     * The directory, in which the shared files are created.
+     */
+    private static final String SHM_DIRECTORY = "/dev/shm";
+
+    /**
+     * Written by the server, after the file has been initialized.
+     */
+    private static final int MAGIC = 0x4a534252;
+
+    /**
+     * The size of a cache line in bytes.
+     */
+    private static final int CACHE_LINE_SIZE = 64;
+
+    /**
+     * The minimum capacity of a ring in bytes.
+     */
+    private static final int MIN_RING_CAPACITY = 1024 * 1024;
+
+    /**
+     * The amount of unsuccessful polls, after which a waiting thread yields and checks, whether the remote host
+     * has closed the connection.
+     */
+    private static final int IDLE_POLLS = 1024;
+
+    /**
+     * Offsets inside the control block.
+     */
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int ATTACHED_OFFSET = 8;
+    private static final int SERVER_CLOSED_OFFSET = 12;
+    private static final int CLIENT_CLOSED_OFFSET = 16;
+
+    /**
+     * Memory fences (Unsafe.loadFence(), Unsafe.storeFence() and Unsafe.fullFence()), or null if Unsafe is not
+     * accessible. Since they are constants, the JIT compiler inlines them.
+     */
+    private static final MethodHandle LOAD_FENCE = getFence("loadFence");
+    private static final MethodHandle STORE_FENCE = getFence("storeFence");
+    private static final MethodHandle FULL_FENCE = getFence("fullFence");
+
+    /**
+     * One direction of the connection.
+     */
+    private final class Ring {
+
+        /**
+         * The offset of the ring's head (written by the producer).
+         */
+        private final int headOffset;
+
+        /**
+         * The offset of the ring's tail (written by the consumer).
+         */
+        private final int tailOffset;
+
+        /**
+         * View on the ring's data.
+         */
+        private final ByteBuffer data;
+
+        /**
+         * The capacity minus 1 (the capacity is a power of 2).
+         */
+        private final int mask;
+
+        /**
+         * The local copy of the position, up to which data has been written.
+         */
+        private long head;
+
+        /**
+         * The local copy of the position, up to which data has been read.
+         */
+        private long tail;
+
+        Ring(int offset, int capacity) {
+            headOffset = offset;
+            tailOffset = offset + CACHE_LINE_SIZE;
+            mask = capacity - 1;
+
+            mapping.clear();
+            mapping.position(offset + 2 * CACHE_LINE_SIZE);
+            mapping.limit(offset + 2 * CACHE_LINE_SIZE + capacity);
+
+            data = mapping.slice();
+
+            head = mapping.getLong(headOffset);
+            tail = mapping.getLong(tailOffset);
+        }
+
+        /**
+         * Copy the remaining content of a buffer into the ring, waiting for free space if necessary.
+         */
+        void write(ByteBuffer src) throws IOException {
+            while(src.hasRemaining()) {
+                int free = (int) (mask + 1 - (head - tail));
+                boolean closed = false;
+
+                for(int polls = 1; free == 0; polls++) {
+                    if(closed) {
+                        throw new EOFException("Connection has been closed by the remote host!");
+                    }
+
+                    closed = waitIdle(polls);
+                    tail = mapping.getLong(tailOffset);
+                    fence(LOAD_FENCE);
+
+                    free = (int) (mask + 1 - (head - tail));
+                }
+
+                int offset = (int) (head & mask);
+                int chunk = Math.min(src.remaining(), Math.min(free, mask + 1 - offset));
+                int limit = src.limit();
+
+                src.limit(src.position() + chunk);
+                data.clear();
+                data.position(offset);
+                data.put(src);
+                src.limit(limit);
+
+                head += chunk;
+
+                // The data must be visible, before the new head is
+                fence(STORE_FENCE);
+                mapping.putLong(headOffset, head);
+            }
+        }
+
+        /**
+         * Fill the remaining space of a buffer with data from the ring, waiting for data if necessary.
+         */
+        void read(ByteBuffer dst) throws IOException {
+            while(dst.hasRemaining()) {
+                int available = (int) (head - tail);
+                boolean closed = false;
+
+                for(int polls = 1; available == 0; polls++) {
+                    if(closed) {
+                        throw new EOFException("Connection has been closed by the remote host!");
+                    }
+
+                    closed = waitIdle(polls);
+                    head = mapping.getLong(headOffset);
+                    fence(LOAD_FENCE);
+
+                    available = (int) (head - tail);
+                }
+
+                int offset = (int) (tail & mask);
+                int chunk = Math.min(dst.remaining(), Math.min(available, mask + 1 - offset));
+
+                data.clear();
+                data.position(offset);
+                data.limit(offset + chunk);
+                dst.put(data);
+
+                tail += chunk;
+
+                // The data must have been read, before the producer may overwrite it
+                fence(FULL_FENCE);
+                mapping.putLong(tailOffset, tail);
+            }
+        }
+
+        /**
+         * Called by a waiting thread before each poll. Every IDLE_POLLS polls, the thread yields and checks,
+         * whether the remote host has closed the connection.
+         *
+         * @return Whether the remote host has closed the connection (all data, that it has written before,
+         *         is visible to the following poll)
+         */
+        private boolean waitIdle(int polls) {
+            if(polls % IDLE_POLLS != 0) {
+                return false;
+            }
+
+            Thread.yield();
+
+            int closed = mapping.getInt(remoteClosedOffset);
+            fence(LOAD_FENCE);
+
+            return closed != 0;
+        }
+    }
+
+    /**
+     * The send buffer. The payload starts after FRAME_HEADER_SIZE bytes, so that the length header of a framed
+     * message can be written together with its payload.
+     */
+    private final ByteBuffer sendBuf;
+
+    /**
+     * The receive buffer.
+     */
+    private final ByteBuffer recvBuf;
+
+    /**
+     * Buffer for the length header of a framed message.
+     */
+    private final ByteBuffer frameHeaderBuf = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+
+    /**
+     * The buffer, into which the last message has been received (the receive buffer, or the sink's mapping).
+     */
+    private ByteBuffer lastRecvBuf;
+
+    /**
+     * The position of the last received message inside lastRecvBuf.
+     */
+    private int lastRecvOffset = 0;
+
+    /**
+     * The size of the messages, that are sent and received (at most the buffer size).
+     */
+    private int messageSize;
+
+    /**
+     * The capacity of each ring, that is used by the server (a power of 2).
+     */
+    private final int ringCapacity;
+
+    /**
+     * The shared file (only set, if this connection has created it).
+     */
+    private Path filePath = null;
+
+    /**
+     * The mapping of the shared file.
+     */
+    private MappedByteBuffer mapping;
+
+    /**
+     * The ring, into which messages are sent.
+     */
+    private Ring sendRing;
+
+    /**
+     * The ring, from which messages are received.
+     */
+    private Ring recvRing;
+
+    /**
+     * The offset of the own closed flag inside the control block.
+     */
+    private int localClosedOffset;
+
+    /**
+     * The offset of the remote host's closed flag inside the control block.
+     */
+    private int remoteClosedOffset;
+
+    /**
+     * Create a connection.
+     *
+     * @param bufSize The size to be used for sendBuf and recvBuf
+     */
+    ShmConnection(int bufSize) {
+        Log.INFO("CONNECTION", "Creating connection...");
+
+        if(LOAD_FENCE == null || STORE_FENCE == null || FULL_FENCE == null) {
+            Log.ERROR_AND_EXIT("CONNECTION", "The shared memory transport requires sun.misc.Unsafe, " +
+                    "which is not available in this JVM!");
+        }
+
+        sendBuf = ByteBuffer.allocateDirect(FRAME_HEADER_SIZE + bufSize);
+        recvBuf = ByteBuffer.allocateDirect(bufSize);
+        lastRecvBuf = recvBuf;
+        messageSize = bufSize;
+
+        // Several messages should fit into a ring, so that the producer does not need to wait for each of them
+        int capacity = MIN_RING_CAPACITY;
+
+        while(capacity < 4 * (FRAME_HEADER_SIZE + bufSize)) {
+            capacity *= 2;
+        }
+
+        ringCapacity = capacity;
+
+        Log.INFO("CONNECTION", "Finished creating connection!");
+    }
+
+    @Override
+    void connectToServer(String bindAddress, String hostname, int port) {
+        Path path = getFilePath(port);
+
+        Log.INFO("CONNECTION", "Connecting to server '%s'...", path);
+
+        for(int attempt = 1; mapping == null; attempt++) {
+            try {
+                if(Files.exists(path) && Files.size(path) >= CACHE_LINE_SIZE) {
+                    mapping = map(path, Files.size(path));
+
+                    if(mapping.getInt(MAGIC_OFFSET) != MAGIC) {
+                        mapping = null;
+                    }
+                }
+            } catch (IOException e) {
+                Log.ERROR_AND_EXIT("CONNECTION", "Unable to map shared file '%s'! Error: %s", path, e.getMessage());
+            }
+
+            if(mapping == null) {
+                waitForConnectRetry(attempt, path.toString(), new ConnectException("Shared file is not ready"));
+            }
+        }
+
+        fence(LOAD_FENCE);
+
+        int capacity = mapping.getInt(CAPACITY_OFFSET);
+
+        recvRing = new Ring(CACHE_LINE_SIZE, capacity);
+        sendRing = new Ring(CACHE_LINE_SIZE + 2 * CACHE_LINE_SIZE + capacity, capacity);
+        localClosedOffset = CLIENT_CLOSED_OFFSET;
+        remoteClosedOffset = SERVER_CLOSED_OFFSET;
+
+        fence(STORE_FENCE);
+        mapping.putInt(ATTACHED_OFFSET, 1);
+
+        Log.INFO("CONNECTION", "Successfully established a shared memory connection to server '%s'!", path);
+    }
+
+    @Override
+    Closeable listen(String bindAddress, int port) {
+        Path path = getFilePath(port);
+
+        Log.INFO("CONNECTION", "Connecting to a client...");
+
+        try {
+            // Remove the file of a previous run, that has not been closed properly
+            Files.deleteIfExists(path);
+
+            mapping = map(path, CACHE_LINE_SIZE + 2 * (2 * CACHE_LINE_SIZE + ringCapacity));
+            filePath = path;
+        } catch (IOException e) {
+            Log.ERROR_AND_EXIT("CONNECTION", "Unable to create shared file '%s'! Error: %s", path, e.getMessage());
+        }
+
+        sendRing = new Ring(CACHE_LINE_SIZE, ringCapacity);
+        recvRing = new Ring(CACHE_LINE_SIZE + 2 * CACHE_LINE_SIZE + ringCapacity, ringCapacity);
+        localClosedOffset = SERVER_CLOSED_OFFSET;
+        remoteClosedOffset = CLIENT_CLOSED_OFFSET;
+
+        mapping.putInt(CAPACITY_OFFSET, ringCapacity);
+
+        fence(STORE_FENCE);
+        mapping.putInt(MAGIC_OFFSET, MAGIC);
+
+        // The shared file can only be mapped by a single client, so there is nothing to be closed after accepting it
+        return () -> {};
+    }
+
+    @Override
+    void acceptClient(Closeable listener) {
+        Log.INFO("CONNECTION", "Waiting for a client to map '%s'...", filePath);
+
+        while(true) {
+            int attached = mapping.getInt(ATTACHED_OFFSET);
+            fence(LOAD_FENCE);
+
+            if(attached != 0) {
+                break;
+            }
+
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Log.ERROR_AND_EXIT("CONNECTION", "Interrupted while waiting for a client! Error: %s",
+                        e.getMessage());
+            }
+        }
+
+        Log.INFO("CONNECTION", "Successfully established a shared memory connection to a client!");
+    }
+
+    @Override
+    void close() {
+        Log.INFO("CONNECTION", "Closing connection...");
+
+        fence(STORE_FENCE);
+        mapping.putInt(localClosedOffset, 1);
+
+        if(filePath != null) {
+            // The client keeps its mapping, even if the file is deleted
+            try {
+                Files.deleteIfExists(filePath);
+            } catch (IOException e) {
+                Log.WARN("CONNECTION", "Unable to delete shared file '%s'! Error: %s", filePath, e.getMessage());
+            }
+        }
+
+        Log.INFO("CONNECTION", "Successfully closed connection!");
+    }
+
+    @Override
+    void writeMessages(long msgCount) throws IOException {
+        for(long i = 0; i < msgCount; i++) {
+            sendBuf.clear();
+
+            if(frameSizes != null) {
+                int size = nextFrameSize();
+
+                sendBuf.putInt(0, size);
+                sendBuf.limit(FRAME_HEADER_SIZE + size);
+                addSentFrameBytes(size);
+            } else {
+                sendBuf.position(FRAME_HEADER_SIZE);
+                sendBuf.limit(FRAME_HEADER_SIZE + messageSize);
+            }
+
+            sendRing.write(sendBuf);
+        }
+    }
+
+    @Override
+    void readMessages(long msgCount) throws IOException {
+        for(long i = 0; i < msgCount; i++) {
+            int size = messageSize;
+
+            if(frameSizes != null) {
+                frameHeaderBuf.clear();
+                recvRing.read(frameHeaderBuf);
+
+                size = frameHeaderBuf.getInt(0);
+
+                if(size < 1 || size > recvBuf.capacity()) {
+                    throw new IOException("Received a frame with an invalid size of " + size + " bytes!");
+                }
+
+                addRecvFrameBytes(size);
+            }
+
+            if(sink != null) {
+                // Copy directly into the mapped file
+                lastRecvBuf = sink.reserve(size);
+                lastRecvOffset = lastRecvBuf.position();
+
+                recvRing.read(lastRecvBuf);
+                sink.commit(size);
+            } else {
+                recvBuf.clear();
+                recvBuf.limit(size);
+                recvRing.read(recvBuf);
+            }
+        }
+    }
+
+    @Override
+    void setMessageSize(int messageSize) {
+        this.messageSize = messageSize;
+    }
+
+    @Override
+    void setEndMarker(boolean end) {
+        sendBuf.put(FRAME_HEADER_SIZE, (byte) (end ? 1 : 0));
+    }
+
+    @Override
+    boolean hasEndMarker() {
+        return lastRecvBuf.get(lastRecvOffset) == 1;
+    }
+
+    /**
+     * Get the shared file, that is used for a given port.
+     */
+    private static Path getFilePath(int port) {
+        String directory = Files.isDirectory(Paths.get(SHM_DIRECTORY)) ? SHM_DIRECTORY :
+                System.getProperty("java.io.tmpdir");
+
+        return Paths.get(directory, "jsocketbench-" + port + ".shm");
+    }
+
+    /**
+     * Map a file into memory (the file is created or extended, if necessary).
+     *
+     * @param path The file
+     * @param size The size of the mapping in bytes
+     */
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try(RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            if(file.length() < size) {
+                file.setLength(size);
+            }
+
+            return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * Get a memory fence of sun.misc.Unsafe.
+     *
+     * @param name The name of the fence's function
+     *
+     * @return The fence, or null if it is not accessible
+     */
+    private static MethodHandle getFence(String name) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+
+            field.setAccessible(true);
+
+            return MethodHandles.lookup().unreflect(unsafeClass.getMethod(name)).bindTo(field.get(null));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Issue a memory fence.
+     *
+     * @param fence The fence (see getFence())
+     */
+    private static void fence(MethodHandle fence) {
+        try {
+            fence.invokeExact();
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Distribution of the payload sizes of framed messages.
+ *
+ * The sizes are drawn once, when the distribution is parsed, and stored in a sequence, which the connections
+ * cycle through. This way, no random numbers need to be generated while the benchmark is running.
+ * The sequence is generated with a fixed seed, so that both hosts use the same sizes in the same order.
+ *
+ * Supported distributions:
+ * <ul>
+ *     <li>fixed:SIZE</li>
+ *     <li>uniform:MIN:MAX</li>
+ *     <li>bimodal:SMALL:LARGE:FRACTION (FRACTION is the share of large messages between 0 and 1)</li>
+ *     <li>file:PATH (empirical histogram with one 'SIZE WEIGHT' pair per line, '#' starts a comment)</li>
+ * </ul>
+ *
+ * @author Fabian Ruhland, HHU
+ * @date 2018
+ */
+class SizeDistribution {
+
+    /**
+     * The amount of sizes in the precomputed sequence.
+     */
+    private static final int SEQUENCE_LENGTH = 64 * 1024;
+
+    /**
+     * The seed of the random number generator, that draws the sizes.
+     */
+    private static final long SEED = 2018;
+
+    /**
+     * The distribution, as it has been specified on the command line.
+     */
+    private final String description;
+
+    /**
+     * The precomputed sizes.
+     */
+    private final int[] sequence;
+
+    /**
+     * Create a distribution.
+     *
+     * @param description The distribution, as it has been specified on the command line
+     * @param sequence The precomputed sizes
+     */
+    private SizeDistribution(String description, int[] sequence) {
+        this.description = description;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Parse a distribution and draw its sequence of sizes.
+     *
+     * @param spec The distribution (e.g. 'bimodal:64:65536:0.05')
+     *
+     * @return The distribution
+     */
+    static SizeDistribution parse(String spec) {
+        String[] parts = spec.split(":", 2);
+        String[] params = parts.length > 1 ? parts[1].split(":") : new String[0];
+
+        Random random = new Random(SEED);
+        int[] sequence = new int[SEQUENCE_LENGTH];
+
+        try {
+            switch(parts[0]) {
+                case "fixed":
+                    checkParamCount(spec, params, 1);
+                    Arrays.fill(sequence, Integer.parseUnsignedInt(params[0]));
+                    break;
+                case "uniform": {
+                    checkParamCount(spec, params, 2);
+
+                    int min = Integer.parseUnsignedInt(params[0]);
+                    int max = Integer.parseUnsignedInt(params[1]);
+
+                    if(min > max) {
+                        Log.ERROR_AND_EXIT("MAIN", "Invalid size distribution '%s' (minimum > maximum)!", spec);
+                    }
+
+                    for(int i = 0; i < sequence.length; i++) {
+                        sequence[i] = min + random.nextInt(max - min + 1);
+                    }
+
+                    break;
+                }
+                case "bimodal": {
+                    checkParamCount(spec, params, 3);
+
+                    int small = Integer.parseUnsignedInt(params[0]);
+                    int large = Integer.parseUnsignedInt(params[1]);
+                    double fraction = Double.parseDouble(params[2]);
+
+                    if(fraction < 0 || fraction > 1) {
+                        Log.ERROR_AND_EXIT("MAIN", "Invalid size distribution '%s' (fraction must be between " +
+                                "0 and 1)!", spec);
+                    }
+
+                    for(int i = 0; i < sequence.length; i++) {
+                        sequence[i] = random.nextDouble() < fraction ? large : small;
+                    }
+
+                    break;
+                }
+                case "file":
+                    checkParamCount(spec, params, 1);
+                    drawFromHistogram(parts[1], random, sequence);
+                    break;
+                default:
+                    Log.ERROR_AND_EXIT("MAIN", "Invalid size distribution '%s'!", spec);
+            }
+        } catch (NumberFormatException e) {
+            Log.ERROR_AND_EXIT("MAIN", "Invalid size distribution '%s'! Error: %s", spec, e.getMessage());
+        }
+
+        for(int size : sequence) {
+            if(size == 0) {
+                Log.ERROR_AND_EXIT("MAIN", "Invalid size distribution '%s' (sizes must be at least 1)!", spec);
+            }
+        }
+
+        return new SizeDistribution(spec, sequence);
+    }
+
+    /**
+     * Check whether a distribution has the expected amount of parameters.
+     */
+    private static void checkParamCount(String spec, String[] params, int expected) {
+        if(params.length != expected) {
+            Log.ERROR_AND_EXIT("MAIN", "Invalid size distribution '%s' (expected %d parameter(s))!", spec,
+                    expected);
+        }
+    }
+
+    /**
+     * Draw sizes from an empirical histogram, that is read from a file.
+     *
+     * @param path The file, which contains one 'SIZE WEIGHT' pair per line
+     * @param random The random number generator
+     * @param sequence The array, into which the sizes are drawn
+     */
+    private static void drawFromHistogram(String path, Random random, int[] sequence) {
+        List<String> lines = null;
+
+        try {
+            lines = Files.readAllLines(Paths.get(path));
+        } catch (IOException e) {
+            Log.ERROR_AND_EXIT("MAIN", "Unable to read size histogram '%s'! Error: %s", path, e.getMessage());
+        }
+
+        List<Integer> sizes = new ArrayList<>();
+        List<Double> cumulatedWeights = new ArrayList<>();
+        double totalWeight = 0;
+
+        for(String line : lines) {
+            String content = line.split("#", 2)[0].trim();
+
+            if(content.isEmpty()) {
+                continue;
+            }
+
+            String[] fields = content.split("\\s+");
+
+            if(fields.length != 2) {
+                Log.ERROR_AND_EXIT("MAIN", "Invalid line '%s' in size histogram '%s'!", line, path);
+            }
+
+            double weight = Double.parseDouble(fields[1]);
+
+            if(weight < 0) {
+                Log.ERROR_AND_EXIT("MAIN", "Invalid line '%s' in size histogram '%s' (negative weight)!", line,
+                        path);
+            }
+
+            totalWeight += weight;
+
+            sizes.add(Integer.parseUnsignedInt(fields[0]));
+            cumulatedWeights.add(totalWeight);
+        }
+
+        if(totalWeight <= 0) {
+            Log.ERROR_AND_EXIT("MAIN", "Size histogram '%s' does not contain any weights!", path);
+        }
+
+        for(int i = 0; i < sequence.length; i++) {
+            double value = random.nextDouble() * totalWeight;
+            int bucket = 0;
+
+            while(bucket < sizes.size() - 1 && cumulatedWeights.get(bucket) <= value) {
+                bucket++;
+            }
+
+            sequence[i] = sizes.get(bucket);
+        }
+    }
+
+    /**
+     * Get the precomputed sizes.
+     */
+    int[] getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Get the largest size of the sequence.
+     */
+    int getMaxSize() {
+        return Arrays.stream(sequence).max().getAsInt();
+    }
+
+    /**
+     * Get the distribution, as it has been specified on the command line.
+     */
+    String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,270 @@
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+
+/**
+ * TCP-connection to a remote host, that uses blocking socket streams.
+ *
+ * Every message is written from and read into a heap array, so the JDK copies it into a native buffer,
+ * before it is handed to the operating system.
+ *
+ * @author Fabian Ruhland, HHU
+ * @date 2018
+ */
+class StreamConnection extends Connection {
+
+    /**
+     * The send buffer. The payload starts after FRAME_HEADER_SIZE bytes, so that the length header of a framed
+     * message can be written together with its payload.
+     */
+    private byte[] sendBuf;
+
+    /**
+     * The receive buffer.
+     */
+    private byte[] recvBuf;
+
+    /**
+     * Wraps the receive buffer, so that it can be copied into the sink.
+     */
+    private ByteBuffer recvBufView;
+
+    /**
+     * The size of the messages, that are sent and received (at most the buffer size).
+     */
+    private int messageSize;
+
+    /**
+     * The TCP-socket, that is used to exchange data with the remote host.
+     */
+    private Socket socket;
+
+    /**
+     * The socket's output stream.
+     */
+    private DataOutputStream outputStream;
+
+    /**
+     * The socket's input stream.
+     */
+    private DataInputStream inputStream;
+
+    /**
+     * Buffer for the length header of a framed message.
+     */
+    private byte[] frameHeaderBuf = new byte[FRAME_HEADER_SIZE];
+
+    /**
+     * Create a connection.
+     *
+     * @param bufSize The size to be used for sendBuf and recvBuf
+     */
+    StreamConnection(int bufSize) {
+        Log.INFO("CONNECTION", "Creating connection...");
+
+        sendBuf = new byte[FRAME_HEADER_SIZE + bufSize];
+        recvBuf = new byte[bufSize];
+        recvBufView = ByteBuffer.wrap(recvBuf);
+        messageSize = bufSize;
+
+        Log.INFO("CONNECTION", "Finished creating connection!");
+    }
+
+    /**
+     * Connect to a remote server.
+     *
+     * @param bindAddress The address to bind the socket to (may be null, or empty string)
+     * @param hostname The server's hostname
+     * @param port The TCP-port
+     */
+    @Override
+    void connectToServer(String bindAddress, String hostname, int port) {
+        Log.INFO("CONNECTION", "Connecting to server '%s'...", hostname);
+
+        for(int attempt = 1; socket == null; attempt++) {
+            try {
+                socket = new Socket();
+
+                if(bindAddress == null || bindAddress.isEmpty()) {
+                    socket.bind(new InetSocketAddress(getLocalPort(port)));
+                } else {
+                    socket.bind(new InetSocketAddress(bindAddress, getLocalPort(port)));
+                }
+
+                socket.connect(new InetSocketAddress(hostname, port));
+            } catch (ConnectException e) {
+                closeSocket();
+                waitForConnectRetry(attempt, hostname, e);
+            } catch (IOException e) {
+                Log.ERROR_AND_EXIT("CONNECTION", "Unable to open socket! Error: %s", e.getMessage());
+            }
+        }
+
+        try {
+            inputStream = new DataInputStream(socket.getInputStream());
+            outputStream = new DataOutputStream(socket.getOutputStream());
+        } catch (IOException e) {
+            Log.ERROR_AND_EXIT("CONNECTION", "Unable to open data streams! Error: %s", e.getMessage());
+        }
+
+        Log.INFO("CONNECTION", "Successfully established a TCP-connection to server '%s'!", hostname);
+    }
+
+    /**
+     * Start listening for remote clients.
+     *
+     * @param bindAddress The address to bind the socket to (may be null, or empty string)
+     * @param port The TCP-port to listen on
+     */
+    @Override
+    Closeable listen(String bindAddress, int port) {
+        ServerSocket serverSocket = null;
+
+        Log.INFO("CONNECTION", "Connecting to a client...");
+
+        try {
+            serverSocket = new ServerSocket();
+
+            if(bindAddress == null || bindAddress.isEmpty()) {
+                serverSocket.bind(new InetSocketAddress(port));
+            } else {
+                serverSocket.bind(new InetSocketAddress(bindAddress, port));
+            }
+        } catch (IOException e) {
+            Log.ERROR_AND_EXIT("CONNECTION", "Unable to open socket! Error: %s", e.getMessage());
+        }
+
+        return serverSocket;
+    }
+
+    @Override
+    void acceptClient(Closeable listener) {
+        Log.INFO("CONNECTION", "Waiting for an incoming connection...");
+
+        try {
+            socket = ((ServerSocket) listener).accept();
+        } catch (Exception e) {
+            Log.ERROR_AND_EXIT("CONNECTION", "Error while accepting an incoming connection! Error: %s",
+                    e.getMessage());
+        }
+
+        try {
+            inputStream = new DataInputStream(socket.getInputStream());
+            outputStream = new DataOutputStream(socket.getOutputStream());
+        } catch (IOException e) {
+            Log.ERROR_AND_EXIT("CONNECTION", "Unable to open data streams! Error: %s", e.getMessage());
+        }
+
+        Log.INFO("CONNECTION", "Successfully established a TCP-connection to a client!");
+    }
+
+    /**
+     * Disconnect from the remote host.
+     */
+    @Override
+    void close() {
+        Log.INFO("CONNECTION", "Closing connection...");
+
+        try {
+            outputStream.close();
+            inputStream.close();
+            socket.close();
+        } catch (Exception e) {
+            Log.WARN("CONNECTION", "Unable to close socket! Errors: %s", e.getMessage());
+        }
+
+        Log.INFO("CONNECTION", "Successfully closed connection!");
+    }
+
+    /**
+     * Close the socket after a failed connection attempt.
+     */
+    private void closeSocket() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            Log.WARN("CONNECTION", "Unable to close socket! Error: %s", e.getMessage());
+        }
+
+        socket = null;
+    }
+
+    /**
+     * Write a specified amount of messages to the remote host.
+     *
+     * @param msgCount The amount of messages to be sent
+     *
+     * @throws IOException DataOutputStream.write() may throw an IOException
+     */
+    @Override
+    void writeMessages(long msgCount) throws IOException {
+        for(int i = 0; i < msgCount; i++) {
+            if(frameSizes != null) {
+                int size = nextFrameSize();
+
+                sendBuf[0] = (byte) (size >>> 24);
+                sendBuf[1] = (byte) (size >>> 16);
+                sendBuf[2] = (byte) (size >>> 8);
+                sendBuf[3] = (byte) size;
+
+                outputStream.write(sendBuf, 0, FRAME_HEADER_SIZE + size);
+                addSentFrameBytes(size);
+            } else {
+                outputStream.write(sendBuf, FRAME_HEADER_SIZE, messageSize);
+            }
+        }
+
+        outputStream.flush();
+        socket.getOutputStream().flush();
+    }
+
+    @Override
+    void setMessageSize(int messageSize) {
+        this.messageSize = messageSize;
+    }
+
+    @Override
+    void setEndMarker(boolean end) {
+        sendBuf[FRAME_HEADER_SIZE] = (byte) (end ? 1 : 0);
+    }
+
+    @Override
+    boolean hasEndMarker() {
+        return recvBuf[0] == 1;
+    }
+
+    /**
+     * Read a specified amount of messages from the remote host.
+     *
+     * @param msgCount The amount of messages to be sent
+     *
+     * @throws IOException DataOutputStream.write() may throw an IOException
+     */
+    @Override
+    void readMessages(long msgCount) throws IOException {
+        for(int i = 0; i < msgCount; i++) {
+            int size = messageSize;
+
+            if(frameSizes != null) {
+                inputStream.readFully(frameHeaderBuf);
+
+                size = (frameHeaderBuf[0] & 0xff) << 24 | (frameHeaderBuf[1] & 0xff) << 16 |
+                        (frameHeaderBuf[2] & 0xff) << 8 | (frameHeaderBuf[3] & 0xff);
+
+                if(size < 1 || size > recvBuf.length) {
+                    throw new IOException("Received a frame with an invalid size of " + size + " bytes!");
+                }
+
+                addRecvFrameBytes(size);
+            }
+
+            inputStream.readFully(recvBuf, 0, size);
+
+            if(sink != null) {
+                recvBufView.clear();
+                recvBufView.limit(size);
+                sink.write(recvBufView);
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.ConnectException;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Host-local connection, that uses a blocking Unix domain socket channel.
+ *
+ * Sending and receiving is inherited from NioConnection, only the connection setup differs. The socket file
+ * is created in the temporary directory and named after the port, so that several connections can be used in
+ * parallel. Together with the TCP-connections over the loopback device, this shows which part of the latency
+ * is caused by the TCP/IP stack and which by the socket layer itself.
+ *
+ * Unix domain socket channels are only available on Java 16 and newer. Since the project is compiled for Java 8,
+ * the channels and addresses are created via reflection.
+ *
+ * @author Fabian Ruhland, HHU
+ * @date 2018
+ */
+class UnixConnection extends NioConnection {
+
+    /**
+     * Create a connection.
+     *
+     * @param bufSize The size to be used for the send and receive buffers
+     */
+    UnixConnection(int bufSize) {
+        super(bufSize);
+    }
+
+    @Override
+    void connectToServer(String bindAddress, String hostname, int port) {
+        Path path = getSocketPath(port);
+
+        Log.INFO("CONNECTION", "Connecting to server '%s'...", path);
+
+        for(int attempt = 1; channel == null; attempt++) {
+            if(!Files.exists(path)) {
+                waitForConnectRetry(attempt, path.toString(), new ConnectException("Socket file does not exist"));
+                continue;
+            }
+
+            try {
+                channel = (SocketChannel) openChannel(SocketChannel.class);
+                channel.connect(createAddress(path));
+            } catch (ConnectException e) {
+                closeChannel();
+                waitForConnectRetry(attempt, path.toString(), e);
+            } catch (IOException e) {
+                Log.ERROR_AND_EXIT("CONNECTION", "Unable to open Unix domain socket channel! Error: %s",
+                        e.getMessage());
+            }
+        }
+
+        Log.INFO("CONNECTION", "Successfully established a Unix domain socket connection to server '%s'!", path);
+    }
+
+    @Override
+    Closeable listen(String bindAddress, int port) {
+        ServerSocketChannel serverChannel = null;
+        Path path = getSocketPath(port);
+
+        Log.INFO("CONNECTION", "Connecting to a client...");
+
+        try {
+            // Remove the socket file of a previous run, that has not been closed properly
+            Files.deleteIfExists(path);
+
+            serverChannel = (ServerSocketChannel) openChannel(ServerSocketChannel.class);
+            serverChannel.bind(createAddress(path));
+        } catch (IOException e) {
+            Log.ERROR_AND_EXIT("CONNECTION", "Unable to open Unix domain server socket channel! Error: %s",
+                    e.getMessage());
+        }
+
+        return new Listener(serverChannel, path);
+    }
+
+    @Override
+    void acceptClient(Closeable listener) {
+        Log.INFO("CONNECTION", "Waiting for an incoming connection...");
+
+        try {
+            channel = ((Listener) listener).serverChannel.accept();
+        } catch (IOException e) {
+            Log.ERROR_AND_EXIT("CONNECTION", "Error while accepting an incoming connection! Error: %s",
+                    e.getMessage());
+        }
+
+        Log.INFO("CONNECTION", "Successfully established a Unix domain socket connection to a client!");
+    }
+
+    /**
+     * Get the socket file, that is used for a given port.
+     */
+    private static Path getSocketPath(int port) {
+        return Paths.get(System.getProperty("java.io.tmpdir"), "jsocketbench-" + port + ".socket");
+    }
+
+    /**
+     * Create a Unix domain socket address (UnixDomainSocketAddress.of()).
+     */
+    private static SocketAddress createAddress(Path path) {
+        try {
+            return (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+                    .getMethod("of", Path.class).invoke(null, path);
+        } catch (Exception e) {
+            Log.ERROR_AND_EXIT("CONNECTION", "Unix domain sockets are not supported by this JVM (Java 16 or newer " +
+                    "is required)! Error: %s", e.toString());
+        }
+
+        return null;
+    }
+
+    /**
+     * Open a Unix domain socket channel (SocketChannel.open(UNIX) or ServerSocketChannel.open(UNIX)).
+     *
+     * @param channelClass The class of the channel to open
+     */
+    private static Object openChannel(Class<?> channelClass) throws IOException {
+        try {
+            ProtocolFamily family = StandardProtocolFamily.valueOf("UNIX");
+
+            return channelClass.getMethod("open", ProtocolFamily.class).invoke(null, family);
+        } catch (InvocationTargetException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (Exception e) {
+            Log.ERROR_AND_EXIT("CONNECTION", "Unix domain sockets are not supported by this JVM (Java 16 or newer " +
+                    "is required)! Error: %s", e.toString());
+        }
+
+        return null;
+    }
+
+    /**
+     * Server socket channel, whose socket file is deleted, when it is closed.
+     *
+     * Accepted connections do not need the file anymore, so it is removed as soon as no more clients are accepted.
+     */
+    private static class Listener implements Closeable {
+
+        /**
+         * The server socket channel.
+         */
+        private final ServerSocketChannel serverChannel;
+
+        /**
+         * The socket file, to which the channel is bound.
+         */
+        private final Path path;
+
+        /**
+         * Create a listener.
+         *
+         * @param serverChannel The server socket channel
+         * @param path The socket file, to which the channel is bound
+         */
+        private Listener(ServerSocketChannel serverChannel, Path path) {
+            this.serverChannel = serverChannel;
+            this.path = path;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                serverChannel.close();
+            } finally {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,256 @@
+import java.io.InputStream;
+
+/**
+ * Benchmark of the connection setup.
+ *
+ * Each client thread establishes a connection (including the exchange of the rdma information), tells the server,
+ * whether it is the thread's last connection, and closes the connection again, until it has established the given
+ * amount of connections (or the duration has passed). The phases are timed on the client, since the client goes
+ * through the whole setup path (see Connection.connectToServer()).
+ *
+ * The server accepts the connections one after another on a single listener, until each client thread has
+ * announced its last connection, so the server must know the amount of client threads.
+ *
+ * @author Fabian Ruhland, HHU
+ * @date 2018
+ */
+class ConnectBenchmark {
+
+    /**
+     * The phases of a connection's life, that are timed separately.
+     */
+    enum PHASE {
+        CREATE,             /**< Allocate the connection's buffers */
+        RESOLVE_ADDRESS,    /**< Create the event channel and the connection id and resolve the server's address */
+        RESOLVE_ROUTE,      /**< Resolve the route to the server */
+        CREATE_QP,          /**< Create the completion queues and the queue pair */
+        REGISTER_MEMORY,    /**< Register the send and receive buffers */
+        CONNECT,            /**< Connect to the server, until the connection is established */
+        EXCHANGE,           /**< Connect the TCP-socket, exchange the rdma information and prepare posting */
+        CLOSE               /**< Announce the last connection, disconnect and free all resources */
+    }
+
+    /**
+     * The size of the buffers, that each connection registers.
+     */
+    private final int bufSize;
+
+    /**
+     * The queue size of each connection's queue pair.
+     */
+    private final int queueSize;
+
+    /**
+     * The duration of a duration-based run in nanoseconds (0 = the amount of connections is fixed).
+     */
+    private final long duration;
+
+    /**
+     * The summed up time in nanoseconds of each phase, one array per thread.
+     */
+    private final long[][] phaseTimes;
+
+    /**
+     * The amount of connections, that have been established by each thread (or served by the server).
+     */
+    private final long[] connectionCounts;
+
+    /**
+     * The setup time (all phases except closing) of every connection, one histogram per thread.
+     */
+    private final LatencyHistogram[] setupHistograms;
+
+    /**
+     * The time in nanoseconds, at which each thread has started.
+     */
+    private final long[] startTimes;
+
+    /**
+     * The time in nanoseconds, at which each thread has finished.
+     */
+    private final long[] endTimes;
+
+    /**
+     * Constructor.
+     *
+     * @param bufSize The size of the buffers, that each connection registers
+     * @param queueSize The queue size of each connection's queue pair
+     * @param threadCount The amount of client threads, that establish connections in parallel
+     * @param duration The duration of a duration-based run in nanoseconds (0 = the amount of connections is fixed)
+     */
+    ConnectBenchmark(int bufSize, int queueSize, int threadCount, long duration) {
+        this.bufSize = bufSize;
+        this.queueSize = queueSize;
+        this.duration = duration;
+        this.phaseTimes = new long[threadCount][PHASE.values().length];
+        this.connectionCounts = new long[threadCount];
+        this.setupHistograms = new LatencyHistogram[threadCount];
+        this.startTimes = new long[threadCount];
+        this.endTimes = new long[threadCount];
+
+        for(int i = 0; i < threadCount; i++) {
+            this.setupHistograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Establish and close connections to the server one after another.
+     *
+     * @param thread The thread's index
+     * @param bindAddress The address to bind the sockets to (may be null, or empty string)
+     * @param hostname The server's hostname
+     * @param port The server's port
+     * @param count The amount of connections to establish (ignored in a duration-based run)
+     */
+    void runClient(int thread, String bindAddress, String hostname, int port, long count) {
+        long[] times = phaseTimes[thread];
+        LatencyHistogram histogram = setupHistograms[thread];
+
+        Log.INFO("CONNECT THREAD", "Starting connect thread!");
+
+        startTimes[thread] = System.nanoTime();
+
+        long deadline = duration > 0 ? startTimes[thread] + duration : 0;
+
+        try {
+            for(long i = 0; deadline != 0 || i < count; i++) {
+                long createTime = System.nanoTime();
+                boolean last = deadline != 0 ? createTime >= deadline : i == count - 1;
+
+                Connection connection = new Connection(bufSize, queueSize);
+                connection.setEphemeralPort(true);
+
+                long connectTime = System.nanoTime();
+                connection.connectToServer(bindAddress, hostname, port);
+
+                long closeTime = System.nanoTime();
+                connection.getSocket().getOutputStream().write(last ? 1 : 0);
+                connection.close();
+
+                long endTime = System.nanoTime();
+
+                long[] setupTimes = connection.getSetupTimes();
+
+                for(int j = 0; j < setupTimes.length; j++) {
+                    times[j] += setupTimes[j];
+                }
+
+                times[PHASE.CREATE.ordinal()] += connectTime - createTime;
+                times[PHASE.CLOSE.ordinal()] += endTime - closeTime;
+
+                histogram.record(closeTime - createTime);
+                connectionCounts[thread]++;
+
+                if(last) {
+                    break;
+                }
+            }
+        } catch(Exception e) {
+            Log.ERROR_AND_EXIT("CONNECT THREAD", "An error occurred, while closing a connection! Error: '%s'",
+                    e.getMessage());
+        }
+
+        endTimes[thread] = System.nanoTime();
+
+        Log.INFO("CONNECT THREAD", "Finished establishing %d connection(s)!", connectionCounts[thread]);
+    }
+
+    /**
+     * Accept connections one after another, until every client thread has announced its last connection.
+     *
+     * @param listener The listener, on which the clients connect
+     */
+    void runServer(Connection.Listener listener) {
+        int remainingClients = connectionCounts.length;
+
+        Log.INFO("ACCEPT THREAD", "Starting accept thread!");
+
+        startTimes[0] = System.nanoTime();
+
+        try {
+            while(remainingClients > 0) {
+                Connection connection = new Connection(bufSize, queueSize);
+                connection.acceptClient(listener);
+
+                InputStream inputStream = connection.getSocket().getInputStream();
+                int last = inputStream.read();
+
+                if(last < 0) {
+                    Log.ERROR_AND_EXIT("ACCEPT THREAD", "The client closed the connection unexpectedly!");
+                }
+
+                connection.close();
+                connectionCounts[0]++;
+
+                if(last == 1) {
+                    remainingClients--;
+                }
+            }
+        } catch(Exception e) {
+            Log.ERROR_AND_EXIT("ACCEPT THREAD", "An error occurred, while serving a connection! Error: '%s'",
+                    e.getMessage());
+        }
+
+        endTimes[0] = System.nanoTime();
+
+        Log.INFO("ACCEPT THREAD", "Finished serving %d connection(s)!", connectionCounts[0]);
+    }
+
+    /**
+     * Get the time between the earliest start and the latest end over all threads.
+     */
+    long getTime() {
+        long start = Long.MAX_VALUE;
+        long end = Long.MIN_VALUE;
+
+        for(int i = 0; i < startTimes.length; i++) {
+            if(startTimes[i] != 0) {
+                start = Math.min(start, startTimes[i]);
+                end = Math.max(end, endTimes[i]);
+            }
+        }
+
+        return end - start;
+    }
+
+    /**
+     * Get the amount of connections, that have been established by all threads (or served by the server).
+     */
+    long getConnectionCount() {
+        long count = 0;
+
+        for(long connectionCount : connectionCounts) {
+            count += connectionCount;
+        }
+
+        return count;
+    }
+
+    /**
+     * Get the time in nanoseconds, that all threads have spent in a phase.
+     *
+     * @param phase The phase
+     */
+    long getPhaseTime(PHASE phase) {
+        long time = 0;
+
+        for(long[] times : phaseTimes) {
+            time += times[phase.ordinal()];
+        }
+
+        return time;
+    }
+
+    /**
+     * Get the setup times of all connections.
+     */
+    LatencyHistogram getCumulatedSetupHistogram() {
+        LatencyHistogram cumulated = new LatencyHistogram();
+
+        for(LatencyHistogram histogram : setupHistograms) {
+            cumulated.add(histogram);
+        }
+
+        return cumulated;
+    }
+}
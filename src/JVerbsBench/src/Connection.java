@@ -1,6 +1,7 @@
 import com.ibm.net.rdma.jverbs.cm.*;
 import com.ibm.net.rdma.jverbs.verbs.*;
 
+import java.io.Closeable;
 import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
@@ -10,18 +11,42 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.util.LinkedList;
-import java.util.Objects;
 import java.util.StringTokenizer;
 
 /**
  * Connection to a remote host.
  *
  * This class allows connecting to either a server or a client and send messages to the remote host.
+ * Sends and receives are posted as work requests, whose completions are polled afterwards (see Transport).
+ * The start and the end of each run are announced via the TCP-socket, which has been used to exchange
+ * the rdma information.
  *
  * @author Fabian Ruhland, HHU
  * @date 2018
  */
-class Connection {
+class Connection extends Transport {
+
+    /**
+     * The size of the word, on which an atomic operation is executed.
+     */
+    static final int ATOMIC_WORD_SIZE = Long.BYTES;
+
+    /**
+     * The distance in bytes between the words of different clients, if each client targets its own word
+     * (see setAtomicWordOffset()), so that no two words share a cache line.
+     */
+    static final int ATOMIC_WORD_STRIDE = 64;
+
+    /**
+     * The command, that a sender writes to the TCP-socket, right before it starts posting (see announceStart()).
+     */
+    private static final byte[] START_COMMAND = "start".getBytes();
+
+    /**
+     * While waiting for messages, the TCP-socket is only checked every n-th time for the amount of
+     * messages, that has been announced by the remote host at the end of its run (see pollAnnouncedEnd()).
+     */
+    private static final int ANNOUNCEMENT_CHECK_INTERVAL = 1024;
 
     /**
      * The send buffer.
@@ -39,10 +64,40 @@ class Connection {
     private Socket socket;
 
     /**
-     * The jVerbs event channel.
+     * The input stream of the TCP-socket.
+     */
+    private DataInputStream socketInputStream;
+
+    /**
+     * The output stream of the TCP-socket.
+     */
+    private DataOutputStream socketOutputStream;
+
+    /**
+     * Receives the start command of the remote host (see awaitStart()).
+     */
+    private final byte[] startBuf = new byte[START_COMMAND.length];
+
+    /**
+     * The amount of times, that pollAnnouncedEnd() has been called.
+     */
+    private long announcementChecks = 0;
+
+    /**
+     * The jVerbs event channel (shared with the listener and all other accepted connections on a server).
      */
     private EventChannel eventChannel;
 
+    /**
+     * The listener, by which the connection has been accepted (null on a client).
+     */
+    private Listener listener = null;
+
+    /**
+     * Whether the listener has been created only for this connection, so that it is closed together with it.
+     */
+    private boolean ownsListener = false;
+
     /**
      * Parameters for a jVerbs connection.
      */
@@ -83,6 +138,12 @@ class Connection {
      */
     private long remoteAddress;
 
+    /**
+     * The address of the word in the remote host's receive memory region, on which atomic operations are executed.
+     */
+    private long remoteWordAddress;
+
+
     /**
      * List of scatter-gather elements used for sending.
      */
@@ -93,6 +154,11 @@ class Connection {
      */
     private LinkedList<ScatterGatherElement> recvSges;
 
+    /**
+     * List of scatter-gather elements, that receive the original value of the remote word from an atomic operation.
+     */
+    private LinkedList<ScatterGatherElement> atomicSges;
+
     /**
      * Reusable send work requests.
      */
@@ -104,14 +170,171 @@ class Connection {
     private ReceiveWorkRequest[] recvWrs;
 
     /**
-     * List of send work requests.
+     * Prepared stateful verbs calls, that post batches of messages (see preparePostMethods()).
+     * Messages are either sends or rdma writes with immediate data (see setImmediateWrites()).
+     *
+     * All work requests are signaled, if the signal interval is 1, and none of them otherwise.
+     */
+    private PostSendMethod[] sendMethods;
+
+    /**
+     * Prepared stateful verbs calls, that post batches of messages, whose last work request is signaled
+     * (null, if the signal interval is 1).
+     */
+    private PostSendMethod[] signaledSendMethods;
+
+    /**
+     * Prepared stateful verbs calls, that post batches of rdma writes (see preparePostMethods()).
+     *
+     * All work requests are signaled, if the signal interval is 1, and none of them otherwise.
+     */
+    private PostSendMethod[] writeMethods;
+
+    /**
+     * Prepared stateful verbs calls, that post batches of rdma writes, whose last work request is signaled
+     * (null, if the signal interval is 1).
+     */
+    private PostSendMethod[] signaledWriteMethods;
+
+    /**
+     * Prepared stateful verbs calls, that post batches of rdma reads (see preparePostMethods()).
+     *
+     * All work requests are signaled, if the signal interval is 1, and none of them otherwise.
+     */
+    private PostSendMethod[] readMethods;
+
+    /**
+     * Prepared stateful verbs calls, that post batches of rdma reads, whose last work request is signaled
+     * (null, if the signal interval is 1).
+     */
+    private PostSendMethod[] signaledReadMethods;
+
+    /**
+     * Prepared stateful verbs calls, that post batches of atomic fetch-and-add operations
+     * (null, if atomics are disabled, see preparePostMethods()).
+     *
+     * All work requests are signaled, if the signal interval is 1, and none of them otherwise.
+     */
+    private PostSendMethod[] fetchAddMethods;
+
+    /**
+     * Prepared stateful verbs calls, that post batches of atomic fetch-and-add operations, whose last work request
+     * is signaled (null, if atomics are disabled or the signal interval is 1).
+     */
+    private PostSendMethod[] signaledFetchAddMethods;
+
+    /**
+     * Prepared stateful verbs calls, that post batches of atomic compare-and-swap operations
+     * (null, if atomics are disabled, see preparePostMethods()).
+     *
+     * All work requests are signaled, if the signal interval is 1, and none of them otherwise.
+     */
+    private PostSendMethod[] compareSwapMethods;
+
+    /**
+     * Prepared stateful verbs calls, that post batches of atomic compare-and-swap operations, whose last work request
+     * is signaled (null, if atomics are disabled or the signal interval is 1).
+     */
+    private PostSendMethod[] signaledCompareSwapMethods;
+
+    /**
+     * Prepared stateful verbs calls, that post batches of receives (see preparePostMethods()).
+     */
+    private PostReceiveMethod[] recvMethods;
+
+    /**
+     * Messages of up to this size are sent inline (0 = no inline sends).
+     *
+     * This is the requested threshold. The device may grant another one (see getInlineThreshold()).
+     */
+    private int inlineThreshold = 0;
+
+    /**
+     * Whether the remote host may execute atomic operations on the receive buffer, and atomic operations
+     * are prepared for posting.
+     */
+    private boolean atomics = false;
+
+    /**
+     * The offset of the word in the receive buffer, on which the remote host executes its atomic operations.
+     */
+    private int atomicWordOffset = 0;
+
+    /**
+     * Only every n-th send work request is signaled, so that only every n-th work request produces a completion.
+     */
+    private int signalInterval = 1;
+
+    /**
+     * The amount of send work requests, that have been posted after the last signaled one.
+     */
+    private int unsignaledSends = 0;
+
+    /**
+     * Whether the last work request of the next post is signaled, regardless of the signal interval.
+     */
+    private boolean signalNextPost = false;
+
+    /**
+     * The amount of send work requests, that each outstanding signaled work request completes
+     * (a ring buffer, as the completions are polled in the same order, in which the work requests have been posted).
+     */
+    private final int[] signaledSends;
+
+    /**
+     * The amount of signaled work requests, that have been posted.
+     */
+    private long postedSignals = 0;
+
+    /**
+     * The amount of signaled work requests, whose completions have been polled.
+     */
+    private long polledSignals = 0;
+
+    /**
+     * The sink, into which received payloads are stored (null, if received payloads are discarded).
+     */
+    private MappedSink sink = null;
+
+    /**
+     * The amount of receive work requests, that have been posted, but whose completions have not been polled yet.
+     */
+    private long postedRecvs = 0;
+
+    /**
+     * The size of the messages, that are sent, received and written (at most the buffer size).
+     */
+    private int messageSize;
+
+    /**
+     * Whether a client binds its sockets to an ephemeral port, instead of the server's port.
+     */
+    private boolean ephemeralPort = false;
+
+    /**
+     * Whether messages are sent as rdma writes with immediate data, instead of sends.
+     */
+    private boolean immediateWrites = false;
+
+    /**
+     * The one-sided operation, that sendMessages() posts instead of messages (null, to post messages).
      */
-    private LinkedList<SendWorkRequest> sendWrList;
+    private RdmaOperation oneSidedOperation = null;
 
     /**
-     * List of receive work requests.
+     * The time in nanoseconds, that each phase of connectToServer() has taken (indexed by ConnectBenchmark.PHASE).
      */
-    private LinkedList<ReceiveWorkRequest> recvWrList;
+    private final long[] setupTimes = new long[ConnectBenchmark.PHASE.values().length];
+
+    /**
+     * The one-sided operations, that can be posted with rdma().
+     */
+    enum RdmaOperation {
+        WRITE,              /**< Write the send buffer into the remote host's receive buffer */
+        READ,               /**< Read the remote host's receive buffer into the local receive buffer */
+        FETCH_AND_ADD,      /**< Atomically add 1 to the remote word */
+        COMPARE_AND_SWAP    /**< Atomically swap the remote word from 0 to 1 */
+    }
 
     /**
      * Create a connection.
@@ -124,6 +347,7 @@ class Connection {
 
         this.sendBuf = ByteBuffer.allocateDirect(bufSize);
         this.recvBuf = ByteBuffer.allocateDirect(bufSize);
+        this.messageSize = bufSize;
 
         this.connectionParams = new ConnectionParameter();
         this.connectionParams.setInitiatorDepth(1);
@@ -132,9 +356,11 @@ class Connection {
         this.connectionParams.setRnrRetryCount(3);
 
         this.queueSize = queueSize;
+        this.signaledSends = new int[queueSize];
 
         this.sendSges = new LinkedList<>();
         this.recvSges = new LinkedList<>();
+        this.atomicSges = new LinkedList<>();
 
         this.sendWrs = new SendWorkRequest[queueSize];
         this.recvWrs = new ReceiveWorkRequest[queueSize];
@@ -147,15 +373,6 @@ class Connection {
             this.recvWrs[i] = new ReceiveWorkRequest();
         }
 
-        this.sendWrList = new LinkedList<>();
-        this.recvWrList = new LinkedList<>();
-
-        try {
-            this.eventChannel = EventChannel.createEventChannel();
-        } catch (Exception e) {
-            Log.ERROR_AND_EXIT("Unable to create event channel! Error: %s", e.getMessage());
-        }
-
         Log.INFO("CONNECTION", "Finished creating connection!");
     }
 
@@ -166,9 +383,19 @@ class Connection {
      * @param hostname The server's hostname
      * @param port The TCP-port
      */
+    @Override
     void connectToServer(String bindAddress, String hostname, int port) {
         Log.INFO("CONNECTION", "Connecting to server '%s'...", hostname);
 
+        int localPort = ephemeralPort ? 0 : port;
+        long time = System.nanoTime();
+
+        try {
+            eventChannel = EventChannel.createEventChannel();
+        } catch (Exception e) {
+            Log.ERROR_AND_EXIT("Unable to create event channel! Error: %s", e.getMessage());
+        }
+
         // Create connection id
         try {
             id = ConnectionId.create(eventChannel, PortSpace.RDMA_PS_TCP);
@@ -179,9 +406,9 @@ class Connection {
         // Resolve address
         try {
             if (bindAddress == null || bindAddress.isEmpty()) {
-                id.resolveAddress(new InetSocketAddress(port), new InetSocketAddress(hostname, port), 5000);
+                id.resolveAddress(new InetSocketAddress(localPort), new InetSocketAddress(hostname, port), 5000);
             } else {
-                id.resolveAddress(new InetSocketAddress(bindAddress, port),
+                id.resolveAddress(new InetSocketAddress(bindAddress, localPort),
                         new InetSocketAddress(hostname, port), 5000);
             }
 
@@ -197,6 +424,8 @@ class Connection {
             Log.ERROR_AND_EXIT("CONNECTION", "Unable to resolve address! Error: %s", e.getMessage());
         }
 
+        time = recordSetupTime(ConnectBenchmark.PHASE.RESOLVE_ADDRESS, time);
+
         Log.INFO("CONNECTION", "Successfully resolved address!");
 
         // Resolve route
@@ -215,14 +444,18 @@ class Connection {
             Log.ERROR_AND_EXIT("CONNECTION", "Unable to resolve route! Error: %s", e.getMessage());
         }
 
+        time = recordSetupTime(ConnectBenchmark.PHASE.RESOLVE_ROUTE, time);
+
         Log.INFO("CONNECTION", "Successfully resolved route!");
 
         // Establish connection
         try {
-            wrapper = new JVerbsWrapper(id, queueSize);
+            wrapper = new JVerbsWrapper(id, queueSize, inlineThreshold);
+
+            time = recordSetupTime(ConnectBenchmark.PHASE.CREATE_QP, time);
 
-            sendRegion = wrapper.registerMemoryRegion(sendBuf);
-            recvRegion = wrapper.registerMemoryRegion(recvBuf);
+            sendRegion = wrapper.registerMemoryRegion(sendBuf, false);
+            recvRegion = wrapper.registerMemoryRegion(recvBuf, atomics);
 
             ScatterGatherElement sendSge = new ScatterGatherElement();
             sendSge.setAddress(sendRegion.getAddress());
@@ -236,6 +469,16 @@ class Connection {
             recvSge.setLocalKey(recvRegion.getLocalKey());
             recvSges.add(recvSge);
 
+            // The original value of the remote word is stored in the send buffer, whose content is not needed
+            // by atomic operations, while the receive buffer may be targeted by the remote host's operations
+            ScatterGatherElement atomicSge = new ScatterGatherElement();
+            atomicSge.setAddress(sendRegion.getAddress());
+            atomicSge.setLength(ATOMIC_WORD_SIZE);
+            atomicSge.setLocalKey(sendRegion.getLocalKey());
+            atomicSges.add(atomicSge);
+
+            time = recordSetupTime(ConnectBenchmark.PHASE.REGISTER_MEMORY, time);
+
             id.connect(connectionParams);
 
             ConnectionEvent event = eventChannel.getConnectionEvent(-1);
@@ -251,14 +494,17 @@ class Connection {
             Log.ERROR_AND_EXIT("CONNECTION", "Unable to connect to remote host! Error: %s", e.getMessage());
         }
 
+        time = recordSetupTime(ConnectBenchmark.PHASE.CONNECT, time);
+
+        // The server has bound its TCP-socket before it started listening for connection requests
+        // (see Listener), so the socket can be connected right away
         try {
-            Thread.sleep(1000);
             socket = new Socket();
 
             if(bindAddress == null || bindAddress.isEmpty()) {
-                socket.bind(new InetSocketAddress(port));
+                socket.bind(new InetSocketAddress(localPort));
             } else {
-                socket.bind(new InetSocketAddress(bindAddress, port));
+                socket.bind(new InetSocketAddress(bindAddress, localPort));
             }
 
             socket.connect(new InetSocketAddress(hostname, port));
@@ -267,54 +513,60 @@ class Connection {
         }
 
         exchangeRdmaInfo();
+        preparePostMethods();
+
+        recordSetupTime(ConnectBenchmark.PHASE.EXCHANGE, time);
 
         Log.INFO("CONNECTION", "Successfully connected to remote host!");
     }
 
+    /**
+     * Store the time, that a phase of connectToServer() has taken.
+     *
+     * @param phase The phase, that has just finished
+     * @param start The time in nanoseconds, at which the phase has started
+     *
+     * @return The current time in nanoseconds, at which the next phase starts
+     */
+    private long recordSetupTime(ConnectBenchmark.PHASE phase, long start) {
+        long now = System.nanoTime();
+
+        setupTimes[phase.ordinal()] = now - start;
+
+        return now;
+    }
+
     /**
      * Connect to a remote client.
      *
      * @param bindAddress The address to bind the socket to (may be null, or empty string)
      * @param port The TCP-port to listen on
      */
+    @Override
     void connectToClient(String bindAddress, int port) {
         Log.INFO("CONNECTION", "Connecting to a client...");
 
-        ConnectionId serverId = null;
-        ServerSocket serverSocket = null;
+        acceptClient(new Listener(bindAddress, port));
 
-        try {
-            serverId = ConnectionId.create(eventChannel, PortSpace.RDMA_PS_TCP);
-        } catch (Exception e) {
-            Log.ERROR_AND_EXIT("Unable to create connection id! Error: %s", e.getMessage());
-        }
+        ownsListener = true;
+    }
 
-        try {
-            if (bindAddress == null || bindAddress.isEmpty()) {
-                Objects.requireNonNull(serverId).bindAddress(new InetSocketAddress(port));
-            } else {
-                Objects.requireNonNull(serverId).bindAddress(new InetSocketAddress(bindAddress, port));
-            }
-        } catch (Exception e) {
-            Log.ERROR_AND_EXIT("CONNECTION", "Unable to bind address! Error: %s", e.getMessage());
-        }
+    /**
+     * Accept the next remote client, that connects to a listener.
+     *
+     * The listener's event channel is used by the accepted connection, so the listener must not be closed
+     * before the connection.
+     *
+     * @param listener The listener
+     */
+    void acceptClient(Listener listener) {
+        this.listener = listener;
+        this.eventChannel = listener.eventChannel;
 
         Log.INFO("CONNECTION", "Waiting for an incoming connection...");
 
         try {
-            Objects.requireNonNull(serverId).listen(0);
-
-            ConnectionEvent event = eventChannel.getConnectionEvent(-1);
-
-            if(event.getEventType() != ConnectionEvent.EventType.RDMA_CM_EVENT_CONNECT_REQUEST) {
-                Log.ERROR_AND_EXIT("CONNECTION",
-                        "Error while accepting an incoming connection! Error: Received wrong event type '%s'",
-                        event.getEventType());
-            }
-
-            eventChannel.ackConnectionEvent(event);
-
-            id = event.getConnectionId();
+            id = listener.nextRequest();
         } catch (Exception e) {
             Log.ERROR_AND_EXIT("CONNECTION", "Error while accepting an incoming connection! Error: %s",
                     e.getMessage());
@@ -323,10 +575,10 @@ class Connection {
         Log.INFO("CONNECTION", "Received connection request!");
 
         try {
-            wrapper = new JVerbsWrapper(id, queueSize);
+            wrapper = new JVerbsWrapper(id, queueSize, inlineThreshold);
 
-            sendRegion = wrapper.registerMemoryRegion(sendBuf);
-            recvRegion = wrapper.registerMemoryRegion(recvBuf);
+            sendRegion = wrapper.registerMemoryRegion(sendBuf, false);
+            recvRegion = wrapper.registerMemoryRegion(recvBuf, atomics);
 
             ScatterGatherElement sendSge = new ScatterGatherElement();
             sendSge.setAddress(sendRegion.getAddress());
@@ -340,73 +592,190 @@ class Connection {
             recvSge.setLocalKey(recvRegion.getLocalKey());
             recvSges.add(recvSge);
 
-            id.accept(connectionParams);
-
-            ConnectionEvent event = eventChannel.getConnectionEvent(-1);
+            // The original value of the remote word is stored in the send buffer, whose content is not needed
+            // by atomic operations, while the receive buffer may be targeted by the remote host's operations
+            ScatterGatherElement atomicSge = new ScatterGatherElement();
+            atomicSge.setAddress(sendRegion.getAddress());
+            atomicSge.setLength(ATOMIC_WORD_SIZE);
+            atomicSge.setLocalKey(sendRegion.getLocalKey());
+            atomicSges.add(atomicSge);
 
-            if (event.getEventType() != ConnectionEvent.EventType.RDMA_CM_EVENT_ESTABLISHED) {
-                Log.ERROR_AND_EXIT("CONNECTION",
-                        "Error while accepting an incoming connection! Error: Received wrong event type '%s'",
-                        event.getEventType());
-            }
+            id.accept(connectionParams);
 
-            eventChannel.ackConnectionEvent(event);
+            listener.awaitEvent(ConnectionEvent.EventType.RDMA_CM_EVENT_ESTABLISHED);
         } catch(Exception e) {
-            Log.ERROR_AND_EXIT("CONNECTION",
-                    "Error while accepting an incoming connection! Error: Received wrong event type '%s'",
+            Log.ERROR_AND_EXIT("CONNECTION", "Error while accepting an incoming connection! Error: %s",
                     e.getMessage());
         }
 
         try {
-            serverSocket = new ServerSocket();
-
-            if(bindAddress == null || bindAddress.isEmpty()) {
-                serverSocket.bind(new InetSocketAddress(port));
-            } else {
-                serverSocket.bind(new InetSocketAddress(bindAddress, port));
-            }
-
-            socket = Objects.requireNonNull(serverSocket).accept();
+            socket = listener.serverSocket.accept();
         } catch (Exception e) {
             Log.ERROR_AND_EXIT("CONNECTION", "Error while accepting an incoming connection! Error: %s",
                     e.getMessage());
         }
 
         exchangeRdmaInfo();
+        preparePostMethods();
 
         Log.INFO("CONNECTION", "Successfully established a connection to a client!");
     }
 
     /**
      * Exchange the address and remote key of the receive memory regions with the remote host, so that rdma can be used.
+     *
+     * The offset of the word, on which the remote host executes its atomic operations, is exchanged as well.
      */
     private void exchangeRdmaInfo() {
         try {
-            DataInputStream inputStream = new DataInputStream(socket.getInputStream());
-            DataOutputStream outputStream = new DataOutputStream(socket.getOutputStream());
+            socketInputStream = new DataInputStream(socket.getInputStream());
+            socketOutputStream = new DataOutputStream(socket.getOutputStream());
 
-            byte[] outputBuf = String.format("%08x:%016x", recvRegion.getRemoteKey(), recvRegion.getAddress()).getBytes();
+            byte[] outputBuf = String.format("%08x:%016x:%08x", recvRegion.getRemoteKey(), recvRegion.getAddress(),
+                    atomicWordOffset).getBytes();
             byte[] inputBuf = new byte[outputBuf.length];
 
-            outputStream.write(outputBuf);
-            inputStream.readFully(inputBuf);
+            socketOutputStream.write(outputBuf);
+            socketInputStream.readFully(inputBuf);
 
             String[] data = new String(inputBuf).split(":");
 
             remoteKey = Integer.parseUnsignedInt(data[0], 16);
             remoteAddress = Long.parseUnsignedLong(data[1], 16);
+            remoteWordAddress = remoteAddress + Integer.parseUnsignedInt(data[2], 16);
 
             Log.INFO("CONNECTION", "Successfully exchanged rdma information with the remote host! " +
-                    "Received: 0x%08x, 0x%016x", remoteKey, remoteAddress);
+                    "Received: 0x%08x, 0x%016x, 0x%016x", remoteKey, remoteAddress, remoteWordAddress);
         } catch(Exception e) {
             Log.ERROR_AND_EXIT("CONNECTION",
                     "Unable to exchange rdma information with the remote host! Error: %s", e.getMessage());
         }
     }
 
+    /**
+     * Prepare the stateful verbs calls, that post work requests, for all batch sizes at once.
+     *
+     * The work requests are initialized here, so that posting them later only executes an already prepared call
+     * and allocates no memory (see JVerbsWrapper.preparePostSends()). Must be called again,
+     * after the scatter gather elements have been changed, as each call contains a serialized copy of them.
+     */
+    private void preparePostMethods() {
+        // Inline payloads are copied into the work request by the CPU, so the HCA does not need to read sendBuf
+        int inline = messageSize <= getInlineThreshold() ? SendWorkRequest.IBV_SEND_INLINE : 0;
+        int signaled = SendWorkRequest.IBV_SEND_SIGNALED | inline;
+
+        // An rdma write with immediate data writes the message into the remote receive buffer, like a plain write,
+        // but also consumes a receive of the remote host, so that the remote host is notified by a completion.
+        // The immediate data carries the message size, which the remote host checks (see pollCompletionQueue()).
+        SendWorkRequest.Opcode messageOpcode = immediateWrites ? SendWorkRequest.Opcode.IBV_WR_RDMA_WRITE_WITH_IMM :
+                SendWorkRequest.Opcode.IBV_WR_SEND;
+
+        try {
+            for(SendWorkRequest sendWr : sendWrs) {
+                sendWr.setWorkRequestId(1);
+                sendWr.setSgeList(sendSges);
+                sendWr.setOpcode(messageOpcode);
+                sendWr.setImmediateData(messageSize);
+                sendWr.getRdma().setRemoteAddress(remoteAddress);
+                sendWr.getRdma().setRemoteKey(remoteKey);
+            }
+
+            if(signalInterval == 1) {
+                sendMethods = wrapper.preparePostSends(sendWrs, signaled, signaled);
+            } else {
+                sendMethods = wrapper.preparePostSends(sendWrs, inline, inline);
+                signaledSendMethods = wrapper.preparePostSends(sendWrs, inline, signaled);
+            }
+
+            for(SendWorkRequest sendWr : sendWrs) {
+                sendWr.setOpcode(SendWorkRequest.Opcode.IBV_WR_RDMA_WRITE);
+            }
+
+            if(signalInterval == 1) {
+                writeMethods = wrapper.preparePostSends(sendWrs, signaled, signaled);
+            } else {
+                writeMethods = wrapper.preparePostSends(sendWrs, inline, inline);
+                signaledWriteMethods = wrapper.preparePostSends(sendWrs, inline, signaled);
+            }
+
+            // An rdma read pulls the remote receive buffer into the local receive buffer (never inline)
+            for(SendWorkRequest sendWr : sendWrs) {
+                sendWr.setSgeList(recvSges);
+                sendWr.setOpcode(SendWorkRequest.Opcode.IBV_WR_RDMA_READ);
+            }
+
+            if(signalInterval == 1) {
+                readMethods = wrapper.preparePostSends(sendWrs, SendWorkRequest.IBV_SEND_SIGNALED,
+                        SendWorkRequest.IBV_SEND_SIGNALED);
+            } else {
+                readMethods = wrapper.preparePostSends(sendWrs, 0, 0);
+                signaledReadMethods = wrapper.preparePostSends(sendWrs, 0, SendWorkRequest.IBV_SEND_SIGNALED);
+            }
+
+            if(atomics) {
+                prepareAtomicMethods();
+            }
+
+            for(ReceiveWorkRequest recvWr : recvWrs) {
+                recvWr.setWorkRequestId(1);
+                recvWr.setSgeList(recvSges);
+            }
+
+            recvMethods = wrapper.preparePostReceives(recvWrs);
+        } catch (Exception e) {
+            Log.ERROR_AND_EXIT("CONNECTION", "Unable to prepare posting work requests! Error: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Prepare the stateful verbs calls, that post atomic operations on the remote word.
+     *
+     * The original value of the remote word is written into the local atomic scatter gather element (never inline).
+     * Fetch-and-add adds 1 to the word, while compare-and-swap tries to swap it from 0 to 1, like acquiring a lock.
+     * Whether the swap succeeds, does not change the costs of the operation.
+     */
+    private void prepareAtomicMethods() throws Exception {
+        // The HCA rejects atomic operations on words, that are not naturally aligned
+        if(remoteWordAddress % ATOMIC_WORD_SIZE != 0) {
+            Log.ERROR_AND_EXIT("CONNECTION", "The remote word at 0x%016x is not aligned to %d bytes!",
+                    remoteWordAddress, ATOMIC_WORD_SIZE);
+        }
+
+        for(SendWorkRequest sendWr : sendWrs) {
+            sendWr.setSgeList(atomicSges);
+            sendWr.setOpcode(SendWorkRequest.Opcode.IBV_WR_ATOMIC_FETCH_AND_ADD);
+            sendWr.getAtomic().setRemoteAddress(remoteWordAddress);
+            sendWr.getAtomic().setRemoteKey(remoteKey);
+            sendWr.getAtomic().setCompareAdd(1);
+        }
+
+        if(signalInterval == 1) {
+            fetchAddMethods = wrapper.preparePostSends(sendWrs, SendWorkRequest.IBV_SEND_SIGNALED,
+                    SendWorkRequest.IBV_SEND_SIGNALED);
+        } else {
+            fetchAddMethods = wrapper.preparePostSends(sendWrs, 0, 0);
+            signaledFetchAddMethods = wrapper.preparePostSends(sendWrs, 0, SendWorkRequest.IBV_SEND_SIGNALED);
+        }
+
+        for(SendWorkRequest sendWr : sendWrs) {
+            sendWr.setOpcode(SendWorkRequest.Opcode.IBV_WR_ATOMIC_CMP_AND_SWP);
+            sendWr.getAtomic().setCompareAdd(0);
+            sendWr.getAtomic().setSwap(1);
+        }
+
+        if(signalInterval == 1) {
+            compareSwapMethods = wrapper.preparePostSends(sendWrs, SendWorkRequest.IBV_SEND_SIGNALED,
+                    SendWorkRequest.IBV_SEND_SIGNALED);
+        } else {
+            compareSwapMethods = wrapper.preparePostSends(sendWrs, 0, 0);
+            signaledCompareSwapMethods = wrapper.preparePostSends(sendWrs, 0, SendWorkRequest.IBV_SEND_SIGNALED);
+        }
+    }
+
     /**
      * Disconnect from the remote host.
      */
+    @Override
     void close() {
         Log.INFO("CONNECTION", "Closing connection...");
 
@@ -415,21 +784,30 @@ class Connection {
 
             id.disconnect();
 
-            ConnectionEvent event = eventChannel.getConnectionEvent(-1);
+            if(listener == null) {
+                ConnectionEvent event = eventChannel.getConnectionEvent(-1);
 
-            if (event.getEventType() != ConnectionEvent.EventType.RDMA_CM_EVENT_DISCONNECTED) {
-                Log.WARN("CONNECTION", "Error while disconnecting! Error: Received wrong event type '%s'",
-                        event.getEventType());
-            }
+                if (event.getEventType() != ConnectionEvent.EventType.RDMA_CM_EVENT_DISCONNECTED) {
+                    Log.WARN("CONNECTION", "Error while disconnecting! Error: Received wrong event type '%s'",
+                            event.getEventType());
+                }
 
-            eventChannel.ackConnectionEvent(event);
+                eventChannel.ackConnectionEvent(event);
+            } else {
+                listener.awaitEvent(ConnectionEvent.EventType.RDMA_CM_EVENT_DISCONNECTED);
+            }
 
             wrapper.deregisterMemoryRegion(sendRegion);
             wrapper.deregisterMemoryRegion(recvRegion);
             wrapper.destroy();
 
             id.destroy();
-            eventChannel.destroyEventChannel();
+
+            if(listener == null) {
+                eventChannel.destroyEventChannel();
+            } else if(ownsListener) {
+                listener.close();
+            }
         } catch (Exception e) {
             Log.WARN("CONNECTION", "Unable to close connection! Error: %s", e.getMessage());
 
@@ -442,32 +820,24 @@ class Connection {
     /**
      * Send a specified amount of messages to the remote host.
      *
+     * Each message consumes a receive, that the remote host has posted (see recvMessages()),
+     * regardless of whether it is sent as a send or as an rdma write with immediate data.
+     * If a one-sided operation has been set, it is performed instead (see setOneSidedOperation()).
+     *
      * @param msgCount The amount of messages to be sent
      *
      * @throws Exception DataOutputStream.write() may throw an Exception
      */
+    @Override
     void sendMessages(long msgCount) throws Exception {
         if(msgCount <= 0) {
             return;
         }
 
-        sendWrList.clear();
-
-        for(int i = 0; i < msgCount; i++) {
-            sendWrs[i].setWorkRequestId(1);
-            sendWrs[i].setSgeList(sendSges);
-            sendWrs[i].setOpcode(SendWorkRequest.Opcode.IBV_WR_SEND);
-            sendWrs[i].setSendFlags(SendWorkRequest.IBV_SEND_SIGNALED);
-
-            sendWrList.add(sendWrs[i]);
-        }
-
-        PostSendMethod sendMethod = wrapper.getPostSendMethod(sendWrList);
-
-        sendMethod.execute();
-
-        if(!sendMethod.isSuccess()) {
-            Log.ERROR_AND_EXIT("CONNECTION", "PostSendMethod failed!");
+        if(oneSidedOperation != null) {
+            rdma(oneSidedOperation, msgCount);
+        } else {
+            postSends(sendMethods, signaledSendMethods, msgCount);
         }
     }
 
@@ -476,67 +846,251 @@ class Connection {
      *
      * @param msgCount The amount of messages to be sent
      */
+    @Override
     void recvMessages(long msgCount) throws Exception {
         if(msgCount <= 0) {
             return;
         }
 
-        recvWrList.clear();
+        int batchSizes = recvMethods.length;
 
-        for(int i = 0; i < msgCount; i++) {
-            recvWrs[i].setWorkRequestId(1);
-            recvWrs[i].setSgeList(recvSges);
-
-            recvWrList.add(recvWrs[i]);
+        if(msgCount >= 1L << batchSizes) {
+            Log.ERROR_AND_EXIT("CONNECTION", "Unable to post %d receives at once (queue size: %d)!", msgCount,
+                    queueSize);
         }
 
-        PostReceiveMethod receiveMethod = wrapper.getPostReceiveMethod(recvWrList);
+        for(int i = batchSizes - 1; i >= 0; i--) {
+            if((msgCount & (1L << i)) != 0) {
+                PostReceiveMethod receiveMethod = recvMethods[i];
 
-        receiveMethod.execute();
+                receiveMethod.execute();
 
-        if(!receiveMethod.isSuccess()) {
-            Log.ERROR_AND_EXIT("CONNECTION", "PostReceiveMethod failed!");
+                if(!receiveMethod.isSuccess()) {
+                    Log.ERROR_AND_EXIT("CONNECTION", "PostReceiveMethod failed!");
+                }
+            }
         }
+
+        postedRecvs += msgCount;
     }
 
     /**
-     * Use RDMA to write a given amount of times to the remote host.
+     * Perform a one-sided operation on the remote host's receive buffer a given amount of times.
+     *
+     * At most 'read depth' reads and atomic operations are processed by the remote host at the same time
+     * (see setReadDepth()). The HCA holds back the remaining ones, until a previous one has completed.
+     * Atomic operations require atomics to be enabled (see setAtomicWordOffset()).
      *
-     * @param count The amount of rdma writes to be performed
+     * @param operation The operation to be performed
+     * @param count The amount of operations to be performed
      */
-    void rdmaWrite(long count) throws Exception {
+    void rdma(RdmaOperation operation, long count) throws Exception {
         if(count <= 0) {
             return;
         }
 
-        sendWrList.clear();
+        switch (operation) {
+            case WRITE:
+                postSends(writeMethods, signaledWriteMethods, count);
+                break;
+            case READ:
+                postSends(readMethods, signaledReadMethods, count);
+                break;
+            case FETCH_AND_ADD:
+                postSends(fetchAddMethods, signaledFetchAddMethods, count);
+                break;
+            case COMPARE_AND_SWAP:
+                postSends(compareSwapMethods, signaledCompareSwapMethods, count);
+                break;
+        }
+    }
 
-        for(int i = 0; i < count; i++) {
-            sendWrs[i].setWorkRequestId(1);
-            sendWrs[i].setSgeList(sendSges);
-            sendWrs[i].setOpcode(SendWorkRequest.Opcode.IBV_WR_RDMA_WRITE);
-            sendWrs[i].setSendFlags(SendWorkRequest.IBV_SEND_SIGNALED);
-            sendWrs[i].getRdma().setRemoteAddress(remoteAddress);
-            sendWrs[i].getRdma().setRemoteKey(remoteKey);
+    /**
+     * Post a given amount of send work requests with the prepared stateful verbs calls.
+     *
+     * If the signal interval is larger than 1, the work requests are split at every signal-interval-th work request
+     * (counted over all posts), which is posted as the signaled last work request of its batch.
+     *
+     * @param methods The prepared calls (see sendMethods), indexed by the binary logarithm of their batch size
+     * @param signaledMethods The prepared calls, whose last work request is signaled (see signaledSendMethods)
+     * @param count The amount of work requests (at most the queue size)
+     */
+    private void postSends(PostSendMethod[] methods, PostSendMethod[] signaledMethods, long count) throws Exception {
+        if(count >= 1L << methods.length) {
+            Log.ERROR_AND_EXIT("CONNECTION", "Unable to post %d work requests at once (queue size: %d)!", count,
+                    queueSize);
+        }
+
+        if(signalInterval == 1) {
+            postBatches(methods, null, count);
+            return;
+        }
 
-            sendWrList.add(sendWrs[i]);
+        while(count > 0) {
+            int untilSignal = signalInterval - unsignaledSends;
+            int batchSize = (int) Math.min(count, untilSignal);
+
+            count -= batchSize;
+
+            if(batchSize == untilSignal || (signalNextPost && count == 0)) {
+                postBatches(methods, signaledMethods, batchSize);
+
+                signaledSends[(int) (postedSignals++ % signaledSends.length)] = unsignaledSends + batchSize;
+                unsignaledSends = 0;
+            } else {
+                postBatches(methods, null, batchSize);
+
+                unsignaledSends += batchSize;
+            }
         }
 
-        PostSendMethod sendMethod = wrapper.getPostSendMethod(sendWrList);
+        signalNextPost = false;
+    }
+
+    /**
+     * Post a given amount of send work requests by executing one prepared call per set bit of the amount
+     * (e.g. 10 work requests are posted as a batch of 8 and a batch of 2).
+     *
+     * @param methods The prepared calls, indexed by the binary logarithm of their batch size
+     * @param signaledMethods The prepared calls, whose last work request is signaled, to post the last batch with
+     *                        (null, to post all batches with methods)
+     * @param count The amount of work requests (less than 2^methods.length)
+     */
+    private void postBatches(PostSendMethod[] methods, PostSendMethod[] signaledMethods, long count)
+            throws Exception {
+        int last = Long.numberOfTrailingZeros(count);
 
-        sendMethod.execute();
+        for(int i = methods.length - 1; i >= last; i--) {
+            if((count & (1L << i)) != 0) {
+                PostSendMethod sendMethod = i == last && signaledMethods != null ? signaledMethods[i] : methods[i];
 
-        if(!sendMethod.isSuccess()) {
-            Log.ERROR_AND_EXIT("CONNECTION", "PostSendMethod failed!");
+                sendMethod.execute();
+
+                if(!sendMethod.isSuccess()) {
+                    Log.ERROR_AND_EXIT("CONNECTION", "PostSendMethod failed!");
+                }
+            }
         }
     }
 
     /**
-     * Poll completions from the completion queue.
+     * Signal the last work request of the next post of messages or rdma operations, regardless of the signal interval.
+     *
+     * Must be called before the last post of a run, so that the completions of all posted work requests
+     * can be polled (has no effect, if the signal interval is 1).
+     */
+    @Override
+    void signalNextPost() {
+        signalNextPost = true;
+    }
+
+    /**
+     * Check whether send work requests have been posted, which are not completed by any signaled work request yet.
+     */
+    @Override
+    boolean hasUnsignaledSends() {
+        return unsignaledSends > 0;
+    }
+
+    /**
+     * Set the maximum amount of rdma reads and atomic operations, that may be outstanding at the same time.
+     *
+     * Sets the initiator depth (operations, that this host issues) and the responder resources (operations, that
+     * this host serves) of the connection, which are negotiated with the remote host. The device may not support
+     * more than a few (e.g. 16). Must be called before the connection is established.
+     *
+     * @param readDepth The maximum amount of outstanding rdma reads and atomic operations
+     */
+    void setReadDepth(int readDepth) {
+        connectionParams.setInitiatorDepth(readDepth);
+        connectionParams.setResponderResources(readDepth);
+    }
+
+    /**
+     * Send messages and rdma writes up to a given size inline, so that the HCA does not have to read
+     * their payload from the send buffer via DMA.
+     *
+     * Must be called before the connection is established, as the threshold is a capability of the queue pair.
+     *
+     * @param inlineThreshold The maximum size of an inline message in bytes (0 = no inline sends)
+     */
+    void setInlineThreshold(int inlineThreshold) {
+        this.inlineThreshold = inlineThreshold;
+    }
+
+    /**
+     * Get the maximum size of an inline message, after the connection has been established.
+     *
+     * @return The requested threshold, limited by the amount of inline data, that the device has granted
+     *         (0, if no inline sends have been requested)
+     */
+    int getInlineThreshold() {
+        return Math.min(inlineThreshold, wrapper.getMaxInlineData());
+    }
+
+    /**
+     * Get the maximum amount of inline data, that the device has granted to the queue pair.
+     */
+    int getGrantedInlineData() {
+        return wrapper.getMaxInlineData();
+    }
+
+    /**
+     * Only signal every n-th send work request, so that fewer completions have to be polled.
+     *
+     * Send completions are only polled for the signaled work requests, but pollSendCompletions() returns the amount
+     * of work requests, that have been completed by them, so that the queue slots can still be counted per work
+     * request. Must be called before the connection is established.
+     *
+     * @param signalInterval The signal interval (1 = signal every work request)
+     */
+    void setSignalInterval(int signalInterval) {
+        this.signalInterval = signalInterval;
+    }
+
+    /**
+     * Poll completions from the send completion queue.
+     *
+     * @return The amount of send work requests, that have been completed by the polled work completions
+     *         (see setSignalInterval())
+     */
+    @Override
+    int pollSendCompletions() throws Exception {
+        int polled = pollCompletionQueue(JVerbsWrapper.CqType.SEND_CQ);
+
+        if(signalInterval == 1) {
+            return polled;
+        }
+
+        int completed = 0;
+
+        for(int i = 0; i < polled; i++) {
+            completed += signaledSends[(int) (polledSignals++ % signaledSends.length)];
+        }
+
+        return completed;
+    }
+
+    /**
+     * Poll completions from the receive completion queue.
+     *
+     * Received payloads are copied into the sink, if one has been set.
+     *
+     * @return The amount of polled work completions
+     */
+    @Override
+    int pollRecvCompletions() throws Exception {
+        return pollCompletionQueue(JVerbsWrapper.CqType.RECV_CQ);
+    }
+
+    /**
+     * Poll completions from a completion queue.
+     *
+     * @param type The completion queue to poll
      *
      * @return The amount of polled work completions
      */
-    int pollCompletionQueue(JVerbsWrapper.CqType type) throws Exception {
+    private int pollCompletionQueue(JVerbsWrapper.CqType type) throws Exception {
         PollCQMethod pollMethod = wrapper.getPollCqMethod(type);
 
         pollMethod.execute();
@@ -547,6 +1101,10 @@ class Connection {
 
         int polled = pollMethod.getPolls();
 
+        if(type == JVerbsWrapper.CqType.RECV_CQ) {
+            postedRecvs -= polled;
+        }
+
         WorkCompletion[] workComps = wrapper.getWorkCompletions();
 
         for(int i = 0; i < polled; i++) {
@@ -554,22 +1112,344 @@ class Connection {
                 Log.ERROR_AND_EXIT("CONNECTION", "Work completion failed! Status: " +
                         workComps[i].getStatus());
             }
+
+            if(immediateWrites && type == JVerbsWrapper.CqType.RECV_CQ) {
+                checkImmediateCompletion(workComps[i]);
+            }
+
+            if(sink != null && type == JVerbsWrapper.CqType.RECV_CQ) {
+                // Copy the received payload out of the registered buffer, as the mapped file itself can not be
+                // registered as a memory region on most kernels (long term pinning of page cache pages)
+                recvBuf.clear();
+                recvBuf.limit(messageSize);
+                sink.write(recvBuf);
+            }
         }
 
         return polled;
     }
 
+    /**
+     * Check, that a receive completion has been generated by an rdma write with immediate data of the current
+     * message size, so that a completion of a plain send or a write of another size is not counted as a message.
+     *
+     * @param workComp The receive completion
+     */
+    private void checkImmediateCompletion(WorkCompletion workComp) {
+        if(workComp.getOpcode() != WorkCompletion.Opcode.IBV_WC_RECV_RDMA_WITH_IMM) {
+            Log.ERROR_AND_EXIT("CONNECTION", "Received a completion with opcode %s instead of an rdma write " +
+                    "with immediate data!", workComp.getOpcode());
+        }
+
+        if(workComp.getImmediateData() != messageSize) {
+            Log.ERROR_AND_EXIT("CONNECTION", "Received an rdma write with immediate data %d, but expected " +
+                    "the message size %d!", workComp.getImmediateData(), messageSize);
+        }
+    }
+
+    /**
+     * Set the size of the messages, that are sent, received and written from now on.
+     *
+     * The memory regions are only registered once with the size, that has been given to the constructor,
+     * and only the length of the scatter gather elements changes, so that a message size sweep
+     * does not need to register memory again. Must be called after the connection has been established.
+     *
+     * @param messageSize The message size in bytes (at most the buffer size)
+     */
+    @Override
+    void setMessageSize(int messageSize) {
+        this.messageSize = messageSize;
+
+        sendSges.getFirst().setLength(messageSize);
+        recvSges.getFirst().setLength(messageSize);
+
+        try {
+            wrapper.freePostMethods();
+        } catch (Exception e) {
+            Log.ERROR_AND_EXIT("CONNECTION", "Unable to free the prepared work requests! Error: %s",
+                    e.getMessage());
+        }
+
+        preparePostMethods();
+    }
+
+    /**
+     * Get the amount of receive work requests, that have been posted, but whose completions have not been polled yet.
+     *
+     * Receives may be left over from a previous run (e.g. the warmup phase), as a duration-based run does not know
+     * in advance, how many messages will arrive.
+     */
+    @Override
+    long getPostedReceives() {
+        return postedRecvs;
+    }
+
+    /**
+     * Store all received payloads in a memory mapped file, instead of discarding them.
+     *
+     * @param sink The sink, into which received payloads are stored (null, to discard received payloads)
+     */
+    void setSink(MappedSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Allow the remote host to execute atomic operations on a word of the receive buffer, and prepare
+     * posting atomic operations on the word, that the remote host offers.
+     *
+     * Several clients of a server can either target the same word (offset 0 for all of them) or a word of their own
+     * (see ATOMIC_WORD_STRIDE), to compare contended and uncontended atomics. Must be called before the connection
+     * is established, as the receive buffer is registered for remote atomic access.
+     *
+     * @param atomicWordOffset The offset of the word in the receive buffer, on which the remote host executes its
+     *                         atomic operations (a multiple of ATOMIC_WORD_SIZE)
+     */
+    void setAtomicWordOffset(int atomicWordOffset) {
+        this.atomics = true;
+        this.atomicWordOffset = atomicWordOffset;
+    }
+
+    /**
+     * Send messages as rdma writes with immediate data, instead of sends.
+     *
+     * The payload is written into the remote host's receive buffer, and the immediate data notifies the remote host
+     * with a receive completion, so that both sides can be measured like with sends (see recvMessages()).
+     * The immediate data is the message size, and the receiving side only counts completions of rdma writes
+     * with immediate data, that carry its own message size.
+     * Must be called before the connection is established.
+     *
+     * @param immediateWrites Whether to send messages as rdma writes with immediate data
+     */
+    void setImmediateWrites(boolean immediateWrites) {
+        this.immediateWrites = immediateWrites;
+    }
+
+    /**
+     * Perform a one-sided operation on the remote host's receive buffer, whenever messages are posted
+     * by sendMessages(), so that the benchmarks can drive rdma writes, reads and atomics like messages.
+     *
+     * The remote host does not post any receives for one-sided operations, but only waits for the amount of
+     * operations, that is announced at the end of a run (see announceEnd()).
+     *
+     * @param operation The operation to be performed (null, to send messages)
+     */
+    void setOneSidedOperation(RdmaOperation operation) {
+        this.oneSidedOperation = operation;
+    }
+
     /**
      * Get the queue size of the InfiniBand queue pairs.
      */
+    @Override
     int getQueueSize() {
         return queueSize;
     }
 
+    /**
+     * Write the start command to the TCP-socket.
+     *
+     * @throws IOException If the socket fails
+     */
+    @Override
+    void announceStart() throws IOException {
+        socketOutputStream.write(START_COMMAND);
+    }
+
+    /**
+     * Wait for the start command of the remote host on the TCP-socket.
+     *
+     * @throws IOException If the socket fails, or the remote host closed the connection
+     */
+    @Override
+    void awaitStart() throws IOException {
+        socketInputStream.readFully(startBuf);
+    }
+
+    /**
+     * Write the amount of messages (or one-sided operations), that have been completed in this run,
+     * to the TCP-socket.
+     *
+     * The receive completions of the remote host may arrive later than the announcement, so that the remote host
+     * needs the amount to know, how many completions it still has to poll.
+     *
+     * @param count The amount of messages, that have been sent in this run
+     *
+     * @throws IOException If the socket fails
+     */
+    @Override
+    void announceEnd(long count) throws IOException {
+        socketOutputStream.writeLong(count);
+    }
+
+    /**
+     * Read the amount of messages, that the remote host has announced at the end of its run.
+     *
+     * As available() is a system call, the socket is only checked every ANNOUNCEMENT_CHECK_INTERVAL-th time.
+     *
+     * @param received The amount of messages, that have been received in this run (not needed, as the
+     *                 announcement contains the amount)
+     *
+     * @return The announced amount of messages, or -1, if nothing has been announced yet
+     *
+     * @throws IOException If the socket fails, or the remote host closed the connection
+     */
+    @Override
+    long pollAnnouncedEnd(long received) throws IOException {
+        if(++announcementChecks % ANNOUNCEMENT_CHECK_INTERVAL != 0 || socketInputStream.available() < Long.BYTES) {
+            return -1;
+        }
+
+        return socketInputStream.readLong();
+    }
+
+    /**
+     * Bind the client's sockets to an ephemeral port, instead of the server's port.
+     *
+     * By default, a client uses the server's port as its local port. This does not work, if a host opens
+     * many connections to the same port in a short time, since a closed connection occupies its port for a while.
+     *
+     * @param ephemeralPort Whether to let the operating system choose the local port
+     */
+    void setEphemeralPort(boolean ephemeralPort) {
+        this.ephemeralPort = ephemeralPort;
+    }
+
+    /**
+     * Get the time in nanoseconds, that each phase of connectToServer() has taken.
+     *
+     * Only the phases from resolving the address up to exchanging the rdma information are set.
+     */
+    long[] getSetupTimes() {
+        return setupTimes;
+    }
+
     /**
      * Get the socket, that is used to exchange the rdma parameters.
      */
     Socket getSocket() {
         return socket;
     }
+
+    /**
+     * Listens for remote clients on a single port, so that a server can accept many clients.
+     *
+     * The connection requests are accepted one after another: A client only connects its TCP-socket
+     * after its RDMA connection has been established, so the next socket, that is accepted,
+     * always belongs to the connection, that has been established last.
+     */
+    static class Listener implements Closeable {
+
+        /**
+         * The event channel, on which all connection events of the listener and the accepted connections arrive.
+         */
+        private EventChannel eventChannel;
+
+        /**
+         * The listening jVerbs connection id.
+         */
+        private ConnectionId serverId;
+
+        /**
+         * The TCP-socket, on which the clients connect to exchange the rdma parameters.
+         */
+        private ServerSocket serverSocket;
+
+        /**
+         * Connection ids of requests, that have arrived while another connection was being established.
+         */
+        private final LinkedList<ConnectionId> pendingRequests = new LinkedList<>();
+
+        /**
+         * Start listening for remote clients.
+         *
+         * @param bindAddress The address to bind the sockets to (may be null, or empty string)
+         * @param port The TCP-port to listen on
+         */
+        Listener(String bindAddress, int port) {
+            InetSocketAddress address = bindAddress == null || bindAddress.isEmpty() ?
+                    new InetSocketAddress(port) : new InetSocketAddress(bindAddress, port);
+
+            try {
+                eventChannel = EventChannel.createEventChannel();
+                serverId = ConnectionId.create(eventChannel, PortSpace.RDMA_PS_TCP);
+            } catch (Exception e) {
+                Log.ERROR_AND_EXIT("CONNECTION", "Unable to create connection id! Error: %s", e.getMessage());
+            }
+
+            try {
+                serverId.bindAddress(address);
+                serverId.listen(0);
+
+                serverSocket = new ServerSocket();
+                serverSocket.bind(address);
+            } catch (Exception e) {
+                Log.ERROR_AND_EXIT("CONNECTION", "Unable to bind address! Error: %s", e.getMessage());
+            }
+        }
+
+        /**
+         * Wait for the next connection request.
+         *
+         * @return The connection id of the requesting client
+         */
+        private ConnectionId nextRequest() throws Exception {
+            if(!pendingRequests.isEmpty()) {
+                return pendingRequests.removeFirst();
+            }
+
+            ConnectionEvent event = eventChannel.getConnectionEvent(-1);
+
+            if(event.getEventType() != ConnectionEvent.EventType.RDMA_CM_EVENT_CONNECT_REQUEST) {
+                throw new IOException(String.format("Received wrong event type '%s'", event.getEventType()));
+            }
+
+            eventChannel.ackConnectionEvent(event);
+
+            return event.getConnectionId();
+        }
+
+        /**
+         * Wait for an event of the given type (e.g. until a connection is established or disconnected).
+         *
+         * Connection requests of other clients, that arrive in the meantime, are queued. The event is not
+         * matched against a specific connection id, since every accepted connection produces exactly one event
+         * of each type, so closing the connections in a different order than their clients is harmless.
+         *
+         * @param expected The type of the event to wait for
+         */
+        private void awaitEvent(ConnectionEvent.EventType expected) throws Exception {
+            while(true) {
+                ConnectionEvent event = eventChannel.getConnectionEvent(-1);
+                ConnectionEvent.EventType type = event.getEventType();
+
+                if(type == ConnectionEvent.EventType.RDMA_CM_EVENT_CONNECT_REQUEST) {
+                    pendingRequests.add(event.getConnectionId());
+                }
+
+                eventChannel.ackConnectionEvent(event);
+
+                if(type == expected) {
+                    return;
+                } else if(type != ConnectionEvent.EventType.RDMA_CM_EVENT_CONNECT_REQUEST) {
+                    throw new IOException(String.format("Received wrong event type '%s'", type));
+                }
+            }
+        }
+
+        /**
+         * Stop listening and destroy the event channel.
+         *
+         * Must only be called after all accepted connections have been closed.
+         */
+        @Override
+        public void close() {
+            try {
+                serverSocket.close();
+                serverId.destroy();
+                eventChannel.destroyEventChannel();
+            } catch (Exception e) {
+                Log.WARN("CONNECTION", "Unable to close listener! Error: %s", e.getMessage());
+            }
+        }
+    }
 }
@@ -1,69 +0,0 @@
-/* DO NOT EDIT THIS FILE - it is machine generated */
-#include <jni.h>
-/* Header for class IbPerfCounter */
-
-#ifndef _Included_IbPerfCounter
-#define _Included_IbPerfCounter
-#ifdef __cplusplus
-extern "C" {
-#endif
-/*
- * Class:     IbPerfCounter
- * Method:    init
- * Signature: (Z)Z
- */
-JNIEXPORT jboolean JNICALL Java_IbPerfCounter_init
-  (JNIEnv *, jobject, jboolean, jint);
-
-/*
- * Class:     IbPerfCounter
- * Method:    resetCounters
- * Signature: ()V
- */
-JNIEXPORT void JNICALL Java_IbPerfCounter_resetCounters
-  (JNIEnv *, jobject);
-
-/*
- * Class:     IbPerfCounter
- * Method:    refreshCounters
- * Signature: ()V
- */
-JNIEXPORT void JNICALL Java_IbPerfCounter_refreshCounters
-  (JNIEnv *, jobject);
-
-/*
- * Class:     IbPerfCounter
- * Method:    getXmitDataBytes
- * Signature: ()J
- */
-JNIEXPORT jlong JNICALL Java_IbPerfCounter_getXmitDataBytes
-  (JNIEnv *, jobject);
-
-/*
- * Class:     IbPerfCounter
- * Method:    getRcvDataBytes
- * Signature: ()J
- */
-JNIEXPORT jlong JNICALL Java_IbPerfCounter_getRcvDataBytes
-  (JNIEnv *, jobject);
-
-/*
- * Class:     IbPerfCounter
- * Method:    getXmitPkts
- * Signature: ()J
- */
-JNIEXPORT jlong JNICALL Java_IbPerfCounter_getXmitPkts
-  (JNIEnv *, jobject);
-
-/*
- * Class:     IbPerfCounter
- * Method:    getRcvPkts
- * Signature: ()J
- */
-JNIEXPORT jlong JNICALL Java_IbPerfCounter_getRcvPkts
-  (JNIEnv *, jobject);
-
-#ifdef __cplusplus
-}
-#endif
-#endif
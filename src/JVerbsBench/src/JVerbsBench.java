@@ -1,6 +1,6 @@
 import java.io.*;
-import java.net.URL;
-import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * The main class.
@@ -10,61 +10,85 @@ import java.nio.file.Files;
  * @author Fabian Ruhland, HHU
  * @date 2018
  */
-public class JVerbsBench {
+public class JVerbsBench extends BenchmarkProgram {
 
     /**
-     * The connection mode (server or client).
+     * Released, as soon as the server listens for connection requests, so that loopback clients can connect.
      */
-    private MODE mode = null;
+    private final CountDownLatch listening = new CountDownLatch(1);
 
     /**
-     * The remote host's hostname (only relevant in client mode).
+     * The benchmark to be executed (unidirectional, bidirectional, pingpong, fanin or connect).
      */
-    private String remoteHostname = null;
+    private BENCHMARK benchmark = BENCHMARK.UNIDIRECTIONAL;
 
     /**
-     * The address to bind the local socket to.
+     * The transport type to be used (msg, rdma, rdma-read, atomic or rdma-imm).
      */
-    private String bindAddress = null;
+    private TRANSPORT transport = TRANSPORT.MESSAGING;
 
     /**
-     * The benchmark to be executed (unidirectional, bidirectional or pingpong).
+     * Samples the progress of the benchmark (null, if no interval reporting is done).
      */
-    private BENCHMARK benchmark = BENCHMARK.UNIDIRECTIONAL;
+    private ProgressSampler progressSampler = null;
 
     /**
-     * The transport type to be used (msg or rdma).
+     * The time in milliseconds, that the JIT compiler has spent during the measured run
+     * (-1, if the JVM does not support compilation time monitoring).
      */
-    private TRANSPORT transport = TRANSPORT.MESSAGING;
+    private long measuredCompilationTime = -1;
 
     /**
-     * The buffer size to be used for the messages that are sent/received.
+     * Whether the program fails, if the benchmark threads allocate memory during the measured run.
      */
-    private int bufSize = 1024;
+    private boolean checkAllocations = false;
 
     /**
-     * The amount of messages to send/receive.
+     * The queue size to be used for the queue pair and completion queue.
      */
-    private long messageCount = 1000000;
+    private int queueSize = 100;
 
     /**
-     * The queue size to be used for the queue pair and completion queue.
+     * The amount of work requests, that the throughput benchmarks post at once.
      */
-    private int queueSize = 100;
+    private int postBatch = 10;
+
     /**
-     * The TCP-port to be used for the connection.
+     * Only every n-th send work request is signaled, so that fewer completions have to be polled.
      */
-    private int port = 8888;
+    private int signalInterval = 1;
 
     /**
-     * Infiniband performance counters.
+     * Messages of up to this size are sent inline (0 = no inline sends).
      */
-    private IbPerfCounter perfCounter = null;
+    private int inlineThreshold = 0;
+
+    /**
+     * The maximum amount of rdma reads, that may be outstanding at the same time.
+     */
+    private int readDepth = 1;
 
     /**
-     * The performance counter mode.
+     * The operation, that the atomic transport executes on the remote word.
      */
-    private PERF_COUNTER_MODE perfCounterMode = PERF_COUNTER_MODE.OFF;
+    private Connection.RdmaOperation atomicOperation = Connection.RdmaOperation.FETCH_AND_ADD;
+
+    /**
+     * Whether the clients of the fanin benchmark execute their atomic operations on the same word, or on words of
+     * their own.
+     */
+    private CONTENTION_MODE contentionMode = CONTENTION_MODE.SHARED;
+
+    /**
+     * The amount of clients, that the server accepts in the fanin benchmark
+     * (or the amount of client threads in the connect benchmark).
+     */
+    private int clientCount = 1;
+
+    /**
+     * Infiniband performance counters.
+     */
+    private IbPerfCounter perfCounter = null;
 
     /**
      * The connection.
@@ -74,40 +98,51 @@ public class JVerbsBench {
     /**
      * Contains all benchmarks.
      */
-    private Benchmarks benchmarks = null;
+    private TransportBenchmarks benchmarks = null;
 
     /**
-     * Possible connections modes (server or client).
+     * The connections to all clients of the fanin benchmark (null, if the server is not running the fanin benchmark).
      */
-    private enum MODE {
-        SERVER, /**< Run as server **/
-        CLIENT  /**< Run as client */
-    }
+    private Connection[] clientConnections = null;
 
     /**
-     * Possible benchmarks (unidirectional, bidirectional or pingpong).
+     * The benchmarks of all clients of the fanin benchmark, which have been driven on clientConnections.
+     */
+    private TransportBenchmarks clientBenchmarks = null;
+
+    /**
+     * The sink, into which received payloads are stored (null, if received payloads are discarded).
+     */
+    private MappedSink sink = null;
+
+    /**
+     * Possible benchmarks (unidirectional, bidirectional, pingpong, fanin or connect).
      */
     private enum BENCHMARK {
         UNIDIRECTIONAL, /**< Run a unidirectional benchmark with one sender and one receiver */
         BIDIRECTIONAL,  /**< Run a bidirectional benchmark, where both hosts send and receive simaltaneously */
-        PINGPONG        /**< Run a pingpong benchmark */
+        PINGPONG,       /**< Run a pingpong benchmark */
+        FANIN,          /**< Run a unidirectional benchmark, where several clients send to one server */
+        CONNECT         /**< Establish and close connections as fast as possible */
     }
 
     /**
-     * Possible perf counter modes (off, compat or mad).
+     * Possible transport types (msg, rdma, rdma-read, atomic or rdma-imm).
      */
-    private enum PERF_COUNTER_MODE {
-        OFF,    /**< Do not measure raw statistics */
-        COMPAT, /**< Use the filesystem to measure raw statistics */
-        MAD     /**< Use the ibmad-library to measure raw statistics */
+    private enum TRANSPORT {
+        MESSAGING,  /**< Use messaging for the benchmark */
+        RDMA,       /**< Use rdma writes for the benchmark */
+        RDMA_READ,  /**< Use rdma reads for the benchmark */
+        ATOMIC,     /**< Use atomic operations on a word of the remote host's buffer for the benchmark */
+        RDMA_IMM    /**< Use rdma writes with immediate data, that complete a receive on the remote host */
     }
 
     /**
-     * Possible transport types (msg or rdma).
+     * Possible contention modes of the atomic transport (shared or distinct).
      */
-    private enum TRANSPORT {
-        MESSAGING,  /**< Use messaging for the benchmark */
-        RDMA        /**< Use rdma for the benchmark */
+    private enum CONTENTION_MODE {
+        SHARED,     /**< All clients execute their atomic operations on the same word */
+        DISTINCT    /**< Each client executes its atomic operations on a word of its own */
     }
 
     /**
@@ -125,29 +160,6 @@ public class JVerbsBench {
             }
 
             switch (args[i]) {
-                case "-m":
-                case "--mode":
-                    String mode = args[++i];
-
-                    switch (mode) {
-                        case "server":
-                            this.mode = MODE.SERVER;
-                            break;
-                        case "client":
-                            this.mode = MODE.CLIENT;
-                            break;
-                        default:
-                            Log.ERROR_AND_EXIT("MAIN","Invalid mode '%s'!", mode);
-                    }
-                    break;
-                case "-r":
-                case "--remote":
-                    this.remoteHostname = args[++i];
-                    break;
-                case "-a":
-                case "--address":
-                    this.bindAddress = args[++i];
-                    break;
                 case "-b":
                 case "--benchmark":
                     String benchmark = args[++i];
@@ -162,6 +174,12 @@ public class JVerbsBench {
                         case "pingpong":
                             this.benchmark = BENCHMARK.PINGPONG;
                             break;
+                        case "fanin":
+                            this.benchmark = BENCHMARK.FANIN;
+                            break;
+                        case "connect":
+                            this.benchmark = BENCHMARK.CONNECT;
+                            break;
                         default:
                             Log.ERROR_AND_EXIT("MAIN","Invalid benchmark '%s'!", benchmark);
                     }
@@ -177,48 +195,92 @@ public class JVerbsBench {
                         case "rdma":
                             this.transport = TRANSPORT.RDMA;
                             break;
+                        case "rdma-read":
+                            this.transport = TRANSPORT.RDMA_READ;
+                            break;
+                        case "atomic":
+                            this.transport = TRANSPORT.ATOMIC;
+                            break;
+                        case "rdma-imm":
+                            this.transport = TRANSPORT.RDMA_IMM;
+                            break;
                         default:
-                            Log.ERROR_AND_EXIT("MAIN","Invalid transport '%s'!", true);
+                            Log.ERROR_AND_EXIT("MAIN","Invalid transport '%s'!", transport);
                     }
                     break;
-                case "-s":
-                case "--size":
-                    this.bufSize = Integer.parseUnsignedInt(args[++i]);
-                    break;
-                case "-c":
-                case "--count":
-                    this.messageCount = Long.parseUnsignedLong(args[++i]);
-                    break;
                 case "-q":
                 case "--qsize":
                     this.queueSize = Integer.parseUnsignedInt(args[++i]);
                     break;
-                case "-p":
-                case "--port":
-                    this.port = Integer.parseUnsignedInt(args[++i]);
+                case "-pb":
+                case "--post-batch":
+                    this.postBatch = Integer.parseUnsignedInt(args[++i]);
+                    break;
+                case "-se":
+                case "--signal-every":
+                    this.signalInterval = Integer.parseUnsignedInt(args[++i]);
                     break;
-                case "-rs":
-                case "--raw-statistics":
-                    String perfCounterMode = args[++i];
+                case "-in":
+                case "--inline":
+                    this.inlineThreshold = Integer.parseUnsignedInt(args[++i]);
+                    break;
+                case "-rd":
+                case "--read-depth":
+                    this.readDepth = Integer.parseUnsignedInt(args[++i]);
+                    break;
+                case "-ao":
+                case "--atomic":
+                    String atomicOperation = args[++i];
 
-                    switch (perfCounterMode) {
-                        case "off":
-                            this.perfCounterMode = PERF_COUNTER_MODE.OFF;
+                    switch (atomicOperation) {
+                        case "faa":
+                            this.atomicOperation = Connection.RdmaOperation.FETCH_AND_ADD;
                             break;
-                        case "compat":
-                            this.perfCounterMode = PERF_COUNTER_MODE.COMPAT;
+                        case "cas":
+                            this.atomicOperation = Connection.RdmaOperation.COMPARE_AND_SWAP;
                             break;
-                        case "mad":
-                            this.perfCounterMode = PERF_COUNTER_MODE.MAD;
+                        default:
+                            Log.ERROR_AND_EXIT("MAIN","Invalid atomic operation '%s'!", atomicOperation);
+                    }
+                    break;
+                case "-cn":
+                case "--contention":
+                    String contentionMode = args[++i];
+
+                    switch (contentionMode) {
+                        case "shared":
+                            this.contentionMode = CONTENTION_MODE.SHARED;
+                            break;
+                        case "distinct":
+                            this.contentionMode = CONTENTION_MODE.DISTINCT;
                             break;
                         default:
-                            Log.ERROR_AND_EXIT("MAIN","Invalid perf counter mode '%s'!", perfCounterMode);
+                            Log.ERROR_AND_EXIT("MAIN","Invalid contention mode '%s'!", contentionMode);
                     }
                     break;
-                case "-v":
-                case "--verbosity":
-                    Log.VERBOSITY = Integer.parseUnsignedInt(args[++i]);
+                case "-cl":
+                case "--clients":
+                    this.clientCount = Integer.parseUnsignedInt(args[++i]);
+                    break;
+                case "-ca":
+                case "--check-alloc":
+                    String allocationCheck = args[++i];
+
+                    switch (allocationCheck) {
+                        case "on":
+                            this.checkAllocations = true;
+                            break;
+                        case "off":
+                            this.checkAllocations = false;
+                            break;
+                        default:
+                            Log.ERROR_AND_EXIT("MAIN","Invalid allocation check '%s'!", allocationCheck);
+                    }
                     break;
+                default:
+                    if(parseOption(args[i], args[i + 1])) {
+                        i++;
+                    }
             }
         }
 
@@ -226,43 +288,627 @@ public class JVerbsBench {
             this.perfCounterMode = PERF_COUNTER_MODE.OFF;
         }
 
-        benchmarks = new Benchmarks();
+        if(this.loopback && (this.bindAddress == null || this.bindAddress.isEmpty())) {
+            Log.ERROR_AND_EXIT("MAIN", "The loopback mode requires the address of a local RDMA device " +
+                    "('--address')!");
+        }
+
+        if(this.window == 0 || this.window > this.queueSize) {
+            Log.ERROR_AND_EXIT("MAIN", "The window must be between 1 and the queue size (%d)!", this.queueSize);
+        }
+
+        if(this.postBatch == 0 || this.postBatch > this.queueSize) {
+            Log.ERROR_AND_EXIT("MAIN", "The post batch must be between 1 and the queue size (%d)!", this.queueSize);
+        }
+
+        if(this.readDepth == 0) {
+            Log.ERROR_AND_EXIT("MAIN", "The read depth must be at least 1!");
+        }
+
+        if(this.signalInterval == 0) {
+            Log.ERROR_AND_EXIT("MAIN", "The signal interval must be at least 1!");
+        }
+
+        if(this.signalInterval > 1) {
+            if(this.benchmark == BENCHMARK.PINGPONG || this.benchmark == BENCHMARK.CONNECT) {
+                Log.ERROR_AND_EXIT("MAIN", "Selective signaling can only be used by the throughput benchmarks!");
+            }
+
+            // Unsignaled work requests occupy their queue slots, until the next signaled one has completed
+            if(this.postBatch + this.signalInterval - 1 > this.queueSize) {
+                Log.ERROR_AND_EXIT("MAIN", "The post batch plus the signal interval must not exceed the queue " +
+                        "size (%d) by more than 1!", this.queueSize);
+            }
+        }
+
+        if(this.rate > 0 && this.benchmark != BENCHMARK.PINGPONG) {
+            Log.ERROR_AND_EXIT("MAIN", "A request rate can only be set for the pingpong benchmark!");
+        }
+
+        if(this.benchmark == BENCHMARK.FANIN) {
+            if(this.clientCount == 0) {
+                Log.ERROR_AND_EXIT("MAIN", "The amount of clients must be at least 1!");
+            }
+
+            if(this.messageSizes != null || this.reportInterval > 0 || this.histogramPath != null ||
+                    this.sinkMode != SINK_MODE.DISCARD || this.perfCounterMode != PERF_COUNTER_MODE.OFF) {
+                Log.ERROR_AND_EXIT("MAIN", "The fanin benchmark can not be combined with a message size sweep, " +
+                        "interval reporting, a histogram file, the mmap sink or raw statistics!");
+            }
+        } else if(this.benchmark == BENCHMARK.CONNECT) {
+            if(this.clientCount == 0) {
+                Log.ERROR_AND_EXIT("MAIN", "The amount of clients must be at least 1!");
+            }
+
+            if(this.messageSizes != null || this.reportInterval > 0 || this.histogramPath != null ||
+                    this.warmupCount > 0 || this.warmupDuration > 0 || this.sinkMode != SINK_MODE.DISCARD ||
+                    this.perfCounterMode != PERF_COUNTER_MODE.OFF) {
+                Log.ERROR_AND_EXIT("MAIN", "The connect benchmark can not be combined with a message size " +
+                        "sweep, interval reporting, a histogram file, a warmup phase, the mmap sink or raw " +
+                        "statistics!");
+            }
+        } else if(this.clientCount != 1) {
+            Log.ERROR_AND_EXIT("MAIN", "Multiple clients can only be used by the fanin and the connect " +
+                    "benchmark!");
+        }
+
+        if(this.messageSizes != null) {
+            if(this.reportInterval > 0 || this.histogramPath != null) {
+                Log.ERROR_AND_EXIT("MAIN", "A message size sweep can not be combined with interval reporting " +
+                        "or a histogram file!");
+            }
+
+            if(this.repetitions == 0) {
+                Log.ERROR_AND_EXIT("MAIN", "The amount of repetitions must be at least 1!");
+            }
+
+            // The memory regions are registered with the largest size and reused for the smaller ones
+            this.bufSize = Arrays.stream(this.messageSizes).max().getAsInt();
+        }
+
+        if(this.transport == TRANSPORT.ATOMIC) {
+            if(this.messageSizes != null) {
+                Log.ERROR_AND_EXIT("MAIN", "A message size sweep can not be combined with the atomic transport!");
+            }
+
+            if(this.bufSize < Connection.ATOMIC_WORD_SIZE) {
+                Log.ERROR_AND_EXIT("MAIN", "The atomic transport requires a message size of at least %d bytes!",
+                        Connection.ATOMIC_WORD_SIZE);
+            }
+
+            // The server's receive buffer must hold a word per client
+            if(this.mode == MODE.SERVER && this.benchmark == BENCHMARK.FANIN &&
+                    this.contentionMode == CONTENTION_MODE.DISTINCT &&
+                    getAtomicWordOffset(this.clientCount - 1) + Connection.ATOMIC_WORD_SIZE > this.bufSize) {
+                Log.ERROR_AND_EXIT("MAIN", "Distinct words for %d clients require a message size of at least " +
+                        "%d bytes!", this.clientCount,
+                        getAtomicWordOffset(this.clientCount - 1) + Connection.ATOMIC_WORD_SIZE);
+            }
+        }
+
+        if(this.checkAllocations) {
+            if(!AllocationCounter.isSupported()) {
+                Log.ERROR_AND_EXIT("MAIN", "The JVM does not support counting the allocations of a thread!");
+            }
+
+            if(this.benchmark == BENCHMARK.CONNECT) {
+                Log.ERROR_AND_EXIT("MAIN", "The allocation check can not be combined with the connect benchmark!");
+            }
+        }
+
+        if(this.sinkMode == SINK_MODE.MMAP) {
+            if(!usesMessages()) {
+                Log.ERROR_AND_EXIT("MAIN", "The mmap sink requires the messaging or the rdma-imm transport!");
+            }
+
+            // The server's connections to its clients would all have to share a single sink
+            if(this.benchmark == BENCHMARK.FANIN) {
+                Log.ERROR_AND_EXIT("MAIN", "The mmap sink is not supported by the fanin benchmark!");
+            }
+
+            if(this.sinkSize < this.bufSize || this.sinkSize > Integer.MAX_VALUE) {
+                Log.ERROR_AND_EXIT("MAIN", "The sink size must be between the message size and %d bytes!",
+                        Integer.MAX_VALUE);
+            }
+        }
     }
 
     /**
      * Execute the specified benchmark in a separate thread (or two, when bidirectional is chosen).
      */
     private void run() {
-        Thread sendThread;
-        Thread recvThread;
-
         if(mode == null || (mode == MODE.CLIENT && remoteHostname == null)) {
             printUsage();
             Log.ERROR_AND_EXIT("MAIN", "Missing required parameters!");
         }
 
-        connection = new Connection(bufSize, queueSize);
+        if(benchmark == BENCHMARK.CONNECT) {
+            runConnectBenchmark();
+            return;
+        }
+
+        Connection.Listener listener = null;
 
         if(mode == MODE.SERVER) {
-            connection.connectToClient(bindAddress, port);
+            listener = new Connection.Listener(bindAddress, port);
+            listening.countDown();
+        }
+
+        if(mode == MODE.SERVER && benchmark == BENCHMARK.FANIN) {
+            clientConnections = new Connection[clientCount];
+
+            for(int i = 0; i < clientCount; i++) {
+                clientConnections[i] = new Connection(bufSize, queueSize);
+                clientConnections[i].setSignalInterval(signalInterval);
+                clientConnections[i].setReadDepth(readDepth);
+                clientConnections[i].setImmediateWrites(transport == TRANSPORT.RDMA_IMM);
+
+                if(transport == TRANSPORT.ATOMIC) {
+                    clientConnections[i].setAtomicWordOffset(getAtomicWordOffset(i));
+                }
+
+                clientConnections[i].acceptClient(listener);
+            }
         } else {
-            connection.connectToServer(bindAddress, remoteHostname, port);
+            connection = new Connection(bufSize, queueSize);
+            connection.setSignalInterval(signalInterval);
+            connection.setInlineThreshold(inlineThreshold);
+            connection.setReadDepth(readDepth);
+            connection.setImmediateWrites(transport == TRANSPORT.RDMA_IMM);
+
+            if(transport == TRANSPORT.ATOMIC) {
+                connection.setAtomicWordOffset(getAtomicWordOffset(0));
+            }
+
+            // The pingpong benchmark always exchanges messages
+            if(!usesMessages() && benchmark != BENCHMARK.PINGPONG) {
+                connection.setOneSidedOperation(getRdmaOperation());
+            }
+
+            if(mode == MODE.SERVER) {
+                connection.acceptClient(listener);
+            } else {
+                // A loopback client can not bind the port, on which its server listens
+                connection.setEphemeralPort(loopback);
+                connection.connectToServer(bindAddress, remoteHostname, port);
+            }
+
+            if(inlineThreshold > 0 && connection.getGrantedInlineData() < inlineThreshold) {
+                Log.WARN("MAIN", "The device has only granted %d byte(s) of inline data! " +
+                        "Larger messages are not sent inline.", connection.getGrantedInlineData());
+            }
+        }
+
+        if(sinkMode == SINK_MODE.MMAP) {
+            try {
+                sink = new MappedSink(sinkPath, sinkSize, syncInterval);
+            } catch (IOException e) {
+                Log.ERROR_AND_EXIT("MAIN", "Unable to create mmap sink! Error: %s", e.getMessage());
+            }
+
+            connection.setSink(sink);
         }
 
         if(perfCounterMode == PERF_COUNTER_MODE.COMPAT) {
             perfCounter = new IbPerfCounter(true);
-            perfCounter.resetCounters();
         } else if(perfCounterMode == PERF_COUNTER_MODE.MAD) {
             perfCounter = new IbPerfCounter(false);
+        }
+
+        if(messageSizes != null) {
+            runSweep();
+        } else if(clientConnections != null) {
+            runFanIn();
+        } else {
+            runMeasuredBenchmark();
+        }
+
+        if(clientConnections != null) {
+            for(Connection clientConnection : clientConnections) {
+                clientConnection.close();
+            }
+        } else {
+            connection.close();
+        }
+
+        if(listener != null) {
+            listener.close();
+        }
+
+        if(sink != null) {
+            sink.close();
+        }
+
+        if(mode == MODE.SERVER && clientConnections != null) {
+            printFanInResults();
+
+            if(measuredCompilationTime >= 0) {
+                BenchmarkReport.printCompilationResults(measuredCompilationTime);
+            }
+
+            if(transport == TRANSPORT.ATOMIC) {
+                printAtomicResults();
+            }
+        } else if(mode == MODE.SERVER && messageSizes == null) {
+            printResults();
+
+            if(histogramPath != null) {
+                exportLatencyHistogram();
+            }
+
+            if(measuredCompilationTime >= 0) {
+                BenchmarkReport.printCompilationResults(measuredCompilationTime);
+            }
+
+            if(inlineThreshold > 0) {
+                printInlineResults();
+            }
+
+            if(transport == TRANSPORT.ATOMIC) {
+                printAtomicResults();
+            }
+        } else if(mode == MODE.CLIENT && benchmark == BENCHMARK.FANIN && transport == TRANSPORT.ATOMIC &&
+                !loopback) {
+            // The server only knows the amount of operations, but not their latencies
+            printAtomicResults();
+
+            if(benchmarks.getLatencyHistogram(0).getCount() > 0) {
+                benchmarks.getLatencyHistogram(0).print(getLatencyHistogramTitle(), Log.VERBOSITY == 0);
+            }
+        }
+
+        // In loopback mode, the sink statistics are printed by runLoopback(), once both sides have finished
+        if(sink != null && !loopback) {
+            printSinkResults();
+        }
+
+        if(mode == MODE.CLIENT && !loopback) {
+            System.out.println("See results on server!");
+        }
+    }
+
+    /**
+     * Run the server and its clients on separate threads inside this process.
+     *
+     * Each client is a separate instance, that is created from the same arguments as a client, which connects
+     * to the bind address through the local RDMA device. The clients are only started, once the server listens,
+     * since a connection request to a port without listener is rejected.
+     *
+     * @param args The arguments, that this instance has been created from
+     */
+    private void runLoopback(String[] args) {
+        int clients = benchmark == BENCHMARK.FANIN ? clientCount : 1;
+        Thread serverThread = new Thread(this::run);
+        Thread[] clientThreads = new Thread[clients];
+        JVerbsBench[] clientInstances = new JVerbsBench[clients];
+
+        // Both instances share the same sink file, so only the side, that receives the payloads, stores them
+        boolean serverStores = benchmark != BENCHMARK.UNIDIRECTIONAL;
+
+        if(!serverStores) {
+            sinkMode = SINK_MODE.DISCARD;
+        }
+
+        for(int i = 0; i < clients; i++) {
+            JVerbsBench client = new JVerbsBench(createLoopbackClientArgs(args, bindAddress,
+                    benchmark != BENCHMARK.CONNECT));
+
+            client.loopback = true;
+
+            if(serverStores) {
+                client.sinkMode = SINK_MODE.DISCARD;
+            }
+
+            clientInstances[i] = client;
+            clientThreads[i] = new Thread(client::run);
+        }
+
+        serverThread.start();
+
+        try {
+            listening.await();
+
+            for(Thread clientThread : clientThreads) {
+                clientThread.start();
+            }
+
+            for(Thread clientThread : clientThreads) {
+                clientThread.join();
+            }
+
+            serverThread.join();
+        } catch (InterruptedException e) {
+            Log.ERROR_AND_EXIT("MAIN", "A thread has been interrupted unexpectedly! Error: %s", e.getMessage());
+        }
+
+        if(benchmark == BENCHMARK.FANIN && transport == TRANSPORT.ATOMIC) {
+            // The server only knows the amount of operations, but not their latencies
+            LatencyHistogram cumulated = new LatencyHistogram();
+
+            for(JVerbsBench client : clientInstances) {
+                cumulated.add(client.benchmarks.getLatencyHistogram(0));
+            }
+
+            if(cumulated.getCount() > 0) {
+                cumulated.print(getLatencyHistogramTitle() + ", all clients", Log.VERBOSITY == 0);
+            }
+        }
+
+        JVerbsBench storingInstance = serverStores ? this : clientInstances[0];
+
+        if(storingInstance.sink != null) {
+            storingInstance.printSinkResults();
+        }
+    }
+
+    /**
+     * Execute the warmup phase (if configured) and the measured run of the specified benchmark.
+     */
+    private void runMeasuredBenchmark() {
+        if(warmupCount > 0 || warmupDuration > 0) {
+            runWarmup();
+        }
+
+        benchmarks = new TransportBenchmarks(1, postBatch, sampleInterval, duration * 1000000000);
+
+        if(reportInterval > 0 && mode == MODE.SERVER) {
+            progressSampler = new ProgressSampler(benchmarks.getSentMessageCounters(),
+                    benchmarks.getRecvMessageCounters(), reportInterval);
+        }
+
+        if(perfCounterMode != PERF_COUNTER_MODE.OFF) {
             perfCounter.resetCounters();
         }
 
-        if(mode == MODE.SERVER && benchmark == BENCHMARK.UNIDIRECTIONAL) {
-            if(transport == TRANSPORT.MESSAGING) {
-                sendThread = new Thread(() -> benchmarks.messageSendBenchmark(connection, messageCount));
+        if(sink != null) {
+            sink.resetStatistics();
+        }
+
+        if(progressSampler != null) {
+            progressSampler.start();
+        }
+
+        long compilationTime = BenchmarkReport.getCompilationTime();
+
+        runBenchmark(messageCount);
+
+        measuredCompilationTime = compilationTime < 0 ? -1 :
+                BenchmarkReport.getCompilationTime() - compilationTime;
+
+        if(checkAllocations) {
+            checkAllocations(benchmarks.getAllocatedBytes());
+        }
+
+        if(progressSampler != null) {
+            progressSampler.stop();
+        }
+
+        if(perfCounterMode != PERF_COUNTER_MODE.OFF) {
+            perfCounter.refreshCounters();
+        }
+    }
+
+    /**
+     * Execute the warmup phase (if configured) and the measured run of the fanin benchmark on the server.
+     *
+     * Each client is served by its own receive thread, so that all clients are received from in parallel.
+     */
+    private void runFanIn() {
+        if(warmupCount > 0 || warmupDuration > 0) {
+            BenchmarkReport.logWarmupStart(warmupCount, warmupDuration);
+
+            runFanInReceivers(warmupCount, warmupDuration);
+
+            for(Connection clientConnection : clientConnections) {
+                synchronize(clientConnection);
+            }
+
+            BenchmarkReport.logWarmupEnd();
+        }
+
+        long compilationTime = BenchmarkReport.getCompilationTime();
+
+        clientBenchmarks = runFanInReceivers(messageCount, duration);
+
+        measuredCompilationTime = compilationTime < 0 ? -1 :
+                BenchmarkReport.getCompilationTime() - compilationTime;
+
+        if(checkAllocations) {
+            checkAllocations(clientBenchmarks.getAllocatedBytes());
+        }
+    }
+
+    /**
+     * Receive from all clients of the fanin benchmark in parallel and wait for all of them to finish.
+     *
+     * @param count The amount of messages per client (ignored in a duration-based run)
+     * @param duration The duration of a duration-based run in seconds (0 = receive count messages)
+     *
+     * @return The benchmarks, that have been executed on the connections
+     */
+    private TransportBenchmarks runFanInReceivers(long count, long duration) {
+        TransportBenchmarks results = new TransportBenchmarks(clientConnections.length, postBatch, sampleInterval,
+                duration * 1000000000);
+        Thread[] recvThreads = new Thread[clientConnections.length];
+
+        for(int i = 0; i < clientConnections.length; i++) {
+            int[] ids = { i };
+
+            if(usesMessages()) {
+                recvThreads[i] = new Thread(() -> results.recvBenchmark(clientConnections, ids, count));
             } else {
-                sendThread = new Thread(() -> benchmarks.rdmaSendBenchmark(connection, messageCount));
+                recvThreads[i] = new Thread(() -> results.oneSidedRecvBenchmark(clientConnections, ids));
+            }
+        }
+
+        for(Thread recvThread : recvThreads) {
+            recvThread.start();
+        }
+
+        try {
+            for(Thread recvThread : recvThreads) {
+                recvThread.join();
+            }
+        } catch (InterruptedException e) {
+            Log.ERROR_AND_EXIT("MAIN", "A thread has been interrupted unexpectedly! Error: %s", e.getMessage());
+        }
+
+        return results;
+    }
+
+    /**
+     * Execute the connect benchmark.
+     *
+     * The client establishes connections with clientCount threads in parallel, while the server accepts them
+     * with a single thread, because all connection requests arrive on the same event channel.
+     * The results are printed by the client, since only the client goes through the whole setup path.
+     */
+    private void runConnectBenchmark() {
+        int threadCount = mode == MODE.SERVER ? 1 : clientCount;
+        Thread[] threads = new Thread[threadCount];
+        Connection.Listener listener = null;
+
+        ConnectBenchmark connectBenchmark = new ConnectBenchmark(bufSize, queueSize, clientCount,
+                duration * 1000000000);
+
+        if(mode == MODE.SERVER) {
+            listener = new Connection.Listener(bindAddress, port);
+            listening.countDown();
+
+            Connection.Listener finalListener = listener;
+            threads[0] = new Thread(() -> connectBenchmark.runServer(finalListener));
+        } else {
+            for(int i = 0; i < threadCount; i++) {
+                int thread = i;
+
+                threads[i] = new Thread(() ->
+                        connectBenchmark.runClient(thread, bindAddress, remoteHostname, port, messageCount));
+            }
+        }
+
+        Log.INFO("MAIN", "Running connect benchmark with %d client thread(s)...", clientCount);
+
+        long compilationTime = BenchmarkReport.getCompilationTime();
+
+        for(Thread thread : threads) {
+            thread.start();
+        }
+
+        try {
+            for(Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Log.ERROR_AND_EXIT("MAIN", "A thread has been interrupted unexpectedly! Error: %s", e.getMessage());
+        }
+
+        measuredCompilationTime = compilationTime < 0 ? -1 :
+                BenchmarkReport.getCompilationTime() - compilationTime;
+
+        if(listener != null) {
+            listener.close();
+        }
+
+        if(mode == MODE.CLIENT) {
+            printConnectResults(connectBenchmark);
+
+            if(measuredCompilationTime >= 0) {
+                BenchmarkReport.printCompilationResults(measuredCompilationTime);
+            }
+        } else if(!loopback) {
+            System.out.printf("Served %d connection(s), see results on client!\n",
+                    connectBenchmark.getConnectionCount());
+        }
+    }
+
+    /**
+     * Execute the specified benchmark once per message size and repetition on the same connection.
+     *
+     * The memory regions have been registered with the largest size and only the used part of them changes.
+     * Before each run, both hosts synchronize, so that a run does not overlap with the remote host's previous run.
+     * The server prints one row per message size, which contains the median of all repetitions.
+     */
+    private void runSweep() {
+        if(mode == MODE.SERVER) {
+            BenchmarkReport.printSweepHeader(repetitions, benchmark == BENCHMARK.PINGPONG);
+        }
+
+        for(int size : messageSizes) {
+            double[][] results = new double[repetitions][];
+
+            Log.INFO("MAIN", "Running benchmark with a message size of %d byte(s)...", size);
+
+            bufSize = size;
+            connection.setMessageSize(size);
+
+            for(int i = 0; i < repetitions; i++) {
+                synchronize(connection);
+                runMeasuredBenchmark();
+
+                results[i] = BenchmarkReport.getSweepResults(benchmarks, size,
+                        benchmark == BENCHMARK.PINGPONG);
+            }
+
+            if(mode == MODE.SERVER) {
+                BenchmarkReport.printSweepRow(size, results, benchmark == BENCHMARK.PINGPONG);
+            }
+        }
+    }
+
+    /**
+     * Run the specified benchmark without measuring it, so that the JIT compiler can compile the benchmark's
+     * code path, before the measured run starts.
+     *
+     * Afterwards, both hosts wait for each other via synchronize(), so that the measured run
+     * does not overlap with the remote host's warmup phase.
+     */
+    private void runWarmup() {
+        BenchmarkReport.logWarmupStart(warmupCount, warmupDuration);
+
+        benchmarks = new TransportBenchmarks(1, postBatch, sampleInterval, warmupDuration * 1000000000);
+
+        runBenchmark(warmupCount);
+
+        synchronize(connection);
+
+        BenchmarkReport.logWarmupEnd();
+    }
+
+    /**
+     * Wait, until the remote host has finished its current run.
+     *
+     * Both hosts send a single byte via the TCP-socket and wait for the remote host's byte.
+     *
+     * @param connection The connection to the remote host
+     */
+    private static void synchronize(Connection connection) {
+        try {
+            connection.getSocket().getOutputStream().write(1);
+
+            if(connection.getSocket().getInputStream().read() < 0) {
+                throw new EOFException("Connection has been closed by the remote host!");
             }
+        } catch (IOException e) {
+            Log.ERROR_AND_EXIT("MAIN", "Unable to synchronize with the remote host! Error: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Execute the specified benchmark with the current benchmarks-object in a separate thread
+     * (or two, when bidirectional is chosen) and wait for it to finish.
+     *
+     * @param count The amount of messages to send/receive (ignored in a duration-based run)
+     */
+    private void runBenchmark(long count) {
+        Connection[] connections = { connection };
+        int[] ids = { 0 };
+
+        Thread sendThread;
+        Thread recvThread;
+
+        if((mode == MODE.SERVER && benchmark == BENCHMARK.UNIDIRECTIONAL) ||
+                (mode == MODE.CLIENT && benchmark == BENCHMARK.FANIN)) {
+            sendThread = new Thread(() -> benchmarks.sendBenchmark(connections, ids, count));
 
             sendThread.start();
 
@@ -273,10 +919,10 @@ public class JVerbsBench {
                         e.getMessage());
             }
         } else if(mode == MODE.CLIENT && benchmark == BENCHMARK.UNIDIRECTIONAL) {
-            if(transport == TRANSPORT.MESSAGING) {
-                recvThread = new Thread(() -> benchmarks.messageRecvBenchmark(connection, messageCount));
+            if(usesMessages()) {
+                recvThread = new Thread(() -> benchmarks.recvBenchmark(connections, ids, count));
             } else {
-                recvThread = new Thread(() -> benchmarks.rdmaRecvBenchmark(connection));
+                recvThread = new Thread(() -> benchmarks.oneSidedRecvBenchmark(connections, ids));
             }
 
             recvThread.start();
@@ -288,12 +934,12 @@ public class JVerbsBench {
                         e.getMessage());
             }
         } else if(benchmark == BENCHMARK.BIDIRECTIONAL) {
-            if(transport == TRANSPORT.MESSAGING) {
-                sendThread = new Thread(() -> benchmarks.messageSendBenchmark(connection, messageCount));
-                recvThread = new Thread(() -> benchmarks.messageRecvBenchmark(connection, messageCount));
+            sendThread = new Thread(() -> benchmarks.sendBenchmark(connections, ids, count));
+
+            if(usesMessages()) {
+                recvThread = new Thread(() -> benchmarks.recvBenchmark(connections, ids, count));
             } else {
-                sendThread = new Thread(() -> benchmarks.rdmaSendBenchmark(connection, messageCount));
-                recvThread = new Thread(() -> benchmarks.rdmaRecvBenchmark(connection));
+                recvThread = new Thread(() -> benchmarks.oneSidedRecvBenchmark(connections, ids));
             }
 
             sendThread.start();
@@ -308,9 +954,10 @@ public class JVerbsBench {
             }
         } else if(benchmark == BENCHMARK.PINGPONG) {
             if(mode == MODE.SERVER) {
-                sendThread = new Thread(() -> benchmarks.pingPongBenchmarkServer(connection, messageCount));
+                sendThread = new Thread(() -> benchmarks.pingPongBenchmarkServer(connections, ids, count, window,
+                        rate));
             } else {
-                sendThread = new Thread(() -> benchmarks.pingPongBenchmarkClient(connection, messageCount));
+                sendThread = new Thread(() -> benchmarks.pingPongBenchmarkClient(connections, ids, count, window));
             }
 
             sendThread.start();
@@ -322,20 +969,109 @@ public class JVerbsBench {
                         e.getMessage());
             }
         }
+    }
 
-        if(perfCounterMode != PERF_COUNTER_MODE.OFF) {
-            perfCounter.refreshCounters();
+    /**
+     * Print the rate of the atomic operations.
+     *
+     * The fanin server prints the aggregated rate of all clients, which it calculates from the amount of operations,
+     * that each client has announced, and the time from the first client's start to the last client's end.
+     * In all other cases, the rate of the operations, that this host has executed, is printed.
+     */
+    private void printAtomicResults() {
+        long operations;
+        long time;
+
+        if(clientBenchmarks != null) {
+            operations = clientBenchmarks.getRecvMessages();
+            time = clientBenchmarks.getRecvTime();
+        } else {
+            operations = benchmarks.getSentMessages();
+            time = benchmarks.getSendTime();
         }
 
-        connection.close();
+        double operationRate = BenchmarkReport.getRate(operations, time);
 
-        if(mode == MODE.SERVER) {
-            printResults();
+        if(Log.VERBOSITY > 0) {
+            System.out.printf("\nAtomic operations: %s on %s, %.2f kOps/s\n",
+                    atomicOperation == Connection.RdmaOperation.FETCH_AND_ADD ? "fetch-and-add" : "compare-and-swap",
+                    benchmark != BENCHMARK.FANIN ? "a single word" :
+                            contentionMode == CONTENTION_MODE.SHARED ? "a word shared by all clients" :
+                                    "one word per client", operationRate);
         } else {
-            System.out.println("See results on server!");
+            System.out.printf("%f\n", operationRate);
         }
     }
 
+    /**
+     * Print the inline threshold, that has been used, and the amount of inline data, that the device has granted.
+     */
+    private void printInlineResults() {
+        int threshold = connection.getInlineThreshold();
+        int granted = connection.getGrantedInlineData();
+
+        if(Log.VERBOSITY > 0) {
+            System.out.printf("\nInline threshold: %d byte(s) (requested: %d byte(s), granted by the device: " +
+                    "%d byte(s)), messages of %d byte(s) have %sbeen sent inline\n", threshold, inlineThreshold,
+                    granted, bufSize, bufSize <= threshold ? "" : "not ");
+        } else {
+            System.out.printf("%d\n", threshold);
+            System.out.printf("%d\n", granted);
+        }
+    }
+
+    /**
+     * Check whether the chosen transport is measured by the message benchmarks, in which the receiver posts
+     * receives and counts their completions (msg and rdma-imm).
+     *
+     * The other transports are one-sided, so that their receiver only waits for the amount of operations,
+     * that the sender announces at its end.
+     */
+    private boolean usesMessages() {
+        return transport == TRANSPORT.MESSAGING || transport == TRANSPORT.RDMA_IMM;
+    }
+
+    /**
+     * Get the one-sided operation, that the rdma benchmark performs with the chosen transport.
+     */
+    private Connection.RdmaOperation getRdmaOperation() {
+        switch (transport) {
+            case RDMA_READ:
+                return Connection.RdmaOperation.READ;
+            case ATOMIC:
+                return atomicOperation;
+            default:
+                return Connection.RdmaOperation.WRITE;
+        }
+    }
+
+    /**
+     * Get the offset of the word in the receive buffer, on which a client executes its atomic operations.
+     *
+     * @param client The index of the client, in which order it has been accepted (always 0 without fanin)
+     */
+    private int getAtomicWordOffset(int client) {
+        return contentionMode == CONTENTION_MODE.SHARED ? 0 : client * Connection.ATOMIC_WORD_STRIDE;
+    }
+
+    /**
+     * Terminate the program, if the benchmark threads have allocated memory during the measured run.
+     *
+     * All work requests are posted with stateful verbs calls, that have been prepared when the connection
+     * was established, so the hot loops must not allocate anything per message. Allocations there would
+     * cause garbage collections, which show up as latency outliers.
+     *
+     * @param allocatedBytes The amount of bytes, that the benchmark threads have allocated
+     */
+    private static void checkAllocations(long allocatedBytes) {
+        if(allocatedBytes > 0) {
+            Log.ERROR_AND_EXIT("MAIN", "The benchmark threads have allocated %d byte(s) during the measured run!",
+                    allocatedBytes);
+        }
+
+        Log.INFO("MAIN", "The benchmark threads have not allocated any memory during the measured run!");
+    }
+
     /**
      * Print the help message.
      */
@@ -343,29 +1079,118 @@ public class JVerbsBench {
         System.out.print("Usage: java -jar JSocketBench.jar [OPTION...]\n" +
                 "Available options:\n" +
                 "-m, --mode\n" +
-                "    Set the operating mode (server/client). This is a required option!\n" +
+                "    Set the operating mode (server/client/loopback). 'loopback' runs the server and its " +
+                "client(s) on separate threads inside one process, which connect to the bind address through " +
+                "the local RDMA device (requires '--address'), and prints the server's results. " +
+                "This is a required option!\n" +
                 "-r, --remote\n" +
                 "    Set the remote hostname. This is a required option when the program is running as a client!\n" +
                 "-a, --address\n" +
                 "    Set the address to bind the local socket to.\n" +
                 "-b, --benchmark\n" +
                 "    Set the benchmark to be executed. Available benchmarks are: " +
-                "'unidirectional', 'bidirectional' and 'pingpong' (Default: 'unidirectional').\n" +
+                "'unidirectional', 'bidirectional', 'pingpong', 'fanin' (the clients send and the server " +
+                "receives, see '--clients') and 'connect' (establish and close connections as fast as possible, " +
+                "the client prints the connection rate and the time of each setup phase) " +
+                "(Default: 'unidirectional').\n" +
                 "-t, --transport\n" +
-                "    Set the transport type. Available types are 'msg' and 'rdma' (Default: 'msg').\n" +
+                "    Set the transport type. Available types are 'msg', 'rdma' (rdma writes), 'rdma-read' " +
+                "(rdma reads from the remote host's buffer), 'atomic' (atomic operations on an 8-byte word " +
+                "of the remote host's buffer, see '--atomic' and '--contention') and 'rdma-imm' (rdma writes with " +
+                "immediate data, each of which completes a receive, that the remote host has posted, so that " +
+                "the receiver is measured like with 'msg') (Default: 'msg').\n" +
                 "-s, --size\n" +
                 "    Set the message size in bytes (Default: 1024).\n" +
+                "-sz, --sizes\n" +
+                "    Run the benchmark once per given message size on the same connection and print one row per " +
+                "size (comma separated, 'K' and 'M' suffixes are allowed, e.g. '1,2,4,1K,1M'). " +
+                "Must be set on both sides.\n" +
+                "-rp, --repetitions\n" +
+                "    Set the amount of repetitions per message size of '--sizes'. " +
+                "Each row contains the median of all repetitions (Default: 1).\n" +
                 "-c, --count\n" +
-                "    Set the amount of messages to be sent (Default: 1000000).\n" +
+                "    Set the amount of messages to be sent. The connect benchmark establishes the given amount of " +
+                "connections per client thread instead (Default: 1000000).\n" +
+                "-d, --duration\n" +
+                "    Run the benchmark for the given amount of seconds, instead of sending a fixed amount of " +
+                "messages. Must be set on both sides (Default: 0 = use '--count').\n" +
+                "-ri, --report-interval\n" +
+                "    Sample the progress every given amount of milliseconds and print the messages per second " +
+                "and the throughput of each interval (Default: 0 = off).\n" +
                 "-q, --qsize\n" +
                 "    Set the queue pair size (Default: 100).\n" +
+                "-pb, --post-batch\n" +
+                "    Set the amount of work requests, that the throughput benchmarks post at once, as soon as " +
+                "enough slots of the queue are free (Default: 10).\n" +
+                "-se, --signal-every\n" +
+                "    Only signal every n-th send work request of the throughput benchmarks, so that fewer " +
+                "completions have to be polled. The queue slots of the unsignaled work requests are freed by the " +
+                "completion of the next signaled one, so the post batch plus the interval must not exceed the " +
+                "queue size by more than 1 (Default: 1 = signal every work request).\n" +
+                "-in, --inline\n" +
+                "    Send messages and rdma writes of up to the given size in bytes inline, so that the HCA does not " +
+                "have to read their payload from the send buffer. The threshold, that the device has granted, " +
+                "is printed with the results (Default: 0 = off).\n" +
+                "-rd, --read-depth\n" +
+                "    Set the maximum amount of rdma reads and atomic operations, that may be outstanding at the " +
+                "same time (initiator depth and responder resources of the connection). Must be set on both sides " +
+                "and is limited by the device (Default: 1).\n" +
+                "-ao, --atomic\n" +
+                "    Set the operation of the atomic transport. Available operations are 'faa' (fetch-and-add 1) " +
+                "and 'cas' (compare-and-swap from 0 to 1, like acquiring a lock) (Default: 'faa').\n" +
+                "-cn, --contention\n" +
+                "    Set whether the clients of the fanin benchmark execute their atomic operations on the same " +
+                "word ('shared') or on words of their own, which are 64 bytes apart ('distinct'). Must be set on " +
+                "the server. Each client prints the latency distribution of its operations " +
+                "(Default: 'shared').\n" +
+                "-w, --window\n" +
+                "    Set the maximum amount of outstanding requests in the pingpong benchmark. The server sends " +
+                "a new request, whenever an answer arrives. Must be set on both sides (Default: 1).\n" +
+                "-ra, --rate\n" +
+                "    Send the requests of the pingpong benchmark at a fixed rate (requests/s), independent of the " +
+                "answers (open loop). Latencies are measured from the intended send time, so that delayed requests " +
+                "are not omitted (Default: 0 = as fast as the window allows).\n" +
+                "-sa, --sample-interval\n" +
+                "    Time every n-th work request of the throughput benchmarks from posting it until polling its " +
+                "completion, to get a distribution of send completion latencies. The pingpong benchmark always " +
+                "records every request (Default: 100, 0 = never).\n" +
+                "-hf, --histogram-file\n" +
+                "    Export the full latency distribution to the given file. Each line contains a bucket's " +
+                "upper bound in nanoseconds, its amount of samples and the cumulated percentile.\n" +
+                "-wc, --warmup-count\n" +
+                "    Transfer the given amount of messages before the measured run, so that the JIT compiler can " +
+                "compile the benchmark's code path. Must be set on both sides (Default: 0 = off).\n" +
+                "-wd, --warmup-duration\n" +
+                "    Warm up for the given amount of seconds before the measured run (overrides '--warmup-count'). " +
+                "Must be set on both sides (Default: 0 = off).\n" +
                 "-p, --port\n" +
                 "    Set the TCP-port to be used for the connection (Default: 8888).\n" +
+                "-cl, --clients\n" +
+                "    Set the amount of clients, that the server accepts on its port in the fanin benchmark. " +
+                "All clients are received from in parallel. In the connect benchmark, the client establishes " +
+                "connections with the given amount of threads in parallel, which must be set on both sides " +
+                "(Default: 1).\n" +
+                "-sk, --sink\n" +
+                "    Set what happens to received messages (msg or rdma-imm transport, no fanin):\n" +
+                "        'discard' = Receive all messages into the same buffer (Default).\n" +
+                "        'mmap'    = Copy all messages into a memory mapped file, " +
+                "which is reused from the beginning, when it is full.\n" +
+                "-sf, --sink-file\n" +
+                "    Set the file used by the mmap sink (Default: A temporary file).\n" +
+                "-ss, --sink-size\n" +
+                "    Set the size of the mmap sink in bytes (Default: 1073741824).\n" +
+                "-si, --sync-interval\n" +
+                "    Force the mmap sink to the storage device every time the given amount of bytes has been " +
+                "written (Default: 0 = never).\n" +
                 "-rs, --raw-statistics\n" +
                 "    Show infiniband perfomance counters\n" +
                 "        'mad'    = Use libibmad to get performance counters (requires root-privileges!)\n" +
                 "        'compat' = Use filesystem to get performance counters\n" +
                 "        'off'    = Don't show performance counters (Default).\n" +
+                "-ca, --check-alloc\n" +
+                "    Fail, if the benchmark threads allocate any memory during the measured run ('on'/'off'). " +
+                "Should be combined with a warmup phase, as the first run of the code path may allocate, " +
+                "e.g. while classes are loaded (Default: 'off').\n" +
                 "-v, --verbosity\n" +
                 "    Set the verbosity level: 0 = Fatal errors and raw results,\n" +
                 "                             1 = Fatal errors formatted results,\n" +
@@ -374,183 +1199,159 @@ public class JVerbsBench {
                 "                             4 = All log messages and formatted results (Default).\n");
     }
 
+    /**
+     * Print the aggregated results of all clients of the fanin benchmark, the results of each client and
+     * the fairness between them (see BenchmarkReport.printConnectionResults()).
+     *
+     * The aggregated time spans from the first client's start to the last client's end.
+     */
+    private void printFanInResults() {
+        int clients = clientBenchmarks.getConnectionCount();
+        String[] names = new String[clients];
+        long[] sentBytes = new long[clients];
+        long[] recvBytes = new long[clients];
+
+        for(int i = 0; i < clients; i++) {
+            names[i] = String.format("Client %d", i);
+            recvBytes[i] = clientBenchmarks.getRecvMessages(i) * bufSize;
+        }
+
+        BenchmarkReport.printFanInResults(clientBenchmarks.getRecvTime(), clientBenchmarks.getRecvMessages(),
+                clientBenchmarks.getRecvMessages() * bufSize, clients, null);
+        BenchmarkReport.printConnectionResults(clientBenchmarks, "client", names, sentBytes, recvBytes, false);
+    }
+
+    /**
+     * Print the results of the connect benchmark.
+     *
+     * The average time of each phase is given per connection, so that the phases add up to the average
+     * time of a connection's whole life.
+     *
+     * @param connectBenchmark The executed benchmark
+     */
+    private void printConnectResults(ConnectBenchmark connectBenchmark) {
+        long time = connectBenchmark.getTime();
+        long count = connectBenchmark.getConnectionCount();
+        LatencyHistogram setupHistogram = connectBenchmark.getCumulatedSetupHistogram();
+
+        double connectionRate = count / (time / ((double) 1000000000));
+        double avgSetupTime = setupHistogram.getMean() / (double) 1000;
+
+        if(Log.VERBOSITY > 0) {
+            System.out.print("Results:\n");
+            System.out.printf("  Total time: %.2f s\n", time / ((double) 1000000000));
+            System.out.printf("  Connections: %d (%d in parallel)\n", count, clientCount);
+            System.out.printf("  Connection rate: %.2f connections/s\n", connectionRate);
+            System.out.printf("  Average setup time (until the rdma information is exchanged): %.2f us\n",
+                    avgSetupTime);
+            System.out.print("  Average time per phase:\n");
+        } else {
+            System.out.printf("%f\n", time / ((double) 1000000000));
+            System.out.printf("%d\n", count);
+            System.out.printf("%f\n", connectionRate);
+            System.out.printf("%f\n", avgSetupTime);
+        }
+
+        for(ConnectBenchmark.PHASE phase : ConnectBenchmark.PHASE.values()) {
+            double phaseTime = connectBenchmark.getPhaseTime(phase) / (double) count / (double) 1000;
+
+            if(Log.VERBOSITY > 0) {
+                System.out.printf("    %-17s %10.2f us\n", phase.name().toLowerCase() + ":", phaseTime);
+            } else {
+                System.out.printf("%f\n", phaseTime);
+            }
+        }
+
+        setupHistogram.print("Setup time distribution", Log.VERBOSITY == 0);
+    }
+
     /**
      * Print the benchmark results.
      */
     private void printResults() {
         long sendTime = benchmarks.getSendTime();
         long recvTime = benchmarks.getRecvTime();
+        long sentMessages = benchmarks.getSentMessages();
+        long recvMessages = benchmarks.getRecvMessages();
+        LatencyHistogram latencyHistogram = benchmarks.getLatencyHistogram(0);
 
         if(benchmark == BENCHMARK.PINGPONG) {
-            long avgLatency = sendTime / messageCount;
-
-            if(Log.VERBOSITY > 0) {
-                System.out.print("Results:\n");
-                System.out.printf("  Total time: %.2f s\n", sendTime / ((double) 1000000000));
-                System.out.printf("  Average request response latency: %.2f us\n", avgLatency /
-                        (double) 1000);
-            } else {
-                System.out.printf("%f\n", sendTime / ((double) 1000000000));
-                System.out.printf("%f\n", avgLatency / (double) 1000);
-            }
+            BenchmarkReport.printPingPongResults(sendTime, sentMessages, latencyHistogram, window, rate);
         } else {
-            long totalData = messageCount * bufSize;
-
-            double sendPktsRate = (messageCount / (sendTime / ((double) 1000000000)) / ((double) 1000));
-
-            double recvPktsRate = recvTime == 0 ? 0 : (messageCount / (recvTime / ((double) 1000000000)) /
-                    ((double) 1000));
-
-            double sendAvgThroughputMib = totalData /
-                    (sendTime / ((double) 1000000000)) / ((double) 1024) / ((double) 1024);
-
-            double sendAvgThroughputMb = totalData /
-                    (sendTime / ((double) 1000000000)) / ((double) 1000) / ((double) 1000);
-
-            double recvAvgThroughputMib = recvTime == 0 ? 0 : totalData /
-                    (recvTime / ((double) 1000000000)) / ((double) 1024) / ((double) 1024);
-
-            double recvAvgThroughputMb = recvTime == 0 ? 0 : totalData /
-                    (recvTime / ((double) 1000000000)) / ((double) 1000) / ((double) 1000);
-
-            double sendAvgLatency = sendTime / (double) messageCount / (double) 1000;
-
-            // Even if we only send data, a few bytes will also be received, because of the RC-protocol,
-            // so if recvTime is 0, we just set it to sendTime,
-            // so that the raw receive throughput can be calculated correctly.
-            if (recvTime == 0) {
-                recvTime = sendTime;
-            } else if (sendTime == 0) {
-                recvTime = 0;
-            }
-
-            double sendAvgRawThroughputMib = perfCounterMode == PERF_COUNTER_MODE.OFF ? 0 :
-                    perfCounter.getXmitDataBytes() / (sendTime / ((double) 1000000000)) /
-                            ((double) 1024) / ((double) 1024);
-
-            double sendAvgRawThroughputMb = perfCounterMode == PERF_COUNTER_MODE.OFF ? 0 :
-                    perfCounter.getXmitDataBytes() / (sendTime / ((double) 1000000000)) /
-                            ((double) 1000) / ((double) 1000);
-
-            double recvAvgRawThroughputMib = perfCounterMode == PERF_COUNTER_MODE.OFF ? 0 :
-                    perfCounter.getRcvDataBytes() /(recvTime / ((double) 1000000000)) /
-                            ((double) 1024) / ((double) 1024);
-
-            double recvAvgRawThroughputMb = perfCounterMode == PERF_COUNTER_MODE.OFF ? 0 :
-                    perfCounter.getRcvDataBytes() / (recvTime / ((double) 1000000000)) /
-                            ((double) 1000) / ((double) 1000);
-
-            double sendOverhead = 0;
-            double recvOverhead = 0;
-
-            if(perfCounterMode != PERF_COUNTER_MODE.OFF && totalData < perfCounter.getXmitDataBytes()) {
-                sendOverhead = perfCounter.getXmitDataBytes() - totalData;
-            }
-
-            if(perfCounterMode != PERF_COUNTER_MODE.OFF && totalData < perfCounter.getRcvDataBytes()) {
-                recvOverhead = perfCounter.getRcvDataBytes() - totalData;
-            }
-
-            double sendOverheadPercentage = sendOverhead / (double) totalData;
-            double recvOverheadPercentage = recvOverhead / (double) totalData;
-
-            if (Log.VERBOSITY > 0) {
-                System.out.print("Results:\n");
-                System.out.printf("  Total time: %.2f s\n", sendTime / ((double) 1000000000));
-                System.out.printf("  Total data: %.2f MiB (%.2f MB)\n",
-                        totalData / ((double) 1024) / ((double) 1024),
-                        totalData / ((double) 1000) / ((double) 1000));
-                System.out.printf("  Average sent packet per second:     %.2f kPkts/s\n",
-                        sendPktsRate);
-                System.out.printf("  Average recv packet per second:     %.2f kPkts/s\n",
-                        recvPktsRate);
-                System.out.printf("  Average combined packet per second: %.2f kPkts/s\n",
-                        sendPktsRate + recvPktsRate);
-                System.out.printf("  Average send throughput:     %.2f MiB/s (%.2f MB/s)\n",
-                        sendAvgThroughputMib, sendAvgThroughputMb);
-                System.out.printf("  Average recv throughput:     %.2f MiB/s (%.2f MB/s)\n",
-                        recvAvgThroughputMib, recvAvgThroughputMb);
-                System.out.printf("  Average combined throughput: %.2f MiB/s (%.2f MB/s)\n",
-                        sendAvgThroughputMib + recvAvgThroughputMib, sendAvgThroughputMb + recvAvgThroughputMb);
-                System.out.printf("  Average send latency: %.2f us\n", sendAvgLatency);
-
-                if(perfCounterMode != PERF_COUNTER_MODE.OFF) {
-                    System.out.print("\nRaw statistics:\n");
-                    System.out.printf("  Total packets sent: %d\n", perfCounter.getXmitPkts());
-                    System.out.printf("  Total packets received %d\n", perfCounter.getRcvPkts());
-                    System.out.printf("  Total data sent: %.2f MiB (%.2f MB)\n", perfCounter.getXmitDataBytes() /
-                                    ((double) 1024) / ((double) 1024),
-                            perfCounter.getXmitDataBytes() / ((double) 1000) / ((double) 1000));
-                    System.out.printf("  Total data received: %.2f MiB (%.2f MB)\n", perfCounter.getRcvDataBytes() /
-                                    ((double) 1024) / ((double) 1024),
-                            perfCounter.getRcvDataBytes() / ((double) 1000) / ((double) 1000));
-                    System.out.printf("  Send overhead: %.2f MiB (%.2f MB), %.2f%%\n", sendOverhead /
-                                    ((double) 1024) / ((double) 1024),
-                            sendOverhead / ((double) 1000) / ((double) 1000), sendOverheadPercentage * 100);
-                    System.out.printf("  Receive overhead: %.2f MiB (%.2f MB), %.2f%%\n", recvOverhead /
-                                    ((double) 1024) / ((double) 1024),
-                            recvOverhead / ((double) 1000) / ((double) 1000), recvOverheadPercentage * 100);
-                    System.out.printf("  Total sent data: %.2f MiB (%.2f MB)\n",
-                            perfCounter.getXmitDataBytes() / ((double) 1024) / ((double) 1024),
-                            perfCounter.getXmitDataBytes() / ((double) 1000) / ((double) 1000));
-                    System.out.printf("  Total received data: %.2f MiB (%.2f MB)\n",
-                            perfCounter.getXmitDataBytes() / ((double) 1024) / ((double) 1024),
-                            perfCounter.getXmitDataBytes() / ((double) 1000) / ((double) 1000));
-                    System.out.printf("  Average send throughput:     %.2f MiB/s (%.2f MB/s)\n",
-                            sendAvgRawThroughputMib, sendAvgRawThroughputMb);
-                    System.out.printf("  Average recv throughput:     %.2f MiB/s (%.2f MB/s)\n",
-                            recvAvgRawThroughputMib, recvAvgRawThroughputMb);
-                    System.out.printf("  Average combined throughput: %.2f MiB/s (%.2f MB/s)\n",
-                            sendAvgRawThroughputMib + recvAvgRawThroughputMib,
-                            sendAvgRawThroughputMb + recvAvgRawThroughputMb);
-                }
-            } else {
-                System.out.printf("%f\n", sendTime / ((double) 1000000000));
-                System.out.printf("%f\n", totalData / ((double) 1024) / ((double) 1024));
-                System.out.printf("%f\n", sendPktsRate);
-                System.out.printf("%f\n", recvPktsRate);
-                System.out.printf("%f\n", sendPktsRate + recvPktsRate);
-                System.out.printf("%f\n", sendAvgThroughputMb);
-                System.out.printf("%f\n", recvAvgThroughputMb);
-                System.out.printf("%f\n", sendAvgThroughputMb + recvAvgThroughputMb);
-                System.out.printf("%f\n", sendAvgLatency);
-
-                if(perfCounterMode != PERF_COUNTER_MODE.OFF) {
-                    System.out.printf("%d\n", perfCounter.getXmitPkts());
-                    System.out.printf("%d\n", perfCounter.getXmitPkts());
-                    System.out.printf("%f\n", perfCounter.getXmitDataBytes() / ((double) 1024) / ((double) 1024));
-                    System.out.printf("%f\n", perfCounter.getRcvDataBytes() / ((double) 1024) / ((double) 1024));
-                    System.out.printf("%f\n", sendOverhead / ((double) 1024) / ((double) 1024) );
-                    System.out.printf("%f\n", sendOverheadPercentage * 100);
-                    System.out.printf("%f\n", recvOverhead / ((double) 1024) / ((double) 1024) );
-                    System.out.printf("%f\n", recvOverheadPercentage * 100);
-                    System.out.printf("%f\n", sendAvgRawThroughputMb);
-                    System.out.printf("%f\n", recvAvgRawThroughputMb);
-                    System.out.printf("%f\n", sendAvgRawThroughputMb + recvAvgRawThroughputMb);
-                }
-            }
+            BenchmarkReport.printThroughputResults(sendTime, recvTime, sentMessages, recvMessages,
+                    sentMessages * bufSize, recvMessages * bufSize, null,
+                    perfCounterMode == PERF_COUNTER_MODE.OFF ? null : perfCounter);
+        }
+
+        if(latencyHistogram.getCount() > 0) {
+            latencyHistogram.print(getLatencyHistogramTitle(), Log.VERBOSITY == 0);
+        }
+
+        if(progressSampler != null) {
+            printIntervalResults();
         }
     }
 
     /**
-     * Load a native library, that is contained inside the .jar-file.
-     *
-     * Based on https://stackoverflow.com/a/49500154
-     *
-     * @param path The library's path inside tje .jar-file
+     * Print the amount of messages per second and the throughput of each sampled interval.
      */
-    private static void loadNativeLibraryFromJar(String path) throws IOException {
-        File tmpDir = Files.createTempDirectory("JSocketBench-native").toFile();
-        tmpDir.deleteOnExit();
+    private void printIntervalResults() {
+        BenchmarkReport.printIntervalResults(progressSampler, reportInterval, bufSize, true,
+                benchmark == BENCHMARK.BIDIRECTIONAL, benchmark == BENCHMARK.PINGPONG);
+    }
 
-        File nativeLibTmpFile = new File(tmpDir, path);
-        nativeLibTmpFile.deleteOnExit();
+    /**
+     * Get the title of the measured latency distribution.
+     */
+    private String getLatencyHistogramTitle() {
+        if(benchmark == BENCHMARK.PINGPONG) {
+            return "Request latency distribution";
+        }
 
-        URL url = JVerbsBench.class.getResource(path);
-        InputStream in = url.openStream();
+        if(transport == TRANSPORT.ATOMIC) {
+            return String.format("Atomic operation latency distribution, 1 of %d operations", sampleInterval);
+        }
 
-        Files.copy(in, nativeLibTmpFile.toPath());
-        System.load(nativeLibTmpFile.getAbsolutePath());
+        return String.format("Send completion latency distribution, 1 of %d work requests", sampleInterval);
+    }
+
+    /**
+     * Export the full latency distribution to histogramPath.
+     */
+    private void exportLatencyHistogram() {
+        try(PrintStream stream = new PrintStream(new FileOutputStream(histogramPath))) {
+            benchmarks.getLatencyHistogram(0).export(stream, getLatencyHistogramTitle());
+        } catch (IOException e) {
+            Log.ERROR("MAIN", "Unable to export latency distribution to '%s'! Error: %s", histogramPath,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Print the statistics of the mmap sink.
+     */
+    private void printSinkResults() {
+        double avgSyncTime = sink.getSyncCount() == 0 ? 0 :
+                sink.getSyncTime() / (double) sink.getSyncCount() / (double) 1000;
+
+        if(Log.VERBOSITY > 0) {
+            System.out.print("\nSink statistics:\n");
+            System.out.printf("  Stored data: %.2f MiB (%.2f MB)\n",
+                    sink.getWrittenBytes() / ((double) 1024) / ((double) 1024),
+                    sink.getWrittenBytes() / ((double) 1000) / ((double) 1000));
+            System.out.printf("  Wrap arounds: %d\n", sink.getWraps());
+            System.out.printf("  Syncs: %d (%.2f s in total)\n", sink.getSyncCount(),
+                    sink.getSyncTime() / ((double) 1000000000));
+            System.out.printf("  Average sync time: %.2f us\n", avgSyncTime);
+            System.out.printf("  Maximum sync time: %.2f us\n", sink.getMaxSyncTime() / (double) 1000);
+        } else {
+            System.out.printf("%f\n", sink.getWrittenBytes() / ((double) 1024) / ((double) 1024));
+            System.out.printf("%d\n", sink.getWraps());
+            System.out.printf("%d\n", sink.getSyncCount());
+            System.out.printf("%f\n", sink.getSyncTime() / ((double) 1000000000));
+            System.out.printf("%f\n", avgSyncTime);
+            System.out.printf("%f\n", sink.getMaxSyncTime() / (double) 1000);
+        }
     }
 
     /**
@@ -575,7 +1376,7 @@ public class JVerbsBench {
 
         if(bench.perfCounterMode != PERF_COUNTER_MODE.OFF) {
             try {
-                loadNativeLibraryFromJar("/libIbPerfCounter.so");
+                IbPerfCounter.loadNativeLibrary();
                 Log.INFO("MAIN", "Successfully loaded native library 'libIbPerfCounter.so'");
             } catch (Exception e) {
                 Log.ERROR_AND_EXIT("MAIN", "Unable to load native library 'libIbPerfCounter.so'! Error: %s",
@@ -583,6 +1384,10 @@ public class JVerbsBench {
             }
         }
 
-        bench.run();
+        if(bench.loopback) {
+            bench.runLoopback(args);
+        } else {
+            bench.run();
+        }
     }
 }
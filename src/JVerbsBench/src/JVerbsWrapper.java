@@ -1,7 +1,6 @@
 import com.ibm.net.rdma.jverbs.cm.*;
 import com.ibm.net.rdma.jverbs.verbs.*;
 import java.nio.ByteBuffer;
-import java.util.HashMap;
 import java.util.LinkedList;
 
 /**
@@ -60,29 +59,24 @@ class JVerbsWrapper {
     private QueuePair queuePair;
 
     /**
-     * An array, which holds all work completions.
-     */
-    private WorkCompletion[] workComps;
-
-    /**
-     * Stateful Verbs Method for posting Send Work Requests.
+     * The maximum amount of bytes, that can be sent inline, as granted by the device.
      */
-    private PostSendMethod postSendMethod;
+    private int maxInlineData;
 
     /**
-     * Stateful Verbs Method for posting Receive Work Requests.
+     * An array, which holds all work completions.
      */
-    private PostReceiveMethod postReceiveMethod;
+    private WorkCompletion[] workComps;
 
     /**
-     * Amount of last posted send work requests.
+     * All stateful verbs methods, that have been prepared for posting send work requests.
      */
-    private int lastSend;
+    private final LinkedList<PostSendMethod> postSendMethods = new LinkedList<>();
 
     /**
-     * Amount of last posted receive work requests.
+     * All stateful verbs methods, that have been prepared for posting receive work requests.
      */
-    private int lastReceive;
+    private final LinkedList<PostReceiveMethod> postReceiveMethods = new LinkedList<>();
 
     /**
      * Stateful Verbs Method for polling the send completion queue.
@@ -108,8 +102,9 @@ class JVerbsWrapper {
      *
      * @param id The connection id, from which to get the context
      * @param queueSize Desired size of the queue pair and completion queue
+     * @param maxInlineData Desired maximum amount of bytes, that can be sent inline (0 = no inline sends)
      */
-    JVerbsWrapper(ConnectionId id, int queueSize) throws Exception {
+    JVerbsWrapper(ConnectionId id, int queueSize, int maxInlineData) throws Exception {
         this.queueSize = queueSize;
 
         // Get context
@@ -133,35 +128,41 @@ class JVerbsWrapper {
         attr.getCap().setMaxReceiveWorkRequest(queueSize);
         attr.getCap().setMaxSendSge(1);
         attr.getCap().setMaxSendWorkRequest(queueSize);
+        attr.getCap().setMaxInlineData(maxInlineData);
         attr.setQueuePairType(QueuePair.Type.IBV_QPT_RC);
         attr.setSendCompletionQueue(sendCompQueue);
         attr.setReceiveCompletionQueue(recvCompQueue);
 
         queuePair = id.createQueuePair(protDom, attr);
 
+        // The capabilities are updated with the actual values, when the queue pair is created
+        this.maxInlineData = attr.getCap().getMaxInlineData();
+
         // Create work completion list
         workComps = new WorkCompletion[queueSize];
 
         for(int i = 0; i < this.workComps.length; i++) {
             this.workComps[i] = new WorkCompletion();
         }
-
-        lastSend = -1;
-        lastReceive = -1;
     }
 
     /**
      * Register a buffer as memory region.
      *
      * @param buffer The buffer to be registered
+     * @param remoteAtomic Whether the remote host may execute atomic operations on the region
      *
      * @return The registered memory region
      */
-    MemoryRegion registerMemoryRegion(ByteBuffer buffer) throws Exception {
+    MemoryRegion registerMemoryRegion(ByteBuffer buffer, boolean remoteAtomic) throws Exception {
         int accessFlags = MemoryRegion.IBV_ACCESS_LOCAL_WRITE  |
                           MemoryRegion.IBV_ACCESS_REMOTE_WRITE |
                           MemoryRegion.IBV_ACCESS_REMOTE_READ;
 
+        if(remoteAtomic) {
+            accessFlags |= MemoryRegion.IBV_ACCESS_REMOTE_ATOMIC;
+        }
+
         return protDom.registerMemoryRegion(buffer, accessFlags).execute().getMemoryRegion();
     }
 
@@ -175,49 +176,104 @@ class JVerbsWrapper {
     }
 
     /**
-     * Get a stateful verbs call, that posts a list of work requests to the send queue.
+     * Get the amount of batch sizes, for which stateful verbs calls are prepared.
      *
-     * @param sendWrs The list of work requests to be posted
+     * A call is prepared for every power of two up to the queue size, so that any amount of work requests,
+     * that fits into the queue, can be posted by executing at most one call per bit of the amount
+     * (see Connection.postSends()). Preparing a call for every single batch size would need memory
+     * quadratic in the queue size, as each call contains a serialized copy of its work requests.
+     */
+    int getBatchSizeCount() {
+        return 32 - Integer.numberOfLeadingZeros(queueSize);
+    }
+
+    /**
+     * Prepare stateful verbs calls, that post batches of the given send work requests.
      *
-     * @return The stateful verbs call
+     * The send flags are set by this function, so that the same work requests can be prepared with different flags
+     * (e.g. to signal only the last work request of each batch).
+     *
+     * @param sendWrs The work requests (at least the queue size), of which the first 2^i are posted by the i-th call
+     * @param sendFlags The send flags of the work requests, except for the last one of each batch
+     * @param lastSendFlags The send flags of the last work request of each batch
+     *
+     * @return The prepared calls, indexed by the binary logarithm of their batch size
      */
-    PostSendMethod getPostSendMethod(LinkedList<SendWorkRequest> sendWrs) throws Exception {
-        if(lastSend != sendWrs.size()) {
-            if(postSendMethod != null) {
-                postSendMethod.free();
+    PostSendMethod[] preparePostSends(SendWorkRequest[] sendWrs, int sendFlags, int lastSendFlags) throws Exception {
+        PostSendMethod[] methods = new PostSendMethod[getBatchSizeCount()];
+
+        for(int i = 0; i < methods.length; i++) {
+            LinkedList<SendWorkRequest> batch = new LinkedList<>();
+
+            for(int j = 0; j < 1 << i; j++) {
+                sendWrs[j].setSendFlags(j == (1 << i) - 1 ? lastSendFlags : sendFlags);
+                batch.add(sendWrs[j]);
             }
 
-            postSendMethod = queuePair.preparePostSend(sendWrs);
-        }
+            methods[i] = queuePair.preparePostSend(batch);
+            postSendMethods.add(methods[i]);
 
-        if(!postSendMethod.isValid()) {
-            Log.ERROR_AND_EXIT("WRAPPER", "PostSendMethod invalid!");
+            if(!methods[i].isValid()) {
+                Log.ERROR_AND_EXIT("WRAPPER", "PostSendMethod invalid!");
+            }
         }
 
-        return postSendMethod;
+        return methods;
     }
 
     /**
-     * Get a stateful verbs call, that posts a list of work requests to the recv queue.
+     * Prepare stateful verbs calls, that post batches of the given receive work requests.
      *
-     * @param recvWrs The list of work requests to be posted
+     * @param recvWrs The work requests (at least the queue size), of which the first 2^i are posted by the i-th call
      *
-     * @return The stateful verbs call
+     * @return The prepared calls, indexed by the binary logarithm of their batch size
      */
-    PostReceiveMethod getPostReceiveMethod(LinkedList<ReceiveWorkRequest> recvWrs) throws Exception {
-        if(lastReceive != recvWrs.size()) {
-            if(postReceiveMethod != null) {
-                postReceiveMethod.free();
+    PostReceiveMethod[] preparePostReceives(ReceiveWorkRequest[] recvWrs) throws Exception {
+        PostReceiveMethod[] methods = new PostReceiveMethod[getBatchSizeCount()];
+
+        for(int i = 0; i < methods.length; i++) {
+            LinkedList<ReceiveWorkRequest> batch = new LinkedList<>();
+
+            for(int j = 0; j < 1 << i; j++) {
+                batch.add(recvWrs[j]);
             }
 
-            postReceiveMethod = queuePair.preparePostReceive(recvWrs);
+            methods[i] = queuePair.preparePostReceive(batch);
+            postReceiveMethods.add(methods[i]);
+
+            if(!methods[i].isValid()) {
+                Log.ERROR_AND_EXIT("WRAPPER", "PostReceiveMethod invalid!");
+            }
         }
 
-        if(!postReceiveMethod.isValid()) {
-            Log.ERROR_AND_EXIT("WRAPPER", "PostReceiveMethod invalid!");
+        return methods;
+    }
+
+    /**
+     * Free all stateful verbs calls, that have been prepared for posting work requests.
+     *
+     * Must be called, before the calls are prepared again with changed work requests (e.g. a new message size),
+     * as a stateful verbs call contains a serialized copy of its work requests.
+     */
+    void freePostMethods() throws Exception {
+        for(PostSendMethod method : postSendMethods) {
+            method.free();
         }
 
-        return postReceiveMethod;
+        for(PostReceiveMethod method : postReceiveMethods) {
+            method.free();
+        }
+
+        postSendMethods.clear();
+        postReceiveMethods.clear();
+    }
+
+    /**
+     * Get the maximum amount of bytes, that can be sent inline, as granted by the device
+     * (may be larger than the desired amount).
+     */
+    int getMaxInlineData() {
+        return maxInlineData;
     }
 
     /**
@@ -266,10 +322,15 @@ class JVerbsWrapper {
      * Destroy all JVerbs resources.
      */
     void destroy() throws Exception {
-        postSendMethod.free();
-        postSendMethod.free();
-        sendCqMethod.free();
-        recvCqMethod.free();
+        freePostMethods();
+
+        if(sendCqMethod != null) {
+            sendCqMethod.free();
+        }
+
+        if(recvCqMethod != null) {
+            recvCqMethod.free();
+        }
 
         context.destroyCompletionQueue(sendCompQueue);
         context.destroyCompletionQueue(recvCompQueue);